@@ -1,6 +1,7 @@
 plugins {
     java
     application
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 repositories {
@@ -39,6 +40,16 @@ dependencies {
     }
 }
 
+// Benchmarks live in src/jmh/java and run with "gradlew jmh"; results go to
+// build/results/jmh.  Pass e.g. -PjmhIncludes=Simulation to run a subset.
+jmh {
+    jmhVersion.set("1.37")
+    resultFormat.set("JSON")
+    if (project.hasProperty("jmhIncludes")) {
+        includes.set(listOf(project.property("jmhIncludes").toString()))
+    }
+}
+
 application {
     mainClass.set("Mars")
 }
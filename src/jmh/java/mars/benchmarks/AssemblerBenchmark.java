@@ -0,0 +1,65 @@
+   package mars.benchmarks;
+   import mars.*;
+   import java.util.*;
+   import java.util.concurrent.TimeUnit;
+   import org.openjdk.jmh.annotations.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Time to read, tokenize and assemble each benchmark program into memory, as the
+ * Assemble action or the command line does.
+ */
+
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    @State(Scope.Thread)
+    public class AssemblerBenchmark {
+      @Param({ "loops", "recursion", "data", "macros" })
+      public String program;
+      private String path;
+   
+       @Setup
+       public void setup() throws Exception {
+         BenchmarkSupport.initialize();
+         path = BenchmarkSupport.programFile(program).getPath();
+      }
+   
+       @Benchmark
+       public ArrayList assemble() throws ProcessingException {
+         MIPSprogram code = new MIPSprogram();
+         ArrayList filenames = new ArrayList();
+         filenames.add(path);
+         code.assemble(code.prepareFilesForAssembly(filenames, path, null), true, false);
+         return code.getMachineList();
+      }
+   }
@@ -0,0 +1,141 @@
+   package mars.benchmarks;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Shared set-up for the benchmarks: MARS initialization and the benchmark programs,
+ * which are resources under /benchmarks.  The programs are
+ * <ul>
+ * <li>loops: nested counting loops of ALU instructions and branches</li>
+ * <li>recursion: recursive Fibonacci, heavy on jal, jr and the stack</li>
+ * <li>data: a large .data section of every kind, then loops over it</li>
+ * <li>macros: macros, .eqv and pseudo-instructions</li>
+ * </ul>
+ * Each runs to completion in between 600 thousand and 9 million instructions.
+ */
+
+    final class BenchmarkSupport {
+      /** Names of the benchmark programs, for use as a JMH parameter. */
+      static final String[] PROGRAMS = { "loops", "recursion", "data", "macros" };
+      private static final HashMap files = new HashMap();
+   
+       private BenchmarkSupport() {
+      }
+   
+   /**
+    * Initialize MARS for command-line use, as MarsLaunch does.  Safe to call more than once.
+    */
+       static synchronized void initialize() {
+         Globals.initialize(false);
+      }
+   
+   /**
+    * Returns a file holding the named benchmark program, since the assembler reads
+    * its source from a file.
+    *
+    * @param name one of PROGRAMS
+    * @return the file
+    */
+       static synchronized File programFile(String name) throws IOException {
+         File file = (File) files.get(name);
+         if (file == null) {
+            InputStream in = BenchmarkSupport.class.getResourceAsStream("/benchmarks/" + name + ".asm");
+            if (in == null) {
+               throw new FileNotFoundException("benchmark program " + name);
+            }
+            file = File.createTempFile("mars-" + name + "-", ".asm");
+            file.deleteOnExit();
+            OutputStream out = new FileOutputStream(file);
+            try {
+               byte[] buffer = new byte[8192];
+               int n;
+               while ((n = in.read(buffer)) > 0) {
+                  out.write(buffer, 0, n);
+               }
+            }
+            finally {
+               out.close();
+               in.close();
+            }
+            files.put(name, file);
+         }
+         return file;
+      }
+   
+   /**
+    * Returns the source lines of the named benchmark program.
+    *
+    * @param name one of PROGRAMS
+    * @return list of String
+    */
+       static ArrayList sourceLines(String name) throws IOException {
+         ArrayList lines = new ArrayList();
+         BufferedReader in = new BufferedReader(new FileReader(programFile(name)));
+         try {
+            String line;
+            while ((line = in.readLine()) != null) {
+               lines.add(line);
+            }
+         }
+         finally {
+            in.close();
+         }
+         return lines;
+      }
+   
+   /**
+    * Assemble the named benchmark program into memory, with pseudo-instructions allowed.
+    *
+    * @param name one of PROGRAMS
+    * @return the assembled program
+    */
+       static MIPSprogram assemble(String name) throws IOException, ProcessingException {
+         String path = programFile(name).getPath();
+         MIPSprogram code = new MIPSprogram();
+         ArrayList filenames = new ArrayList();
+         filenames.add(path);
+         code.assemble(code.prepareFilesForAssembly(filenames, path, null), true, false);
+         return code;
+      }
+   
+   /**
+    * Put the registers back to their reset values and the program counter at the
+    * start of the program, ready to run it again.
+    */
+       static void resetRegisters() {
+         RegisterFile.resetRegisters();
+         Coprocessor1.resetRegisters();
+         Coprocessor0.resetRegisters();
+         RegisterFile.initializeProgramCounter(false);
+      }
+   }
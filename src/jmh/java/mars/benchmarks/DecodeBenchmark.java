@@ -0,0 +1,103 @@
+   package mars.benchmarks;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import mars.mips.instructions.*;
+   import java.util.*;
+   import java.util.concurrent.TimeUnit;
+   import org.openjdk.jmh.annotations.*;
+   import org.openjdk.jmh.infra.Blackhole;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Decoding of binary machine code, as done for self-modifying code, memory dumps
+ * and the Text Segment display.  The words are the machine code of all benchmark
+ * programs plus random encodings of every basic instruction, 4096 in all.
+ */
+
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    @State(Scope.Thread)
+    public class DecodeBenchmark {
+      private static final int WORDS = 4096;
+      private int[] words;
+      private InstructionSet instructionSet;
+   
+       @Setup
+       public void setup() throws Exception {
+         BenchmarkSupport.initialize();
+         instructionSet = Globals.instructionSet;
+         ArrayList found = new ArrayList();
+         for (int i = 0; i < BenchmarkSupport.PROGRAMS.length; i++) {
+            ArrayList machineList = BenchmarkSupport.assemble(BenchmarkSupport.PROGRAMS[i]).getMachineList();
+            for (int j = 0; j < machineList.size(); j++) {
+               found.add(Integer.valueOf(((ProgramStatement) machineList.get(j)).getBinaryStatement()));
+            }
+         }
+         Random random = new Random(1);
+         ArrayList instructions = instructionSet.getInstructionList();
+         while (found.size() < WORDS) {
+            Object instruction = instructions.get(random.nextInt(instructions.size()));
+            if (instruction instanceof BasicInstruction) {
+               BasicInstruction basic = (BasicInstruction) instruction;
+               found.add(Integer.valueOf((random.nextInt() & ~basic.getOpcodeMask()) | basic.getOpcodeMatch()));
+            }
+         }
+         Collections.shuffle(found, random);
+         words = new int[WORDS];
+         for (int i = 0; i < WORDS; i++) {
+            words[i] = ((Integer) found.get(i)).intValue();
+         }
+      }
+   
+       @Benchmark
+       public void findByBinaryCode(Blackhole blackhole) {
+         for (int i = 0; i < words.length; i++) {
+            blackhole.consume(instructionSet.findByBinaryCode(words[i]));
+         }
+      }
+   
+       @Benchmark
+       public void decode(Blackhole blackhole) {
+         for (int i = 0; i < words.length; i++) {
+            blackhole.consume(instructionSet.decode(words[i]));
+         }
+      }
+   
+       @Benchmark
+       public void programStatementFromBinary(Blackhole blackhole) {
+         int address = Memory.textBaseAddress;
+         for (int i = 0; i < words.length; i++) {
+            blackhole.consume(new ProgramStatement(words[i], address + 4 * i));
+         }
+      }
+   }
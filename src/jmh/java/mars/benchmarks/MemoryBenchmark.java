@@ -0,0 +1,119 @@
+   package mars.benchmarks;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import java.util.*;
+   import java.util.concurrent.TimeUnit;
+   import org.openjdk.jmh.annotations.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Memory loads and stores of {@value #WORDS} consecutive data segment words, as
+ * executed by lw, sw, lbu and sb.  The observers parameter is "none" for no memory
+ * observers, "elsewhere" for one on the stack, which the accesses must skip quickly,
+ * and "here" for one on the words accessed, which is notified of every access.
+ */
+
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    @State(Scope.Thread)
+    public class MemoryBenchmark {
+      private static final int WORDS = 1024;
+   
+      @Param({ "none", "elsewhere", "here" })
+      public String observers;
+      private Memory memory;
+      private int base;
+      private Observer observer;
+      private long notices;
+   
+       @Setup
+       public void setup() throws Exception {
+         BenchmarkSupport.initialize();
+         memory = Memory.getInstance();
+         memory.clear();
+         base = Memory.dataBaseAddress;
+         observer = 
+             new Observer() {
+                public void update(Observable memory, Object accessNotice) {
+                  notices++;
+               }
+            };
+         if (observers.equals("elsewhere")) {
+            memory.addObserver(observer, Memory.stackPointer - 4 * WORDS, Memory.stackPointer);
+         } 
+         else if (observers.equals("here")) {
+            memory.addObserver(observer, base, base + 4 * (WORDS - 1));
+         }
+      }
+   
+       @TearDown
+       public void tearDown() {
+         memory.deleteObserver(observer);
+      }
+   
+       @Benchmark
+       public int storeWords() throws AddressErrorException {
+         int sum = 0;
+         for (int i = 0; i < WORDS; i++) {
+            sum += memory.setWord(base + 4 * i, i);
+         }
+         return sum;
+      }
+   
+       @Benchmark
+       public int loadWords() throws AddressErrorException {
+         int sum = 0;
+         for (int i = 0; i < WORDS; i++) {
+            sum += memory.getWord(base + 4 * i);
+         }
+         return sum;
+      }
+   
+       @Benchmark
+       public int storeBytes() throws AddressErrorException {
+         int sum = 0;
+         for (int i = 0; i < WORDS; i++) {
+            sum += memory.setByte(base + i, i);
+         }
+         return sum;
+      }
+   
+       @Benchmark
+       public int loadBytes() throws AddressErrorException {
+         int sum = 0;
+         for (int i = 0; i < WORDS; i++) {
+            sum += memory.getByte(base + i);
+         }
+         return sum;
+      }
+   }
@@ -0,0 +1,94 @@
+   package mars.benchmarks;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import java.util.*;
+   import java.util.concurrent.TimeUnit;
+   import org.openjdk.jmh.annotations.*;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Headless execution of each benchmark program for a fixed number of instructions,
+ * {@value #STEPS}, as with the command-line step limit.  Divide STEPS by the time
+ * per operation for instructions per second.
+ * <p>
+ * With observed=false the simulator may use its fast loop.  With observed=true an
+ * observer on the data segment, as a tool would register, forces the regular loop.
+ */
+
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    @State(Scope.Thread)
+    public class SimulationBenchmark {
+      /** Number of instructions executed per operation */
+      public static final int STEPS = 500000;
+   
+      @Param({ "loops", "recursion", "data", "macros" })
+      public String program;
+      @Param({ "false", "true" })
+      public boolean observed;
+      private MIPSprogram code;
+      private Observer observer;
+      private long notices;
+   
+       @Setup(Level.Trial)
+       public void setup() throws Exception {
+         BenchmarkSupport.initialize();
+         code = BenchmarkSupport.assemble(program);
+         if (observed) {
+            observer = 
+                new Observer() {
+                   public void update(Observable memory, Object accessNotice) {
+                     notices++;
+                  }
+               };
+            Memory.getInstance().addObserver(observer, Memory.dataSegmentBaseAddress, Memory.dataSegmentLimitAddress - 4);
+         }
+      }
+   
+       @TearDown(Level.Trial)
+       public void tearDown() {
+         if (observer != null) {
+            Memory.getInstance().deleteObserver(observer);
+         }
+      }
+   
+       @Setup(Level.Invocation)
+       public void reset() {
+         BenchmarkSupport.resetRegisters();
+      }
+   
+       @Benchmark
+       public boolean run() throws ProcessingException {
+         return code.simulate(STEPS);
+      }
+   }
@@ -0,0 +1,68 @@
+   package mars.benchmarks;
+   import mars.*;
+   import mars.assembler.*;
+   import java.util.*;
+   import java.util.concurrent.TimeUnit;
+   import org.openjdk.jmh.annotations.*;
+   import org.openjdk.jmh.infra.Blackhole;
+
+/*
+Copyright (c) 2003-2013,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Time for Tokenizer.tokenizeLine to tokenize every line of each benchmark program,
+ * without .eqv substitution.
+ */
+
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    @State(Scope.Thread)
+    public class TokenizerBenchmark {
+      @Param({ "loops", "recursion", "data", "macros" })
+      public String program;
+      private String[] lines;
+   
+       @Setup
+       public void setup() throws Exception {
+         BenchmarkSupport.initialize();
+         ArrayList source = BenchmarkSupport.sourceLines(program);
+         lines = (String[]) source.toArray(new String[source.size()]);
+      }
+   
+       @Benchmark
+       public void tokenizeLines(Blackhole blackhole) {
+         Tokenizer tokenizer = new Tokenizer();
+         ErrorList errors = new ErrorList();
+         for (int i = 0; i < lines.length; i++) {
+            blackhole.consume(tokenizer.tokenizeLine(i + 1, lines[i], errors, false));
+         }
+      }
+   }
@@ -0,0 +1,173 @@
+# Benchmark program: a large .data section (words, halves, bytes, strings, floats)
+# followed by loops that sum the word table repeatedly and copy the byte table.
+# Runs about 670 thousand instructions.
+        .data
+words:  .word -15110, -60456, 3500, 70638, -87343, -81012, 40478, -75325, -4137, 52774, -84796, 33021, -43719, -90171, -77470, 13677
+        .word 9621, -81688, -36912, -76221, 44453, 11285, -84505, 48230, -67547, -41480, 65314, 64477, 52829, -83784, 51284, 53496
+        .word 3987, -87001, -42045, -87789, 45926, -65090, -24081, 9874, -62185, 41737, -69122, 49661, -19134, 46868, 78782, -52624
+        .word -72985, 52462, 49737, 67487, -50751, -2379, -74460, 43587, 86675, -83541, 47945, -84376, 62269, -46010, 30132, 78362
+        .word 39387, 12090, -17649, 22054, 53501, 18799, -5214, -21418, -34877, -52876, 83237, -36012, -78543, 50581, -21292, 37677
+        .word 29791, -9960, 91219, 17659, -24519, 59634, -80811, -69050, 34200, 9608, -56757, 98479, -10333, -60159, 28178, 10545
+        .word -89723, 75168, -79653, 46296, 50215, -17753, -10839, 82267, -8203, 55810, 30200, 52016, 19591, -81975, -75465, -29238
+        .word 24282, 82725, 74103, -82961, -84096, 91669, 83891, -18839, 69640, 51505, 78582, 16822, -25395, 87859, 1132, 75283
+        .word -9035, -94086, 21030, -6818, -55948, 60148, -69305, 29418, -84546, -42799, -24652, -66095, 93557, -35090, 4306, 2485
+        .word 30156, -78877, -56389, 17751, 5288, 44032, -27167, -64106, 12858, 44236, -27014, 85177, 8867, -5951, 78971, -270
+        .word -39510, -60437, -78247, -53806, -60339, -39194, 72626, -38833, -96838, 27130, 54435, -52200, -31123, -26094, -98927, -61812
+        .word 9824, 40139, -3203, 59858, 48462, -16478, -67104, 81008, 35132, 61898, 71695, 77261, 93930, -85847, 19706, 78408
+        .word 46609, 2859, 4351, 4589, 3316, -72859, 26228, 66275, 4973, -83683, -50033, -82346, -45274, 15507, -57454, -71183
+        .word -10857, 57477, -86218, -73162, -99939, 48578, -60347, 40671, -73402, -4682, 60887, -93316, -81568, -45487, 60974, -1374
+        .word -61059, 66306, -33873, -8934, 57883, -4537, 24295, -67798, -69761, 27944, 22156, 25932, 26834, -18250, -77486, -62221
+        .word -73213, 96522, -10181, 94078, -30596, 25467, 81418, -57680, 35353, -93946, -46205, 38479, -5169, -61570, 80897, 42389
+        .word -92911, 98742, 38440, -21858, 68536, -76143, 82503, -31551, 35894, -3872, -56211, -6757, -41597, 39615, 41968, 31779
+        .word -13581, 66839, -41531, 60754, 98789, -48844, -37246, 5037, 93953, -40562, -47593, 35695, 29179, -6792, 91628, -92404
+        .word -92677, -26753, 23794, -32059, -49238, 81540, 58633, -9749, 17238, 89563, -8376, -4413, -78888, -42208, -73221, -40534
+        .word 23228, -48435, -11465, -46425, 26524, 63595, 59976, -99500, 25691, 71174, -9821, 68593, -77776, 73168, -68568, 1852
+        .word 86513, 96644, -47750, 25313, -53202, 13750, 66682, -12833, -77260, 89222, 3766, 21414, 5221, 94865, -77739, 90001
+        .word -58357, -55435, -66698, -92779, -60377, 54877, 21989, 71929, -61682, 60320, 56203, 24349, 72298, -8143, -59129, 43827
+        .word 43729, -65664, -94391, -96267, 90413, 70308, -73059, 38040, 96475, -63497, 13720, -48933, -44677, -92662, -33984, -44222
+        .word -23201, 31376, -36945, 53730, -14544, -32010, 42698, 9841, -65640, -84035, 93966, -7258, 20104, 73663, 52921, 35465
+        .word 10265, 31504, -65722, 39414, -60198, 37234, 33836, -95097, 15376, -52000, 59528, -98970, -60731, -54821, -62892, 24123
+        .word 62293, 90105, -68455, 45876, -83812, -14546, 78869, 35882, 39126, 45605, 26481, -72185, 46878, -85105, -34859, -49851
+        .word -27408, -88938, -74377, 33094, 18535, 47253, -92696, 99227, -83389, 16194, -14643, 60570, 32527, 58895, 34260, -47728
+        .word 81595, -27338, 18579, 33210, 39797, 25314, 33104, -35079, 83295, 37156, -31950, 46673, -46893, 17316, -64052, 9218
+        .word -68118, 2855, 15898, -17168, -80983, 75939, -36918, 12286, -80832, -44245, 75498, -20629, -67927, -59513, 87726, 68678
+        .word 73082, -4008, -62519, -33650, -64020, 22614, -42437, 95738, -75326, 4400, 27732, -57325, 75068, -41356, -57673, 85158
+        .word 13120, 35162, 5856, -11103, 10435, -48687, -6516, -16501, -75832, 89307, -4068, -94893, -11401, 45240, 20237, 15463
+        .word 84326, -95260, 753, -13100, 35642, 63558, -22549, 34286, -83147, -70418, -40086, -72533, -77964, -30384, -28718, -89623
+        .word -52408, -29105, 98122, -66038, 10691, 77202, -32208, 6416, -60845, 40666, 34947, 49578, 29659, 83610, -14267, -76549
+        .word -26846, -84920, 80408, -51938, 11494, -81018, -29504, -95588, 66314, -76783, -31698, -78048, 59430, -41698, -82536, -30676
+        .word -68103, 18954, -96974, -11094, 44982, 9513, -29783, 62975, -66125, -88674, 38127, 86000, -37496, -71308, -57678, -31346
+        .word -86794, -52514, -47108, -18214, 64802, -20045, 39220, 99097, -46033, -23989, 16834, 31095, 76201, -53365, -29085, -9036
+        .word -95239, -34347, -90314, -95978, -95168, 92172, 32554, 44454, -50336, 34803, 24455, -35597, 17192, -72139, 72574, 70421
+        .word 13292, 72100, 29761, 43106, 3045, 32824, -19317, 80287, -43592, -39821, -10163, -47932, 85263, 91062, 66717, -63374
+        .word 6089, -8892, -85743, -65969, -96264, -81461, 63957, 94219, -32998, 12916, -57206, -85477, -77853, 74385, -155, 32629
+        .word 75778, -26093, 56966, -36506, 81583, -23177, -88142, 20442, -51412, -58704, -29474, 16870, -99051, -30993, -4543, -13774
+        .word 43412, -15188, -35920, -90970, -18854, -42888, -6524, -52039, -99720, -12095, 41, -78009, 24424, -26881, 31796, 71971
+        .word -47315, -34942, 32313, -98703, -76184, -30750, -76472, -62287, 4729, 53826, -89078, 3279, -94104, -21450, -20245, 65064
+        .word -38971, -77854, 53507, 38723, 96749, -59302, 72371, 87693, 56384, 2109, -14506, 88921, 29549, -60820, -25505, 89833
+        .word 62190, 68616, -62055, -88522, 87435, 34474, 64451, 12523, 92374, 83776, 32524, -63482, 37299, 97359, 32217, 49023
+        .word -95785, 79954, 53108, 86433, 79016, 81751, 68529, -39723, -77694, -91832, -89027, -65111, 67017, -5443, -72497, -1272
+        .word 18328, 46414, -86689, 64565, -95062, 64161, 39314, 78432, -35891, 28265, -30849, -99132, 19786, -81621, 96153, 31850
+        .word 40299, -75898, 72831, 37885, -82686, 95488, 93144, 24219, -33889, -80484, -30386, -38453, 91190, 98296, -46204, -39514
+        .word 93941, 70375, 20675, 29485, 285, -79884, 25569, 79226, -24682, -87746, 61736, 65882, 68496, -48020, -79692, 57209
+        .word -61354, -13028, -33432, 70795, 94829, 81636, -20199, 62830, 48835, -65020, -96732, 26463, -84099, 27349, -29543, 76161
+        .word -73912, 81452, -42933, 77132, 28349, -23754, 85826, 35406, -25147, 21808, 22132, 22248, -68936, 43937, -47768, -18297
+        .word -77494, 23979, -95412, -24087, 20316, -79956, 32807, 17820, -29574, 1409, -44993, -44764, -80441, 52429, -76328, -62844
+        .word 95949, 37380, -31369, -5746, -65239, 58168, 65588, 33364, -26713, -70463, 84375, -4269, -39345, 30518, 27438, 3305
+        .word -93490, -58302, -99059, 28895, 78674, 18164, 6278, -20846, 90626, -63115, 9099, -9833, -1407, -17143, -68305, -13146
+        .word -99544, -14922, 96800, -11324, 4401, -68532, -48688, 86914, -96928, 93962, -24023, -33622, -2425, -82967, 2996, 2278
+        .word 54449, -79973, -5443, 12211, 98090, -27870, -87347, -26433, -73338, -86469, 73533, -25126, 66451, -60963, -34642, -30341
+        .word 14357, 33945, -17267, -50233, -2129, 12131, -92395, 99663, 65385, 4868, 45267, 43976, -46671, 88631, -78878, -87031
+        .word 91981, 7711, 18190, 61196, 97307, -63675, 68949, -24973, 27290, -87161, 44207, -66627, -55236, 23780, 8754, -9911
+        .word -26142, -21941, -32959, 93732, 93657, 71132, -31799, 6485, 71965, -37436, -21138, 26663, 46098, 75341, 3381, -68611
+        .word -56135, 68612, -57623, -80295, -45508, 31230, 30305, 44280, -42322, 18747, -12750, 99032, 17954, 12046, -63406, 43598
+        .word -49562, -36015, -76220, -54205, -10359, 45719, -76121, -16301, -37315, -3451, -32274, 49321, -47010, -94736, 96518, 8208
+        .word 358, 8497, 95517, 37407, -44949, -1207, -29159, -11343, 97161, -83732, 30585, -27251, 50544, -5591, -67003, 80028
+        .word 31962, 38733, 65052, -43387, -75726, -28954, -34870, 810, 4793, 69290, 16879, 13203, -18207, -94283, -66643, -91548
+        .word 11463, 85994, 24064, 53924, 28404, -99954, -80828, 2634, 38375, 22723, 17689, -34867, -71415, -41333, -59531, -60137
+        .word 36935, 78801, -71456, 89198, 83763, 69698, 19885, -77717, 44572, -89634, -99642, -67062, -39032, 49260, -90146, 69215
+wordsEnd:
+halves: .half 16859, -10092, -21614, 11056, -13499, 4619, 11699, -1333, 15782, 20059, -22652, -23483, -25390, -10317, 4369, 8200
+        .half -17437, -4567, -12903, -15348, 21805, 9391, -29925, -29315, 5224, -10240, 191, -11742, -9268, 12242, 25011, 27919
+        .half -14117, 1149, 4490, -14615, 5848, -13809, -28082, -3012, 16180, 12575, -9855, -26376, -28573, -17279, 2657, 27989
+        .half 14201, 12412, -2474, -24686, -13141, -15069, 13735, -2192, -5738, -15138, 2305, -27766, 15601, -7846, 17076, -2439
+        .half -6256, 14732, -4025, -17019, -29558, 22236, -10857, 18439, 25387, 3087, -25581, -16551, 2485, -16866, -9572, 20191
+        .half 23739, -17291, -14874, 481, -15488, -12632, 19838, 28283, -10672, -22857, 10868, 2490, 9983, -17725, 28751, -15365
+        .half 1788, -2670, 29663, 13600, -26303, 8980, -20407, -4215, -26438, -16045, -28452, 9067, -20700, -2778, -26603, 16521
+        .half -26059, -17935, -4224, -533, 28862, 16663, 27906, -9409, 18019, -22581, -24799, -19146, -8423, -17504, -17843, 12760
+        .half 4393, 18910, 645, -27910, -9565, 13544, 17538, -5187, 24993, -5498, -8262, -1005, -18908, -22860, -29812, -24873
+        .half -11663, -24708, -6967, -2463, 28010, -21893, 6774, 19729, -16408, -5088, -6628, 20379, 23842, -9770, 23871, 22686
+        .half -1660, -24249, -26772, 16219, 1028, -17174, -5574, 5489, -749, -17350, -8812, -6129, 18320, 28785, 1099, -28016
+        .half 11396, -3078, -13747, 23203, 10986, 20244, -3473, -27336, -5387, -27716, 412, -25899, 22647, -25937, -13157, -17225
+        .half 18974, -25881, 28887, 9689, -7779, -6213, -12154, -8048, 10434, -27144, -12819, 18918, 16965, 15192, -9259, -11937
+        .half -10510, -29753, 17288, 19522, 9031, 22799, 11548, -25719, -28411, 24133, -14674, -22971, 1141, 16895, 522, 20879
+        .half -4670, 21760, -13548, 29870, -1824, 23398, 2340, -21303, 2541, -18011, -29430, 22597, 18397, -10122, 23920, 15358
+        .half 20646, -20084, 9797, -14525, -8518, 26442, -9059, 197, -6286, 21369, 21265, 9040, -24822, 3546, -17069, -4331
+bytes:  .byte 40, 63, 104, 16, 8, 123, 83, 41, 109, 26, 18, 67, 21, 53, 24, 107, 127, 114, 44, 59, 34, 106, 117, 60, 31, 75, 75, 71, 68, 95, 65, 66
+        .byte 50, 112, 63, 47, 62, 60, 39, 72, 48, 83, 16, 101, 64, 62, 59, 25, 118, 9, 26, 1, 121, 59, 114, 95, 10, 75, 59, 30, 12, 48, 49, 19
+        .byte 95, 45, 114, 66, 1, 27, 89, 55, 9, 94, 87, 36, 11, 52, 65, 9, 52, 2, 83, 104, 95, 47, 79, 19, 52, 8, 126, 123, 16, 104, 25, 101
+        .byte 39, 23, 41, 101, 69, 104, 72, 78, 106, 13, 79, 91, 106, 106, 4, 93, 50, 100, 103, 52, 1, 111, 40, 108, 29, 23, 103, 93, 117, 41, 33, 3
+        .byte 13, 36, 101, 22, 94, 43, 37, 89, 72, 41, 43, 17, 27, 98, 125, 50, 77, 32, 11, 123, 80, 13, 99, 22, 41, 56, 103, 50, 121, 46, 55, 10
+        .byte 102, 40, 98, 91, 31, 38, 63, 49, 10, 9, 82, 30, 99, 116, 78, 107, 78, 63, 108, 99, 94, 114, 112, 45, 5, 0, 125, 119, 60, 114, 117, 45
+        .byte 121, 102, 27, 17, 32, 91, 110, 93, 23, 113, 10, 10, 33, 21, 80, 20, 13, 96, 34, 6, 16, 28, 49, 33, 125, 73, 42, 56, 16, 89, 64, 40
+        .byte 82, 70, 116, 36, 65, 122, 53, 67, 60, 81, 95, 9, 50, 46, 103, 41, 71, 83, 96, 43, 67, 29, 12, 92, 115, 26, 64, 100, 95, 67, 96, 94
+        .byte 37, 92, 84, 20, 113, 58, 45, 12, 75, 64, 79, 80, 0, 8, 56, 38, 74, 110, 106, 93, 12, 33, 125, 58, 11, 5, 13, 0, 90, 77, 27, 91
+        .byte 57, 105, 77, 34, 52, 93, 121, 40, 34, 3, 62, 38, 115, 24, 16, 37, 69, 102, 67, 2, 14, 89, 113, 126, 63, 42, 0, 11, 15, 6, 103, 47
+        .byte 60, 40, 14, 26, 3, 50, 36, 105, 51, 106, 44, 79, 16, 76, 12, 122, 1, 96, 111, 119, 20, 115, 44, 57, 26, 66, 59, 9, 31, 85, 67, 13
+        .byte 68, 111, 67, 75, 55, 21, 3, 43, 66, 60, 51, 40, 83, 49, 99, 84, 61, 97, 120, 120, 1, 6, 111, 59, 78, 54, 100, 19, 43, 37, 8, 6
+        .byte 28, 27, 41, 88, 36, 7, 7, 10, 35, 10, 17, 11, 16, 93, 51, 16, 98, 27, 63, 52, 52, 28, 8, 8, 22, 73, 122, 25, 33, 25, 52, 75
+        .byte 81, 86, 108, 66, 5, 89, 65, 72, 12, 94, 82, 121, 73, 7, 105, 7, 111, 25, 88, 120, 12, 55, 23, 73, 43, 111, 0, 51, 73, 13, 1, 89
+        .byte 125, 24, 125, 47, 126, 88, 66, 40, 72, 54, 59, 127, 42, 28, 20, 125, 26, 83, 91, 24, 102, 101, 22, 108, 6, 95, 52, 77, 67, 109, 43, 97
+        .byte 59, 117, 32, 8, 89, 83, 39, 115, 82, 43, 118, 112, 65, 59, 32, 85, 118, 60, 49, 68, 77, 39, 39, 63, 83, 89, 41, 60, 83, 48, 66, 26
+bytesEnd:
+msg0:   .asciiz "benchmark string number 0, padded out to a realistic length"
+msg1:   .asciiz "benchmark string number 1, padded out to a realistic length"
+msg2:   .asciiz "benchmark string number 2, padded out to a realistic length"
+msg3:   .asciiz "benchmark string number 3, padded out to a realistic length"
+msg4:   .asciiz "benchmark string number 4, padded out to a realistic length"
+msg5:   .asciiz "benchmark string number 5, padded out to a realistic length"
+msg6:   .asciiz "benchmark string number 6, padded out to a realistic length"
+msg7:   .asciiz "benchmark string number 7, padded out to a realistic length"
+msg8:   .asciiz "benchmark string number 8, padded out to a realistic length"
+msg9:   .asciiz "benchmark string number 9, padded out to a realistic length"
+msg10:   .asciiz "benchmark string number 10, padded out to a realistic length"
+msg11:   .asciiz "benchmark string number 11, padded out to a realistic length"
+msg12:   .asciiz "benchmark string number 12, padded out to a realistic length"
+msg13:   .asciiz "benchmark string number 13, padded out to a realistic length"
+msg14:   .asciiz "benchmark string number 14, padded out to a realistic length"
+msg15:   .asciiz "benchmark string number 15, padded out to a realistic length"
+        .align 3
+        .double -670.796946, 315.799685, -609.135905, -698.079810
+        .float -703.3617, -395.7894, -405.1912, -452.3589
+        .double -781.441858, 822.805004, -438.391191, 770.496225
+        .float -72.1673, -974.7654, 708.6553, -126.9439
+        .double -555.095650, 961.762557, -407.573455, -955.765409
+        .float -485.5729, 476.4808, -988.9647, -515.4315
+        .double 705.782643, 402.323836, 174.853679, 294.402203
+        .float 691.9871, 335.7915, 304.9704, 755.2141
+        .double 283.384691, 167.522696, -542.787691, -636.990091
+        .float -751.5690, -134.9423, -480.3838, 401.3004
+        .double 789.488456, -515.207756, -199.736093, 425.270999
+        .float -687.0832, 698.8829, -34.5128, -960.6854
+        .double 717.074996, 36.504532, 322.206437, 745.985690
+        .float 788.9888, -343.8928, -978.7358, 663.7428
+        .double 816.383928, -787.239968, -497.553787, -564.237026
+        .float 432.4322, 902.6525, -600.3770, -303.5850
+        .double 694.319003, -86.430616, -590.036158, -48.528947
+        .float -967.7871, 585.1336, -260.1722, -314.2964
+        .double 484.219863, -86.180818, 980.555947, -632.394725
+        .float 27.5842, 865.3840, 458.2130, 228.0046
+        .double 275.137619, -495.084565, -236.326614, -876.992345
+        .float -849.6301, 830.8713, 257.1295, 349.7682
+        .double 160.350505, -781.483051, -393.009234, -199.044616
+        .float 907.1795, 943.0022, 988.4605, 921.7030
+        .double -75.766903, -670.933304, 858.837840, -862.210083
+        .float 596.7872, -613.6559, 284.3986, 441.4095
+        .double 629.278644, -707.473079, 332.075576, 661.398140
+        .float 590.5136, -173.4270, 992.2775, 519.7759
+        .double 299.215050, 559.693379, -61.196754, 567.186935
+        .float -539.0921, 408.4006, 374.9030, 965.7821
+        .double 357.637229, -36.862031, 610.873144, 597.825874
+        .float -284.0452, 308.8055, -359.3590, -30.1616
+copy:   .space 512
+        .text
+main:   li    $s1, 100          # passes over the tables
+        li    $s0, 0            # checksum
+pass:   la    $t0, words
+        la    $t1, wordsEnd
+sum:    lw    $t2, 0($t0)
+        addu  $s0, $s0, $t2
+        addiu $t0, $t0, 4
+        bne   $t0, $t1, sum
+        la    $t0, bytes
+        la    $t1, bytesEnd
+        la    $t3, copy
+copyb:  lbu   $t2, 0($t0)
+        sb    $t2, 0($t3)
+        addiu $t0, $t0, 1
+        addiu $t3, $t3, 1
+        bne   $t0, $t1, copyb
+        addiu $s1, $s1, -1
+        bgtz  $s1, pass
+        li    $v0, 10
+        syscall
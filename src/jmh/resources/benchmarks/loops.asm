@@ -0,0 +1,19 @@
+# Benchmark program: nested counting loops with arithmetic, logic and branches.
+# Runs about 9 million instructions.
+        .text
+main:   li    $s0, 0            # checksum
+        li    $t0, 1000         # outer counter
+outer:  li    $t1, 1000         # inner counter
+inner:  addu  $s0, $s0, $t1
+        xor   $t2, $s0, $t0
+        sll   $t3, $t2, 3
+        srl   $t3, $t3, 1
+        and   $t4, $t3, $t1
+        or    $s0, $s0, $t4
+        slt   $t5, $t4, $t0
+        addiu $t1, $t1, -1
+        bgtz  $t1, inner
+        addiu $t0, $t0, -1
+        bgtz  $t0, outer
+        li    $v0, 10
+        syscall
@@ -0,0 +1,59 @@
+# Benchmark program: source dominated by macro definitions and expansions, .eqv
+# substitutions and pseudo-instructions.  Runs about 2 million instructions.
+        .eqv  COUNT  20000
+        .eqv  STEP   3
+        .eqv  LIMIT  1000000
+
+        .macro push (%reg)
+        addi  $sp, $sp, -4
+        sw    %reg, 0($sp)
+        .end_macro
+
+        .macro pop (%reg)
+        lw    %reg, 0($sp)
+        addi  $sp, $sp, 4
+        .end_macro
+
+        .macro clamp (%reg, %limit)
+        blt   %reg, %limit, clamp_ok
+        subi  %reg, %reg, %limit
+clamp_ok:
+        .end_macro
+
+        .macro accumulate (%sum, %value, %scale)
+        mul   $t9, %value, %scale
+        addu  %sum, %sum, $t9
+        clamp (%sum, LIMIT)
+        .end_macro
+
+        .macro swap (%a, %b)
+        push  (%a)
+        move  %a, %b
+        pop   (%b)
+        .end_macro
+
+        .macro step (%i, %sum, %other)
+        accumulate (%sum, %i, STEP)
+        swap  (%sum, %other)
+        swap  (%sum, %other)
+        rol   %other, %other, 1
+        andi  %other, %other, 0xffff
+        abs   %other, %other
+        .end_macro
+
+        .data
+result: .word 0
+
+        .text
+main:   li    $s0, 0
+        li    $s1, 12345
+        li    $s2, COUNT
+loop:   step  ($s2, $s0, $s1)
+        step  ($s2, $s1, $s0)
+        step  ($s2, $s0, $s1)
+        step  ($s2, $s1, $s0)
+        subi  $s2, $s2, 1
+        bgtz  $s2, loop
+        sw    $s0, result
+        li    $v0, 10
+        syscall
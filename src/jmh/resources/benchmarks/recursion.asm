@@ -0,0 +1,29 @@
+# Benchmark program: naive recursive Fibonacci, exercising the stack, jal and jr.
+# fib(24) runs about 1.5 million instructions.
+        .text
+main:   li    $a0, 24
+        jal   fib
+        move  $s0, $v0
+        li    $v0, 10
+        syscall
+
+# int fib(int n): returns n if n < 2, else fib(n-1) + fib(n-2)
+fib:    slti  $t0, $a0, 2
+        beq   $t0, $zero, recurse
+        move  $v0, $a0
+        jr    $ra
+recurse:
+        addiu $sp, $sp, -12
+        sw    $ra, 8($sp)
+        sw    $a0, 4($sp)
+        addiu $a0, $a0, -1
+        jal   fib
+        sw    $v0, 0($sp)
+        lw    $a0, 4($sp)
+        addiu $a0, $a0, -2
+        jal   fib
+        lw    $t1, 0($sp)
+        addu  $v0, $v0, $t1
+        lw    $ra, 8($sp)
+        addiu $sp, $sp, 12
+        jr    $ra
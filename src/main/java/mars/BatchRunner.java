@@ -0,0 +1,347 @@
+   package mars;
+   import mars.util.*;
+   import mars.mips.hardware.*;
+   import mars.simulator.*;
+   import java.io.*;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2012,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Assembles and runs a whole set of MIPS programs from the command line in one
+ * MARS session, e.g. for grading or regression runs.  Start-up cost (class loading,
+ * building the instruction set, JIT warm-up) is paid once rather than once per program.
+ * Memory, registers and open files are reset between programs.
+ * <p>
+ * Programs are run on a number of worker threads, each with its own Machine, so
+ * that a batch can use several processors.  Results are written in program order
+ * whatever the number of threads.
+ * <p>
+ * The programs come either from a directory, in which case every file in it with a
+ * MIPS source extension is run on its own with the same-named ".in" file (if any) as
+ * its standard input, or from a manifest file.  Each non-blank manifest line not
+ * starting with # names a program and optionally, separated by whitespace, its input
+ * file.  Relative names are relative to the manifest's directory.
+ * <p>
+ * The results file has a header line and then one tab-separated line per program:
+ * program, status, exit code, instructions executed, assemble and run wall time in
+ * milliseconds, standard output and any error messages.  In the last two columns
+ * backslash, tab, carriage return and newline are written as \\, \t, \r and \n.
+ * Status is one of ok, step-limit, runtime-error, assemble-error, io-error or
+ * internal-error, the last meaning MARS itself failed on the program.
+ *
+ * @version October 2026
+ **/
+
+    public class BatchRunner {
+      /** Extension of a program's standard input file when running a directory */
+      public static final String INPUT_EXTENSION = ".in";
+      private static final String STATUS_OK = "ok";
+      private static final String STATUS_STEP_LIMIT = "step-limit";
+      private static final String STATUS_RUNTIME_ERROR = "runtime-error";
+      private static final String STATUS_ASSEMBLE_ERROR = "assemble-error";
+      private static final String STATUS_IO_ERROR = "io-error";
+      private static final String STATUS_INTERNAL_ERROR = "internal-error";
+
+      private boolean pseudo;
+      private boolean warningsAreErrors;
+      private boolean startAtMain;
+      private int maxSteps;
+      private ArrayList programArgumentList;
+      private int assembleErrorExitCode;
+      private int simulateErrorExitCode;
+      private int threads;
+      private PrintStream out;
+      private ArrayList jobs;
+      private String[][] resultLines;
+      private int nextJob;
+
+   /**
+    * Create a batch runner.  Delayed branching, self-modifying code and the memory
+    * configuration are taken from the current settings.
+    *
+    * @param pseudo true if pseudo-instructions are permitted
+    * @param warningsAreErrors true if assembler warnings are to be treated as errors
+    * @param startAtMain true to start execution at the global label main, if defined
+    * @param maxSteps maximum number of steps per program, 0 or less for no maximum
+    * @param programArgumentList program arguments given to every program, or null
+    * @param assembleErrorExitCode exit code recorded for a program that fails to assemble
+    * @param simulateErrorExitCode exit code recorded for a program that fails at runtime
+    * @param threads number of programs to run at once, 0 or less for one per available processor
+    * @param out stream for MARS messages about the batch as a whole
+    **/
+       public BatchRunner(boolean pseudo, boolean warningsAreErrors, boolean startAtMain, int maxSteps,
+                          ArrayList programArgumentList, int assembleErrorExitCode, int simulateErrorExitCode,
+                          int threads, PrintStream out) {
+         this.pseudo = pseudo;
+         this.warningsAreErrors = warningsAreErrors;
+         this.startAtMain = startAtMain;
+         this.maxSteps = maxSteps;
+         this.programArgumentList = programArgumentList;
+         this.assembleErrorExitCode = assembleErrorExitCode;
+         this.simulateErrorExitCode = simulateErrorExitCode;
+         this.threads = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+         this.out = out;
+      }
+
+   /**
+    * Run every program listed by the given directory or manifest and write the results.
+    *
+    * @param source directory of programs, or manifest file listing them
+    * @param results file to write the results to
+    * @return number of programs that did not finish with status ok
+    * @throws IOException if the manifest cannot be read or the results cannot be written
+    **/
+       public int run(File source, File results) throws IOException {
+         jobs = (source.isDirectory()) ? listDirectory(source) : readManifest(source);
+         resultLines = new String[jobs.size()][];
+         nextJob = 0;
+         PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(results)));
+         int failures = 0;
+         try {
+            runWorkers();
+            writer.println("program\tstatus\texit\tinstructions\tassemble_ms\trun_ms\tstdout\tmessages");
+            for (int i = 0; i < resultLines.length; i++) {
+               String[] result = resultLines[i];
+               if (!STATUS_OK.equals(result[1])) {
+                  failures++;
+               }
+               for (int j = 0; j < result.length; j++) {
+                  if (j > 0) {
+                     writer.print('\t');
+                  }
+                  writer.print(result[j]);
+               }
+               writer.println();
+            }
+         }
+         finally {
+            writer.close();
+         }
+         out.println("Batch complete: " + jobs.size() + " programs, " + failures + " not ok. Results in " + results);
+         return failures;
+      }
+
+      //////////////////////////////////////////////////////////////////////
+      // Start the worker threads and wait for them to run every job.  Each
+      // worker makes its own Machine current, so the default machine and its
+      // standard streams are left alone.
+
+       private void runWorkers() {
+         Thread[] workers = new Thread[Math.min(threads, Math.max(1, jobs.size()))];
+         for (int i = 0; i < workers.length; i++) {
+            workers[i] =
+                new Thread("MARS batch " + (i + 1)) {
+                   public void run() {
+                     Machine.setCurrent(new Machine());
+                     int job;
+                     while ((job = takeJob()) >= 0) {
+                        File[] files = (File[]) jobs.get(job);
+                        String[] result = runProgram(files[0], files[1]);
+                        synchronized (BatchRunner.this) {
+                           resultLines[job] = result;
+                        }
+                     }
+                  }
+               };
+            workers[i].start();
+         }
+         for (int i = 0; i < workers.length; i++) {
+            try {
+               workers[i].join();
+            }
+               catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+         }
+      }
+
+      // Index of the next job to run, or -1 if there are none left.
+       private synchronized int takeJob() {
+         return (nextJob < jobs.size()) ? nextJob++ : -1;
+      }
+
+      //////////////////////////////////////////////////////////////////////
+      // Assemble and run one program, returning its results line as columns.
+
+       private String[] runProgram(File program, File input) {
+         String status = STATUS_OK;
+         int exitCode = 0;
+         long instructions = 0;
+         long assembleTime = 0;
+         long runTime = 0;
+         StringBuffer messages = new StringBuffer();
+         ByteArrayOutputStream output = new ByteArrayOutputStream();
+         InputStream inputStream = null;
+         long start = System.currentTimeMillis();
+         try {
+            inputStream = (input == null) ? (InputStream) new ByteArrayInputStream(new byte[0])
+                                          : new BufferedInputStream(new FileInputStream(input));
+            PrintStream outputStream = new PrintStream(output, true);
+            SystemIO.setStandardStreams(inputStream, outputStream, outputStream);
+            Machine.getCurrent().reset();
+            boolean programRan = false;
+            MIPSprogram code = new MIPSprogram();
+            try {
+               ArrayList filesToAssemble = new ArrayList();
+               filesToAssemble.add(program.getPath());
+               ArrayList MIPSprogramsToAssemble =
+                      code.prepareFilesForAssembly(filesToAssemble, program.getPath(), null);
+               ErrorList warnings = code.assemble(MIPSprogramsToAssemble, pseudo, warningsAreErrors);
+               if (warnings != null && warnings.warningsOccurred()) {
+                  messages.append(warnings.generateWarningReport());
+               }
+               RegisterFile.initializeProgramCounter(startAtMain);
+               new ProgramArgumentList(programArgumentList).storeProgramArguments();
+               assembleTime = System.currentTimeMillis() - start;
+               start = System.currentTimeMillis();
+               programRan = true;
+               boolean done = code.simulate(maxSteps);
+               runTime = System.currentTimeMillis() - start;
+               if (!done) {
+                  status = STATUS_STEP_LIMIT;
+               }
+               exitCode = Machine.getCurrent().getExitCode();
+            }
+               catch (ProcessingException e) {
+                  if (programRan) {
+                     runTime = System.currentTimeMillis() - start;
+                     status = STATUS_RUNTIME_ERROR;
+                     exitCode = simulateErrorExitCode;
+                  }
+                  else {
+                     assembleTime = System.currentTimeMillis() - start;
+                     status = STATUS_ASSEMBLE_ERROR;
+                     exitCode = assembleErrorExitCode;
+                  }
+                  messages.append(e.errors().generateErrorAndWarningReport());
+               }
+               catch (RuntimeException e) {
+                  // a fault in MARS, such as in a syscall, fails this program but not the batch
+                  if (programRan) {
+                     runTime = System.currentTimeMillis() - start;
+                     exitCode = simulateErrorExitCode;
+                  }
+                  else {
+                     assembleTime = System.currentTimeMillis() - start;
+                     exitCode = assembleErrorExitCode;
+                  }
+                  status = STATUS_INTERNAL_ERROR;
+                  messages.append(e.toString());
+               }
+            if (programRan) {
+               instructions = Simulator.getInstance().getInstructionCount();
+            }
+            outputStream.flush();
+         }
+            catch (IOException e) {
+               status = STATUS_IO_ERROR;
+               messages.append(e.getMessage());
+            }
+         finally {
+            if (inputStream != null) {
+               try {
+                  inputStream.close();
+               }
+                  catch (IOException e) { }
+            }
+         }
+         return new String[] { program.getPath(), status, Integer.toString(exitCode), Long.toString(instructions),
+                               Long.toString(assembleTime), Long.toString(runTime),
+                               escape(output.toString()), escape(messages.toString()) };
+      }
+
+      //////////////////////////////////////////////////////////////////////
+      // Every MIPS source file in the directory, in name order, each with its
+      // same-named input file if there is one.
+
+       private ArrayList listDirectory(File directory) {
+         ArrayList filenames = FilenameFinder.getFilenameList(directory.getPath(), Globals.fileExtensions);
+         Collections.sort(filenames);
+         ArrayList jobs = new ArrayList();
+         for (int i = 0; i < filenames.size(); i++) {
+            File program = new File((String) filenames.get(i));
+            String name = program.getName();
+            int dot = name.lastIndexOf('.');
+            File input = new File(program.getParentFile(), ((dot < 0) ? name : name.substring(0, dot)) + INPUT_EXTENSION);
+            jobs.add(new File[] { program, (input.isFile()) ? input : null });
+         }
+         return jobs;
+      }
+
+      //////////////////////////////////////////////////////////////////////
+      // Programs and optional input files listed in the manifest.
+
+       private ArrayList readManifest(File manifest) throws IOException {
+         File directory = manifest.getAbsoluteFile().getParentFile();
+         ArrayList jobs = new ArrayList();
+         BufferedReader reader = new BufferedReader(new FileReader(manifest));
+         try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+               line = line.trim();
+               if (line.length() == 0 || line.startsWith("#")) {
+                  continue;
+               }
+               StringTokenizer st = new StringTokenizer(line);
+               File program = resolve(directory, st.nextToken());
+               File input = (st.hasMoreTokens()) ? resolve(directory, st.nextToken()) : null;
+               jobs.add(new File[] { program, input });
+            }
+         }
+         finally {
+            reader.close();
+         }
+         return jobs;
+      }
+
+       private static File resolve(File directory, String name) {
+         File file = new File(name);
+         return (file.isAbsolute()) ? file : new File(directory, name);
+      }
+
+       private static String escape(String s) {
+         StringBuffer result = new StringBuffer(s.length());
+         for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+               case '\\' : result.append("\\\\");
+                  break;
+               case '\t' : result.append("\\t");
+                  break;
+               case '\r' : result.append("\\r");
+                  break;
+               case '\n' : result.append("\\n");
+                  break;
+               default : result.append(c);
+            }
+         }
+         return result.toString();
+      }
+   }
@@ -0,0 +1,275 @@
+   package mars;
+   import mars.mips.hardware.*;
+   import mars.tools.CacheModel;
+   import java.io.*;
+   import java.nio.*;
+   import java.nio.channels.FileChannel;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2012,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Simulates many data cache configurations at once from the command line, on the
+ * data accesses of a program run or on an address trace file, and reports the hit
+ * rate of each.  A design-space sweep over block size, associativity and policy
+ * then takes a single run instead of one CacheSimulator run per configuration.
+ * <p>
+ * Configurations are given as specifications of the form
+ * <code>blocks x words x ways [:policy]</code>, without spaces, e.g. "64x4x2:lru" for 64
+ * blocks of 4 words in 2-block sets with LRU replacement.  Ways may be "full" for a
+ * fully associative cache, and policy is lru (the default) or random.  Each of the
+ * four fields may be a comma-separated list, and a specification stands for every
+ * combination of the listed values.  Levels of a hierarchy are separated by "/", e.g.
+ * "16x4x1/256x8x4", where each level sees the misses of the one before it.
+ * <p>
+ * As in CacheSimulator, a program's accesses from the data segment base through the
+ * stack are simulated.  A trace file is either a memory trace recorded by
+ * MemoryTraceWriter, whose data accesses are filtered the same way, or a file of
+ * 32-bit big-endian byte addresses, one per access, all of which are simulated.
+ *
+ * @version October 2026
+ **/
+
+    public class CacheSweep implements Memory.AccessListener {
+
+      private static final int TRACE_MAPPING_SIZE = 1 << 26; // bytes of trace file mapped at once
+
+      private final String[] specifications;
+      private final CacheModel[] caches; // first level of each configuration
+
+    /**
+     * Create the configurations given by the specifications.
+     *
+     * @param specifications list of configuration specifications, as described above
+     * @throws IllegalArgumentException if a specification is invalid
+     */
+       public CacheSweep(List specifications) {
+         ArrayList names = new ArrayList();
+         ArrayList firstLevels = new ArrayList();
+         for (int i = 0; i < specifications.size(); i++) {
+            String specification = ((String) specifications.get(i)).toLowerCase();
+            ArrayList hierarchies = new ArrayList();
+            hierarchies.add(new ArrayList());
+            StringTokenizer levels = new StringTokenizer(specification, "/");
+            if (!levels.hasMoreTokens()) {
+               throw new IllegalArgumentException("empty cache specification");
+            }
+            while (levels.hasMoreTokens()) {
+               hierarchies = expand(hierarchies, parseLevel(levels.nextToken()));
+            }
+            for (int j = 0; j < hierarchies.size(); j++) {
+               // Levels are shared between hierarchies, so each gets copies of its own.
+               ArrayList hierarchy = (ArrayList) hierarchies.get(j);
+               StringBuffer name = new StringBuffer();
+               CacheModel previous = null;
+               for (int k = 0; k < hierarchy.size(); k++) {
+                  CacheModel template = (CacheModel) hierarchy.get(k);
+                  CacheModel level = new CacheModel(template.getNumberOfBlocks(), template.getBlockSizeInWords(),
+                                        template.getSetSizeInBlocks(), template.getReplacementPolicy());
+                  if (previous == null) {
+                     firstLevels.add(level);
+                  } 
+                  else {
+                     name.append('/');
+                     previous.setNextLevel(level);
+                  }
+                  name.append(level);
+                  previous = level;
+               }
+               names.add(name.toString());
+            }
+         }
+         this.specifications = (String[]) names.toArray(new String[names.size()]);
+         this.caches = (CacheModel[]) firstLevels.toArray(new CacheModel[firstLevels.size()]);
+      }
+
+      // Returns one CacheModel for each combination of values in a level specification.
+       private static ArrayList parseLevel(String level) {
+         String policies = "lru";
+         int colon = level.indexOf(':');
+         if (colon >= 0) {
+            policies = level.substring(colon + 1);
+            level = level.substring(0, colon);
+         }
+         String[] fields = level.split("x", -1);
+         if (fields.length != 3) {
+            throw new IllegalArgumentException("cache level " + level + " is not blocks x words x ways");
+         }
+         int[] blockCounts = parseValues(fields[0], false);
+         int[] blockSizes = parseValues(fields[1], false);
+         int[] setSizes = parseValues(fields[2], true);
+         String[] policyNames = policies.split(",");
+         ArrayList models = new ArrayList();
+         for (int b = 0; b < blockCounts.length; b++) {
+            for (int w = 0; w < blockSizes.length; w++) {
+               for (int s = 0; s < setSizes.length; s++) {
+                  for (int p = 0; p < policyNames.length; p++) {
+                     int setSize = (setSizes[s] == 0) ? blockCounts[b] : setSizes[s];
+                     if (setSize > blockCounts[b]) {
+                        continue; // skip combinations with more ways than blocks
+                     }
+                     models.add(new CacheModel(blockCounts[b], blockSizes[w], setSize, parsePolicy(policyNames[p])));
+                  }
+               }
+            }
+         }
+         if (models.isEmpty()) {
+            throw new IllegalArgumentException("cache level " + level + " has more ways than blocks");
+         }
+         return models;
+      }
+
+      // Parses a comma-separated list of numbers; "full" is returned as 0 if allowed.
+       private static int[] parseValues(String field, boolean fullAllowed) {
+         String[] values = field.split(",");
+         int[] numbers = new int[values.length];
+         for (int i = 0; i < values.length; i++) {
+            if (fullAllowed && values[i].equals("full")) {
+               numbers[i] = 0;
+               continue;
+            }
+            try {
+               numbers[i] = Integer.parseInt(values[i]);
+            }
+               catch (NumberFormatException e) {
+                  throw new IllegalArgumentException("invalid cache size " + values[i]);
+               }
+         }
+         return numbers;
+      }
+
+       private static int parsePolicy(String policy) {
+         if (policy.equals("lru")) {
+            return CacheModel.LRU;
+         }
+         if (policy.equals("random")) {
+            return CacheModel.RANDOM;
+         }
+         throw new IllegalArgumentException("invalid replacement policy " + policy);
+      }
+
+      // Every hierarchy followed by every level.
+       private static ArrayList expand(ArrayList hierarchies, ArrayList levels) {
+         ArrayList expanded = new ArrayList();
+         for (int h = 0; h < hierarchies.size(); h++) {
+            for (int l = 0; l < levels.size(); l++) {
+               ArrayList hierarchy = new ArrayList((ArrayList) hierarchies.get(h));
+               hierarchy.add(levels.get(l));
+               expanded.add(hierarchy);
+            }
+         }
+         return expanded;
+      }
+
+    /**
+     * @return number of configurations being simulated
+     */
+       public int getConfigurationCount() {
+         return caches.length;
+      }
+
+    /**
+     * Simulate one access in every configuration.
+     *
+     * @param address the byte address accessed
+     */
+       public void access(int address) {
+         for (int i = 0; i < caches.length; i++) {
+            caches[i].access(address);
+         }
+      }
+
+    /**
+     * Simulates the data accesses a running program makes to its data segment, heap
+     * and stack.  Add the sweep to Memory as an AccessListener before the run.
+     */
+       public void memoryAccessed(int type, int address, int length) {
+         if (address >= Memory.dataSegmentBaseAddress && address <= Memory.stackBaseAddress) {
+            access(address);
+         }
+      }
+
+    /**
+     * Simulate the accesses in a trace file.
+     *
+     * @param trace a memory trace, or a file of 32-bit big-endian addresses
+     * @throws IOException if the trace cannot be read
+     */
+       public void replay(File trace) throws IOException {
+         if (MemoryTraceReader.isTrace(trace)) {
+            MemoryTraceReader reader = new MemoryTraceReader(trace);
+            try {
+               while (reader.next()) {
+                  if (reader.getType() != MemoryTraceReader.FETCH) {
+                     memoryAccessed(reader.getType(), reader.getAddress(), reader.getLength());
+                  }
+               }
+            }
+            finally {
+               reader.close();
+            }
+            return;
+         }
+         FileInputStream in = new FileInputStream(trace);
+         try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size() & ~3L;
+            for (long position = 0; position < size; position += TRACE_MAPPING_SIZE) {
+               IntBuffer addresses = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                       Math.min(TRACE_MAPPING_SIZE, size - position)).asIntBuffer();
+               while (addresses.hasRemaining()) {
+                  access(addresses.get());
+               }
+            }
+         }
+         finally {
+            in.close();
+         }
+      }
+
+    /**
+     * Write a header line and then one tab-separated line per configuration: its
+     * specification and, for each of its levels, accesses, hits, misses and hit rate.
+     *
+     * @param out where to write the report
+     */
+       public void report(PrintStream out) {
+         out.println("configuration\taccesses\thits\tmisses\thit rate");
+         for (int i = 0; i < caches.length; i++) {
+            StringBuffer line = new StringBuffer(specifications[i]);
+            for (CacheModel level = caches[i]; level != null; level = level.getNextLevel()) {
+               line.append('\t').append(level.getAccessCount())
+                  .append('\t').append(level.getHitCount())
+                  .append('\t').append(level.getMissCount())
+                  .append('\t').append(String.format(Locale.US, "%.4f", level.getHitRate()));
+            }
+            out.println(line);
+         }
+      }
+   }
@@ -137,11 +137,11 @@ public class Globals {
 
   public static void initialize(boolean gui) {
     if (!initialized) {
-      memory = Memory.getInstance(); // clients can use Memory.getInstance
-                                     // instead of Globals.memory
+      memory = Machine.getDefault().getMemory(); // clients can use Memory.getInstance
+                                                 // instead of Globals.memory
       instructionSet = new InstructionSet();
       instructionSet.populate();
-      symbolTable = new SymbolTable("global");
+      symbolTable = Machine.getDefault().getSymbolTable();
       settings = new Settings(gui);
       initialized = true;
       debug = false;
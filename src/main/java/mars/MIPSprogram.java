@@ -7,6 +7,8 @@
 	
    import java.util.*;
    import java.io.*;
+   import java.util.concurrent.ForkJoinTask;
+   import java.util.concurrent.RecursiveAction;
    import java.awt.event.*;
    import javax.swing.*;
 
@@ -263,6 +265,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
        public ArrayList prepareFilesForAssembly(ArrayList filenames, String leadFilename, String exceptionHandler) throws ProcessingException {
          ArrayList MIPSprogramsToAssemble = new ArrayList();
+         ArrayList preparations = new ArrayList();
          int leadFilePosition = 0;
          if (exceptionHandler != null && exceptionHandler.length() > 0) {
             filenames.add(0, exceptionHandler);
@@ -271,8 +274,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          for (int i=0; i<filenames.size(); i++) {
             String filename = (String) filenames.get(i);  
             MIPSprogram preparee = (filename.equals(leadFilename)) ? this : new MIPSprogram();
-            preparee.readSource(filename);
-            preparee.tokenize();
+         	// "this" is read and tokenized only once even if named more than once
+            if (preparee != this || !MIPSprogramsToAssemble.contains(this)) {
+               preparations.add(new FilePreparation(preparee, filename));
+            }
          	// I want "this" MIPSprogram to be the first in the list...except for exception handler
             if (preparee == this && MIPSprogramsToAssemble.size()>0) {
                MIPSprogramsToAssemble.add(leadFilePosition,preparee);
@@ -281,9 +286,61 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                MIPSprogramsToAssemble.add(preparee);
             }
          }
+      	// Files are independent of each other until assembly, so read and tokenize them
+      	// concurrently.  Errors are reported for the first failing file in list order,
+      	// same as if they had been prepared one after another.
+         if (preparations.size() > 1) {
+            ForkJoinTask.invokeAll(preparations);
+         } 
+         else if (preparations.size() == 1) {
+            ((FilePreparation) preparations.get(0)).compute();
+         }
+         for (int i=0; i<preparations.size(); i++) {
+            ProcessingException pe = ((FilePreparation) preparations.get(i)).getProcessingException();
+            if (pe != null) {
+               throw pe;
+            }
+         }
          return MIPSprogramsToAssemble;
       }
    
+   /**
+    *  Reads and tokenizes one source file on behalf of prepareFilesForAssembly.  Runs
+    *  on a ForkJoinPool thread with the caller's Machine made current, since tokenizing
+    *  looks up register names.
+    */
+       private static final class FilePreparation extends RecursiveAction {
+         private final MIPSprogram preparee;
+         private final String filename;
+         private final Machine machine;
+         private ProcessingException exception;
+      
+          FilePreparation(MIPSprogram preparee, String filename) {
+            this.preparee = preparee;
+            this.filename = filename;
+            this.machine = Machine.getCurrent();
+         }
+      
+          protected void compute() {
+            Machine previous = Machine.getCurrent();
+            Machine.setCurrent(machine);
+            try {
+               preparee.readSource(filename);
+               preparee.tokenize();
+            } 
+                catch (ProcessingException pe) {
+                  exception = pe;
+               }
+            finally {
+               Machine.setCurrent(previous);
+            }
+         }
+      
+          ProcessingException getProcessingException() {
+            return exception;
+         }
+      }
+   
    /**
     * Assembles the MIPS source program. All files comprising the program must have 
     * already been tokenized.  Assembler warnings are not considered errors.
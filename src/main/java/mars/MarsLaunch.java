@@ -53,6 +53,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       Valid options (not case sensitive, separate by spaces) are:<br>
             a  -- assemble only, do not simulate<br>
            ad  -- both a and d<br>
+        batch  -- assemble and run many programs.  Option has 2 arguments, e.g. <br>
+                  <tt>batch &lt;source&gt; &lt;results&gt;</tt>, where &lt;source&gt; is a directory<br>
+                  of programs or a manifest file listing them.  See <tt>BatchRunner</tt>.<br>
+        bt<n>  -- run batch programs on <n> threads at once (default one per processor).<br>
    	  ae<n>  -- terminate MARS with integer exit code <n> if an assemble error occurs.<br>
    	  ascii  -- display memory or register contents interpreted as ASCII
    		   b  -- brief - do not display register/memory address along with contents<br>
@@ -122,6 +126,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private int instructionCount;
       private PrintStream out; // stream for display of command line output
       private ArrayList dumpTriples = null; // each element holds 3 arguments for dump option
+      private String[] batchPair = null; // source and results arguments for batch option
+      private int batchThreads; // number of threads for batch option, 0 for one per processor
+      private ArrayList cacheSpecifications = null; // arguments of cache options
+      private CacheSweep cacheSweep = null; // configurations given by cache options
+      private String cacheTrace = null; // argument of cachetrace option
+      private String traceFileName = null; // argument of trace option
+      private MemoryTraceWriter traceWriter = null; // records the run if trace option used
       private ArrayList programArgumentList; // optional program args for MIPS program (becomes argc, argv)
       private int assembleErrorExitCode;  // MARS command exit code to return if assemble error occurs
       private int simulateErrorExitCode;// MARS command exit code to return if simulation error occurs
@@ -148,6 +159,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             instructionCount = 0;
             assembleErrorExitCode = 0;
             simulateErrorExitCode = 0;
+            batchThreads = 0;
             registerDisplayList = new ArrayList();
             memoryDisplayList = new ArrayList();
             filenameList = new ArrayList();
@@ -157,7 +169,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             maxSteps = -1;
             out = System.out;  
             if (parseCommandArgs(args)) {
-               if (runCommand()) {
+               if (batchPair != null) {
+                  runBatch();
+               }
+               else if (cacheTrace != null) {
+                  runCacheTrace();
+               }
+               else if (runCommand()) {
                   displayMiscellaneousPostMortem();
                   displayRegistersPostMortem();
                   displayMemoryPostMortem();
@@ -311,6 +329,48 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                }
                continue;
             } 
+            if (args[i].toLowerCase().equals("batch")) {
+               if (args.length <= (i+2)) {
+                  out.println("Batch command line argument requires a source and a results file name.");
+                  argsOK = false;
+               } 
+               else {
+                  batchPair = new String[] {args[++i], args[++i]};
+               }
+               continue;
+            } 
+            if (args[i].toLowerCase().equals("cache")) {
+               if (args.length <= (i+1)) {
+                  out.println("Cache command line argument requires a cache specification.");
+                  argsOK = false;
+               } 
+               else {
+                  if (cacheSpecifications == null) 
+                     cacheSpecifications = new ArrayList();
+                  cacheSpecifications.add(args[++i]);
+               }
+               continue;
+            } 
+            if (args[i].toLowerCase().equals("cachetrace")) {
+               if (args.length <= (i+1)) {
+                  out.println("Cachetrace command line argument requires a trace file name.");
+                  argsOK = false;
+               } 
+               else {
+                  cacheTrace = args[++i];
+               }
+               continue;
+            } 
+            if (args[i].toLowerCase().equals("trace")) {
+               if (args.length <= (i+1)) {
+                  out.println("Trace command line argument requires a file name.");
+                  argsOK = false;
+               } 
+               else {
+                  traceFileName = args[++i];
+               }
+               continue;
+            } 
             if (args[i].toLowerCase().equals("mc")) {
                String configName = args[++i];
                MemoryConfiguration config = MemoryConfigurations.getConfigurationByName(configName);
@@ -322,6 +382,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   MemoryConfigurations.setCurrentConfiguration(config);
                }
                continue;
+            }
+         	// Set number of threads for batch option
+            if (args[i].toLowerCase().indexOf("bt")==0) {
+               String s = args[i].substring(2);					   
+               try {
+                  batchThreads = Integer.decode(s).intValue();
+                  continue;
+               }             
+                  catch (NumberFormatException nfe) {
+                   // Let it fall thru and get handled by catch-all
+                  }
             }
          	// Set MARS exit code for assemble error
             if (args[i].toLowerCase().indexOf("ae")==0) {
@@ -451,6 +522,19 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             out.println("Invalid Command Argument: "+args[i]);
             argsOK = false;
          }
+         if (cacheSpecifications != null) {
+            try {
+               cacheSweep = new CacheSweep(cacheSpecifications);
+            } 
+               catch (IllegalArgumentException e) {
+                  out.println("Invalid cache specification: "+e.getMessage());
+                  argsOK = false;
+               }
+         } 
+         else if (cacheTrace != null) {
+            out.println("Cachetrace command line argument requires at least one cache option.");
+            argsOK = false;
+         }
          return argsOK;
       }
       
@@ -515,7 +599,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   out.println("--------  SIMULATION BEGINS  -----------");
                }
                programRan = true;
-               boolean done = code.simulate(maxSteps);
+               boolean done;
+               try {
+                  done = code.simulate(maxSteps);
+               }
+               finally {
+                  closeTrace();
+               }
+               Globals.exitCode = Machine.getCurrent().getExitCode();
                if (!done) {
                   out.println("\nProgram terminated when maximum step limit "+maxSteps+" reached.");
                }
@@ -533,6 +624,48 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
    
+   	//////////////////////////////////////////////////////////////////////
+   	// Carry out the batch option: assemble and run each listed program in
+   	// turn, recording results in a file instead of displaying them.
+   	
+      private void runBatch() {
+         Globals.getSettings().setBooleanSettingNonPersistent(Settings.DELAYED_BRANCHING_ENABLED, delayedBranching);
+         Globals.getSettings().setBooleanSettingNonPersistent(Settings.SELF_MODIFYING_CODE_ENABLED, selfModifyingCode);
+         File source = new File(batchPair[0]);
+         if (!source.exists()) {
+            out.println("Batch source " + source + " was not found!");
+            Globals.exitCode = assembleErrorExitCode;
+            return;
+         }
+         BatchRunner runner = new BatchRunner(pseudo, warningsAreErrors, startAtMain, maxSteps, 
+                                 programArgumentList, assembleErrorExitCode, simulateErrorExitCode, batchThreads, out);
+         try {
+            runner.run(source, new File(batchPair[1]));
+            Globals.exitCode = 0;
+         } 
+            catch (IOException e) {
+               out.println("Error while running batch: " + e.getMessage());
+               Globals.exitCode = assembleErrorExitCode;
+            }
+      }
+   
+   
+   	//////////////////////////////////////////////////////////////////////
+   	// Carry out the cachetrace option: simulate the caches on the trace
+   	// file's addresses instead of running a program.
+   	
+      private void runCacheTrace() {
+         try {
+            cacheSweep.replay(new File(cacheTrace));
+            cacheSweep.report(out);
+         } 
+            catch (IOException e) {
+               out.println("Error while reading cache trace " + cacheTrace + ": " + e.getMessage());
+               Globals.exitCode = simulateErrorExitCode;
+            }
+      }
+   
+   
    	//////////////////////////////////////////////////////////////////////
       // Check for memory address subrange.  Has to be two integers separated
       // by "-"; no embedded spaces.  e.g. 0x00400000-0x00400010
@@ -562,6 +695,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// Required for counting instructions executed, if that option is specified.
    	// DPS 19 July 2012
       private void establishObserver() { 
+         if (cacheSweep != null) {
+            Globals.memory.addAccessListener(cacheSweep);
+         }
+         if (traceFileName != null) {
+            try {
+               traceWriter = new MemoryTraceWriter(new File(traceFileName));
+               traceWriter.start(Globals.memory);
+            } 
+               catch (IOException e) {
+                  out.println("Error while creating memory trace " + traceFileName + ": " + e.getMessage());
+               }
+         }
          if (countInstructions) {
             Observer instructionCounter = 
                new Observer() {
@@ -591,6 +736,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }		
       }
    	     		   	
+   	//////////////////////////////////////////////////////////////////////
+   	// Complete the memory trace, if the trace option is used.
+      private void closeTrace() {
+         if (traceWriter == null) {
+            return;
+         }
+         try {
+            traceWriter.close();
+         } 
+            catch (IOException e) {
+               out.println("Error while writing memory trace " + traceFileName + ": " + e.getMessage());
+            }
+         traceWriter = null;
+      }
+   
    	//////////////////////////////////////////////////////////////////////
    	// Displays any specified runtime properties. Initially just instruction count 
    	// DPS 19 July 2012  	
@@ -598,6 +758,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          if (countInstructions) {
             out.println("\n"+instructionCount);
          }
+         if (cacheSweep != null) {
+            out.println();
+            cacheSweep.report(out);
+         }
       }
    
    	     		   	
@@ -792,6 +956,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          out.println("  ae<n>  -- terminate MARS with integer exit code <n> if an assemble error occurs.");
          out.println("  ascii  -- display memory or register contents interpreted as ASCII codes.");
          out.println("      b  -- brief - do not display register/memory address along with contents");
+         out.println("  cache <spec> -- simulate data caches on the program's data segment, heap and");
+         out.println("            stack accesses and display each one's hit rate at end of run.");
+         out.println("            <spec> is <blocks>x<words>x<ways>[:lru|:random], e.g. 64x4x2:lru;");
+         out.println("            <ways> may be full.  Each field may be a comma-separated list,");
+         out.println("            giving every combination.  Levels of a hierarchy are separated");
+         out.println("            by /, e.g. 16x4x1/256x8x4.  Option may be repeated.");
+         out.println("  cachetrace <file> -- simulate the cache options on the memory trace (see");
+         out.println("            trace) or file of 32-bit big-endian addresses <file> instead of");
+         out.println("            running a program.");
+         out.println("  batch <source> <results> -- assemble and run each program in directory <source>");
+         out.println("            (input from same-named .in file) or listed in manifest file <source>");
+         out.println("            (lines of: program [input file]).  Records each program's output,");
+         out.println("            exit code, instruction count and times in <results>.  Other options");
+         out.println("            apply to every program; register and memory display do not apply.");
+         out.println("  bt<n>  -- run batch programs on <n> threads at once (default one per processor).");
          out.println("      d  -- display MARS debugging statements");
          out.println("     db  -- MIPS delayed branching is enabled");
          out.println("    dec  -- display memory or register contents in decimal.");
@@ -817,6 +996,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          out.println("  se<n>  -- terminate MARS with integer exit code <n> if a simulation (run) error occurs.");
          out.println("     sm  -- start execution at statement with global label main, if defined");
          out.println("    smc  -- Self Modifying Code - Program can write and branch to either text or data segment");
+         out.println("  trace <file> -- record the run's instruction fetches and data accesses to");
+         out.println("            memory trace <file>, e.g. for later use with cachetrace.");
          out.println("    <n>  -- where <n> is an integer maximum count of steps to simulate.");
          out.println("            If 0, negative or not specified, there is no maximum.");
          out.println(" $<reg>  -- where <reg> is number or name (e.g. 5, t3, f10) of register whose ");
@@ -106,7 +106,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          this.originalTokenList = this.strippedTokenList = null;
          this.source = "";
          this.machineStatement = this.basicAssemblyStatement = null;
-         BasicInstruction instr = Globals.instructionSet.findByBinaryCode(binaryStatement);
+         InstructionSet.DecodedWord decoded = Globals.instructionSet.decode(binaryStatement);
+         BasicInstruction instr = decoded.getInstruction();
          if (instr == null) {
             this.operands = null;
             this.numOperands = 0;
@@ -115,35 +116,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                				 : null;
          } 
          else {
+            int[] decodedOperands = decoded.getOperands();
             this.operands = new int[4];
-            this.numOperands = 0;
+            this.numOperands = decodedOperands.length;
             this.instruction = instr;
-         
-            String opandCodes = "fst";
-            String fmt = instr.getOperationMask();
-            BasicInstructionFormat instrFormat = instr.getInstructionFormat();
-            int numOps = 0;
-            for (int i = 0; i < opandCodes.length(); i++) {
-               int code = opandCodes.charAt(i);
-               int j = fmt.indexOf(code);
-               if (j >= 0) {
-                  int k0 = 31 - fmt.lastIndexOf(code);
-                  int k1 = 31 - j;
-                  int opand = (binaryStatement >> k0) & ((1 << (k1 - k0 + 1)) - 1);
-                  if (instrFormat.equals(BasicInstructionFormat.I_BRANCH_FORMAT) && numOps == 2) {
-                     opand = opand << 16 >> 16;
-                  } 
-                  else if (instrFormat.equals(BasicInstructionFormat.J_FORMAT) && numOps == 0) {
-                     opand |= (textAddress >> 2) & 0x3C000000;
-                  }
-                  this.operands[numOps] = opand;
-                  numOps++;
-               }
+            System.arraycopy(decodedOperands, 0, this.operands, 0, this.numOperands);
+            if (instr.getInstructionFormat() == BasicInstructionFormat.J_FORMAT && this.numOperands > 0) {
+               this.operands[0] |= (textAddress >> 2) & 0x3C000000;
             }
-            this.numOperands = numOps;
          }
          this.altered = false;
-         this.basicStatementList = buildBasicStatementListFromBinaryCode(binaryStatement, instr, operands, numOperands);
+         this.basicStatementList = null; // built from the binary code when first needed
       }
    	
    
@@ -499,6 +482,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      * @return The Basic Assembly statement.
      **/   
        public String getPrintableBasicAssemblyStatement() {
+         if (basicStatementList == null) {
+            basicStatementList = buildBasicStatementListFromBinaryCode(binaryStatement,
+                   (instruction instanceof BasicInstruction) ? (BasicInstruction) instruction : null, operands, numOperands);
+         }
          return basicStatementList.toString();
       }
    	 
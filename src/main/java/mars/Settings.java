@@ -1,6 +1,8 @@
    package mars;
    import mars.*;
    import mars.util.*;
+   import mars.mips.hardware.Machine;
+   import mars.simulator.BackStepper;
    import mars.venus.editors.jeditsyntax.*;
    import java.io.*;
    import java.util.*;
@@ -305,7 +307,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      * @return true if backstepping is permitted, false otherwise.
      */
        public boolean getBackSteppingEnabled() {
-         return (Globals.program!=null && Globals.program.getBackStepper()!=null && Globals.program.getBackStepper().enabled());
+         BackStepper backStepper = Machine.getCurrent().getBackStepper();
+         return (backStepper!=null && backStepper.enabled());
       }
    
    
@@ -3,6 +3,7 @@
    import java.util.ArrayList;
    import java.util.Collections;
    import java.util.Comparator;
+   import java.util.concurrent.RecursiveTask;
 
    import mars.ErrorList;
    import mars.ErrorMessage;
@@ -12,9 +13,11 @@
    import mars.ProgramStatement;
    import mars.mips.hardware.AddressErrorException;
    import mars.mips.hardware.Memory;
+   import mars.mips.hardware.Machine;
    import mars.mips.instructions.BasicInstruction;
    import mars.mips.instructions.ExtendedInstruction;
    import mars.mips.instructions.Instruction;
+   import mars.mips.instructions.TranslationTemplate;
    import mars.util.Binary;
    import mars.util.SystemIO;
 
@@ -191,12 +194,28 @@
          externAddress = Memory.externBaseAddress;
          currentFileDataSegmentForwardReferences = new DataSegmentForwardReferences();
          accumulatedDataSegmentForwardReferences = new DataSegmentForwardReferences();
-         Globals.symbolTable.clear();
-         Globals.memory.clear();
+         Machine.getCurrent().getSymbolTable().clear();
+         Memory.getInstance().clear();
          this.machineList = new ArrayList();
          this.errors = new ErrorList(); 
          if (Globals.debug)
             System.out.println("Assembler first pass begins:");
+      // Each file keeps its own macro definitions.  Operand matching of a file's
+      // instructions does not depend on addresses, labels or other files, so when
+      // there are several files it is done for all of them at once on the ForkJoinPool
+      // while the files are parsed below, one after another in order.
+         FileOperandMatcher[] operandMatchers = null;
+         for (int fileIndex = 0; fileIndex < tokenizedProgramFiles.size(); fileIndex++) {
+            ((MIPSprogram) tokenizedProgramFiles.get(fileIndex)).createMacroPool();
+         }
+         if (tokenizedProgramFiles.size() > 1) {
+            operandMatchers = new FileOperandMatcher[tokenizedProgramFiles.size()];
+            for (int fileIndex = 0; fileIndex < operandMatchers.length; fileIndex++) {
+               operandMatchers[fileIndex] = new FileOperandMatcher(
+                  (MIPSprogram) tokenizedProgramFiles.get(fileIndex));
+               operandMatchers[fileIndex].fork();
+            }
+         }
       // PROCESS THE FIRST ASSEMBLY PASS FOR ALL SOURCE FILES BEFORE PROCEEDING
       // TO SECOND PASS. THIS ASSURES ALL SYMBOL TABLES ARE CORRECTLY BUILT.
       // THERE IS ONE GLOBAL SYMBOL TABLE (for identifiers declared .globl) PLUS
@@ -225,8 +244,9 @@
             ArrayList<SourceLine> sourceLineList = fileCurrentlyBeingAssembled.getSourceLineList();
             ArrayList tokenList = fileCurrentlyBeingAssembled.getTokenList();
             ArrayList parsedList = fileCurrentlyBeingAssembled.createParsedList();
-         // each file keeps its own macro definitions
-            MacroPool macroPool = fileCurrentlyBeingAssembled.createMacroPool();
+         // operand matches for this file's instructions, if done concurrently
+            MatchedLine[] matchedLines = (operandMatchers == null) ? null
+               : operandMatchers[fileIndex].join();
          // FIRST PASS OF ASSEMBLER VERIFIES SYNTAX, GENERATES SYMBOL TABLE,
          // INITIALIZES DATA SEGMENT
             ArrayList<ProgramStatement> statements;
@@ -241,7 +261,7 @@
                statements = this.parseLine((TokenList) tokenList.get(i),
                   sourceLineList.get(i).getSource(), 
                   sourceLineList.get(i).getLineNumber(), 
-                  extendedAssemblerEnabled);
+                  extendedAssemblerEnabled, (matchedLines == null) ? null : matchedLines[i]);
                if (statements != null) {
                   parsedList.addAll(statements);
                }
@@ -269,7 +289,7 @@
       // Have processed all source files. Attempt to resolve any remaining forward label
       // references from global symbol table. Those that remain unresolved are undefined
       // and require error message.
-         accumulatedDataSegmentForwardReferences.resolve(Globals.symbolTable);
+         accumulatedDataSegmentForwardReferences.resolve(Machine.getCurrent().getSymbolTable());
          accumulatedDataSegmentForwardReferences.generateErrorMessages(errors);
       
       // Throw collection of errors accumulated through the first pass.
@@ -325,38 +345,49 @@
                
                // ////////////////////////////////////////////////////////////////////////////
                // If we are using compact memory config and there is a compact expansion, use it
-                  ArrayList templateList;
+                  TranslationTemplate[] templateList;
                   if (compactTranslationCanBeApplied(statement)) {
-                     templateList = inst.getCompactBasicIntructionTemplateList();
+                     templateList = inst.getCompactTranslationTemplates();
                   } 
                   else {
-                     templateList = inst.getBasicIntructionTemplateList();
+                     templateList = inst.getTranslationTemplates();
                   }
                
                // subsequent ProgramStatement constructor needs the correct text segment address.
                   textAddress.set(statement.getAddress());
                // Will generate one basic instruction for each template in the list.
-                  for (int instrNumber = 0; instrNumber < templateList.size(); instrNumber++) {
-                     String instruction = ExtendedInstruction.makeTemplateSubstitutions(
-                        this.fileCurrentlyBeingAssembled,
-                        (String) templateList.get(instrNumber), theTokenList);
+                  for (int instrNumber = 0; instrNumber < templateList.length; instrNumber++) {
+                     TranslationTemplate template = templateList[instrNumber];
                   // 23 Jan 2008 by DPS. Template substitution may result in no instruction.
                   // If this is the case, skip remainder of loop iteration. This should only
                   // happen if template substitution was for "nop" instruction but delayed branching
                   // is disabled so the "nop" is not generated.
-                     if (instruction == null || instruction == "") {
+                     if (template.isDelayedBranchNop() && !Globals.getSettings().getDelayedBranchingEnabled()) {
                         continue;
                      }
-                  
+                  // The compiled template generates the token list of the basic instruction
+                  // directly.  Failing that, substitute operands into the template string and
+                  // tokenize the result.
+                     TokenList newTokenList = template.expand(this.fileCurrentlyBeingAssembled,
+                        theTokenList, sourceLine);
+                     ArrayList instrMatches;
+                     if (newTokenList != null) {
+                        instrMatches = template.getInstructionMatches();
+                     } 
+                     else {
+                        String instruction = ExtendedInstruction.makeTemplateSubstitutions(
+                           this.fileCurrentlyBeingAssembled, template.getTemplate(), theTokenList);
+                        if (instruction == null || instruction == "") {
+                           continue;
+                        }
+                        newTokenList = new Tokenizer().tokenizeLine(sourceLine,
+                           instruction, errors,false);
+                        instrMatches = this.matchInstruction(newTokenList.get(0));
+                     }
                   // All substitutions have been made so we have generated
                   // a valid basic instruction!
                      if (Globals.debug)
-                        System.out.println("PSEUDO generated: " + instruction);
-                  // For generated instruction: tokenize, build program
-                  // statement, add to list.
-                     TokenList newTokenList = new Tokenizer().tokenizeLine(sourceLine,
-                        instruction, errors,false);
-                     ArrayList instrMatches = this.matchInstruction(newTokenList.get(0));
+                        System.out.println("PSEUDO generated: " + newTokenList);
                      Instruction instr = OperandFormat.bestOperandMatch(newTokenList,
                         instrMatches);
                   // Only first generated instruction is linked to original source
@@ -386,7 +417,7 @@
             if (Globals.debug)
                System.out.println(statement);
             try {
-               Globals.memory.setStatement(statement.getAddress(), statement);
+               Memory.getInstance().setStatement(statement.getAddress(), statement);
             } 
                catch (AddressErrorException e) {
                   Token t = statement.getOriginalTokenList().get(0);
@@ -450,7 +481,7 @@
     *         request will return a list of ProgramStatements expanded
     */
       private ArrayList<ProgramStatement> parseLine(TokenList tokenList, String source,
-       	int sourceLineNumber, boolean extendedAssemblerEnabled) { 
+       	int sourceLineNumber, boolean extendedAssemblerEnabled, MatchedLine matchedLine) { 
       	
          ArrayList<ProgramStatement> ret = new ArrayList<ProgramStatement>();
       
@@ -528,7 +559,7 @@
                
                   // recursively parse lines of expanded macro
                   ArrayList<ProgramStatement> statements = parseLine(tokenList2, "<" + (i-macro.getFromLine()+macro.getOriginalFromLine()) + "> "
-                     + substituted.trim(), sourceLineNumber, extendedAssemblerEnabled);
+                     + substituted.trim(), sourceLineNumber, extendedAssemblerEnabled, null);
                   if (statements != null)
                      ret.addAll(statements);
                }
@@ -579,11 +610,19 @@
       // is not
       // yet implemented.
          if (!this.inDataSegment) {
-            ArrayList instrMatches = this.matchInstruction(token);
-            if (instrMatches == null)
-               return ret;
-         // OK, we've got an operator match, let's check the operands.
-            Instruction inst = OperandFormat.bestOperandMatch(tokens, instrMatches);
+            Instruction inst;
+            if (matchedLine != null) {
+            // operands were matched ahead of time by a FileOperandMatcher
+               tokens = matchedLine.tokens;
+               inst = matchedLine.instruction;
+            } 
+            else {
+               ArrayList instrMatches = this.matchInstruction(token);
+               if (instrMatches == null)
+                  return ret;
+            // OK, we've got an operator match, let's check the operands.
+               inst = OperandFormat.bestOperandMatch(tokens, instrMatches);
+            }
          // Here's the place to flag use of extended (pseudo) instructions
          // when setting disabled.
             if (inst instanceof ExtendedInstruction && !extendedAssemblerEnabled) {
@@ -591,7 +630,18 @@
                   token.getStartPos(),
                   "Extended (pseudo) instruction or format not permitted.  See Settings."));
             }
-            if (OperandFormat.tokenOperandMatch(tokens, inst, errors)) {
+            boolean operandsMatch;
+            if (matchedLine != null) {
+               ArrayList matchErrors = matchedLine.errors.getErrorMessages();
+               for (int i = 0; i < matchErrors.size(); i++) {
+                  errors.add((ErrorMessage) matchErrors.get(i));
+               }
+               operandsMatch = matchedLine.operandsMatch;
+            } 
+            else {
+               operandsMatch = OperandFormat.tokenOperandMatch(tokens, inst, errors);
+            }
+            if (operandsMatch) {
                programStatement = new ProgramStatement(this.fileCurrentlyBeingAssembled, source,
                   tokenList, tokens, inst, textAddress.get(), sourceLineNumber);
             // instruction length is 4 for all basic instruction, varies for extended instruction
@@ -622,7 +672,7 @@
    // alternate compact translation.
       private boolean compactTranslationCanBeApplied(ProgramStatement statement) {
          return (statement.getInstruction() instanceof ExtendedInstruction
-            && Globals.memory.usingCompactMemoryConfiguration() && ((ExtendedInstruction) statement
+            && Memory.getInstance().usingCompactMemoryConfiguration() && ((ExtendedInstruction) statement
             	.getInstruction()).hasCompactTranslation());
       }
    
@@ -849,8 +899,8 @@
             }
             int size = Binary.stringToInt(tokens.get(2).getValue());
          // If label already in global symtab, do nothing. If not, add it right now.
-            if (Globals.symbolTable.getAddress(tokens.get(1).getValue()) == SymbolTable.NOT_FOUND) {
-               Globals.symbolTable.addSymbol(tokens.get(1), this.externAddress,
+            if (Machine.getCurrent().getSymbolTable().getAddress(tokens.get(1).getValue()) == SymbolTable.NOT_FOUND) {
+               Machine.getCurrent().getSymbolTable().addSymbol(tokens.get(1), this.externAddress,
                   Symbol.DATA_SYMBOL, errors);
                this.externAddress += size;
             }
@@ -905,14 +955,14 @@
                   		+ "\" declared global label but not defined."));
             } 
             else {
-               if (Globals.symbolTable.getAddress(label.getValue()) != SymbolTable.NOT_FOUND) {
+               if (Machine.getCurrent().getSymbolTable().getAddress(label.getValue()) != SymbolTable.NOT_FOUND) {
                   errors.add(new ErrorMessage(fileCurrentlyBeingAssembled, label.getSourceLine(),
                      label.getStartPos(), "\"" + label.getValue()
                      		+ "\" already defined as global in a different file."));
                } 
                else {
                   fileCurrentlyBeingAssembled.getLocalSymbolTable().removeSymbol(label);
-                  Globals.symbolTable.addSymbol(label, symtabEntry.getAddress(),
+                  Machine.getCurrent().getSymbolTable().addSymbol(label, symtabEntry.getAddress(),
                      symtabEntry.getType(), errors);
                }
             }
@@ -1034,7 +1084,7 @@
           * 
           * else { // not in data segment...which we assume to mean in text
           * segment. try { for (int i=0; i < repetitions; i++) {
-          * Globals.memory.set(this.textAddress.get(),
+          * Memory.getInstance().set(this.textAddress.get(),
           * Binary.stringToInt(valueToken.getValue()), lengthInBytes);
           * this.textAddress.increment(lengthInBytes); } } catch
           * (AddressErrorException e) { errors.add(new
@@ -1099,7 +1149,7 @@
             ********/
             else {
                try {
-                  Globals.memory.set(this.textAddress.get(), value, lengthInBytes);
+                  Memory.getInstance().set(this.textAddress.get(), value, lengthInBytes);
                } 
                   catch (AddressErrorException e) {
                      errors.add(new ErrorMessage(token.getSourceMIPSprogram(),
@@ -1242,7 +1292,7 @@
                      }
                   }
                   try {
-                     Globals.memory.set(this.dataAddress.get(), (int) theChar,
+                     Memory.getInstance().set(this.dataAddress.get(), (int) theChar,
                         DataTypes.CHAR_SIZE);
                   } 
                      catch (AddressErrorException e) {
@@ -1254,7 +1304,7 @@
                }
                if (direct == Directives.ASCIIZ) {
                   try {
-                     Globals.memory.set(this.dataAddress.get(), 0, DataTypes.CHAR_SIZE);
+                     Memory.getInstance().set(this.dataAddress.get(), 0, DataTypes.CHAR_SIZE);
                   } 
                      catch (AddressErrorException e) {
                         errors.add(new ErrorMessage(token.getSourceMIPSprogram(), token
@@ -1290,7 +1340,7 @@
             this.dataAddress.set(this.alignToBoundary(this.dataAddress.get(), lengthInBytes));
          }
          try {
-            Globals.memory.set(this.dataAddress.get(), value, lengthInBytes);
+            Memory.getInstance().set(this.dataAddress.get(), value, lengthInBytes);
          } 
             catch (AddressErrorException e) {
                errors.add(new ErrorMessage(token.getSourceMIPSprogram(), token.getSourceLine(), token
@@ -1314,7 +1364,7 @@
             this.dataAddress.set(this.alignToBoundary(this.dataAddress.get(), lengthInBytes));
          }
          try {
-            Globals.memory.setDouble(this.dataAddress.get(), value);
+            Memory.getInstance().setDouble(this.dataAddress.get(), value);
          } 
             catch (AddressErrorException e) {
                errors.add(new ErrorMessage(token.getSourceMIPSprogram(), token.getSourceLine(), token
@@ -1344,6 +1394,54 @@
       }
    
    // ///////////////////////////////////////////////////////////////////////////////////
+   // Private class to match the operands of every instruction line of one file against
+   // the instruction set, as parseLine() would, without touching the assembler's state,
+   // so that files can be matched concurrently.  Labels are stripped but not recorded
+   // and token lists are cloned, never modified.  The result has one element per line
+   // of the file's token list, null where the line does not start with an operator.
+   // parseLine() uses an element only if it reaches the instruction part of a line that
+   // is not a directive or macro call; anything else is still handled sequentially.
+      private class FileOperandMatcher extends RecursiveTask<MatchedLine[]> {
+         private final MIPSprogram program;
+      
+         private FileOperandMatcher(MIPSprogram program) {
+            this.program = program;
+         }
+      
+         protected MatchedLine[] compute() {
+            ArrayList tokenList = program.getTokenList();
+            MatchedLine[] matchedLines = new MatchedLine[tokenList.size()];
+            for (int i = 0; i < matchedLines.length; i++) {
+               TokenList tokens = stripComment((TokenList) tokenList.get(i)); // a clone unless empty
+               if (tokenListBeginsWithLabel(tokens)) {
+                  tokens.remove(0);
+                  tokens.remove(0);
+               }
+               if (tokens.isEmpty() || tokens.get(0).getType() != TokenTypes.OPERATOR)
+                  continue;
+               ArrayList instrMatches = Globals.instructionSet.matchOperator(tokens.get(0).getValue());
+               if (instrMatches == null)
+                  continue;
+               MatchedLine matchedLine = new MatchedLine();
+               matchedLine.instruction = OperandFormat.bestOperandMatch(tokens, instrMatches);
+               matchedLine.errors = new ErrorList();
+               matchedLine.operandsMatch = OperandFormat.tokenOperandMatch(tokens,
+                  matchedLine.instruction, matchedLine.errors);
+               matchedLine.tokens = tokens;
+               matchedLines[i] = matchedLine;
+            }
+            return matchedLines;
+         }
+      }
+   
+   // Operands of one source line as matched by a FileOperandMatcher.
+      private static class MatchedLine {
+         TokenList tokens; // without comment and label, as matched
+         Instruction instruction;
+         boolean operandsMatch;
+         ErrorList errors; // errors tokenOperandMatch() reported
+      }
+   
    // Private class used as Comparator to sort the final ArrayList of
    // ProgramStatements.
    // Sorting is based on unsigned integer value of
@@ -1474,7 +1572,7 @@
                if (labelAddress != SymbolTable.NOT_FOUND) {
                // patch address has to be valid b/c we already stored there...
                   try {
-                     Globals.memory.set(entry.patchAddress, labelAddress, entry.length);
+                     Memory.getInstance().set(entry.patchAddress, labelAddress, entry.length);
                   } 
                      catch (AddressErrorException aee) {
                      }
@@ -83,7 +83,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 		
    
    	/**
-   	  * Sets (replaces) the address of the the Symbol.
+   	  * Sets (replaces) the address of the the Symbol.  A Symbol in a SymbolTable must
+   	  * be moved with SymbolTable.fixSymbolTableAddress() instead, which keeps the
+   	  * table's address index up to date.
    	  *   @param newAddress The revised address of the Symbol.
    	  **/
    
@@ -1,5 +1,6 @@
    package mars.assembler;
    import mars.*;
+   import mars.mips.hardware.Machine;
    import java.util.*;
 
 /*
@@ -31,7 +32,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 
   /**
-    *  Creats a table of Symbol objects.
+    *  Creats a table of Symbol objects.  Symbols are found by name through a hash
+    *  table and by address through an index sorted on address, so lookups do not
+    *  depend on the number of symbols.
 	*   @author Jason Bumgarner, Jason Shrewsbury
 	*   @version June 2003
 	**/
@@ -39,7 +42,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     public class SymbolTable {
       private static String startLabel = "main";
       private String filename;
-      private ArrayList table;
+      private LinkedHashMap table;       // label -> Symbol, in order added
+      private TreeMap addressIndex;      // Integer address -> ArrayList of Symbol, in order added
    	// Note -1 is legal 32 bit address (0xFFFFFFFF) but it is the high address in 
    	// kernel address space so highly unlikely that any symbol will have this as 
    	// its associated address!
@@ -52,7 +56,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
        public SymbolTable(String filename) {
          this.filename = filename;
-         this.table = new ArrayList();
+         this.table = new LinkedHashMap();
+         this.addressIndex = new TreeMap();
       }    
    	/**
    	  *  Adds a Symbol object into the array of Symbols.
@@ -69,7 +74,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          } 
          else {
             Symbol s= new Symbol(label, address, b);
-            table.add(s);
+            table.put(label, s);
+            indexAddress(s);
             if (Globals.debug) System.out.println("The symbol " + label + " with address " + address + " has been added to the "+this.filename+" symbol table.");
          }
       }
@@ -84,12 +90,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
        public void removeSymbol(Token token) {
          String label = token.getValue();
-         for (int i=0; i < table.size(); i++) {
-            if (((Symbol)(table.get(i))).getName().equals(label)){
-               table.remove(i);
-               if (Globals.debug) System.out.println("The symbol " + label + " has been removed from the "+this.filename+" symbol table.");
-               break;
-            }
+         Symbol s = (Symbol) table.remove(label);
+         if (s != null) {
+            unindexAddress(s);
+            if (Globals.debug) System.out.println("The symbol " + label + " has been removed from the "+this.filename+" symbol table.");
          }
          return; 
       }
@@ -101,12 +105,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *   @return The memory address of the label given, or NOT_FOUND if not found in symbol table.
    	  **/
        public int getAddress(String s){
-         for(int i=0; i < table.size(); i++){
-            if (((Symbol)(table.get(i))).getName().equals(s)){
-               return((Symbol) table.get(i)).getAddress();
-            }
-         }
-         return NOT_FOUND;
+         Symbol symbol = (Symbol) table.get(s);
+         return (symbol == null) ? NOT_FOUND : symbol.getAddress();
       }
       
    	/**
@@ -118,7 +118,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/		
        public int getAddressLocalOrGlobal(String s) {
          int address = this.getAddress(s);
-         return (address==NOT_FOUND) ? Globals.symbolTable.getAddress(s) : address ;
+         return (address==NOT_FOUND) ? Machine.getCurrent().getSymbolTable().getAddress(s) : address ;
       }
    	
    	
@@ -129,12 +129,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        **/
        
        public Symbol getSymbol(String s){
-         for(int i=0; i < table.size(); i++){
-            if (((Symbol)(table.get(i))).getName().equals(s)){
-               return (Symbol) table.get(i);
-            }
-         }
-         return null;
+         return (Symbol) table.get(s);
       }
    
       /**
@@ -151,12 +146,19 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
              catch (NumberFormatException e) {
                return null;
             }
-         for(int i=0; i < table.size(); i++){
-            if (((Symbol)(table.get(i))).getAddress() == address){
-               return (Symbol) table.get(i);
-            }
-         }
-         return null;
+         return getSymbolGivenAddress(address);
+      }      
+   
+      /**
+       * Produce Symbol object from symbol table that has the given address.  If more
+       * than one does, the one added first is returned.
+       * @param address the address
+       * @return Symbol object having requested address, null if address not found in symbol table.
+       **/
+       
+       public Symbol getSymbolGivenAddress(int address){
+         ArrayList symbols = (ArrayList) addressIndex.get(Integer.valueOf(address));
+         return (symbols == null) ? null : (Symbol) symbols.get(0);
       }      
    
       /**
@@ -167,7 +169,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        **/
        public Symbol getSymbolGivenAddressLocalOrGlobal(String s){
          Symbol sym = this.getSymbolGivenAddress(s);
-         return (sym==null) ? Globals.symbolTable.getSymbolGivenAddress(s) : sym ;
+         return (sym==null) ? Machine.getCurrent().getSymbolTable().getSymbolGivenAddress(s) : sym ;
       }
    			  
    
@@ -179,9 +181,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       
        public ArrayList getDataSymbols(){
          ArrayList list= new ArrayList();
-         for(int i=0; i<table.size(); i++){
-            if(((Symbol)table.get(i)).getType()){
-               list.add(table.get(i));
+         Iterator symbols = table.values().iterator();
+         while (symbols.hasNext()) {
+            Symbol symbol = (Symbol) symbols.next();
+            if(symbol.getType()){
+               list.add(symbol);
             }	
          }
          return list;
@@ -195,9 +199,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       
        public ArrayList getTextSymbols(){
          ArrayList list= new ArrayList();
-         for(int i=0; i<table.size(); i++){
-            if(!((Symbol)table.get(i)).getType()){
-               list.add(table.get(i));
+         Iterator symbols = table.values().iterator();
+         while (symbols.hasNext()) {
+            Symbol symbol = (Symbol) symbols.next();
+            if(!symbol.getType()){
+               list.add(symbol);
             }	
          }
          return list;
@@ -209,11 +215,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
       
        public ArrayList getAllSymbols(){
-         ArrayList list= new ArrayList();
-         for(int i=0; i<table.size(); i++){
-            list.add(table.get(i));
-         }
-         return list;
+         return new ArrayList(table.values());
       }	
    
    	 /**
@@ -230,7 +232,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    		**/
    	 
        public void clear(){
-         table= new ArrayList();
+         table= new LinkedHashMap();
+         addressIndex = new TreeMap();
       }
    	
    /**
@@ -243,14 +246,43 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     */
    
        public void fixSymbolTableAddress(int originalAddress, int replacementAddress) {
-         Symbol label = getSymbolGivenAddress(Integer.toString(originalAddress));
-         while (label != null) {
-            label.setAddress(replacementAddress);
-            label = getSymbolGivenAddress(Integer.toString(originalAddress));
+         if (originalAddress == replacementAddress) {
+            return;
+         }
+         ArrayList symbols = (ArrayList) addressIndex.remove(Integer.valueOf(originalAddress));
+         if (symbols != null) {
+            for (int i = 0; i < symbols.size(); i++) {
+               Symbol label = (Symbol) symbols.get(i);
+               label.setAddress(replacementAddress);
+               indexAddress(label);
+            }
          }
          return;
       }
    
+      // Add the symbol to the address index.
+       private void indexAddress(Symbol symbol) {
+         Integer address = Integer.valueOf(symbol.getAddress());
+         ArrayList symbols = (ArrayList) addressIndex.get(address);
+         if (symbols == null) {
+            symbols = new ArrayList(1);
+            addressIndex.put(address, symbols);
+         }
+         symbols.add(symbol);
+      }
+   
+      // Remove the symbol from the address index.
+       private void unindexAddress(Symbol symbol) {
+         Integer address = Integer.valueOf(symbol.getAddress());
+         ArrayList symbols = (ArrayList) addressIndex.get(address);
+         if (symbols != null) {
+            symbols.remove(symbol);
+            if (symbols.isEmpty()) {
+               addressIndex.remove(address);
+            }
+         }
+      }
+   
      /**
       *  Fetches the text segment label (symbol) which, if declared global, indicates
    	*  the starting address for execution.
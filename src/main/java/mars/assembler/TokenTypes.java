@@ -193,17 +193,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        *    // ------------- END    KENV 1/4/05   MODIFICATIONS --------------
        *  
 		 **************************  END DPS 3-July-2008 COMMENTS *******************************/
-           // shift operands must be in range 0-31
-            if (i>=0 && i<=31) {
-               return TokenTypes.INTEGER_5;
-            }
-            if (i>=DataTypes.MIN_UHALF_VALUE && i<=DataTypes.MAX_UHALF_VALUE) {
-                return TokenTypes.INTEGER_16U;
-             }
-            if (i>=DataTypes.MIN_HALF_VALUE && i<=DataTypes.MAX_HALF_VALUE) {
-               return TokenTypes.INTEGER_16;
-            }			  
-            return TokenTypes.INTEGER_32;  // default when no other type is applicable
+            return matchIntegerType(i);
          }
              catch(NumberFormatException e)
             {
@@ -245,6 +235,30 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return TokenTypes.ERROR;
       }
    
+   /**
+    * Classifies an immediate (constant) integer value by the number of bits needed
+    * to represent it in binary.  This is the classification <tt>matchTokenType</tt>
+    * gives the decimal or hexadecimal string form of the value.
+    *
+    * @param i the integer value
+    * @return INTEGER_5, INTEGER_16U, INTEGER_16 or INTEGER_32
+    **/
+    
+       public static TokenTypes matchIntegerType(int i)
+      {
+        // shift operands must be in range 0-31
+         if (i>=0 && i<=31) {
+            return TokenTypes.INTEGER_5;
+         }
+         if (i>=DataTypes.MIN_UHALF_VALUE && i<=DataTypes.MAX_UHALF_VALUE) {
+            return TokenTypes.INTEGER_16U;
+         }
+         if (i>=DataTypes.MIN_HALF_VALUE && i<=DataTypes.MAX_HALF_VALUE) {
+            return TokenTypes.INTEGER_16;
+         }			  
+         return TokenTypes.INTEGER_32;  // default when no other type is applicable
+      }
+   
 	   /**
 		 *
 		 *  Lets you know if given tokentype is for integers (INTGER_5, INTEGER_16, INTEGER_32).
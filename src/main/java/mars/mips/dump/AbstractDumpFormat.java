@@ -1,5 +1,6 @@
    package mars.mips.dump;
 
+   import mars.Globals;
    import mars.mips.hardware.*;
    import java.io.*;
 /*
@@ -41,6 +42,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 
     public abstract class AbstractDumpFormat implements DumpFormat {
    
+      /** Size in bytes of the buffer for text dump files. */
+      protected static final int TEXT_BUFFER_SIZE = 1 << 16;
+   
       private String name, commandDescriptor, description,  extension;
    	
    	/**
@@ -115,4 +119,76 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public abstract void dumpMemoryRange(File file, int firstAddress, int lastAddress)
 		    throws AddressErrorException, IOException;
    
+   /**
+   *  Open a text dump file for writing through a large buffer, so that lines are
+   *  not written to the file one at a time.
+   *
+   *  @param  file  File in which to store MIPS memory contents.
+   *  @return PrintWriter writing to the file.
+   *  @throws IOException if the file cannot be created.
+   */
+       protected static PrintWriter openTextFile(File file) throws IOException {
+         return new PrintWriter(new BufferedWriter(new FileWriter(file), TEXT_BUFFER_SIZE));
+      }
+   
+   /**
+   *  Reads the words of a dump range from memory a block at a time.  Like a loop
+   *  over Memory.getRawWordOrNull(), it ends at the first word that is null, such as
+   *  one in a 4K block of the data segment that has never been written.  Use:
+   *  <pre>
+   *     WordBlocks blocks = new WordBlocks(firstAddress, lastAddress);
+   *     while (blocks.next()) {
+   *        // blocks.getWords()[0 .. blocks.getLength()-1] hold the words starting
+   *        // at blocks.getAddress()
+   *     }
+   *  </pre>
+   */
+       protected static class WordBlocks {
+         private final int[] words = new int[1024];
+         private int address, length;
+         private long remaining;
+      
+      /**
+      *  @param firstAddress first (lowest) memory address to read, on a word boundary.
+      *  @param lastAddress last (highest) memory address to read, on a word boundary.
+      */
+          public WordBlocks(int firstAddress, int lastAddress) {
+            address = firstAddress;
+            length = 0;
+            remaining = (firstAddress > lastAddress) ? 0 
+               : ((long) lastAddress - firstAddress) / Memory.WORD_LENGTH_BYTES + 1;
+         }
+      
+      /**
+      *  Read the next block of words.
+      *  @return false if there are no more words to dump.
+      *  @throws AddressErrorException if firstAddress is invalid or not on a word boundary.
+      */
+          public boolean next() throws AddressErrorException {
+            address += length * Memory.WORD_LENGTH_BYTES;
+            remaining -= length;
+            length = (remaining == 0) ? 0 
+               : Globals.memory.getAllocatedRawWords(address, words, 0, (int) Math.min(words.length, remaining));
+            if (length == 0) {
+               remaining = 0;
+            }
+            return length > 0;
+         }
+      
+      /** @return address of the first word of the current block. */
+          public int getAddress() {
+            return address;
+         }
+      
+      /** @return number of words in the current block. */
+          public int getLength() {
+            return length;
+         }
+      
+      /** @return array holding the words of the current block from index 0. */
+          public int[] getWords() {
+            return words;
+         }
+      }
+   
    }
\ No newline at end of file
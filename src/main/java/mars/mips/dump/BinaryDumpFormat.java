@@ -3,6 +3,8 @@
    import mars.Globals;
    import mars.mips.hardware.*;
    import java.io.*;
+   import java.nio.*;
+   import java.nio.channels.FileChannel;
 /*
 Copyright (c) 2003-2008,  Pete Sanderson and Kenneth Vollmar
 
@@ -34,7 +36,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 /**
  * Class that represents the "binary" memory dump format.  The output 
  * is a binary file containing the memory words as a byte stream.  Output
- * is produced using PrintStream's write() method.
+ * is written a block of words at a time through a FileChannel.
  * @author Pete Sanderson 
  * @version December 2007
  */
@@ -51,9 +53,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
    
    /**
-   *  Write MIPS memory contents in pure binary format.  One byte at a time
-	*  using PrintStream's write() method.  Adapted by Pete Sanderson from
-	*  code written by Greg Gibeling.
+   *  Write MIPS memory contents in pure binary format, low-order byte of each
+	*  word first.  Adapted by Pete Sanderson from code written by Greg Gibeling.
 	*
    *  @param  file  File in which to store MIPS memory contents.  
    *  @param firstAddress first (lowest) memory address to dump.  In bytes but
@@ -65,15 +66,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    */
        public void dumpMemoryRange(File file, int firstAddress, int lastAddress) 
         throws AddressErrorException, IOException {
-         PrintStream out = new PrintStream(new FileOutputStream(file));
+         FileOutputStream out = new FileOutputStream(file);
          try {
-            for (int address = firstAddress; address <= lastAddress; address += Memory.WORD_LENGTH_BYTES) {
-               Integer temp = Globals.memory.getRawWordOrNull(address);
-               if (temp == null) 
-                  break;
-               int word = temp.intValue();
-               for (int i = 0; i < 4; i++) 
-                  out.write((word >>> (i << 3)) & 0xFF);
+            FileChannel channel = out.getChannel();
+            WordBlocks blocks = new WordBlocks(firstAddress, lastAddress);
+            ByteBuffer bytes = ByteBuffer.allocate(blocks.getWords().length * Memory.WORD_LENGTH_BYTES);
+            bytes.order(ByteOrder.LITTLE_ENDIAN);
+            IntBuffer words = bytes.asIntBuffer();
+            while (blocks.next()) {
+               words.clear();
+               words.put(blocks.getWords(), 0, blocks.getLength());
+               bytes.clear();
+               bytes.limit(blocks.getLength() * Memory.WORD_LENGTH_BYTES);
+               while (bytes.hasRemaining()) {
+                  channel.write(bytes);
+               }
             }
          } 
          finally { 
@@ -53,7 +53,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    /**
    *  Write MIPS memory contents in binary text format.  Each line of
    *  text contains one memory word written as 32 '0' and '1' characters.  Written
-   *  using PrintStream's println() method.
+   *  through a large buffer.
    *  Adapted by Pete Sanderson from code written by Greg Gibeling.
    *
    *  @param  file  File in which to store MIPS memory contents.  
@@ -66,18 +66,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    */
        public void dumpMemoryRange(File file, int firstAddress, int lastAddress) 
         throws AddressErrorException, IOException {
-         PrintStream out = new PrintStream(new FileOutputStream(file));
-         String string = null;
+         PrintWriter out = openTextFile(file);
+         char[] bits = new char[32];
          try {
-            for (int address = firstAddress; address <= lastAddress; address += Memory.WORD_LENGTH_BYTES) {
-               Integer temp = Globals.memory.getRawWordOrNull(address);
-               if (temp == null) 
-                  break;
-               string = Integer.toBinaryString(temp.intValue());
-               while (string.length() < 32) {
-                  string = '0' + string;
+            WordBlocks blocks = new WordBlocks(firstAddress, lastAddress);
+            while (blocks.next()) {
+               int[] words = blocks.getWords();
+               for (int i = 0; i < blocks.getLength(); i++) {
+                  for (int bit = 0; bit < 32; bit++) {
+                     bits[bit] = ((words[i] << bit) < 0) ? '1' : '0';
+                  }
+                  out.println(bits);
                }
-               out.println(string);
             }
          } 
          finally { 
@@ -53,7 +53,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    /**
    *  Write MIPS memory contents in hexadecimal text format.  Each line of
    *  text contains one memory word written in hexadecimal characters.  Written
-	*  using PrintStream's println() method.
+	*  through a large buffer.
    *  Adapted by Pete Sanderson from code written by Greg Gibeling.
    *
    *  @param  file  File in which to store MIPS memory contents.  
@@ -66,18 +66,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    */
        public void dumpMemoryRange(File file, int firstAddress, int lastAddress) 
         throws AddressErrorException, IOException {
-         PrintStream out = new PrintStream(new FileOutputStream(file));
+         PrintWriter out = openTextFile(file);
          String string = null;
          try {
-            for (int address = firstAddress; address <= lastAddress; address += Memory.WORD_LENGTH_BYTES) {
-               Integer temp = Globals.memory.getRawWordOrNull(address);
-               if (temp == null) 
-                  break;
-               string = Integer.toHexString(temp.intValue());
-               while (string.length() < 8) {
-                  string = '0' + string;
+            WordBlocks blocks = new WordBlocks(firstAddress, lastAddress);
+            while (blocks.next()) {
+               int[] words = blocks.getWords();
+               for (int i = 0; i < blocks.getLength(); i++) {
+                  string = Integer.toHexString(words[i]);
+                  out.println("00000000".substring(string.length()) + string);
                }
-               out.println(string);
             }
          } 
          finally { 
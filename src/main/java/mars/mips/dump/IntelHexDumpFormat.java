@@ -33,36 +33,37 @@
    */
        public void dumpMemoryRange(File file, int firstAddress, int lastAddress)
           throws AddressErrorException, IOException {
-            PrintStream out = new PrintStream(new FileOutputStream(file));
+            PrintWriter out = openTextFile(file);
             String string = null;
             try {
-               for (int address = firstAddress; address <= lastAddress; address += Memory.WORD_LENGTH_BYTES) {
-                  Integer temp = Globals.memory.getRawWordOrNull(address);
-                  if (temp == null) 
-                     break;
-                  string = Integer.toHexString(temp.intValue());
-                  while (string.length() < 8) {
-                     string = '0' + string;
+               WordBlocks blocks = new WordBlocks(firstAddress, lastAddress);
+               while (blocks.next()) {
+                  int[] words = blocks.getWords();
+                  for (int i = 0; i < blocks.getLength(); i++) {
+                     int address = blocks.getAddress() + i * Memory.WORD_LENGTH_BYTES;
+                     int word = words[i];
+                     string = Integer.toHexString(word);
+                     string = "00000000".substring(string.length()) + string;
+                     String addr = Integer.toHexString(address-firstAddress);
+                     while (addr.length() < 4) {
+                        addr = '0' + addr;
+                     }
+                     String chksum;
+                     int tmp_chksum = 0;
+                     tmp_chksum += 4;
+                     tmp_chksum += 0xFF & (address-firstAddress);
+                     tmp_chksum += 0xFF & ((address-firstAddress)>>8);
+                     tmp_chksum += 0xFF & word;
+                     tmp_chksum += 0xFF & (word>>8);
+                     tmp_chksum += 0xFF & (word>>16);
+                     tmp_chksum += 0xFF & (word>>24);
+                     tmp_chksum = tmp_chksum % 256;
+                     tmp_chksum = ~tmp_chksum + 1;
+                     chksum = Integer.toHexString(0xFF & tmp_chksum);
+                     if(chksum.length()==1) chksum = '0' + chksum;
+                     String finalstr = ":04"+addr+"00"+string+chksum;
+                     out.println(finalstr.toUpperCase());
                   }
-                  String addr = Integer.toHexString(address-firstAddress);
-                  while (addr.length() < 4) {
-                     addr = '0' + addr;
-                  }
-                  String chksum;
-                  int tmp_chksum = 0;
-                  tmp_chksum += 4;
-                  tmp_chksum += 0xFF & (address-firstAddress);
-                  tmp_chksum += 0xFF & ((address-firstAddress)>>8);
-                  tmp_chksum += 0xFF & temp.intValue();
-                  tmp_chksum += 0xFF & (temp.intValue()>>8);
-                  tmp_chksum += 0xFF & (temp.intValue()>>16);
-                  tmp_chksum += 0xFF & (temp.intValue()>>24);
-                  tmp_chksum = tmp_chksum % 256;
-                  tmp_chksum = ~tmp_chksum + 1;
-                  chksum = Integer.toHexString(0xFF & tmp_chksum);
-                  if(chksum.length()==1) chksum = '0' + chksum;
-                  String finalstr = ":04"+addr+"00"+string+chksum;
-                  out.println(finalstr.toUpperCase());
                }
                out.println(":00000001FF");
             } 
@@ -80,7 +80,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public void dumpMemoryRange(File file, int firstAddress, int lastAddress) 
         throws AddressErrorException, IOException {
       
-         PrintStream out = new PrintStream(new FileOutputStream(file));
+         PrintWriter out = openTextFile(file);
       
          boolean hexAddresses = Globals.getSettings().getDisplayAddressesInHex();
       	
@@ -90,21 +90,24 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             int offset = 0;
             String string="";
             try {
-               for (int address = firstAddress; address <= lastAddress; address += Memory.WORD_LENGTH_BYTES) {
-                  if (offset % 8 == 0) {
-                     string = ((hexAddresses) ? Binary.intToHexString(address) : Binary.unsignedIntToIntString(address))  + "    ";
-                  }
-                  offset++;
-                  Integer temp = Globals.memory.getRawWordOrNull(address);
-                  if (temp == null) 
-                     break;
-                  string += ((hexValues) 
-                             ? Binary.intToHexString(temp.intValue()) 
-                     		  : ("           "+temp).substring(temp.toString().length()) 
-                     		 ) + " ";
-                  if (offset % 8 == 0) {
-                     out.println(string);
-                     string = "";
+               WordBlocks blocks = new WordBlocks(firstAddress, lastAddress);
+               while (blocks.next()) {
+                  int[] words = blocks.getWords();
+                  for (int i = 0; i < blocks.getLength(); i++) {
+                     if (offset % 8 == 0) {
+                        int address = blocks.getAddress() + i * Memory.WORD_LENGTH_BYTES;
+                        string = ((hexAddresses) ? Binary.intToHexString(address) : Binary.unsignedIntToIntString(address))  + "    ";
+                     }
+                     offset++;
+                     String value = Integer.toString(words[i]);
+                     string += ((hexValues) 
+                                ? Binary.intToHexString(words[i]) 
+                        		  : ("           "+value).substring(value.length()) 
+                        		 ) + " ";
+                     if (offset % 8 == 0) {
+                        out.println(string);
+                        string = "";
+                     }
                   }
                }
             } 
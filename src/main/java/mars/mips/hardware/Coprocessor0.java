@@ -49,12 +49,24 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 		// bit 1 (exception level) not set, bit 0 (interrupt enable) set.
 		public static final int DEFAULT_STATUS_VALUE = 0x0000FF11;
 		
-      private static Register [] registers = 
+      private final Register [] registers = 
           { new Register("$8 (vaddr)", 8, 0),  
             new Register("$12 (status)", 12, DEFAULT_STATUS_VALUE),
          	new Register("$13 (cause)", 13, 0),  
          	new Register("$14 (epc)", 14, 0)
            };
+
+   	/**
+   	  *  Coprocessor 0 of a new Machine.  Everything else uses the static methods, which
+   	  *  act on the coprocessor of the machine current to the calling thread.
+   	  **/
+       Coprocessor0() {
+      }
+   
+      // The coprocessor all static methods operate on.
+       private static Coprocessor0 current() {
+         return Machine.getCurrent().coprocessor0;
+      }
         												  
    	 
    	/**
@@ -62,10 +74,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/	 
    		 
        public static void showRegisters(){
-         for (int i=0; i< registers.length; i++){
-            System.out.println("Name: " + registers[i].getName());
-            System.out.println("Number: " + registers[i].getNumber());
-            System.out.println("Value: " + registers[i].getValue());	
+         Coprocessor0 cp0 = current();
+         for (int i=0; i< cp0.registers.length; i++){
+            System.out.println("Name: " + cp0.registers[i].getName());
+            System.out.println("Number: " + cp0.registers[i].getNumber());
+            System.out.println("Value: " + cp0.registers[i].getValue());	
             System.out.println(""); 
          }
       }
@@ -78,11 +91,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static int updateRegister(String n, int val){
+         Coprocessor0 cp0 = current();
 		   int oldValue = 0;
-         for (int i=0; i< registers.length; i++){
-            if(("$"+registers[i].getNumber()).equals(n) || registers[i].getName().equals(n)) {
-				   oldValue = registers[i].getValue();
-               registers[i].setValue(val);
+         for (int i=0; i< cp0.registers.length; i++){
+            if(("$"+cp0.registers[i].getNumber()).equals(n) || cp0.registers[i].getName().equals(n)) {
+				   oldValue = cp0.registers[i].getValue();
+               cp0.registers[i].setValue(val);
                break;
             }
          }
@@ -96,12 +110,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 		  *   @return old value in register prior to update
    	  **/
        public static int updateRegister(int num, int val){
+         Coprocessor0 cp0 = current();
          int old = 0;
-         for (int i=0; i< registers.length; i++){
-            if(registers[i].getNumber()== num) {
+         for (int i=0; i< cp0.registers.length; i++){
+            if(cp0.registers[i].getNumber()== num) {
                old = (Globals.getSettings().getBackSteppingEnabled())
-                        ? Globals.program.getBackStepper().addCoprocessor0Restore(num,registers[i].setValue(val))
-                  		: registers[i].setValue(val);
+                        ? Machine.getCurrent().getBackStepper().addCoprocessor0Restore(num,cp0.registers[i].setValue(val))
+                  		: cp0.registers[i].setValue(val);
                break;
             }
          }
@@ -116,9 +131,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static int getValue(int num){
-         for (int i=0; i< registers.length; i++){
-            if(registers[i].getNumber()== num) {
-               return registers[i].getValue();
+         Coprocessor0 cp0 = current();
+         for (int i=0; i< cp0.registers.length; i++){
+            if(cp0.registers[i].getNumber()== num) {
+               return cp0.registers[i].getValue();
             }
          }
          return 0;
@@ -131,9 +147,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    		  **/	
       		
        public static int getNumber(String n){
-         for (int i=0; i< registers.length; i++){
-            if(("$"+registers[i].getNumber()).equals(n) || registers[i].getName().equals(n)) {
-               return registers[i].getNumber();
+         Coprocessor0 cp0 = current();
+         for (int i=0; i< cp0.registers.length; i++){
+            if(("$"+cp0.registers[i].getNumber()).equals(n) || cp0.registers[i].getName().equals(n)) {
+               return cp0.registers[i].getNumber();
             }
          } 
          return -1;     
@@ -145,7 +162,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static Register[] getRegisters(){
-         return registers;
+         return current().registers;
       }
 
       
@@ -158,8 +175,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static int getRegisterPosition(Register r){
-         for (int i=0; i< registers.length; i++){
-            if(registers[i]==r) {
+         Coprocessor0 cp0 = current();
+         for (int i=0; i< cp0.registers.length; i++){
+            if(cp0.registers[i]==r) {
                return i;
             }
          } 
@@ -173,9 +191,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static Register getRegister(String rname) {
-         for (int i=0; i< registers.length; i++){
-            if(("$"+registers[i].getNumber()).equals(rname) || registers[i].getName().equals(rname)) {
-               return registers[i];
+         Coprocessor0 cp0 = current();
+         for (int i=0; i< cp0.registers.length; i++){
+            if(("$"+cp0.registers[i].getNumber()).equals(rname) || cp0.registers[i].getName().equals(rname)) {
+               return cp0.registers[i];
             }
          } 
          return null;
@@ -187,8 +206,33 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static void resetRegisters(){
-         for(int i=0; i< registers.length; i++){
-            registers[i].resetValue();
+         Coprocessor0 cp0 = current();
+         for(int i=0; i< cp0.registers.length; i++){
+            cp0.registers[i].resetValue();
+         }
+      }
+
+     /**
+      *  Copies the value of every register, in the order getRegisters() returns them,
+      *  into the given array.  Observers are not notified.
+      *  @param destination array of at least getRegisters().length elements
+      */
+       public static void copyValues(int[] destination) {
+         Coprocessor0 cp0 = current();
+         for (int i = 0; i < cp0.registers.length; i++) {
+            destination[i] = cp0.registers[i].getValueNoNotify();
+         }
+      }
+
+     /**
+      *  Sets every register from an array filled by copyValues().  Observers are
+      *  notified of each write.
+      *  @param source array holding the values
+      */
+       public static void setValues(int[] source) {
+         Coprocessor0 cp0 = current();
+         for (int i = 0; i < cp0.registers.length; i++) {
+            cp0.registers[i].setValue(source[i]);
          }
       }
       
@@ -197,8 +241,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  will add the given Observer to each one.  
    	 */
        public static void addRegistersObserver(Observer observer) {
-         for (int i=0; i<registers.length; i++) {
-            registers[i].addObserver(observer);
+         Coprocessor0 cp0 = current();
+         for (int i=0; i<cp0.registers.length; i++) {
+            cp0.registers[i].addObserver(observer);
          }
       }
       
@@ -207,8 +252,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  will delete the given Observer from each one.  
    	 */
        public static void deleteRegistersObserver(Observer observer) {
-         for (int i=0; i<registers.length; i++) {
-            registers[i].deleteObserver(observer);
+         Coprocessor0 cp0 = current();
+         for (int i=0; i<cp0.registers.length; i++) {
+            cp0.registers[i].deleteObserver(observer);
          }
       }
 
@@ -48,7 +48,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 // storing into registers, and reassembled upon retrieval.
 
     public  class Coprocessor1 {
-      private static Register [] registers = 
+      private final Register [] registers = 
           { new Register("$f0", 0, 0),  new Register("$f1", 1, 0),
          	new Register("$f2", 2, 0),  new Register("$f3", 3, 0),
          	new Register("$f4", 4, 0),  new Register("$f5", 5, 0),
@@ -67,19 +67,32 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          	new Register("$f30", 30, 0),new Register("$f31", 31, 0)
            };
    	// The 8 condition flags will be stored in bits 0-7 for flags 0-7.
-      private static Register condition = new Register("cf",32, 0);	 
+      private final Register condition = new Register("cf",32, 0);	 
       private static int numConditionFlags = 8;
+
+   	/**
+   	  *  Coprocessor 1 of a new Machine.  Everything else uses the static methods, which
+   	  *  act on the coprocessor of the machine current to the calling thread.
+   	  **/
+       Coprocessor1() {
+      }
+   
+      // The coprocessor all static methods operate on.
+       private static Coprocessor1 current() {
+         return Machine.getCurrent().coprocessor1;
+      }
    	
    	/**
    	  *  Method for displaying the register values for debugging.
    	  **/	 
    		 
        public static void showRegisters(){
-         for (int i=0; i< registers.length; i++){
+         Coprocessor1 cp1 = current();
+         for (int i=0; i< cp1.registers.length; i++){
           
-            System.out.println("Name: " + registers[i].getName());
-            System.out.println("Number: " + registers[i].getNumber());
-            System.out.println("Value: " + registers[i].getValue());	
+            System.out.println("Name: " + cp1.registers[i].getName());
+            System.out.println("Number: " + cp1.registers[i].getNumber());
+            System.out.println("Value: " + cp1.registers[i].getValue());	
             System.out.println(""); 
          }
       }
@@ -102,8 +115,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	  
        public static void setRegisterToFloat(int reg, float val){
-         if(reg >= 0 && reg < registers.length) {
-            registers[reg].setValue(Float.floatToRawIntBits(val));
+         Coprocessor1 cp1 = current();
+         if(reg >= 0 && reg < cp1.registers.length) {
+            cp1.registers[reg].setValue(Float.floatToRawIntBits(val));
          }
       }
    
@@ -127,8 +141,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	  
        public static void setRegisterToInt(int reg, int val){
-         if(reg >= 0 && reg < registers.length) {
-            registers[reg].setValue(val);
+         Coprocessor1 cp1 = current();
+         if(reg >= 0 && reg < cp1.registers.length) {
+            cp1.registers[reg].setValue(val);
          }
       }
    
@@ -144,12 +159,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
        public static void setRegisterPairToDouble(int reg, double val) 
                                     throws InvalidRegisterAccessException {
+         Coprocessor1 cp1 = current();
          if (reg % 2 != 0) {
             throw new InvalidRegisterAccessException();
          } 
          long bits = Double.doubleToRawLongBits(val); 
-         registers[reg+1].setValue(Binary.highOrderLongToInt(bits));  // high order 32 bits
-         registers[reg].setValue(Binary.lowOrderLongToInt(bits)); // low order 32 bits
+         cp1.registers[reg+1].setValue(Binary.highOrderLongToInt(bits));  // high order 32 bits
+         cp1.registers[reg].setValue(Binary.lowOrderLongToInt(bits)); // low order 32 bits
       }
    
    
@@ -179,11 +195,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
        public static void setRegisterPairToLong(int reg, long val) 
                                     throws InvalidRegisterAccessException {
+         Coprocessor1 cp1 = current();
          if (reg % 2 != 0) {
             throw new InvalidRegisterAccessException();
          } 
-         registers[reg+1].setValue(Binary.highOrderLongToInt(val));  // high order 32 bits
-         registers[reg].setValue(Binary.lowOrderLongToInt(val)); // low order 32 bits
+         cp1.registers[reg+1].setValue(Binary.highOrderLongToInt(val));  // high order 32 bits
+         cp1.registers[reg].setValue(Binary.lowOrderLongToInt(val)); // low order 32 bits
       }
    
    
@@ -210,9 +227,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static float getFloatFromRegister(int reg){
+         Coprocessor1 cp1 = current();
          float result = 0F;
-         if(reg >= 0 && reg < registers.length) {
-            result = Float.intBitsToFloat(registers[reg].getValue());
+         if(reg >= 0 && reg < cp1.registers.length) {
+            result = Float.intBitsToFloat(cp1.registers[reg].getValue());
          }
          return result;
       }
@@ -236,9 +254,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static int getIntFromRegister(int reg){
+         Coprocessor1 cp1 = current();
          int result = 0;
-         if(reg >= 0 && reg < registers.length) {
-            result = registers[reg].getValue();
+         if(reg >= 0 && reg < cp1.registers.length) {
+            result = cp1.registers[reg].getValue();
          }
          return result;
       }
@@ -264,11 +283,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
        public static double getDoubleFromRegisterPair(int reg) 
                                     throws InvalidRegisterAccessException {
+         Coprocessor1 cp1 = current();
          double result = 0.0;
          if (reg % 2 != 0) {
             throw new InvalidRegisterAccessException();
          } 
-         long bits = Binary.twoIntsToLong(registers[reg+1].getValue(),registers[reg].getValue());
+         long bits = Binary.twoIntsToLong(cp1.registers[reg+1].getValue(),cp1.registers[reg].getValue());
          return Double.longBitsToDouble(bits);
       }
    
@@ -296,11 +316,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	
        public static long getLongFromRegisterPair(int reg) 
                                     throws InvalidRegisterAccessException {
+         Coprocessor1 cp1 = current();
          double result = 0.0;
          if (reg % 2 != 0) {
             throw new InvalidRegisterAccessException();
          } 
-         return Binary.twoIntsToLong(registers[reg+1].getValue(),registers[reg].getValue());
+         return Binary.twoIntsToLong(cp1.registers[reg+1].getValue(),cp1.registers[reg].getValue());
       }
    
    
@@ -326,12 +347,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	  
        public static int updateRegister(int num, int val){
+         Coprocessor1 cp1 = current();
          int old = 0;
-         for (int i=0; i< registers.length; i++){
-            if(registers[i].getNumber()== num) {
+         for (int i=0; i< cp1.registers.length; i++){
+            if(cp1.registers[i].getNumber()== num) {
                old = (Globals.getSettings().getBackSteppingEnabled())
-                        ? Globals.program.getBackStepper().addCoprocessor1Restore(num,registers[i].setValue(val))
-                  		: registers[i].setValue(val);
+                        ? Machine.getCurrent().getBackStepper().addCoprocessor1Restore(num,cp1.registers[i].setValue(val))
+                  		: cp1.registers[i].setValue(val);
                break;
             }
          }
@@ -347,7 +369,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static int getValue(int num){
-         return registers[num].getValue();
+         return current().registers[num].getValue();
       }
       		
       	/**
@@ -357,10 +379,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    		  **/	
       		
        public static int getRegisterNumber(String n){
+         Coprocessor1 cp1 = current();
          int j=-1;
-         for (int i=0; i< registers.length; i++){
-            if(registers[i].getName().equals(n)) {
-               j= registers[i].getNumber();
+         for (int i=0; i< cp1.registers.length; i++){
+            if(cp1.registers[i].getName().equals(n)) {
+               j= cp1.registers[i].getNumber();
                break;
             }
          } 
@@ -373,7 +396,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static Register[] getRegisters(){
-         return registers;
+         return current().registers;
       }
       
    	/**
@@ -387,7 +410,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          if (rName.charAt(0) == '$' && rName.length() > 1 && rName.charAt(1) == 'f') {
             try {
                    // check for register number 0-31.
-               reg = registers[Binary.stringToInt(rName.substring(2))];    // KENV 1/6/05
+               reg = current().registers[Binary.stringToInt(rName.substring(2))];    // KENV 1/6/05
             }
                 catch (Exception e) {
                    // handles both NumberFormat and ArrayIndexOutOfBounds
@@ -403,10 +426,37 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static void resetRegisters(){
-         for(int i=0; i < registers.length; i++)
-            registers[i].resetValue();
+         Coprocessor1 cp1 = current();
+         for(int i=0; i < cp1.registers.length; i++)
+            cp1.registers[i].resetValue();
          clearConditionFlags();
       }
+
+     /**
+      *  Copies the value of every register, indexed by register number, into the given
+      *  array.  Element 32 receives the condition flags.  Observers are not notified.
+      *  @param destination array of at least 33 elements to receive the values
+      */
+       public static void copyValues(int[] destination) {
+         Coprocessor1 cp1 = current();
+         for (int i = 0; i < cp1.registers.length; i++) {
+            destination[i] = cp1.registers[i].getValueNoNotify();
+         }
+         destination[cp1.registers.length] = cp1.condition.getValueNoNotify();
+      }
+
+     /**
+      *  Sets every register and the condition flags from an array filled by
+      *  copyValues().  Observers are notified of each write.
+      *  @param source array of at least 33 elements holding the values
+      */
+       public static void setValues(int[] source) {
+         Coprocessor1 cp1 = current();
+         for (int i = 0; i < cp1.registers.length; i++) {
+            cp1.registers[i].setValue(source[i]);
+         }
+         cp1.condition.setValue(source[cp1.registers.length]);
+      }
       
    
       /**
@@ -414,8 +464,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  will add the given Observer to each one.  
    	 */
        public static void addRegistersObserver(Observer observer) {
-         for (int i=0; i<registers.length; i++) {
-            registers[i].addObserver(observer);
+         Coprocessor1 cp1 = current();
+         for (int i=0; i<cp1.registers.length; i++) {
+            cp1.registers[i].addObserver(observer);
          }
       }
 
@@ -425,8 +476,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  will delete the given Observer from each one.  
    	 */
        public static void deleteRegistersObserver(Observer observer) {
-         for (int i=0; i<registers.length; i++) {
-            registers[i].deleteObserver(observer);
+         Coprocessor1 cp1 = current();
+         for (int i=0; i<cp1.registers.length; i++) {
+            cp1.registers[i].deleteObserver(observer);
          }
       }
    	
@@ -437,16 +489,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  @return previous flag setting (0 or 1)
    	 */
        public static int setConditionFlag(int flag) {
+         Coprocessor1 cp1 = current();
          int old = 0;
          if (flag >= 0 && flag < numConditionFlags) {
             old = getConditionFlag(flag);
-            condition.setValue(Binary.setBit(condition.getValue(),flag));
+            cp1.condition.setValue(Binary.setBit(cp1.condition.getValue(),flag));
             if (Globals.getSettings().getBackSteppingEnabled())
                if (old==0) {
-                  Globals.program.getBackStepper().addConditionFlagClear(flag);
+                  Machine.getCurrent().getBackStepper().addConditionFlagClear(flag);
                } 
                else {
-                  Globals.program.getBackStepper().addConditionFlagSet(flag);
+                  Machine.getCurrent().getBackStepper().addConditionFlagSet(flag);
                }
          }
          return old;
@@ -459,16 +512,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  @return previous flag setting (0 or 1)
    	 */
        public static int clearConditionFlag(int flag) {
+         Coprocessor1 cp1 = current();
          int old = 0;
          if (flag >= 0 && flag < numConditionFlags) {
             old = getConditionFlag(flag);
-            condition.setValue(Binary.clearBit(condition.getValue(),flag));
+            cp1.condition.setValue(Binary.clearBit(cp1.condition.getValue(),flag));
             if (Globals.getSettings().getBackSteppingEnabled())
                if (old==0) {
-                  Globals.program.getBackStepper().addConditionFlagClear(flag);
+                  Machine.getCurrent().getBackStepper().addConditionFlagClear(flag);
                } 
                else {
-                  Globals.program.getBackStepper().addConditionFlagSet(flag);
+                  Machine.getCurrent().getBackStepper().addConditionFlagSet(flag);
                }
          }
          return old;
@@ -484,7 +538,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public static int getConditionFlag(int flag) {
          if (flag < 0 || flag >= numConditionFlags) 
             flag = 0;
-         return Binary.bitValue(condition.getValue(), flag);
+         return Binary.bitValue(current().condition.getValue(), flag);
       }		
    	
    	
@@ -494,7 +548,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  @return array of int condition flags
    	 */
        public static int getConditionFlags() {
-         return condition.getValue();
+         return current().condition.getValue();
       }	
    	
    	
@@ -503,7 +557,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *
    	 */
        public static void clearConditionFlags() {
-         condition.setValue(0);  // sets all 32 bits to 0.
+         current().condition.setValue(0);  // sets all 32 bits to 0.
       }		
    	
       /**
@@ -511,7 +565,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *
    	 */
        public static void setConditionFlags() {
-         condition.setValue(-1);  // sets all 32 bits to 1.
+         current().condition.setValue(-1);  // sets all 32 bits to 1.
       }	
    	
       /**
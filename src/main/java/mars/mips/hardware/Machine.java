@@ -0,0 +1,317 @@
+   package mars.mips.hardware;
+   import mars.Globals;
+   import mars.assembler.SymbolTable;
+   import mars.simulator.*;
+   import mars.util.SystemIO;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2009,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * One simulated MIPS machine: its memory, register file, coprocessors, delayed
+ * branch, back stepper, syscall I/O, symbol table and simulator.
+ * <p>
+ * The static methods of Memory, RegisterFile, Coprocessor0, Coprocessor1,
+ * DelayedBranch, SystemIO and Simulator act on the machine that is current to the
+ * calling thread.  That is the default machine, which the IDE and command-mode MARS
+ * use, unless the thread has made another machine current with setCurrent().  A thread
+ * starts out with the current machine of the thread that created it, so the thread
+ * running a simulation uses the machine of the thread that started it.  Several
+ * machines can therefore assemble and run programs in parallel, each on its own thread.
+ * <p>
+ * All machines share the instruction set, the settings and the memory configuration,
+ * which must not be changed while machines other than the default are in use.  Tools
+ * and the IDE observe the default machine only.
+ *
+ * @version October 2026
+ */
+
+    public class Machine {
+      private static final Machine defaultMachine = new Machine(Globals.memoryAndRegistersLock);
+      private static final InheritableThreadLocal<Machine> current = new InheritableThreadLocal<Machine>();
+      // Until a machine other than the default is made current, getCurrent() does not
+   	// need to consult the thread-local.
+      private static volatile boolean othersInUse = false;
+
+      final Memory memory;
+      final RegisterFile registerFile;
+      final Coprocessor0 coprocessor0;
+      final Coprocessor1 coprocessor1;
+      private DelayedBranch delayedBranch;
+      private final SystemIO systemIO;
+      private final SymbolTable symbolTable;
+      private final HashMap randomStreams;
+      private final Object lock;
+      private BackStepper backStepper;
+      private Simulator simulator;
+      private int exitCode;
+
+   /**
+    * Create a new machine with empty memory and registers at their reset values.  It
+    * is not used until made current on some thread.
+    */
+       public Machine() {
+         this(new Object());
+      }
+
+       private Machine(Object lock) {
+         this.lock = lock;
+         memory = new Memory();
+         registerFile = new RegisterFile();
+         coprocessor0 = new Coprocessor0();
+         coprocessor1 = new Coprocessor1();
+         delayedBranch = new DelayedBranch();
+         systemIO = new SystemIO();
+         symbolTable = new SymbolTable("global");
+         randomStreams = new HashMap();
+      }
+
+   /**
+    * Returns the default machine, which is the one used by the IDE and command-mode MARS.
+    *
+    * @return the default machine
+    */
+       public static Machine getDefault() {
+         return defaultMachine;
+      }
+
+   /**
+    * Returns the machine current to the calling thread.
+    *
+    * @return the current machine
+    */
+       public static Machine getCurrent() {
+         if (!othersInUse) {
+            return defaultMachine;
+         }
+         Machine machine = current.get();
+         return (machine == null) ? defaultMachine : machine;
+      }
+
+   /**
+    * Make the given machine current to the calling thread and to threads it creates
+    * from now on.
+    *
+    * @param machine the machine to use, or null for the default machine
+    */
+       public static void setCurrent(Machine machine) {
+         if (machine == null || machine == defaultMachine) {
+            current.remove();
+         }
+         else {
+            othersInUse = true;
+            current.set(machine);
+         }
+      }
+
+   /**
+    * Return this machine to its power-up state between programs: registers at their
+    * reset values, no files open, no pending delayed branch and exit code 0.  Memory and
+    * the symbol table are cleared by the assembler.  Must be called on a thread to which
+    * this machine is current.
+    */
+       public void reset() {
+         RegisterFile.resetRegisters();
+         Coprocessor1.resetRegisters();
+         Coprocessor0.resetRegisters();
+         SystemIO.resetFiles();
+         delayedBranch = new DelayedBranch();
+         exitCode = 0;
+      }
+
+   /**
+    * Machine state at some moment, from takeSnapshot(), for restoreSnapshot().
+    */
+       public static final class Snapshot {
+         private final Memory.Snapshot memory;
+         private final int[] registers = new int[35]; // 32 general registers, pc, hi and lo
+         private final int[] coprocessor0 = new int[Coprocessor0.getRegisters().length];
+         private final int[] coprocessor1 = new int[33]; // 32 registers and the condition flags
+         private final int exitCode;
+
+          private Snapshot(Memory.Snapshot memory, int exitCode) {
+            this.memory = memory;
+            this.exitCode = exitCode;
+         }
+      }
+
+   /**
+    * Take a snapshot of this machine's memory, registers, coprocessor registers and exit
+    * code, for instance once a program has been assembled, so that it can be run again
+    * and again from the same state with restoreSnapshot() instead of being reassembled.
+    * Memory is shared with the snapshot block by block until written, so this is cheap.
+    * Open files, the symbol table and backstep history are not included.  Must be called
+    * on a thread to which this machine is current, between instructions and with no
+    * delayed branch pending.
+    *
+    * @return the snapshot
+    */
+       public Snapshot takeSnapshot() {
+         synchronized (lock) {
+            Snapshot snapshot = new Snapshot(memory.takeSnapshot(), exitCode);
+            RegisterFile.copyValues(snapshot.registers);
+            Coprocessor0.copyValues(snapshot.coprocessor0);
+            Coprocessor1.copyValues(snapshot.coprocessor1);
+            return snapshot;
+         }
+      }
+
+   /**
+    * Put this machine back in the state recorded by a snapshot, and clear any pending
+    * delayed branch.  Restoring the snapshot taken or restored most recently costs time
+    * proportional to the memory blocks written since.  Must be called on a thread to
+    * which this machine is current, while it is not running.
+    *
+    * @param snapshot a snapshot taken from this machine, or from another machine using
+    * the same program
+    */
+       public void restoreSnapshot(Snapshot snapshot) {
+         synchronized (lock) {
+            memory.restoreSnapshot(snapshot.memory);
+            RegisterFile.setValues(snapshot.registers);
+            Coprocessor0.setValues(snapshot.coprocessor0);
+            Coprocessor1.setValues(snapshot.coprocessor1);
+            delayedBranch = new DelayedBranch();
+            exitCode = snapshot.exitCode;
+         }
+      }
+
+   /**
+    * Returns this machine's memory.
+    *
+    * @return the Memory
+    */
+       public Memory getMemory() {
+         return memory;
+      }
+
+   /**
+    * Returns this machine's pending delayed branch.
+    *
+    * @return the DelayedBranch
+    */
+       public DelayedBranch getDelayedBranch() {
+         return delayedBranch;
+      }
+
+   /**
+    * Returns this machine's syscall I/O state.
+    *
+    * @return the SystemIO
+    */
+       public SystemIO getSystemIO() {
+         return systemIO;
+      }
+
+   /**
+    * Returns this machine's global symbol table.  For the default machine this is
+    * also Globals.symbolTable.
+    *
+    * @return the global SymbolTable
+    */
+       public SymbolTable getSymbolTable() {
+         return symbolTable;
+      }
+
+   /**
+    * Returns this machine's pseudorandom number streams, keyed by stream id, for the
+    * random number syscalls.
+    *
+    * @return the map from stream id to java.util.Random
+    */
+       public HashMap getRandomStreams() {
+         return randomStreams;
+      }
+
+   /**
+    * Returns the object to synchronize on when accessing this machine's memory and
+    * registers from outside the simulation.  For the default machine this is
+    * Globals.memoryAndRegistersLock.
+    *
+    * @return the lock object
+    */
+       public Object getLock() {
+         return lock;
+      }
+
+   /**
+    * Returns the back stepper that records this machine's state changes, or null if
+    * there is none.  The default machine uses the back stepper of the program
+    * assembled in the IDE (Globals.program).
+    *
+    * @return the BackStepper, or null
+    */
+       public BackStepper getBackStepper() {
+         if (this == defaultMachine) {
+            return (Globals.program == null) ? null : Globals.program.getBackStepper();
+         }
+         return backStepper;
+      }
+
+   /**
+    * Set the back stepper for a machine other than the default.  Backstepping is off
+    * for a machine without one.
+    *
+    * @param backStepper the BackStepper, or null
+    */
+       public void setBackStepper(BackStepper backStepper) {
+         this.backStepper = backStepper;
+      }
+
+   /**
+    * Returns this machine's simulator, creating it on first use.
+    *
+    * @return the Simulator
+    */
+       public synchronized Simulator getSimulator() {
+         if (simulator == null) {
+            simulator = new Simulator();
+         }
+         return simulator;
+      }
+
+   /**
+    * Returns the exit code given by the program's most recent exit syscall (17), or
+    * 0 if there has been none since the last reset.
+    *
+    * @return the exit code
+    */
+       public int getExitCode() {
+         return exitCode;
+      }
+
+   /**
+    * Record the exit code given by the running program.
+    *
+    * @param exitCode the exit code
+    */
+       public void setExitCode(int exitCode) {
+         this.exitCode = exitCode;
+      }
+   }
@@ -89,7 +89,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	/** Current setting for endian (default LITTLE_ENDIAN) **/
       private static boolean byteOrder = LITTLE_ENDIAN;
    	
-      public static int heapAddress;
+      private int heapAddress;
    
     // Memory will maintain a collection of observables.  Each one is associated
     // with a specific memory address or address range, and each will have at least
@@ -102,8 +102,22 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     // key for insertion into the tree would be based on Comparable using both low 
     // and high end of address range, but retrieval from the tree has to be based
     // on target address being ANYWHERE IN THE RANGE (not an exact key match).
+    //
+    // So the collection is kept for registration, and every add or delete rebuilds
+    // an ObserverIndex from it: the observables sorted by low address plus a running
+    // maximum of their high ends.  A memory access binary searches for the last range
+    // starting at or below the address, then walks backward only while some earlier
+    // range can still reach it.  With no observers the index is null, so an access
+    // costs a single volatile read.
       
       Collection observables = getNewMemoryObserversCollection();
+      private volatile ObserverIndex observerIndex = null;
+   
+    // Access listeners are told of data accesses without a notice being built.  Copied
+    // on write; null when there are none.
+      private volatile AccessListener[] accessListeners = null;
+    // Likewise for instruction fetches.
+      private volatile FetchListener[] fetchListeners = null;
    
     // The data segment is allocated in blocks of 1024 ints (4096 bytes).  Each block is
     // referenced by a "block table" entry, and the table has 1024 entries.  The capacity
@@ -174,6 +188,24 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private static final int TEXT_BLOCK_TABLE_LENGTH = 1024; // Each entry of table points to a block.
       private ProgramStatement[][] textBlockTable;
       private ProgramStatement[][] kernelTextBlockTable;
+   
+    // Bumped every time a statement is stored into either text segment.  The simulator's
+    // fast run mode pre-decodes the text segment once per run and compares this value after
+    // each instruction, so self-modifying code sends it back to the regular execution path.
+   
+      private int textSegmentVersion = 0;
+
+    // Snapshots share blocks with memory until they are written.  While "baseline" is set,
+    // a block of any table that is still the same object (or still null) in the baseline's
+    // copy of that table is copied (or allocated) before its first write, and its table
+    // and block number are appended to "touchedBlocks".  Restoring the baseline then only
+    // has to put back the touched blocks.
+
+      private static final int TEXT_TABLE = 0, KERNEL_TEXT_TABLE = 1, DATA_TABLE = 2,
+                               KERNEL_DATA_TABLE = 3, STACK_TABLE = 4, MEMORY_MAP_TABLE = 5;
+      private Snapshot baseline;
+      private int[] touchedBlocks = new int[64]; // table << 16 | block
+      private int touchedBlockCount;
     
     // Set "top" address boundary to go with each "base" address.  This determines permissable
     // address range for user program.  Currently limit is 4MB, or 1024 * 1024 * 4 bytes based
@@ -191,27 +223,24 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       														  BLOCK_LENGTH_WORDS * BLOCK_TABLE_LENGTH * WORD_LENGTH_BYTES;
       public static int memoryMapLimitAddress   = memoryMapBaseAddress + 
                                  					  BLOCK_LENGTH_WORDS * MMIO_TABLE_LENGTH * WORD_LENGTH_BYTES;  
-    // This will be a Singleton class, only one instance is ever created.  Since I know the 
-    // Memory object is always needed, I'll go ahead and create it at the time of class loading.
-    // (greedy rather than lazy instantiation).  The constructor is private and getInstance()
-    // always returns this instance.
-    
-      private static Memory uniqueMemoryInstance = new Memory(); 
-   	
+    // There is one instance per Machine, created along with the machine.  The default
+    // machine's instance is the one the IDE shows, also available as Globals.memory.
     
     /*
-     * Private constructor for Memory.  Separate data structures for text and data segments. 
+     * Constructor for the memory of a new Machine.  Separate data structures for text and data segments. 
      **/
-       private Memory() {
+       Memory() {
          initialize();
       }
    
      /**
-      * Returns the unique Memory instance, which becomes in essence global.
+      * Returns the Memory instance of the machine current to the calling thread.  Unless
+   	* another Machine has been made current, this is the default machine's memory,
+   	* which becomes in essence global.
    	*/
    	
        public static Memory getInstance() {
-         return uniqueMemoryInstance;
+         return Machine.getCurrent().memory;
       }
    	
    	/**
@@ -292,7 +321,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          kernelDataBlockTable  = new int[BLOCK_TABLE_LENGTH][];      
          stackBlockTable = new int[BLOCK_TABLE_LENGTH][];
          memoryMapBlockTable = new int[MMIO_TABLE_LENGTH][];
-         System.gc(); // call garbage collector on any Table memory just deallocated. 	  
+         textSegmentVersion++;
+         baseline = null;
+         touchedBlockCount = 0;
       }  
      
    	/**
@@ -318,6 +349,135 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          heapAddress = newHeapAddress;
          return result;
       }
+
+    /**
+     *  Contents of memory at some moment, from takeSnapshot(), for restoreSnapshot().
+     *  A snapshot shares its 4K blocks with memory and with other snapshots until one
+     *  of them is written, so taking one costs a copy of the block tables only.
+     */
+       public static final class Snapshot {
+         private final Object[][] tables; // indexed by TEXT_TABLE etc.
+         private final int heapAddress;
+
+          private Snapshot(Object[][] tables, int heapAddress) {
+            this.tables = tables;
+            this.heapAddress = heapAddress;
+         }
+      }
+
+    /**
+     *  Take a snapshot of the text, data, kernel, stack and MMIO segments and of the
+     *  heap allocation point.  Observers are not notified.  The snapshot becomes the
+     *  baseline: from now on, the first write to each block copies it, and the block is
+     *  remembered so that restoring this snapshot later only has to put back the blocks
+     *  written since.
+     *  @return the snapshot
+     */
+       public synchronized Snapshot takeSnapshot() {
+         Object[][] current = getBlockTables();
+         Object[][] copies = new Object[current.length][];
+         for (int table = 0; table < current.length; table++) {
+            copies[table] = (Object[]) current[table].clone();
+         }
+         baseline = new Snapshot(copies, heapAddress);
+         touchedBlockCount = 0;
+         return baseline;
+      }
+
+    /**
+     *  Put memory back the way it was when the snapshot was taken.  Restoring the most
+     *  recent snapshot, or the one most recently restored, takes time proportional to the
+     *  number of blocks written since; any other snapshot takes a copy of the block
+     *  tables and then becomes the baseline.  Observers are not notified, and the text
+     *  segment version changes if text may have changed.
+     *  @param snapshot a snapshot taken from this memory since it was last cleared, or
+     *  from another memory under the same memory configuration
+     */
+       public synchronized void restoreSnapshot(Snapshot snapshot) {
+         Object[][] current = getBlockTables();
+         boolean textChanged = false;
+         if (snapshot == baseline) {
+            for (int i = 0; i < touchedBlockCount; i++) {
+               int table = touchedBlocks[i] >>> 16;
+               int block = touchedBlocks[i] & 0xFFFF;
+               current[table][block] = snapshot.tables[table][block];
+               textChanged |= table == TEXT_TABLE || table == KERNEL_TEXT_TABLE;
+            }
+         }
+         else {
+            for (int table = 0; table < current.length; table++) {
+               System.arraycopy(snapshot.tables[table], 0, current[table], 0, current[table].length);
+            }
+            baseline = snapshot;
+            textChanged = true;
+         }
+         touchedBlockCount = 0;
+         heapAddress = snapshot.heapAddress;
+         if (textChanged) {
+            textSegmentVersion++;
+         }
+      }
+
+      // The block tables, indexed by TEXT_TABLE etc.
+       private Object[][] getBlockTables() {
+         return new Object[][] { textBlockTable, kernelTextBlockTable, dataBlockTable,
+                                 kernelDataBlockTable, stackBlockTable, memoryMapBlockTable };
+      }
+
+      // Which of the block tables this is.
+       private int tableNumber(Object[] blockTable) {
+         if (blockTable == dataBlockTable) return DATA_TABLE;
+         if (blockTable == stackBlockTable) return STACK_TABLE;
+         if (blockTable == textBlockTable) return TEXT_TABLE;
+         if (blockTable == kernelDataBlockTable) return KERNEL_DATA_TABLE;
+         if (blockTable == kernelTextBlockTable) return KERNEL_TEXT_TABLE;
+         return MEMORY_MAP_TABLE;
+      }
+
+      // Returns the data block to store into, allocating it if there is none and, while
+   	// there is a baseline snapshot, copying it if it is still shared with the baseline.
+       private int[] getWritableBlock(int[][] blockTable, int block) {
+         int[] words = blockTable[block];
+         if (baseline != null) {
+            int table = tableNumber(blockTable);
+            if (words == baseline.tables[table][block]) {
+               words = (words == null) ? new int[BLOCK_LENGTH_WORDS] : (int[]) words.clone();
+               blockTable[block] = words;
+               touchBlock(table, block);
+            }
+         }
+         else if (words == null) {
+            words = blockTable[block] = new int[BLOCK_LENGTH_WORDS];
+         }
+         return words;
+      }
+
+      // Same as getWritableBlock() for a text segment block.
+       private ProgramStatement[] getWritableBlock(ProgramStatement[][] blockTable, int block) {
+         ProgramStatement[] statements = blockTable[block];
+         if (baseline != null) {
+            int table = tableNumber(blockTable);
+            if (statements == baseline.tables[table][block]) {
+               statements = (statements == null) ? new ProgramStatement[TEXT_BLOCK_LENGTH_WORDS]
+                  : (ProgramStatement[]) statements.clone();
+               blockTable[block] = statements;
+               touchBlock(table, block);
+            }
+         }
+         else if (statements == null) {
+            statements = blockTable[block] = new ProgramStatement[TEXT_BLOCK_LENGTH_WORDS];
+         }
+         return statements;
+      }
+
+       private void touchBlock(int table, int block) {
+         if (touchedBlockCount == touchedBlocks.length) {
+            int[] more = new int[touchedBlocks.length * 2];
+            System.arraycopy(touchedBlocks, 0, more, 0, touchedBlockCount);
+            touchedBlocks = more;
+         }
+         touchedBlocks[touchedBlockCount++] = table << 16 | block;
+      }
    
    
      /**
@@ -408,7 +568,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             throw new AddressErrorException("address out of range ",
                Exceptions.ADDRESS_EXCEPTION_STORE, address);
          }
-         notifyAnyObservers(AccessNotice.WRITE, address, length, value);
+         notifyDataAccess(AccessNotice.WRITE, address, length, value);
          return oldValue;
       }
    	
@@ -477,9 +637,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             throw new AddressErrorException("store address out of range ",
                Exceptions.ADDRESS_EXCEPTION_STORE,	address);
          }
-         notifyAnyObservers(AccessNotice.WRITE, address, WORD_LENGTH_BYTES, value);
+         notifyDataAccess(AccessNotice.WRITE, address, WORD_LENGTH_BYTES, value);
          if (Globals.getSettings().getBackSteppingEnabled()) {
-            Globals.program.getBackStepper().addMemoryRestoreRawWord(address,oldValue);
+            Machine.getCurrent().getBackStepper().addMemoryRestoreRawWord(address,oldValue);
          }
          return oldValue;
       }
@@ -501,7 +661,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                Exceptions.ADDRESS_EXCEPTION_STORE,address);
          }
          return (Globals.getSettings().getBackSteppingEnabled())
-            ? Globals.program.getBackStepper().addMemoryRestoreWord(address,set(address, value, WORD_LENGTH_BYTES))
+            ? Machine.getCurrent().getBackStepper().addMemoryRestoreWord(address,set(address, value, WORD_LENGTH_BYTES))
             : set(address, value, WORD_LENGTH_BYTES);
       }
    
@@ -522,7 +682,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                Exceptions.ADDRESS_EXCEPTION_STORE, address);
          }
          return (Globals.getSettings().getBackSteppingEnabled())
-            ? Globals.program.getBackStepper().addMemoryRestoreHalf(address,set(address,value,2))
+            ? Machine.getCurrent().getBackStepper().addMemoryRestoreHalf(address,set(address,value,2))
             : set(address, value, 2);
       }
    
@@ -537,13 +697,52 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      
        public int setByte(int address, int value) throws AddressErrorException {
          return (Globals.getSettings().getBackSteppingEnabled())
-            ? Globals.program.getBackStepper().addMemoryRestoreByte(address,set(address,value,1))
+            ? Machine.getCurrent().getBackStepper().addMemoryRestoreByte(address,set(address,value,1))
             : set(address, value, 1);
       }
-   
+
     ///////////////////////////////////////////////////////////////////////////////////////
-    /** 
-     *  Writes 64 bit double value starting at specified Memory address.  Note that 
+    /**
+     *  Writes a run of bytes into consecutive Memory bytes, as setByte() would one byte
+     *  at a time.  When no observers or access listeners are registered and backstepping
+     *  is disabled, a range entirely within the data, kernel data or memory-mapped I/O
+     *  segment is copied straight into its 4K blocks; otherwise each byte goes through
+     *  setByte().
+     *
+     * @param address Address of the first Memory byte to be set.
+     * @param bytes Array holding the values to be stored.
+     * @param offset Index into bytes of the first value.
+     * @param length Number of bytes to store.
+     * @throws AddressErrorException If a byte of the range cannot be written.
+     **/
+       public void setBytes(int address, byte[] bytes, int offset, int length) throws AddressErrorException {
+         if (length <= 0) {
+            return;
+         }
+         if (observerIndex == null && accessListeners == null && !Globals.getSettings().getBackSteppingEnabled()) {
+            int lastAddress = address + length - 1;
+            if (inDataSegment(address) && inDataSegment(lastAddress)) {
+               copyBytesToOrFromTable(dataBlockTable, address - dataSegmentBaseAddress, bytes, offset, length, STORE);
+               return;
+            }
+            if (inKernelDataSegment(address) && inKernelDataSegment(lastAddress)) {
+               copyBytesToOrFromTable(kernelDataBlockTable, address - kernelDataBaseAddress, bytes, offset, length, STORE);
+               return;
+            }
+            if (address >= memoryMapBaseAddress && address < memoryMapLimitAddress
+                && lastAddress >= memoryMapBaseAddress && lastAddress < memoryMapLimitAddress) {
+               copyBytesToOrFromTable(memoryMapBlockTable, address - memoryMapBaseAddress, bytes, offset, length, STORE);
+               return;
+            }
+         }
+         for (int i = 0; i < length; i++) {
+            setByte(address + i, bytes[offset + i]);
+         }
+      }
+
+    ///////////////////////////////////////////////////////////////////////////////////////
+    /**
+     *  Writes 64 bit double value starting at specified Memory address.  Note that
      *  high-order 32 bits are stored in higher (second) memory word regardless
      *  of "endianness".
      * 
@@ -583,6 +782,47 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          else {
             storeProgramStatement(address, statement, kernelTextBaseAddress, kernelTextBlockTable);
          }
+         textSegmentVersion++;
+      }
+   
+   ////////////////////////////////////////////////////////////////////////////////
+   /**
+    * Returns a counter that changes every time a statement is stored into the user or
+    * kernel text segment, whether by the assembler or by self-modifying code.
+    * @return current text segment version
+    **/
+   
+       public int getTextSegmentVersion() {
+         return textSegmentVersion;
+      }
+   
+   ////////////////////////////////////////////////////////////////////////////////
+   /**
+    * Returns a flat copy of the user text segment, starting at Memory.textBaseAddress and
+    * ending with the last allocated text block.  Element i of the result holds the statement
+    * stored at address textBaseAddress + 4*i, or null if there is none.  Observers are not
+    * notified.  Used by the simulator to pre-decode a program for fast execution.
+    * @return array of ProgramStatement references, empty if the text segment is empty.
+    **/
+   
+       public synchronized ProgramStatement[] getTextSegmentStatements() {
+         int maxWords = (textLimitAddress - textBaseAddress) >> 2;
+         int blocks = Math.min(TEXT_BLOCK_TABLE_LENGTH, (maxWords + TEXT_BLOCK_LENGTH_WORDS - 1) / TEXT_BLOCK_LENGTH_WORDS);
+         int lastBlock = -1;
+         for (int block = 0; block < blocks; block++) {
+            if (textBlockTable[block] != null) {
+               lastBlock = block;
+            }
+         }
+         ProgramStatement[] statements = new ProgramStatement[Math.min(maxWords, (lastBlock + 1) * TEXT_BLOCK_LENGTH_WORDS)];
+         for (int block = 0; block <= lastBlock; block++) {
+            if (textBlockTable[block] != null) {
+               int start = block * TEXT_BLOCK_LENGTH_WORDS;
+               System.arraycopy(textBlockTable[block], 0, statements, start, 
+                                Math.min(TEXT_BLOCK_LENGTH_WORDS, statements.length - start));
+            }
+         }
+         return statements;
       }
    	
    
@@ -652,7 +892,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             throw new AddressErrorException("address out of range ",
                Exceptions.ADDRESS_EXCEPTION_LOAD, address);
          }
-         if (notify) notifyAnyObservers(AccessNotice.READ, address, length, value);
+         if (notify) notifyDataAccess(AccessNotice.READ, address, length, value);
          return value;
       }
    
@@ -724,7 +964,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             throw new AddressErrorException("address out of range ", 
                Exceptions.ADDRESS_EXCEPTION_LOAD, address);
          }
-         notifyAnyObservers(AccessNotice.READ, address, Memory.WORD_LENGTH_BYTES,value);
+         notifyDataAccess(AccessNotice.READ, address, Memory.WORD_LENGTH_BYTES,value);
          return value;
       } 
    
@@ -801,15 +1041,124 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	*/
        public int getAddressOfFirstNull(int baseAddress, int limitAddress) throws AddressErrorException {
          int address = baseAddress;
-         for (; address < limitAddress; address += Memory.WORD_LENGTH_BYTES) {
-            if (getRawWordOrNull(address) == null) {
+         int[] words = new int[BLOCK_LENGTH_WORDS];
+         while (address < limitAddress) {
+            int count = getAllocatedRawWords(address, words, 0, 
+                           (int) Math.min(BLOCK_LENGTH_WORDS, ((long) limitAddress - address + WORD_LENGTH_BYTES - 1) / WORD_LENGTH_BYTES));
+            if (count == 0) {
                break;
             }
+            address += count * WORD_LENGTH_BYTES;
          }
          return address;
       }
    
    
+    ///////////////////////////////////////////////////////////////////////////////////////
+    /** 
+     *  Copies a run of consecutive words, starting at the given word address, into an
+     *  int array, ending early at the first word for which getRawWordOrNull() would 
+     *  return null: one in a 4K data block that has never been written or a text 
+     *  address without a statement.  Observers are NOT notified.  Data, kernel data
+     *  and stack words are copied a block at a time, so this is the way to walk a 
+     *  segment for a memory dump.
+     * 
+     * @param address Starting address of first word to be read.
+     * @param words Array to receive the values.
+     * @param offset Index into words of the first value.
+     * @param count Most words to copy.
+     * @return Number of words copied, 0 if the word at address would be null.
+     * @throws AddressErrorException If address is not on word boundary or is outside 
+     *  the Mars addressing range.
+    **/
+       public int getAllocatedRawWords(int address, int[] words, int offset, int count) throws AddressErrorException {
+         if (address % WORD_LENGTH_BYTES != 0) {
+            throw new AddressErrorException("address for fetch not aligned on word boundary",
+               Exceptions.ADDRESS_EXCEPTION_LOAD, address);
+         }
+         int copied = 0;
+         while (copied < count) {
+            int next = address + copied * WORD_LENGTH_BYTES;
+            int wanted = count - copied;
+            int length;
+            // same order of segment checks as getRawWordOrNull()
+            if (inDataSegment(next)) {
+               wanted = (int) Math.min(wanted, ((long) dataSegmentLimitAddress - next) / WORD_LENGTH_BYTES);
+               length = copyAllocatedWordsFromTable(dataBlockTable, (next - dataSegmentBaseAddress) >> 2, false, words, offset + copied, wanted);
+            } 
+            else if (next > stackLimitAddress && next <= stackBaseAddress) {
+               length = copyAllocatedWordsFromTable(stackBlockTable, (stackBaseAddress - next) >> 2, true, words, offset + copied, wanted);
+            } 
+            else if (inKernelDataSegment(next) && !inTextSegment(next) && !inKernelTextSegment(next)) {
+               wanted = (int) Math.min(wanted, ((long) kernelDataSegmentLimitAddress - next) / WORD_LENGTH_BYTES);
+               length = copyAllocatedWordsFromTable(kernelDataBlockTable, (next - kernelDataBaseAddress) >> 2, false, words, offset + copied, wanted);
+            } 
+            else {
+               // text holds statements, and anything else is an error; one word at a time,
+            	// so that an error is reported only once the words before it are returned
+               if (copied > 0 && !inTextSegment(next) && !inKernelTextSegment(next)) {
+                  break;
+               }
+               Integer value = getRawWordOrNull(next);
+               if (value == null) {
+                  break;
+               }
+               words[offset + copied] = value.intValue();
+               length = 1;
+            }
+            if (length == 0) {
+               break;
+            }
+            copied += length;
+         }
+         return copied;
+      }
+   
+   
+    ///////////////////////////////////////////////////////////////////////////////////////
+    /** 
+     *  Copies a run of consecutive words, starting at the given word address, into an
+     *  int array.  Values are transferred raw, as by getRawWord(), and observers are NOT
+     *  notified.  Words in 4K blocks that have never been written are copied as 0.  
+     *  Within the data, kernel data and memory-mapped I/O segments whole blocks are 
+     *  copied at once, so this is the way for tools such as bitmap displays to read a 
+     *  frame buffer.
+     * 
+     * @param address Starting address of first word to be read.
+     * @param words Array to receive the values.
+     * @param offset Index into words of the first value.
+     * @param count Number of words to copy.
+     * @throws AddressErrorException If address is not on word boundary or range is not 
+     *  entirely within one segment.
+    **/
+       public void getRawWords(int address, int[] words, int offset, int count) throws AddressErrorException {
+         if (address % WORD_LENGTH_BYTES != 0) {
+            throw new AddressErrorException("address for fetch not aligned on word boundary",
+               Exceptions.ADDRESS_EXCEPTION_LOAD, address);
+         }
+         if (count <= 0) {
+            return;
+         }
+         int lastAddress = address + (count - 1) * WORD_LENGTH_BYTES;
+         if (inDataSegment(address) && inDataSegment(lastAddress)) {
+            copyWordsFromTable(dataBlockTable, (address - dataSegmentBaseAddress) >> 2, words, offset, count);
+         } 
+         else if (inKernelDataSegment(address) && inKernelDataSegment(lastAddress)) {
+            copyWordsFromTable(kernelDataBlockTable, (address - kernelDataBaseAddress) >> 2, words, offset, count);
+         } 
+         else if (address >= memoryMapBaseAddress && address < memoryMapLimitAddress 
+                  && lastAddress >= memoryMapBaseAddress && lastAddress < memoryMapLimitAddress) {
+            copyWordsFromTable(memoryMapBlockTable, (address - memoryMapBaseAddress) >> 2, words, offset, count);
+         } 
+         else {
+            // stack grows downward and text holds statements; take them one word at a time
+            for (int i = 0; i < count; i++) {
+               Integer value = getRawWordOrNull(address + i * WORD_LENGTH_BYTES);
+               words[offset + i] = (value == null) ? 0 : value.intValue();
+            }
+         }
+      }
+   
     ///////////////////////////////////////////////////////////////////////////////////////
     /** 
      *  Starting at the given word address, read a 4 byte word as an int.  
@@ -875,6 +1224,132 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public int getByte(int address) throws AddressErrorException {
          return get(address, 1);
       }
+
+    ///////////////////////////////////////////////////////////////////////////////////////
+    /**
+     *  Reads a run of consecutive Memory bytes into a byte array, as getByte() would one
+     *  byte at a time.  When no observers or access listeners are registered, a range
+     *  entirely within the data, kernel data or memory-mapped I/O segment is copied
+     *  straight from its 4K blocks; otherwise each byte goes through getByte().
+     *
+     * @param address Address of the first Memory byte to be read.
+     * @param bytes Array to receive the values.
+     * @param offset Index into bytes of the first value.
+     * @param length Number of bytes to read.
+     * @throws AddressErrorException If a byte of the range cannot be read.
+     **/
+       public void getBytes(int address, byte[] bytes, int offset, int length) throws AddressErrorException {
+         if (length <= 0) {
+            return;
+         }
+         if (observerIndex == null && accessListeners == null) {
+            int lastAddress = address + length - 1;
+            if (inDataSegment(address) && inDataSegment(lastAddress)) {
+               copyBytesToOrFromTable(dataBlockTable, address - dataSegmentBaseAddress, bytes, offset, length, FETCH);
+               return;
+            }
+            if (inKernelDataSegment(address) && inKernelDataSegment(lastAddress)) {
+               copyBytesToOrFromTable(kernelDataBlockTable, address - kernelDataBaseAddress, bytes, offset, length, FETCH);
+               return;
+            }
+            if (address >= memoryMapBaseAddress && address < memoryMapLimitAddress
+                && lastAddress >= memoryMapBaseAddress && lastAddress < memoryMapLimitAddress) {
+               copyBytesToOrFromTable(memoryMapBlockTable, address - memoryMapBaseAddress, bytes, offset, length, FETCH);
+               return;
+            }
+         }
+         for (int i = 0; i < length; i++) {
+            bytes[offset + i] = (byte) getByte(address + i);
+         }
+      }
+
+   ////////////////////////////////////////////////////////////////////////////////
+   /**
+    * Returns the length of the null-terminated string starting at the given address,
+    * that is, the number of bytes before the first zero byte.  Observers are not
+    * notified.  In the data, kernel data and memory-mapped I/O segments the search runs
+    * through the block tables directly, so long strings cost little per byte; a block
+    * that has never been written ends the string at its first byte.
+    *
+    * @param address Address of the first byte of the string.
+    * @return Number of bytes in the string, not counting the null byte.
+    * @throws AddressErrorException If the string runs into an address that cannot be read.
+    **/
+       public int getStringLength(int address) throws AddressErrorException {
+         int length = 0;
+         while (true) {
+            int next = address + length;
+            int found, maximum;
+            if (inDataSegment(next)) {
+               maximum = dataSegmentLimitAddress - next;
+               found = findNullByteInTable(dataBlockTable, next - dataSegmentBaseAddress, maximum);
+            } 
+            else if (inKernelDataSegment(next)) {
+               maximum = kernelDataSegmentLimitAddress - next;
+               found = findNullByteInTable(kernelDataBlockTable, next - kernelDataBaseAddress, maximum);
+            } 
+            else if (next >= memoryMapBaseAddress && next < memoryMapLimitAddress) {
+               maximum = memoryMapLimitAddress - next;
+               found = findNullByteInTable(memoryMapBlockTable, next - memoryMapBaseAddress, maximum);
+            } 
+            else {
+               // stack and text, a byte at a time
+               if (get(next, 1, false) == 0) {
+                  return length;
+               }
+               length++;
+               continue;
+            }
+            length += found;
+            if (found < maximum) {
+               return length;
+            }
+         }
+      }
+   
+   ////////////////////////////////////////////////////////////////////////////////
+   /**
+    * Reads the null-terminated string starting at the given address, one character per
+    * byte.  The string is found with getStringLength() and then read with getBytes(), so
+    * observers are notified of each byte read, including the null byte.  If the string
+    * runs into an address that cannot be read, the bytes before it are still read, as
+    * they were when strings were read a byte at a time, before the exception is thrown.
+    *
+    * @param address Address of the first byte of the string.
+    * @return The string, without its null byte.
+    * @throws AddressErrorException If the string runs into an address that cannot be read.
+    **/
+       public String getNullTerminatedString(int address) throws AddressErrorException {
+         int length;
+         try {
+            length = getStringLength(address);
+         } 
+             catch (AddressErrorException e) {
+               getString(address, e.getAddress() - address);
+               throw e;
+            }
+         return getString(address, length + 1).substring(0, length);
+      }
+   
+   ////////////////////////////////////////////////////////////////////////////////
+   /**
+    * Reads the given number of bytes starting at the given address as a string, one
+    * character per byte.  Observers are notified of each byte read, as by getBytes().
+    *
+    * @param address Address of the first byte of the string.
+    * @param length Number of bytes to read.
+    * @return The string, length characters long.
+    * @throws AddressErrorException If a byte of the range cannot be read.
+    **/
+       public String getString(int address, int length) throws AddressErrorException {
+         byte[] bytes = new byte[length];
+         getBytes(address, bytes, 0, length);
+         char[] chars = new char[length];
+         for (int i = 0; i < length; i++) {
+            chars[i] = (char) (bytes[i] & 0xFF);
+         }
+         return new String(chars);
+      }
    
    ////////////////////////////////////////////////////////////////////////////////
    /**
@@ -942,6 +1417,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                "fetch address for text segment out of range ",
                Exceptions.ADDRESS_EXCEPTION_LOAD, address);
          }
+         if (notify && fetchListeners != null) {
+            notifyFetch(address);
+         }
          if (inTextSegment(address)) 
             return readProgramStatement(address, textBaseAddress, textBlockTable, notify);
          else if (inKernelTextSegment(address)) 
@@ -1118,7 +1596,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             throw new AddressErrorException("end address of range < start address of range ",
                Exceptions.ADDRESS_EXCEPTION_LOAD, startAddr);
          }
-         observables.add(new MemoryObservable(obs, startAddr, endAddr));
+         synchronized (observables) {
+            observables.add(new MemoryObservable(obs, startAddr, endAddr));
+            rebuildObserverIndex();
+         }
       }
    
       /**
@@ -1133,10 +1614,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  @param obs  Observer to be removed
    	 */   		
        public void deleteObserver(Observer obs) {
-         Iterator it = observables.iterator();
-         while (it.hasNext()) {
-            ((MemoryObservable)it.next()).deleteObserver(obs);
-         }	
+         synchronized (observables) {
+            Iterator it = observables.iterator();
+            while (it.hasNext()) {
+               MemoryObservable mo = (MemoryObservable)it.next();
+               mo.deleteObserver(obs);
+               if (mo.countObservers() == 0) {
+                  it.remove();
+               }
+            }
+            rebuildObserverIndex();
+         }
       }
    	
    	/**
@@ -1145,6 +1633,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public void deleteObservers() {
          // just drop the collection
          observables = getNewMemoryObserversCollection();
+         observerIndex = null;
       }
    	
    	/**
@@ -1168,6 +1657,101 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    		
    		
+   /**
+    *  Implemented by whatever needs to follow data memory accesses more cheaply than
+    *  an Observer can, such as the simulator's retired instruction stream.
+    */
+       public interface AccessListener {
+      /**
+       *  Called for each data access that would be reported to Observers, on the thread
+       *  making it.  Instruction fetches are not included.
+       *  @param type AccessNotice.READ or AccessNotice.WRITE
+       *  @param address the address accessed
+       *  @param length number of bytes accessed
+       */
+          void memoryAccessed(int type, int address, int length);
+      }
+   
+   /**
+    *  Add a listener to be told of each data memory access.  While any are registered
+    *  getBytes() and setBytes() go a byte at a time so that every byte is reported.
+    *  @param listener the listener to add
+    */
+       public synchronized void addAccessListener(AccessListener listener) {
+         AccessListener[] old = accessListeners;
+         int count = (old == null) ? 0 : old.length;
+         AccessListener[] listeners = new AccessListener[count + 1];
+         if (old != null) {
+            System.arraycopy(old, 0, listeners, 0, count);
+         }
+         listeners[count] = listener;
+         accessListeners = listeners;
+      }
+   
+   /**
+    *  Remove a listener added with addAccessListener().  Does nothing if it is not registered.
+    *  @param listener the listener to remove
+    */
+       public synchronized void removeAccessListener(AccessListener listener) {
+         if (accessListeners == null) {
+            return;
+         }
+         ArrayList remaining = new ArrayList(Arrays.asList(accessListeners));
+         remaining.remove(listener);
+         accessListeners = remaining.isEmpty() ? null 
+            : (AccessListener[]) remaining.toArray(new AccessListener[remaining.size()]);
+      }
+   
+   /**
+    *  Implemented by whatever needs to follow instruction fetches more cheaply than
+    *  an Observer can, such as a memory trace recorder.
+    */
+       public interface FetchListener {
+      /**
+       *  Called for each instruction fetched by getStatement(), on the thread fetching it.
+       *  @param address the address of the instruction
+       */
+          void instructionFetched(int address);
+      }
+   
+   /**
+    *  Add a listener to be told of each instruction fetch.
+    *  @param listener the listener to add
+    */
+       public synchronized void addFetchListener(FetchListener listener) {
+         FetchListener[] old = fetchListeners;
+         int count = (old == null) ? 0 : old.length;
+         FetchListener[] listeners = new FetchListener[count + 1];
+         if (old != null) {
+            System.arraycopy(old, 0, listeners, 0, count);
+         }
+         listeners[count] = listener;
+         fetchListeners = listeners;
+      }
+   
+   /**
+    *  Remove a listener added with addFetchListener().  Does nothing if it is not registered.
+    *  @param listener the listener to remove
+    */
+       public synchronized void removeFetchListener(FetchListener listener) {
+         if (fetchListeners == null) {
+            return;
+         }
+         ArrayList remaining = new ArrayList(Arrays.asList(fetchListeners));
+         remaining.remove(listener);
+         fetchListeners = remaining.isEmpty() ? null 
+            : (FetchListener[]) remaining.toArray(new FetchListener[remaining.size()]);
+      }
+   
+   /**
+    *  Tell whether any fetch listeners are registered.  The simulator's fast loop does
+    *  not fetch through getStatement(), so it must not run while one is.
+    *  @return true if at least one listener added with addFetchListener() remains
+    */
+       public boolean hasFetchListeners() {
+         return fetchListeners != null;
+      }
+   
        private Collection getNewMemoryObserversCollection() {
          return new Vector();  // Vectors are thread-safe
       }
@@ -1193,8 +1777,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             this.notifyObservers(notice);
          }
          
-      	// Useful to have for future refactoring, if it actually becomes worthwhile to sort
-      	// these or put 'em in a tree (rather than sequential search through list).
+      	// Highest byte address covered by this range.
+          public int reach() {
+            return highAddress-1+WORD_LENGTH_BYTES;
+         }
+      	
+      	// Orders by low address, then high address.  Used to build the ObserverIndex.
           public int compareTo(Object obj) {
             if (!(obj instanceof MemoryObservable)) {
                throw new ClassCastException();
@@ -1204,12 +1792,55 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                return -1;
             }
             if (this.lowAddress > mo.lowAddress || this.lowAddress==mo.lowAddress && this.highAddress > mo.highAddress) {
-               return -1;
+               return 1;
             }
             return 0;  // they have to be equal at this point.
          }
       }
       
+       /////////////////////////////////////////////////////////////////////////
+       // Immutable snapshot of the observables, sorted by low address.  maxReach[i]
+   	 // is the highest address reached by any of ranges 0..i.  Ranges never cross
+   	 // 0x80000000, so signed comparison orders them consistently.
+       private static class ObserverIndex {
+         private final MemoryObservable[] ranges;
+         private final int[] maxReach;
+      	
+          private ObserverIndex(MemoryObservable[] ranges) {
+            this.ranges = ranges;
+            this.maxReach = new int[ranges.length];
+            for (int i = 0; i < ranges.length; i++) {
+               maxReach[i] = (i == 0) ? ranges[i].reach() : Math.max(maxReach[i-1], ranges[i].reach());
+            }
+         }
+      	
+      	// Index of last range whose low address is <= address, or -1 if none.
+          private int lastStartingAtOrBelow(int address) {
+            int low = 0, high = ranges.length - 1;
+            while (low <= high) {
+               int mid = (low + high) >>> 1;
+               if (ranges[mid].lowAddress <= address) {
+                  low = mid + 1;
+               } 
+               else {
+                  high = mid - 1;
+               }
+            }
+            return high;
+         }
+      }
+      
+       // Caller must hold the observables lock.
+       private void rebuildObserverIndex() {
+         if (observables.isEmpty()) {
+            observerIndex = null;
+            return;
+         }
+         MemoryObservable[] ranges = (MemoryObservable[]) observables.toArray(new MemoryObservable[observables.size()]);
+         Arrays.sort(ranges);
+         observerIndex = new ObserverIndex(ranges);
+      }
+      
    
    /*********************************  THE HELPERS  *************************************/
      
@@ -1220,19 +1851,48 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    //
    // The "|| Globals.getGui()==null" is a hack added 19 July 2012 DPS.  IF MIPS simulation
    // is from command mode, Globals.program is null but still want ability to observe.
+   //
+   // Notices are immutable, so all ranges matching one access share a single notice.
        private void notifyAnyObservers(int type, int address, int length, int value) {
-         if ((Globals.program != null || Globals.getGui()==null) && this.observables.size() > 0) {
-            Iterator it = this.observables.iterator();
-            MemoryObservable mo;
-            while (it.hasNext()) {
-               mo = (MemoryObservable)it.next();
+         ObserverIndex index = observerIndex;
+         if (index == null) {
+            return;
+         }
+         if (Globals.program != null || Globals.getGui()==null) {
+            MemoryAccessNotice notice = null;
+            for (int i = index.lastStartingAtOrBelow(address); i >= 0 && index.maxReach[i] >= address; i--) {
+               MemoryObservable mo = index.ranges[i];
                if (mo.match(address)) {
-                  mo.notifyObserver(new MemoryAccessNotice(type, address, length, value));
+                  if (notice == null) {
+                     notice = new MemoryAccessNotice(type, address, length, value);
+                  }
+                  mo.notifyObserver(notice);
                }
             }
          } 		
       }
    
+   // Report an instruction fetch to the fetch listeners.
+       private void notifyFetch(int address) {
+         FetchListener[] listeners = fetchListeners;
+         if (listeners != null) {
+            for (int i = 0; i < listeners.length; i++) {
+               listeners[i].instructionFetched(address);
+            }
+         }
+      }
+   
+   // Report a data access to the access listeners, then to any Observers.
+       private void notifyDataAccess(int type, int address, int length, int value) {
+         AccessListener[] listeners = accessListeners;
+         if (listeners != null) {
+            for (int i = 0; i < listeners.length; i++) {
+               listeners[i].memoryAccessed(type, address, length);
+            }
+         }
+         notifyAnyObservers(type, address, length, value);
+      }
+   
    ////////////////////////////////////////////////////////////////////////////////
    //
    // Helper method to store 1, 2 or 4 byte value in table that represents MIPS
@@ -1292,18 +1952,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             relativeWordAddress = relativeByteAddress >> 2;
             block = relativeWordAddress / BLOCK_LENGTH_WORDS;  // Block number
             offset = relativeWordAddress % BLOCK_LENGTH_WORDS; // Word within that block
-            if (blockTable[block] == null) {
-               if (op==STORE) 
-                  blockTable[block] = new int[BLOCK_LENGTH_WORDS];
-               else 
-                  return 0;
+            if (blockTable[block] == null && op == FETCH) {
+               return 0;
             }
             if (byteOrder == LITTLE_ENDIAN) bytePositionInMemory = 3 - bytePositionInMemory;
             if (op == STORE) {
-               oldValue = replaceByte(blockTable[block][offset], bytePositionInMemory,
+               int[] words = getWritableBlock(blockTable, block);
+               oldValue = replaceByte(words[offset], bytePositionInMemory,
                   								oldValue, bytePositionInValue);
-               blockTable[block][offset] = replaceByte(value, bytePositionInValue, 
-                                         blockTable[block][offset], bytePositionInMemory);
+               words[offset] = replaceByte(value, bytePositionInValue, 
+                                         words[offset], bytePositionInMemory);
             } 
             else {// op == FETCH
                value = replaceByte(blockTable[block][offset], bytePositionInMemory, 
@@ -1326,12 +1984,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          int  block, offset, oldValue;
          block = relative / BLOCK_LENGTH_WORDS;
          offset = relative % BLOCK_LENGTH_WORDS; 
-         if (blockTable[block] == null) {
-               // First time writing to this block, so allocate the space.
-            blockTable[block] = new int[BLOCK_LENGTH_WORDS];
-         }
-         oldValue = blockTable[block][offset];
-         blockTable[block][offset] = value;
+         // Allocates the block the first time it is written.
+         int[] words = getWritableBlock(blockTable, block);
+         oldValue = words[offset];
+         words[offset] = value;
          return oldValue;
       }
       
@@ -1385,6 +2041,139 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          return new Integer(value);
       }
    	   
+   ////////////////////////////////////////////////////////////////////////////////
+   //
+   // Helper method to copy consecutive words from a table that represents MIPS memory,
+   // a block at a time.  Unallocated blocks read as 0.  Assumes the table grows upward
+   // (i.e. not the stack) and that the range has already been checked.
+   //
+       private synchronized void copyWordsFromTable(int[][] blockTable, int relative, int[] words, int offset, int count) {
+         while (count > 0) {
+            int block = relative / BLOCK_LENGTH_WORDS;
+            int blockOffset = relative % BLOCK_LENGTH_WORDS;
+            int length = Math.min(count, BLOCK_LENGTH_WORDS - blockOffset);
+            if (blockTable[block] == null) {
+               Arrays.fill(words, offset, offset + length, 0);
+            } 
+            else {
+               System.arraycopy(blockTable[block], blockOffset, words, offset, length);
+            }
+            relative += length;
+            offset += length;
+            count -= length;
+         }
+      }
+
+   ////////////////////////////////////////////////////////////////////////////////
+   //
+   // Helper method to copy consecutive words from a table that represents MIPS memory,
+   // a block at a time, stopping at the first unallocated block.  For the stack, which
+   // grows downward, relative is counted down from the base and words are copied in
+   // increasing address order.  Returns the number of words copied.
+   //
+       private synchronized int copyAllocatedWordsFromTable(int[][] blockTable, int relative, boolean downward, 
+                                   int[] words, int offset, int count) {
+         int copied = 0;
+         while (copied < count && relative >= 0) {
+            int block = relative / BLOCK_LENGTH_WORDS;
+            int blockOffset = relative % BLOCK_LENGTH_WORDS;
+            if (block >= blockTable.length || blockTable[block] == null) {
+               break;
+            }
+            int[] values = blockTable[block];
+            if (downward) {
+               int length = Math.min(count - copied, blockOffset + 1);
+               for (int i = 0; i < length; i++) {
+                  words[offset + copied + i] = values[blockOffset - i];
+               }
+               relative -= length;
+               copied += length;
+            } 
+            else {
+               int length = Math.min(count - copied, BLOCK_LENGTH_WORDS - blockOffset);
+               System.arraycopy(values, blockOffset, words, offset + copied, length);
+               relative += length;
+               copied += length;
+            }
+         }
+         return copied;
+      }
+
+   ////////////////////////////////////////////////////////////////////////////////
+   //
+   // Helper method to store or fetch a run of bytes in a table that represents MIPS
+   // memory, with the same byte placement as storeOrFetchBytesInTable() but without
+   // its per-byte position arithmetic.  STORE allocates blocks as needed; FETCH reads
+   // unallocated blocks as 0.  Assumes the table grows upward (i.e. not the stack) and
+   // that the range has already been checked.
+   //
+       private synchronized void copyBytesToOrFromTable(int[][] blockTable, int relativeByteAddress,
+                                   byte[] bytes, int offset, int length, boolean op) {
+         int end = offset + length;
+         while (offset < end) {
+            int relativeWordAddress = relativeByteAddress >> 2;
+            int block = relativeWordAddress / BLOCK_LENGTH_WORDS;
+            int blockOffset = relativeWordAddress % BLOCK_LENGTH_WORDS;
+            int blockEnd = offset + (BLOCK_LENGTH_WORDS - blockOffset) * WORD_LENGTH_BYTES - (relativeByteAddress & 3);
+            if (blockEnd > end) {
+               blockEnd = end;
+            }
+            int[] words = (op == STORE) ? getWritableBlock(blockTable, block) : blockTable[block];
+            if (words == null) {
+               Arrays.fill(bytes, offset, blockEnd, (byte) 0);
+               relativeByteAddress += blockEnd - offset;
+               offset = blockEnd;
+               continue;
+            }
+            for (; offset < blockEnd; offset++, relativeByteAddress++) {
+               int byteInWord = relativeByteAddress & 3;
+               int shift = ((byteOrder == LITTLE_ENDIAN) ? byteInWord : 3 - byteInWord) << 3;
+               int word = (relativeByteAddress >> 2) % BLOCK_LENGTH_WORDS;
+               if (op == STORE) {
+                  words[word] = (words[word] & ~(0xFF << shift)) | ((bytes[offset] & 0xFF) << shift);
+               }
+               else {
+                  bytes[offset] = (byte) (words[word] >>> shift);
+               }
+            }
+         }
+      }
+   	   
+   ////////////////////////////////////////////////////////////////////////////////
+   //
+   // Helper method to find the first zero byte among the next "maximum" bytes of a table
+   // that represents MIPS memory, a word at a time, with the same byte placement as
+   // storeOrFetchBytesInTable().  An unallocated block reads as 0.  Assumes the table
+   // grows upward (i.e. not the stack).  Returns the number of bytes before the zero
+   // byte, or maximum if there is none.
+   //
+       private synchronized int findNullByteInTable(int[][] blockTable, int relativeByteAddress, int maximum) {
+         int scanned = 0;
+         while (scanned < maximum) {
+            int relativeWordAddress = relativeByteAddress >> 2;
+            int[] words = blockTable[relativeWordAddress / BLOCK_LENGTH_WORDS];
+            if (words == null) {
+               return scanned;
+            }
+            int word = words[relativeWordAddress % BLOCK_LENGTH_WORDS];
+            // Skip whole words that have no zero byte.
+            if ((relativeByteAddress & 3) == 0 && maximum - scanned >= WORD_LENGTH_BYTES
+                && ((word - 0x01010101) & ~word & 0x80808080) == 0) {
+               relativeByteAddress += WORD_LENGTH_BYTES;
+               scanned += WORD_LENGTH_BYTES;
+               continue;
+            }
+            int byteInWord = relativeByteAddress & 3;
+            int shift = ((byteOrder == LITTLE_ENDIAN) ? byteInWord : 3 - byteInWord) << 3;
+            if (((word >>> shift) & 0xFF) == 0) {
+               return scanned;
+            }
+            relativeByteAddress++;
+            scanned++;
+         }
+         return maximum;
+      }
+   
    ////////////////////////////////////////////////////////////////////////////////////
    // Returns result of substituting specified byte of source value into specified byte 
    // of destination value. Byte positions are 0-1-2-3, listed from most to least 
@@ -1419,11 +2208,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          int block = relative / BLOCK_LENGTH_WORDS;
          int offset = relative % BLOCK_LENGTH_WORDS; 
          if (block < TEXT_BLOCK_TABLE_LENGTH) {
-            if (blockTable[block] == null) {
-               // No instructions are stored in this block, so allocate the block.
-               blockTable[block] = new ProgramStatement[BLOCK_LENGTH_WORDS];
-            }
-            blockTable[block][offset] = statement;
+            // Allocates the block if no instructions are stored in it yet.
+            getWritableBlock(blockTable, block)[offset] = statement;
          }
       }
    
@@ -0,0 +1,270 @@
+   package mars.mips.hardware;
+   import java.io.*;
+   import java.nio.*;
+   import java.nio.channels.FileChannel;
+   import java.util.*;
+
+/*
+Copyright (c) 2003-2009,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Reads a trace file written by MemoryTraceWriter, one record at a time or by
+ * replaying it to an Observer as if it were watching Memory during the run.  One
+ * recorded run can so feed any number of analyses.
+ *
+ * @version October 2026
+ */
+
+    public class MemoryTraceReader {
+
+      /** Record type of a data read; the same as AccessNotice.READ. */
+      public static final int READ = AccessNotice.READ;
+      /** Record type of a data write; the same as AccessNotice.WRITE. */
+      public static final int WRITE = AccessNotice.WRITE;
+      /** Record type of an instruction fetch. */
+      public static final int FETCH = MemoryTraceWriter.FETCH;
+
+      private static final int REGION_SIZE = 1 << 26; // bytes of file mapped at once
+
+      private final RandomAccessFile file;
+      private final FileChannel channel;
+      private final long end;
+      private MappedByteBuffer region;
+      private long regionStart;
+      private boolean ended;
+
+      private int type, address, length, programCounter;
+      private int lastFetchAddress, lastDataAddress;
+
+   /**
+    * Open a trace file.
+    *
+    * @param traceFile the file to read
+    * @throws IOException if the file cannot be read or is not a memory trace
+    */
+       public MemoryTraceReader(File traceFile) throws IOException {
+         file = new RandomAccessFile(traceFile, "r");
+         channel = file.getChannel();
+         try {
+            ByteBuffer header = ByteBuffer.allocate(MemoryTraceWriter.HEADER_LENGTH);
+            channel.read(header, 0);
+            if (header.position() < MemoryTraceWriter.HEADER_LENGTH || !hasMagic(header)) {
+               throw new IOException(traceFile + " is not a MARS memory trace");
+            }
+            long recordsLength = header.getLong(MemoryTraceWriter.MAGIC.length);
+            // A length of 0 means the writer did not finish; read what there is.
+            end = (recordsLength == 0) ? channel.size() : MemoryTraceWriter.HEADER_LENGTH + recordsLength;
+            regionStart = MemoryTraceWriter.HEADER_LENGTH;
+            mapRegion();
+         }
+             catch (IOException e) {
+               file.close();
+               throw e;
+            }
+      }
+
+   /**
+    * Tell whether a file is a memory trace, by its magic number.
+    *
+    * @param traceFile the file to check
+    * @return true if the file starts like a memory trace
+    * @throws IOException if the file cannot be read
+    */
+       public static boolean isTrace(File traceFile) throws IOException {
+         FileInputStream in = new FileInputStream(traceFile);
+         try {
+            ByteBuffer header = ByteBuffer.allocate(MemoryTraceWriter.MAGIC.length);
+            in.getChannel().read(header);
+            return header.position() == header.capacity() && hasMagic(header);
+         }
+         finally {
+            in.close();
+         }
+      }
+
+       private static boolean hasMagic(ByteBuffer header) {
+         for (int i = 0; i < MemoryTraceWriter.MAGIC.length; i++) {
+            if (header.get(i) != MemoryTraceWriter.MAGIC[i]) {
+               return false;
+            }
+         }
+         return true;
+      }
+
+       private void mapRegion() throws IOException {
+         region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, Math.min(REGION_SIZE, end - regionStart));
+      }
+
+   /**
+    * Advance to the next record.
+    *
+    * @return false if there are no more records
+    * @throws IOException if the file cannot be read
+    */
+       public boolean next() throws IOException {
+         if (ended) {
+            return false;
+         }
+         if (region.remaining() < MemoryTraceWriter.MAXIMUM_RECORD_LENGTH && regionStart + region.limit() < end) {
+            regionStart += region.position();
+            mapRegion();
+         }
+         int tag = region.hasRemaining() ? region.get() : 0;
+         if (tag == 0) {
+            ended = true;
+            return false;
+         }
+         type = (tag & 3) - 1;
+         int size = (tag >> 2) & 3;
+         if (type == FETCH) {
+            address = lastFetchAddress + getZigzag();
+            lastFetchAddress = address;
+            programCounter = address;
+         }
+         else {
+            address = lastDataAddress + getZigzag();
+            lastDataAddress = address;
+            programCounter = lastFetchAddress;
+         }
+         length = (size == MemoryTraceWriter.SIZE_FOLLOWS) ? getVarint() : 1 << size;
+         return true;
+      }
+
+       private int getZigzag() {
+         int value = getVarint();
+         return (value >>> 1) ^ -(value & 1);
+      }
+   
+       private int getVarint() {
+         int value = 0;
+         for (int shift = 0; ; shift += 7) {
+            byte b = region.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+               return value;
+            }
+         }
+      }
+   
+   /**
+    * @return type of the current record: READ, WRITE or FETCH
+    */
+       public int getType() {
+         return type;
+      }
+
+   /**
+    * @return address accessed by the current record
+    */
+       public int getAddress() {
+         return address;
+      }
+
+   /**
+    * @return number of bytes accessed by the current record
+    */
+       public int getLength() {
+         return length;
+      }
+
+   /**
+    * @return address of the instruction that made the current record's access
+    */
+       public int getProgramCounter() {
+         return programCounter;
+      }
+
+   /**
+    * Close the trace file.
+    *
+    * @throws IOException if the file cannot be closed
+    */
+       public void close() throws IOException {
+         region = null;
+         file.close();
+      }
+
+   /**
+    * Replay the rest of the trace to an Observer.  See replay(Observer, int, int).
+    *
+    * @param observer the Observer to notify
+    * @return number of notices given
+    * @throws IOException if the trace cannot be read
+    */
+       public long replay(Observer observer) throws IOException {
+         return replay(observer, 0, 0xFFFFFFFF);
+      }
+
+   /**
+    * Replay the rest of the trace to an Observer, notifying it of each access in an
+    * address range as Memory would have during the run.  Fetches are notified as reads
+    * of a word, as Memory does.  Values are not recorded, so the notices' values are 0.
+    * Notices are created on a thread named so that accessIsFromMIPS() is true.  The
+    * Observable passed stands in for Memory, which need not exist.
+    *
+    * @param observer the Observer to notify
+    * @param startAddr low end of the address range, inclusive
+    * @param endAddr high end of the address range, inclusive, compared unsigned
+    * @return number of notices given
+    * @throws IOException if the trace cannot be read
+    */
+       public long replay(final Observer observer, final int startAddr, final int endAddr) throws IOException {
+         final long[] count = new long[1];
+         final IOException[] failure = new IOException[1];
+         final Observable memory = new Observable();
+         Thread replay = new Thread(
+                new Runnable() {
+                   public void run() {
+                     try {
+                        while (next()) {
+                           // unsigned address - startAddr <= endAddr - startAddr
+                           if (address - startAddr + Integer.MIN_VALUE <= endAddr - startAddr + Integer.MIN_VALUE) {
+                              int noticeType = (type == FETCH) ? AccessNotice.READ : type;
+                              observer.update(memory, new MemoryAccessNotice(noticeType, address, length, 0));
+                              count[0]++;
+                           }
+                        }
+                     }
+                         catch (IOException e) {
+                           failure[0] = e;
+                        }
+                  }
+               }, "MIPS trace replay");
+         replay.start();
+         try {
+            replay.join();
+         }
+             catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         if (failure[0] != null) {
+            throw failure[0];
+         }
+         return count[0];
+      }
+   }
@@ -0,0 +1,212 @@
+   package mars.mips.hardware;
+   import java.io.*;
+   import java.nio.*;
+   import java.nio.channels.FileChannel;
+
+/*
+Copyright (c) 2003-2009,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Records the memory references of a run to a compact binary trace file, for offline
+ * analysis with MemoryTraceReader.  It listens to Memory's instruction fetches and
+ * data accesses, so recording costs a few bytes written to a memory-mapped file per
+ * access rather than an Observer notice.
+ * <p>
+ * The file starts with an 8-byte magic number and the 8-byte big-endian length of the
+ * records that follow, which is filled in by close().  Each record is a tag byte:
+ * <pre>
+ *    bits 0-1  type: 1 data read, 2 data write, 3 instruction fetch
+ *    bits 2-3  size: 0 one byte, 1 halfword, 2 word, 3 size follows as a varint
+ * </pre>
+ * then the zigzag varint difference between the address and the previous address of
+ * the same kind (fetch or data), then the size if not implied.  The program counter
+ * of a data access is the address of the fetch before it, so it takes no space.
+ * Values are not recorded.  A zero tag byte, such as the unused end of a file whose
+ * recording did not finish, ends the records.
+ * <p>
+ * Only accesses made on the thread that last fetched an instruction are recorded, so
+ * that the GUI's reads of memory for display are left out.
+ *
+ * @version October 2026
+ */
+
+    public class MemoryTraceWriter implements Memory.AccessListener, Memory.FetchListener {
+
+      static final byte[] MAGIC = {'M', 'A', 'R', 'S', 'T', 'R', 'C', '1'};
+      static final int HEADER_LENGTH = 16;
+      static final int FETCH = 2; // AccessNotice.READ and WRITE are 0 and 1
+      static final int SIZE_FOLLOWS = 3;
+      static final int MAXIMUM_RECORD_LENGTH = 11;
+
+      private static final int REGION_SIZE = 1 << 26; // bytes of file mapped at once
+
+      private final RandomAccessFile file;
+      private final FileChannel channel;
+      private MappedByteBuffer region;
+      private long regionStart;
+      private Memory memory;
+
+      private volatile Thread simulationThread;
+      private int lastFetchAddress, lastDataAddress;
+      private IOException failure;
+
+   /**
+    * Create the trace file, replacing any existing file of that name.
+    *
+    * @param traceFile the file to write
+    * @throws IOException if the file cannot be created
+    */
+       public MemoryTraceWriter(File traceFile) throws IOException {
+         file = new RandomAccessFile(traceFile, "rw");
+         file.setLength(0);
+         channel = file.getChannel();
+         regionStart = 0;
+         region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+         region.put(MAGIC);
+         region.putLong(0);
+      }
+
+   /**
+    * Start recording the accesses made to the given memory.
+    *
+    * @param memory the memory to trace
+    */
+       public void start(Memory memory) {
+         this.memory = memory;
+         memory.addFetchListener(this);
+         memory.addAccessListener(this);
+      }
+
+   /**
+    * Stop recording, complete the file and close it.
+    *
+    * @throws IOException if the trace could not be written
+    */
+       public void close() throws IOException {
+         if (memory != null) {
+            memory.removeAccessListener(this);
+            memory.removeFetchListener(this);
+            memory = null;
+         }
+         try {
+            if (failure != null) {
+               throw failure;
+            }
+            long length = regionStart + region.position();
+            region.force();
+            region = null;
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putLong(0, length - HEADER_LENGTH);
+            channel.write(header, MAGIC.length);
+            try {
+               channel.truncate(length);
+            }
+                catch (IOException e) {
+                  // Some systems refuse while the file is still mapped; the header
+                  // length lets readers ignore the unused space.
+               }
+         }
+         finally {
+            file.close();
+         }
+      }
+
+   /**
+    * Records an instruction fetch.
+    */
+       public void instructionFetched(int address) {
+         simulationThread = Thread.currentThread();
+         if (!makeRoom()) {
+            return;
+         }
+         region.put((byte) ((FETCH + 1) | (sizeCode(Memory.WORD_LENGTH_BYTES) << 2)));
+         putZigzag(address - lastFetchAddress);
+         lastFetchAddress = address;
+      }
+
+   /**
+    * Records a data access made by the instruction last fetched.
+    */
+       public void memoryAccessed(int type, int address, int length) {
+         if (Thread.currentThread() != simulationThread || !makeRoom()) {
+            return;
+         }
+         int size = sizeCode(length);
+         region.put((byte) ((type + 1) | (size << 2)));
+         putZigzag(address - lastDataAddress);
+         if (size == SIZE_FOLLOWS) {
+            putVarint(length);
+         }
+         lastDataAddress = address;
+      }
+
+      // The size code for a length in bytes.
+       private static int sizeCode(int length) {
+         switch (length) {
+            case 1:
+               return 0;
+            case 2:
+               return 1;
+            case 4:
+               return 2;
+            default:
+               return SIZE_FOLLOWS;
+         }
+      }
+
+      // Map the next region of the file if the current one cannot hold a record.
+   	// Returns false if recording has failed.
+       private boolean makeRoom() {
+         if (failure != null) {
+            return false;
+         }
+         if (region.remaining() < MAXIMUM_RECORD_LENGTH) {
+            try {
+               regionStart += region.position();
+               region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+            }
+                catch (IOException e) {
+                  failure = e;
+                  return false;
+               }
+         }
+         return true;
+      }
+
+       private void putZigzag(int value) {
+         putVarint((value << 1) ^ (value >> 31));
+      }
+
+       private void putVarint(int value) {
+         while ((value & ~0x7F) != 0) {
+            region.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+         }
+         region.put((byte) value);
+      }
+   }
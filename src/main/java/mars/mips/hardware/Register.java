@@ -39,11 +39,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     public class Register extends Observable {
       private String name;
       private int number, resetValue;
-   	// volatile should be enough to allow safe multi-threaded access  
-   	// w/o the use of synchronized methods.  getValue and setValue
-   	// are the only methods here used by the register collection
-   	// (RegisterFile, Coprocessor0, Coprocessor1) methods. 
-      private volatile int value;
+   	// The value lives in element "slot" of "storage".  A stand-alone register
+   	// gets a one-element array of its own.  RegisterFile instead hands all of its
+   	// registers one shared int[] indexed by register number, so the simulator
+   	// can reach register contents without going through these objects at all.
+      private final int[] storage;
+      private final int slot;
+   	// True while at least one Observer is registered.  Checked on every access
+   	// so unobserved registers never build or send a RegisterAccessNotice.
+      private volatile boolean observed = false;
       
    	 /**
         *  Creates a new register with specified name, number, and value.
@@ -53,9 +57,28 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
         */
    	  
        public Register(String n, int num, int val){
+         this(n, num, val, new int[1], 0);
+      }
+   
+   	 /**
+        *  Creates a new register whose value is kept in element <tt>num</tt> of
+        *  the given array, which may be shared with other registers.
+        *   @param n The name of the register.
+        *   @param num The number of the register, also its index in storage.
+        *   @param val The inital (and reset) value of the register.
+        *   @param storage array holding the register value.
+        */
+   	  
+       Register(String n, int num, int val, int[] storage){
+         this(n, num, val, storage, num);
+      }
+   
+       private Register(String n, int num, int val, int[] storage, int slot){
          name= n;
          number=num;
-         value= val;
+         this.storage = storage;
+         this.slot = slot;
+         storage[slot]= val;
          resetValue = val;
       }
       
@@ -74,9 +97,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *   @return value The value of the Register.
    	  */
    	  
-       public synchronized int getValue(){
-         notifyAnyObservers(AccessNotice.READ);
-         return value;
+       public int getValue(){
+         if (observed) notifyAnyObservers(AccessNotice.READ);
+         return storage[slot];
       }
 
       
@@ -86,8 +109,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *   @return value The value of the Register.
    	  */
    	  
-       public synchronized int getValueNoNotify(){
-         return value;
+       public int getValueNoNotify(){
+         return storage[slot];
       }
 		
    
@@ -115,10 +138,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *   @return previous value of register
    	  */
    	  
-       public synchronized int setValue(int val){
-         int old = value;
-         value = val;
-         notifyAnyObservers(AccessNotice.WRITE);
+       public int setValue(int val){
+         int old = storage[slot];
+         storage[slot] = val;
+         if (observed) notifyAnyObservers(AccessNotice.WRITE);
          return old;
       }
    	
@@ -128,7 +151,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  */
    	  
        public synchronized void resetValue(){
-         value = resetValue;
+         storage[slot] = resetValue;
       }
    	
    	/**
@@ -140,6 +163,32 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          resetValue = reset;
       }
    
+   	/**
+   	 *  Adds an observer.  Overridden to keep track of whether anyone is listening.
+   	 *  @param obs the observer to add
+   	 */
+       public synchronized void addObserver(Observer obs) {
+         super.addObserver(obs);
+         observed = countObservers() > 0;
+      }
+   
+   	/**
+   	 *  Deletes an observer.  Overridden to keep track of whether anyone is listening.
+   	 *  @param obs the observer to delete
+   	 */
+       public synchronized void deleteObserver(Observer obs) {
+         super.deleteObserver(obs);
+         observed = countObservers() > 0;
+      }
+   
+   	/**
+   	 *  Deletes all observers.  Overridden to keep track of whether anyone is listening.
+   	 */
+       public synchronized void deleteObservers() {
+         super.deleteObservers();
+         observed = false;
+      }
+   
    //
    // Method to notify any observers of register operation that has just occurred.
    //
@@ -45,30 +45,49 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
       public static final int GLOBAL_POINTER_REGISTER = 28;
       public static final int STACK_POINTER_REGISTER = 29;
+      private static final int PROGRAM_COUNTER_REGISTER = 32;
+      private static final int HI_REGISTER = 33;
+      private static final int LO_REGISTER = 34;
    
-      private static Register [] regFile = 
-          { new Register("$zero", 0, 0), new Register("$at", 1, 0),
-         	new Register("$v0", 2, 0),new Register("$v1", 3, 0),
-         	new Register("$a0", 4, 0),new Register("$a1", 5, 0),
-         	new Register("$a2", 6, 0),new Register("$a3", 7, 0),
-         	new Register("$t0", 8, 0),new Register("$t1", 9, 0),
-         	new Register("$t2", 10, 0),new Register("$t3", 11, 0), 
-         	new Register("$t4", 12, 0),new Register("$t5", 13, 0),
-         	new Register("$t6", 14, 0),new Register("$t7", 15, 0),
-         	new Register("$s0", 16, 0),new Register("$s1", 17, 0),
-         	new Register("$s2", 18, 0),new Register("$s3", 19, 0),
-         	new Register("$s4", 20, 0),new Register("$s5", 21, 0),
-         	new Register("$s6", 22, 0),new Register("$s7", 23, 0),
-         	new Register("$t8", 24, 0),new Register("$t9", 25, 0),
-         	new Register("$k0", 26, 0),new Register("$k1", 27, 0),
-         	new Register("$gp", GLOBAL_POINTER_REGISTER, Memory.globalPointer),
-         	new Register("$sp", STACK_POINTER_REGISTER, Memory.stackPointer),
-         	new Register("$fp", 30, 0),new Register("$ra", 31, 0)
+      // Backing store for every register below, indexed by register number.  The
+      // Register objects are views onto it that add names, reset values and observers.
+      private final int[] values = new int[LO_REGISTER + 1];
+   
+      private final Register [] regFile = 
+          { new Register("$zero", 0, 0, values), new Register("$at", 1, 0, values),
+         	new Register("$v0", 2, 0, values),new Register("$v1", 3, 0, values),
+         	new Register("$a0", 4, 0, values),new Register("$a1", 5, 0, values),
+         	new Register("$a2", 6, 0, values),new Register("$a3", 7, 0, values),
+         	new Register("$t0", 8, 0, values),new Register("$t1", 9, 0, values),
+         	new Register("$t2", 10, 0, values),new Register("$t3", 11, 0, values), 
+         	new Register("$t4", 12, 0, values),new Register("$t5", 13, 0, values),
+         	new Register("$t6", 14, 0, values),new Register("$t7", 15, 0, values),
+         	new Register("$s0", 16, 0, values),new Register("$s1", 17, 0, values),
+         	new Register("$s2", 18, 0, values),new Register("$s3", 19, 0, values),
+         	new Register("$s4", 20, 0, values),new Register("$s5", 21, 0, values),
+         	new Register("$s6", 22, 0, values),new Register("$s7", 23, 0, values),
+         	new Register("$t8", 24, 0, values),new Register("$t9", 25, 0, values),
+         	new Register("$k0", 26, 0, values),new Register("$k1", 27, 0, values),
+         	new Register("$gp", GLOBAL_POINTER_REGISTER, Memory.globalPointer, values),
+         	new Register("$sp", STACK_POINTER_REGISTER, Memory.stackPointer, values),
+         	new Register("$fp", 30, 0, values),new Register("$ra", 31, 0, values)
            };
          												  
-      private static Register programCounter= new Register("pc", 32, Memory.textBaseAddress); 
-      private static Register hi= new Register("hi", 33, 0);//this is an internal register with arbitrary number
-      private static Register lo= new Register("lo", 34, 0);// this is an internal register with arbitrary number
+      private final Register programCounter= new Register("pc", PROGRAM_COUNTER_REGISTER, Memory.textBaseAddress, values); 
+      private final Register hi= new Register("hi", HI_REGISTER, 0, values);//this is an internal register with arbitrary number
+      private final Register lo= new Register("lo", LO_REGISTER, 0, values);// this is an internal register with arbitrary number
+   
+   	/**
+   	  *  Register file of a new Machine.  Everything else uses the static methods, which
+   	  *  act on the register file of the machine current to the calling thread.
+   	  **/
+       RegisterFile() {
+      }
+   
+      // The register file all static methods operate on.
+       private static RegisterFile current() {
+         return Machine.getCurrent().registerFile;
+      }
    		 
    
    	/**
@@ -76,10 +95,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/	 
    		 
        public static void showRegisters(){
-         for (int i=0; i< regFile.length; i++){
-            System.out.println("Name: " + regFile[i].getName());
-            System.out.println("Number: " + regFile[i].getNumber());
-            System.out.println("Value: " + regFile[i].getValue());	
+         RegisterFile rf = current();
+         for (int i=0; i< rf.regFile.length; i++){
+            System.out.println("Name: " + rf.regFile[i].getName());
+            System.out.println("Number: " + rf.regFile[i].getNumber());
+            System.out.println("Value: " + rf.regFile[i].getValue());	
             System.out.println(""); 
          }
       }
@@ -93,33 +113,25 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	  
        public static int updateRegister(int num, int val){
-         int old = 0;
-         if(num == 0){
-            //System.out.println("You can not change the value of the zero register.");
+         RegisterFile rf = current();
+         Register reg;
+         if (num > 0 && num < rf.regFile.length) {
+            reg = rf.regFile[num];
          }
-         else {
-            for (int i=0; i< regFile.length; i++){
-               if(regFile[i].getNumber()== num) {
-                  old = (Globals.getSettings().getBackSteppingEnabled())
-                        ? Globals.program.getBackStepper().addRegisterFileRestore(num,regFile[i].setValue(val))
-                     	: regFile[i].setValue(val);
-                  break;
-               }
-            }
+         else if (num == HI_REGISTER) {//updates the hi register
+            reg = rf.hi;
          }
-         if(num== 33){//updates the hi register
-            old = (Globals.getSettings().getBackSteppingEnabled())
-               	      ? Globals.program.getBackStepper().addRegisterFileRestore(num,hi.setValue(val))
-               			: hi.setValue(val);
+         else if (num == LO_REGISTER) {// updates the low register
+            reg = rf.lo;
          }
-         else if(num== 34){// updates the low register
-            old = (Globals.getSettings().getBackSteppingEnabled())
-               	      ? Globals.program.getBackStepper().addRegisterFileRestore(num,lo.setValue(val))
-               			: lo.setValue(val);
+         else {
+            //System.out.println("You can not change the value of the zero register.");
+            return 0;
          }
-         return old;
+         return (Globals.getSettings().getBackSteppingEnabled())
+               ? Machine.getCurrent().getBackStepper().addRegisterFileRestore(num,reg.setValue(val))
+               : reg.setValue(val);
       }
-   	
    	/**
    	  *  Sets the value of the register given to the value given.
    	  *   @param reg Name of register to set the value of.
@@ -127,12 +139,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static void updateRegister(String reg, int val){
+         RegisterFile rf = current();
          if(reg.equals("zero")){
             //System.out.println("You can not change the value of the zero register.");
          }
          else{
-            for (int i=0; i< regFile.length; i++){
-               if(regFile[i].getName().equals(reg)) {
+            for (int i=0; i< rf.regFile.length; i++){
+               if(rf.regFile[i].getName().equals(reg)) {
                   updateRegister(i,val);
                   break;
                }
@@ -146,14 +159,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static int getValue(int num){
-         if(num==33){
-            return hi.getValue();
+         RegisterFile rf = current();
+         if(num==HI_REGISTER){
+            return rf.hi.getValue();
          }
-         else if(num==34){
-            return lo.getValue();
+         else if(num==LO_REGISTER){
+            return rf.lo.getValue();
          }
          else  
-            return regFile[num].getValue();
+            return rf.regFile[num].getValue();
             
       }
       		
@@ -165,10 +179,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    		  **/	
       		
        public static int getNumber(String n){
+         RegisterFile rf = current();
          int j=-1;
-         for (int i=0; i< regFile.length; i++){
-            if(regFile[i].getName().equals(n)) {
-               j= regFile[i].getNumber();
+         for (int i=0; i< rf.regFile.length; i++){
+            if(rf.regFile[i].getName().equals(n)) {
+               j= rf.regFile[i].getNumber();
                break;
             }
          } 
@@ -181,7 +196,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static Register[] getRegisters(){
-         return regFile;
+         return current().regFile;
       }
       
    	/**
@@ -191,20 +206,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static Register getUserRegister(String Rname) {
+         RegisterFile rf = current();
          Register reg = null;
          if (Rname.charAt(0) == '$') {
             try {
                    // check for register number 0-31.
-               reg = regFile[Binary.stringToInt(Rname.substring(1))];    // KENV 1/6/05
+               reg = rf.regFile[Binary.stringToInt(Rname.substring(1))];    // KENV 1/6/05
             }
                 catch (Exception e) {
                    // handles both NumberFormat and ArrayIndexOutOfBounds
                    // check for register mnemonic $zero thru $ra
                   reg = null; // just to be sure
                    // just do linear search; there aren't that many registers
-                  for (int i=0; i < regFile.length; i++) {
-                     if (Rname.equals(regFile[i].getName())) {
-                        reg = regFile[i];
+                  for (int i=0; i < rf.regFile.length; i++) {
+                     if (Rname.equals(rf.regFile[i].getName())) {
+                        reg = rf.regFile[i];
                         break;
                      }
                   }
@@ -221,7 +237,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
      
        public static void initializeProgramCounter(int value){
-         programCounter.setValue(value);
+         current().programCounter.setValue(value);
       }
    	
    	/**
@@ -233,13 +249,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  will set program counter to default reset value.
    	 **/
    	 
-       public static void initializeProgramCounter(boolean startAtMain) {  
-         int mainAddr = Globals.symbolTable.getAddress(SymbolTable.getStartLabel());
+       public static void initializeProgramCounter(boolean startAtMain) {
+         RegisterFile rf = current();
+         int mainAddr = Machine.getCurrent().getSymbolTable().getAddress(SymbolTable.getStartLabel());
          if (startAtMain && mainAddr != SymbolTable.NOT_FOUND && (Memory.inTextSegment(mainAddr) || Memory.inKernelTextSegment(mainAddr))) {
             initializeProgramCounter(mainAddr);
          } 
          else {
-            initializeProgramCounter(programCounter.getResetValue());
+            initializeProgramCounter(rf.programCounter.getResetValue());
          }
       }
    	
@@ -251,10 +268,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
      
        public static int setProgramCounter(int value){
-         int old = programCounter.getValue();
-         programCounter.setValue(value);
+         RegisterFile rf = current();
+         int old = rf.programCounter.getValue();
+         rf.programCounter.setValue(value);
          if (Globals.getSettings().getBackSteppingEnabled()) {
-            Globals.program.getBackStepper().addPCRestore(old);
+            Machine.getCurrent().getBackStepper().addPCRestore(old);
          } 
          return old;
       }
@@ -265,7 +283,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	 
        public static int getProgramCounter(){
-         return programCounter.getValue();
+         return current().programCounter.getValue();
       }
    
      /**
@@ -273,7 +291,32 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	*  @return program counter's Register object.
    	*/
        public static Register getProgramCounterRegister() {
-         return programCounter;
+         return current().programCounter;
+      }
+
+     /**
+      *  Copies the value of every register, indexed by register number, into the given
+      *  array.  Elements 32, 33 and 34 receive the program counter, hi and lo.  Observers
+      *  are not notified.
+      *  @param destination array of at least 35 elements to receive the values
+      */
+       public static void copyValues(int[] destination) {
+         System.arraycopy(current().values, 0, destination, 0, LO_REGISTER + 1);
+      }
+
+     /**
+      *  Sets every register from an array filled by copyValues(), as when restoring a
+      *  snapshot.  Observers are notified of each write.
+      *  @param source array of at least 35 elements holding the values
+      */
+       public static void setValues(int[] source) {
+         RegisterFile rf = current();
+         for (int i = 1; i < rf.regFile.length; i++) {
+            rf.regFile[i].setValue(source[i]);
+         }
+         rf.programCounter.setValue(source[PROGRAM_COUNTER_REGISTER]);
+         rf.hi.setValue(source[HI_REGISTER]);
+         rf.lo.setValue(source[LO_REGISTER]);
       }
    	
      /**
@@ -282,7 +325,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	 
        public static int getInitialProgramCounter(){
-         return programCounter.getResetValue();
+         return current().programCounter.getResetValue();
       }
    	
    	/**
@@ -295,12 +338,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  **/
    	
        public static void resetRegisters(){
-         for(int i=0; i< regFile.length; i++){
-            regFile[i].resetValue();
+         RegisterFile rf = current();
+         for(int i=0; i< rf.regFile.length; i++){
+            rf.regFile[i].resetValue();
          }
          initializeProgramCounter(Globals .getSettings().getStartAtMain());// replaces "programCounter.resetValue()", DPS 3/3/09
-         hi.resetValue();
-         lo.resetValue();
+         rf.hi.resetValue();
+         rf.lo.resetValue();
       }
       
      /**
@@ -308,7 +352,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 **/
    
        public static void incrementPC(){
-         programCounter.setValue(programCounter.getValue() + Instruction.INSTRUCTION_LENGTH);
+         Register pc = current().programCounter;
+         pc.setValue(pc.getValue() + Instruction.INSTRUCTION_LENGTH);
       }
    
       /**
@@ -317,11 +362,12 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  Counter.
    	 */
        public static void addRegistersObserver(Observer observer) {
-         for (int i=0; i<regFile.length; i++) {
-            regFile[i].addObserver(observer);
+         RegisterFile rf = current();
+         for (int i=0; i<rf.regFile.length; i++) {
+            rf.regFile[i].addObserver(observer);
          }
-         hi.addObserver(observer);
-         lo.addObserver(observer);
+         rf.hi.addObserver(observer);
+         rf.lo.addObserver(observer);
       }
    	
       /**
@@ -330,10 +376,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  Counter.
    	 */
        public static void deleteRegistersObserver(Observer observer) {
-         for (int i=0; i<regFile.length; i++) {
-            regFile[i].deleteObserver(observer);
+         RegisterFile rf = current();
+         for (int i=0; i<rf.regFile.length; i++) {
+            rf.regFile[i].deleteObserver(observer);
          }
-         hi.deleteObserver(observer);
-         lo.deleteObserver(observer);
+         rf.hi.deleteObserver(observer);
+         rf.lo.deleteObserver(observer);
       }
    }
@@ -45,6 +45,8 @@ public class BasicInstruction extends Instruction {
 
 	private int opcodeMask;  // integer with 1's where constants required (0/1 become 1, f/s/t become 0)
 	private int opcodeMatch; // integer matching constants required (0/1 become 0/1, f/s/t become 0)
+	private int[] operandShifts; // for each operand present, in f/s/t order, its lowest bit position
+	private int[] operandMasks;  // and the mask for its field once shifted down
 	/**
 	 * BasicInstruction constructor.
 	 * 
@@ -82,6 +84,26 @@ public class BasicInstruction extends Instruction {
 
 		this.opcodeMask = (int) Long.parseLong(this.operationMask.replaceAll("[01]", "1").replaceAll("[^01]", "0"), 2);
 		this.opcodeMatch = (int) Long.parseLong(this.operationMask.replaceAll("[^1]", "0"), 2);
+
+		String opandCodes = "fst";
+		int numOps = 0;
+		int[] shifts = new int[opandCodes.length()];
+		int[] masks = new int[opandCodes.length()];
+		for (int i = 0; i < opandCodes.length(); i++) {
+			int code = opandCodes.charAt(i);
+			int j = this.operationMask.indexOf(code);
+			if (j >= 0) {
+				int k0 = 31 - this.operationMask.lastIndexOf(code);
+				int k1 = 31 - j;
+				shifts[numOps] = k0;
+				masks[numOps] = (1 << (k1 - k0 + 1)) - 1;
+				numOps++;
+			}
+		}
+		this.operandShifts = new int[numOps];
+		this.operandMasks = new int[numOps];
+		System.arraycopy(shifts, 0, this.operandShifts, 0, numOps);
+		System.arraycopy(masks, 0, this.operandMasks, 0, numOps);
 	}
 	
 	  // Temporary constructor so that instructions without description yet will compile.
@@ -139,4 +161,25 @@ public class BasicInstruction extends Instruction {
 	public int getOpcodeMatch() {
 		return this.opcodeMatch;
 	}
+
+	/**
+	 * Extracts the operand values from a binary machine instruction of this kind,
+	 * first operand first.  The third operand of a branch is sign extended.  Jump
+	 * targets are returned as the 26-bit field; the caller supplies the upper bits
+	 * of the address.
+	 *
+	 * @param binaryInstr 32-bit machine instruction matching this instruction's mask
+	 * @return array with one element per operand
+	 */
+	public int[] extractOperands(int binaryInstr) {
+		int[] operands = new int[operandShifts.length];
+		for (int i = 0; i < operands.length; i++) {
+			int opand = (binaryInstr >> operandShifts[i]) & operandMasks[i];
+			if (instructionFormat == BasicInstructionFormat.I_BRANCH_FORMAT && i == 2) {
+				opand = opand << 16 >> 16;
+			}
+			operands[i] = opand;
+		}
+		return operands;
+	}
 }
@@ -46,6 +46,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     public class ExtendedInstruction extends Instruction {
    
       private ArrayList translationStrings, compactTranslationStrings;
+      private TranslationTemplate[] translationTemplates, compactTranslationTemplates;
     /**
      * Constructor for ExtendedInstruction.
      * 
@@ -160,6 +161,43 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public ArrayList getCompactBasicIntructionTemplateList() {
          return compactTranslationStrings;
       }
+   
+    /**
+     * Compile the basic instruction templates of this extended instruction and of its
+     * compact version, if any.  Called by InstructionSet once all instructions are added.
+     */
+    
+       public void compileTranslations() {
+         translationTemplates = compileTranslationList(translationStrings);
+         compactTranslationTemplates = compileTranslationList(compactTranslationStrings);
+      }
+   
+    /**
+     * Get array of compiled templates for basic instructions generated by this
+     * extended instruction, in the order of getBasicIntructionTemplateList().
+     * @return array of TranslationTemplate.
+     */
+    
+       public TranslationTemplate[] getTranslationTemplates() {
+         if (translationTemplates == null) {
+            compileTranslations();
+         }
+         return translationTemplates;
+      }
+   
+    /**
+     * Get array of compiled templates for basic instructions generated by the "compact"
+     * or 16-bit version of this extended instruction.
+     * @return array of TranslationTemplate.  Returns null if the instruction does not
+	  * have a compact alternative.
+     */
+    
+       public TranslationTemplate[] getCompactTranslationTemplates() {
+         if (translationTemplates == null) {
+            compileTranslations();
+         }
+         return compactTranslationTemplates;
+      }
 		   
       /**
    	 * Given a basic instruction template and the list of tokens from an extended
@@ -611,6 +649,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       
    	
    	   
+    // Compiles each template in a list of basic instruction templates.  Returns
+    // null if the list is null.
+    
+       private TranslationTemplate[] compileTranslationList(ArrayList translationList) {
+         if (translationList == null) {
+            return null;
+         }
+         TranslationTemplate[] templates = new TranslationTemplate[translationList.size()];
+         for (int i = 0; i < templates.length; i++) {
+            templates[i] = new TranslationTemplate((String) translationList.get(i));
+         }
+         return templates;
+      }
+   
     /*
      * Get length in bytes that this extended instruction requires in its 
      * binary form. The answer depends on how many basic instructions it 
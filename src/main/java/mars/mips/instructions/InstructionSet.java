@@ -47,8 +47,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     public class InstructionSet
    {
       private ArrayList instructionList;
-	  private ArrayList opcodeMatchMaps;
+	  // Decode table for findByBinaryCode, indexed by primary opcode (bits 31-26).
+	  private DecodeGroup[] decodeTable;
+	  // Direct-mapped cache of decoded words for decode().
+	  private static final int DECODE_CACHE_BITS = 12;
+	  private final DecodedWord[] decodeCache = new DecodedWord[1 << DECODE_CACHE_BITS];
+	  // Fields tried for the second level of the decode table, as {shift, width}:
+	  // funct, rt and rs.
+	  private static final int[][] SECONDARY_FIELDS = { {0, 6}, {16, 5}, {21, 5} };
       private SyscallLoader syscallLoader;
+      // Lower-case mnemonic to ArrayList of its Instruction objects, and all instructions
+      // sorted by lower-case mnemonic for prefix searches.  Both built by populate().
+      private HashMap mnemonicMap = new HashMap();
+      private String[] sortedMnemonics = new String[0];
+      private Instruction[] sortedInstructions = new Instruction[0];
     /**
      * Creates a new InstructionSet object.
      */
@@ -657,7 +669,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      try
                      {
                         RegisterFile.updateRegister(operands[0],
-                            Globals.memory.getWord(
+                            Memory.getInstance().getWord(
                             RegisterFile.getValue(operands[2]) + operands[1]));
                      } 
                          catch (AddressErrorException e)
@@ -687,7 +699,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      try
                      {
                         RegisterFile.updateRegister(operands[0],
-                            Globals.memory.getWord(
+                            Memory.getInstance().getWord(
                             RegisterFile.getValue(operands[2]) + operands[1]));
                      } 
                          catch (AddressErrorException e)
@@ -710,8 +722,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      {
                         int address = RegisterFile.getValue(operands[2]) + operands[1];
                         int result = RegisterFile.getValue(operands[0]);
-                        for (int i=0; i<=address % Globals.memory.WORD_LENGTH_BYTES; i++) {
-                           result = Binary.setByte(result,3-i,Globals.memory.getByte(address-i));
+                        for (int i=0; i<=address % Memory.getInstance().WORD_LENGTH_BYTES; i++) {
+                           result = Binary.setByte(result,3-i,Memory.getInstance().getByte(address-i));
                         }
                         RegisterFile.updateRegister(operands[0], result);
                      } 
@@ -735,8 +747,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      {
                         int address = RegisterFile.getValue(operands[2]) + operands[1];
                         int result = RegisterFile.getValue(operands[0]);
-                        for (int i=0; i<=3-(address % Globals.memory.WORD_LENGTH_BYTES); i++) {
-                           result = Binary.setByte(result,i,Globals.memory.getByte(address+i));
+                        for (int i=0; i<=3-(address % Memory.getInstance().WORD_LENGTH_BYTES); i++) {
+                           result = Binary.setByte(result,i,Memory.getInstance().getByte(address+i));
                         }
                         RegisterFile.updateRegister(operands[0], result);
                      } 
@@ -758,7 +770,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      int[] operands = statement.getOperands();
                      try
                      {
-                        Globals.memory.setWord(
+                        Memory.getInstance().setWord(
                             RegisterFile.getValue(operands[2]) + operands[1],
                             RegisterFile.getValue(operands[0]));
                      } 
@@ -782,7 +794,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      int[] operands = statement.getOperands();
                      try
                      {
-                        Globals.memory.setWord(
+                        Memory.getInstance().setWord(
                             RegisterFile.getValue(operands[2]) + operands[1],
                             RegisterFile.getValue(operands[0]));
                      } 
@@ -807,8 +819,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      {
                         int address = RegisterFile.getValue(operands[2]) + operands[1];
                         int source = RegisterFile.getValue(operands[0]);
-                        for (int i=0; i<=address % Globals.memory.WORD_LENGTH_BYTES; i++) {
-                           Globals.memory.setByte(address-i,Binary.getByte(source,3-i));
+                        for (int i=0; i<=address % Memory.getInstance().WORD_LENGTH_BYTES; i++) {
+                           Memory.getInstance().setByte(address-i,Binary.getByte(source,3-i));
                         }
                      } 
                          catch (AddressErrorException e)
@@ -831,8 +843,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      {
                         int address = RegisterFile.getValue(operands[2]) + operands[1];
                         int source = RegisterFile.getValue(operands[0]);
-                        for (int i=0; i<=3-(address % Globals.memory.WORD_LENGTH_BYTES); i++) {
-                           Globals.memory.setByte(address+i,Binary.getByte(source,i));
+                        for (int i=0; i<=3-(address % Memory.getInstance().WORD_LENGTH_BYTES); i++) {
+                           Memory.getInstance().setByte(address+i,Binary.getByte(source,i));
                         }
                      } 
                          catch (AddressErrorException e)
@@ -1281,7 +1293,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      try
                      {
                         RegisterFile.updateRegister(operands[0],
-                            Globals.memory.getByte(
+                            Memory.getInstance().getByte(
                             RegisterFile.getValue(operands[2])
                                     + (operands[1] << 16 >> 16))
                                             << 24
@@ -1306,7 +1318,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      try
                      {
                         RegisterFile.updateRegister(operands[0],
-                            Globals.memory.getHalf(
+                            Memory.getInstance().getHalf(
                             RegisterFile.getValue(operands[2])
                                     + (operands[1] << 16 >> 16))
                                             << 16
@@ -1332,7 +1344,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      {
                      // offset is sign-extended and loaded halfword value is zero-extended
                         RegisterFile.updateRegister(operands[0],
-                            Globals.memory.getHalf(
+                            Memory.getInstance().getHalf(
                             RegisterFile.getValue(operands[2])
                                     + (operands[1] << 16 >> 16))
                                             & 0x0000ffff);
@@ -1356,7 +1368,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      try
                      {
                         RegisterFile.updateRegister(operands[0],
-                            Globals.memory.getByte(
+                            Memory.getInstance().getByte(
                             RegisterFile.getValue(operands[2])
                                     + (operands[1] << 16 >> 16))
                                             & 0x000000ff);
@@ -1379,7 +1391,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      int[] operands = statement.getOperands();
                      try
                      {
-                        Globals.memory.setByte(
+                        Memory.getInstance().setByte(
                             RegisterFile.getValue(operands[2])
                                     + (operands[1] << 16 >> 16),
                                     RegisterFile.getValue(operands[0])
@@ -1403,7 +1415,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      int[] operands = statement.getOperands();
                      try
                      {
-                        Globals.memory.setHalf(
+                        Memory.getInstance().setHalf(
                             RegisterFile.getValue(operands[2])
                                     + (operands[1] << 16 >> 16),
                                     RegisterFile.getValue(operands[0])
@@ -2724,7 +2736,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      try
                      {
                         Coprocessor1.updateRegister(operands[0],
-                            Globals.memory.getWord(
+                            Memory.getInstance().getWord(
                             RegisterFile.getValue(operands[2]) + operands[1]));
                      } 
                          catch (AddressErrorException e)
@@ -2747,7 +2759,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                         throw new ProcessingException(statement, "first register must be even-numbered");
                      }
                   	// IF statement added by DPS 13-July-2011.
-                     if (!Globals.memory.doublewordAligned(RegisterFile.getValue(operands[2]) + operands[1])) {
+                     if (!Memory.getInstance().doublewordAligned(RegisterFile.getValue(operands[2]) + operands[1])) {
                         throw new ProcessingException(statement,
                            new AddressErrorException("address not aligned on doubleword boundary ",
                            Exceptions.ADDRESS_EXCEPTION_LOAD, RegisterFile.getValue(operands[2]) + operands[1]));
@@ -2756,10 +2768,10 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      try
                      {
                         Coprocessor1.updateRegister(operands[0],
-                            Globals.memory.getWord(
+                            Memory.getInstance().getWord(
                             RegisterFile.getValue(operands[2]) + operands[1]));
                         Coprocessor1.updateRegister(operands[0]+1,
-                            Globals.memory.getWord(
+                            Memory.getInstance().getWord(
                             RegisterFile.getValue(operands[2]) + operands[1] + 4));
                      } 
                          catch (AddressErrorException e)
@@ -2780,7 +2792,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      int[] operands = statement.getOperands();
                      try
                      {
-                        Globals.memory.setWord(
+                        Memory.getInstance().setWord(
                             RegisterFile.getValue(operands[2]) + operands[1],
                             Coprocessor1.getValue(operands[0]));
                      } 
@@ -2804,17 +2816,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                         throw new ProcessingException(statement, "first register must be even-numbered");
                      }
                   	// IF statement added by DPS 13-July-2011.
-                     if (!Globals.memory.doublewordAligned(RegisterFile.getValue(operands[2]) + operands[1])) {
+                     if (!Memory.getInstance().doublewordAligned(RegisterFile.getValue(operands[2]) + operands[1])) {
                         throw new ProcessingException(statement,
                            new AddressErrorException("address not aligned on doubleword boundary ",
                            Exceptions.ADDRESS_EXCEPTION_STORE, RegisterFile.getValue(operands[2]) + operands[1]));
                      }
                      try
                      {
-                        Globals.memory.setWord(
+                        Memory.getInstance().setWord(
                             RegisterFile.getValue(operands[2]) + operands[1],
                             Coprocessor1.getValue(operands[0]));
-                        Globals.memory.setWord(
+                        Memory.getInstance().setWord(
                             RegisterFile.getValue(operands[2]) + operands[1] + 4,
                             Coprocessor1.getValue(operands[0]+1));
                      } 
@@ -3074,36 +3086,158 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             inst.createExampleTokenList();
          }
 
-		 HashMap maskMap = new HashMap();
-		 ArrayList matchMaps = new ArrayList();
-		 for (int i = 0; i < instructionList.size(); i++) {
-		 	Object rawInstr = instructionList.get(i);
-			if (rawInstr instanceof BasicInstruction) {
-				BasicInstruction basic = (BasicInstruction) rawInstr;
-				Integer mask = Integer.valueOf(basic.getOpcodeMask());
-				Integer match = Integer.valueOf(basic.getOpcodeMatch());
-				HashMap matchMap = (HashMap) maskMap.get(mask);
-				if (matchMap == null) {
-					matchMap = new HashMap();
-					maskMap.put(mask, matchMap);
-					matchMaps.add(new MatchMap(mask, matchMap));
+		 buildDecodeTable();
+      
+         buildMnemonicIndex();
+      
+        // Compile the pseudo-instruction templates, now that their operators can be matched.
+         for (int i = 0; i < instructionList.size(); i++)
+         {
+            if (instructionList.get(i) instanceof ExtendedInstruction)
+            {
+               ((ExtendedInstruction) instructionList.get(i)).compileTranslations();
+            }
+         }
+      }
+   
+    /*  Build the structures used by matchOperator and prefixMatchOperator.  Instructions
+     *  with the same mnemonic keep their order in the instruction list.
+     */
+       private void buildMnemonicIndex()
+      {
+         HashMap map = new HashMap();
+         ArrayList sorted = new ArrayList(instructionList);
+         for (int i = 0; i < instructionList.size(); i++)
+         {
+            Instruction inst = (Instruction) instructionList.get(i);
+            String mnemonic = inst.getName().toLowerCase();
+            ArrayList matches = (ArrayList) map.get(mnemonic);
+            if (matches == null)
+            {
+               matches = new ArrayList();
+               map.put(mnemonic, matches);
+            }
+            matches.add(inst);
+         }
+         Collections.sort(sorted, 
+                new Comparator() {
+                   public int compare(Object a, Object b) {
+                     return ((Instruction) a).getName().toLowerCase().compareTo(((Instruction) b).getName().toLowerCase());
+                  }
+               });
+         String[] mnemonics = new String[sorted.size()];
+         for (int i = 0; i < mnemonics.length; i++)
+         {
+            mnemonics[i] = ((Instruction) sorted.get(i)).getName().toLowerCase();
+         }
+         mnemonicMap = map;
+         sortedMnemonics = mnemonics;
+         sortedInstructions = (Instruction[]) sorted.toArray(new Instruction[sorted.size()]);
+      }
+
+	/*  Build the two-level decode table used by findByBinaryCode.  The first level
+	 *  is the primary opcode.  Within it, the funct, rt or rs field that best separates
+	 *  the candidate instructions selects a short list of (mask, match, instruction)
+	 *  entries, which is searched in order.  Entries are ordered by number of fixed
+	 *  bits, most first, so the most specific instruction matches (e.g. nop before sll);
+	 *  where two instructions have identical masks and matches the later one wins.
+	 */
+	private void buildDecodeTable() {
+		ArrayList basics = new ArrayList();
+		for (int i = instructionList.size() - 1; i >= 0; i--) {
+			if (instructionList.get(i) instanceof BasicInstruction) {
+				basics.add(instructionList.get(i));
+			}
+		}
+		Collections.sort(basics,
+			new Comparator() {
+				public int compare(Object a, Object b) {
+					int maskA = ((BasicInstruction) a).getOpcodeMask();
+					int maskB = ((BasicInstruction) b).getOpcodeMask();
+					int d = Integer.bitCount(maskB) - Integer.bitCount(maskA);
+					return (d != 0) ? d : maskA - maskB;
+				}
+			});
+		DecodeGroup[] table = new DecodeGroup[64];
+		for (int opcode = 0; opcode < table.length; opcode++) {
+			ArrayList candidates = selectCandidates(basics, opcode << 26, 0xFC000000);
+			int shift = 0;
+			int width = 0;
+			int bestDistinct = 1;
+			for (int f = 0; f < SECONDARY_FIELDS.length; f++) {
+				int fieldBits = ((1 << SECONDARY_FIELDS[f][1]) - 1) << SECONDARY_FIELDS[f][0];
+				HashSet values = new HashSet();
+				for (int i = 0; i < candidates.size(); i++) {
+					BasicInstruction basic = (BasicInstruction) candidates.get(i);
+					if ((basic.getOpcodeMask() & fieldBits) == fieldBits) {
+						values.add(Integer.valueOf(basic.getOpcodeMatch() & fieldBits));
+					}
+				}
+				if (values.size() > bestDistinct) {
+					bestDistinct = values.size();
+					shift = SECONDARY_FIELDS[f][0];
+					width = SECONDARY_FIELDS[f][1];
 				}
-				matchMap.put(match, basic);
 			}
-		 }
-		 Collections.sort(matchMaps);
-		 this.opcodeMatchMaps = matchMaps;
-      }
+			DecodeGroup group = new DecodeGroup(shift, (1 << width) - 1);
+			for (int value = 0; value < group.leaves.length; value++) {
+				group.leaves[value] = new DecodeLeaf(
+					selectCandidates(candidates, value << shift, group.fieldMask << shift));
+			}
+			table[opcode] = group;
+		}
+		this.decodeTable = table;
+	}
 
+	// Those instructions that can match a word whose bits under fieldBits are as in value.
+	private static ArrayList selectCandidates(ArrayList instructions, int value, int fieldBits) {
+		ArrayList result = new ArrayList();
+		for (int i = 0; i < instructions.size(); i++) {
+			BasicInstruction basic = (BasicInstruction) instructions.get(i);
+			if (((value ^ basic.getOpcodeMatch()) & basic.getOpcodeMask() & fieldBits) == 0) {
+				result.add(basic);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Find the basic instruction a binary machine instruction encodes.
+	 * @param binaryInstr 32-bit machine instruction
+	 * @return the matching BasicInstruction, or null if there is none
+	 */
 	public BasicInstruction findByBinaryCode(int binaryInstr) {
-		ArrayList matchMaps = this.opcodeMatchMaps;
-		for (int i = 0; i < matchMaps.size(); i++) {
-			MatchMap map = (MatchMap) matchMaps.get(i);
-			BasicInstruction ret = map.find(binaryInstr);
-			if (ret != null) return ret;
+		DecodeGroup group = decodeTable[binaryInstr >>> 26];
+		DecodeLeaf leaf = group.leaves[(binaryInstr >>> group.shift) & group.fieldMask];
+		int[] masks = leaf.masks;
+		int[] matches = leaf.matches;
+		for (int i = 0; i < masks.length; i++) {
+			if ((binaryInstr & masks[i]) == matches[i]) {
+				return leaf.instructions[i];
+			}
 		}
 		return null;
 	}
+
+	/**
+	 * Decode a binary machine instruction into its basic instruction and operands.
+	 * Results are kept in a small cache keyed on the word, so decoding the same word
+	 * again (loading a memory dump, self-modifying code rewriting a loop) skips the
+	 * lookup and operand extraction.
+	 * @param binaryInstr 32-bit machine instruction
+	 * @return the decoded word, whose instruction is null if no basic instruction matches
+	 */
+	public DecodedWord decode(int binaryInstr) {
+		int index = (binaryInstr * 0x9E3779B9) >>> (32 - DECODE_CACHE_BITS);
+		DecodedWord decoded = decodeCache[index];
+		if (decoded == null || decoded.word != binaryInstr) {
+			BasicInstruction instr = findByBinaryCode(binaryInstr);
+			decoded = new DecodedWord(binaryInstr, instr,
+				(instr == null) ? null : instr.extractOperands(binaryInstr));
+			decodeCache[index] = decoded;
+		}
+		return decoded;
+	}
    	
     /*  METHOD TO ADD PSEUDO-INSTRUCTIONS
     */
@@ -3185,60 +3319,102 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      *  from the instruction set.  Uses straight linear search technique.
      *  @param name operator mnemonic (e.g. addi, sw,...)
      *  @return list of corresponding Instruction object(s), or null if not found.
+     *  The list is shared and must not be modified.
      */
        public ArrayList matchOperator(String name)
       {
-         ArrayList matchingInstructions = null;
-        // Linear search for now....
-         for (int i = 0; i < instructionList.size(); i++)
+         if (name == null)
          {
-            if (((Instruction) instructionList.get(i)).getName().equalsIgnoreCase(name))
-            {
-               if (matchingInstructions == null) 
-                  matchingInstructions = new ArrayList();
-               matchingInstructions.add(instructionList.get(i));
-            }
+            return null;
          }
-         return matchingInstructions;
+         return (ArrayList) mnemonicMap.get(name.toLowerCase());
       }
    
    
     /**
      *  Given a string, will return the Instruction object(s) from the instruction
      *  set whose operator mnemonic prefix matches it.  Case-insensitive.  For example
-     *  "s" will match "sw", "sh", "sb", etc.  Uses straight linear search technique.
+     *  "s" will match "sw", "sh", "sb", etc.  Uses binary search of the mnemonics
+     *  in sorted order, so matches are returned in mnemonic order.
      *  @param name a string
      *  @return list of matching Instruction object(s), or null if none match.
      */
        public ArrayList prefixMatchOperator(String name)
       {
          ArrayList matchingInstructions = null;
-        // Linear search for now....
          if (name != null) {
-            for (int i = 0; i < instructionList.size(); i++)
+            String prefix = name.toLowerCase();
+            String[] mnemonics = sortedMnemonics;
+            // find first mnemonic not less than the prefix
+            int low = 0;
+            int high = mnemonics.length;
+            while (low < high)
             {
-               if (((Instruction) instructionList.get(i)).getName().toLowerCase().startsWith(name.toLowerCase()))
-               {
-                  if (matchingInstructions == null) 
-                     matchingInstructions = new ArrayList();
-                  matchingInstructions.add(instructionList.get(i));
-               }
+               int mid = (low + high) >>> 1;
+               if (mnemonics[mid].compareTo(prefix) < 0)
+                  low = mid + 1;
+               else
+                  high = mid;
+            }
+            for (int i = low; i < mnemonics.length && mnemonics[i].startsWith(prefix); i++)
+            {
+               if (matchingInstructions == null) 
+                  matchingInstructions = new ArrayList();
+               matchingInstructions.add(sortedInstructions[i]);
             }
          }
          return matchingInstructions;
       }
    	
+    /**
+     * Get the service numbers of all syscalls, in ascending order.
+     * @return array of service numbers
+     */
+       public int[] getSyscallNumbers()
+      {
+         return syscallLoader.getServiceNumbers();
+      }
+   
+    /**
+     * Get the number of times the syscall with the given service number has been
+     * invoked since the instruction set was populated or the statistics were reset.
+     * Counts from all machines sharing this instruction set are combined.
+     * @param number syscall service number
+     * @return invocation count, or 0 if there is no such service
+     */
+       public long getSyscallInvocationCount(int number)
+      {
+         return syscallLoader.getInvocationCount(number);
+      }
+   
+    /**
+     * Get the total time spent simulating the syscall with the given service number
+     * since the instruction set was populated or the statistics were reset.
+     * @param number syscall service number
+     * @return cumulative time in nanoseconds, or 0 if there is no such service
+     */
+       public long getSyscallInvocationTime(int number)
+      {
+         return syscallLoader.getInvocationTime(number);
+      }
+   
+    /**
+     * Reset the invocation counts and times of all syscalls to zero.
+     */
+       public void resetSyscallStatistics()
+      {
+         syscallLoader.resetStatistics();
+      }
+   	
    	/*
    	 * Method to find and invoke a syscall given its service number.  Each syscall
-   	 * function is represented by an object in an array list.  Each object is of
-   	 * a class that implements Syscall or extends AbstractSyscall.
+   	 * function is represented by an object in a table indexed by service number.
+   	 * Each object is of a class that implements Syscall or extends AbstractSyscall.
    	 */
    	 
        private void findAndSimulateSyscall(int number, ProgramStatement statement) 
                                                         throws ProcessingException {
-         Syscall service = syscallLoader.findSyscall(number);
-         if (service != null) {
-            service.simulate(statement);
+         if (syscallLoader.simulateSyscall(number, statement)) {
             return;
          }
          throw new ProcessingException(statement,
@@ -3312,38 +3488,74 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             	  Instruction.INSTRUCTION_LENGTH : 0) );	 
       }
 
-	  private static class MatchMap implements Comparable {
-	  	private int mask;
-		private int maskLength; // number of 1 bits in mask
-		private HashMap matchMap;
+	  // Second level of the decode table for one primary opcode: the field at
+	  // shift, masked by fieldMask, selects the leaf.
+	  private static class DecodeGroup {
+		final int shift;
+		final int fieldMask;
+		final DecodeLeaf[] leaves;
+
+		DecodeGroup(int shift, int fieldMask) {
+			this.shift = shift;
+			this.fieldMask = fieldMask;
+			this.leaves = new DecodeLeaf[fieldMask + 1];
+		}
+	}
 
-		public MatchMap(int mask, HashMap matchMap) {
-			this.mask = mask;
-			this.matchMap = matchMap;
+	  // Candidate instructions for one decode table slot, in match order.
+	  private static class DecodeLeaf {
+		final int[] masks;
+		final int[] matches;
+		final BasicInstruction[] instructions;
 
-			int k = 0;
-			int n = mask;
-			while (n != 0) {
-				k++;
-				n &= n - 1;
+		DecodeLeaf(ArrayList candidates) {
+			int n = candidates.size();
+			masks = new int[n];
+			matches = new int[n];
+			instructions = new BasicInstruction[n];
+			for (int i = 0; i < n; i++) {
+				instructions[i] = (BasicInstruction) candidates.get(i);
+				masks[i] = instructions[i].getOpcodeMask();
+				matches[i] = instructions[i].getOpcodeMatch();
 			}
-			this.maskLength = k;
+		}
+	}
+
+	/**
+	 * A binary machine instruction together with the basic instruction it encodes and
+	 * its operand values, as returned by decode().  Instances are immutable and shared.
+	 */
+	  public static final class DecodedWord {
+		private final int word;
+		private final BasicInstruction instruction;
+		private final int[] operands;
+
+		DecodedWord(int word, BasicInstruction instruction, int[] operands) {
+			this.word = word;
+			this.instruction = instruction;
+			this.operands = operands;
 		}
 
-		public boolean equals(Object o) {
-			return o instanceof MatchMap && mask == ((MatchMap) o).mask;
+		/**
+		 * @return the 32-bit machine instruction
+		 */
+		public int getWord() {
+			return word;
 		}
 
-		public int compareTo(Object other) {
-			MatchMap o = (MatchMap) other;
-			int d = o.maskLength - this.maskLength;
-			if (d == 0) d = this.mask - o.mask;
-			return d;
+		/**
+		 * @return the BasicInstruction encoded, or null if none matches
+		 */
+		public BasicInstruction getInstruction() {
+			return instruction;
 		}
 
-		public BasicInstruction find(int instr) {
-			int match = Integer.valueOf(instr & mask);
-			return (BasicInstruction) matchMap.get(match);
+		/**
+		 * @return the operand values as from BasicInstruction.extractOperands, or null if
+		 * no instruction matches.  The array is shared and must not be modified.
+		 */
+		public int[] getOperands() {
+			return operands;
 		}
 	}
    }
@@ -3,6 +3,7 @@
    import mars.*;
 	import mars.util.*;
    import java.util.*;
+   import java.util.concurrent.atomic.AtomicLong;
 
 /*
 Copyright (c) 2003-2006,  Pete Sanderson and Kenneth Vollmar
@@ -49,7 +50,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private static final String SYSCALL_ABSTRACT = "AbstractSyscall.class";
       private static final String CLASS_EXTENSION = "class";
       
+      // Largest service number given a slot in the dispatch table.  Services
+      // renumbered beyond it by Syscall.properties go in the sparse map instead.
+      private static final int MAX_TABLE_NUMBER = 4095;
+      
       private ArrayList syscallList;
+      // Dispatch table indexed by service number, and Integer service number to
+      // Service map for numbers outside the table.  Both built by loadSyscalls.
+      private Service[] syscallTable = new Service[0];
+      private HashMap sparseSyscalls = new HashMap();
    	
    /*
       *  Dynamically loads Syscalls into an ArrayList.  This method is adapted from
@@ -81,13 +90,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      continue;
                   }
                   Syscall syscall = (Syscall) clas.newInstance();
-                  if (findSyscall(syscall.getNumber()) == null) {
+                  Syscall registered = findInList(syscallList, syscall.getNumber());
+                  if (registered == null) {
                      syscallList.add(syscall);
                   } 
                   else {
                      throw new Exception("Duplicate service number: "+syscall.getNumber()+
                             " already registered to "+
-                            findSyscall(syscall.getNumber()).getName());
+                            registered.getName());
                   }
                } 
                    catch (Exception e) {
@@ -97,8 +107,35 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             }
          }
          syscallList = processSyscallNumberOverrides(syscallList);
+         buildDispatchTable();
          return;
       }
+      
+       // Builds the dispatch table and sparse map from syscallList, now that
+       // service numbers are final.
+       private void buildDispatchTable() {
+         int maxNumber = -1;
+         for (int i = 0; i < syscallList.size(); i++) {
+            int number = ((Syscall) syscallList.get(i)).getNumber();
+            if (number > maxNumber && number <= MAX_TABLE_NUMBER) {
+               maxNumber = number;
+            }
+         }
+         Service[] table = new Service[maxNumber + 1];
+         HashMap sparse = new HashMap();
+         for (int i = 0; i < syscallList.size(); i++) {
+            Syscall syscall = (Syscall) syscallList.get(i);
+            int number = syscall.getNumber();
+            if (number >= 0 && number < table.length) {
+               table[number] = new Service(syscall);
+            } 
+            else {
+               sparse.put(Integer.valueOf(number), new Service(syscall));
+            }
+         }
+         syscallTable = table;
+         sparseSyscalls = sparse;
+      }
          
        // Will get any syscall number override specifications from MARS config file and
        // process them.  This will alter syscallList entry for affected names.
@@ -153,17 +190,102 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 * Returns null if no associated object found.
    	 */
        Syscall findSyscall(int number) {
-         // linear search is OK since number of syscalls is small.
-         Syscall service, match = null;
-         if (syscallList==null) {
-            loadSyscalls();
+         Service service = findService(number);
+         return (service == null) ? null : service.syscall;
+      }
+      
+   	/*
+   	 * Method to invoke the Syscall associated with given service number, counting
+   	 * the invocation and the time it takes.  Returns false if no associated object
+   	 * found.
+   	 */
+       boolean simulateSyscall(int number, ProgramStatement statement) throws ProcessingException {
+         Service service = findService(number);
+         if (service == null) {
+            return false;
+         }
+         service.count.incrementAndGet();
+         long start = System.nanoTime();
+         try {
+            service.syscall.simulate(statement);
+         } 
+         finally {
+            service.nanos.addAndGet(System.nanoTime() - start);
          }
-         for (int index=0; index < syscallList.size(); index++) {
-            service = (Syscall) syscallList.get(index);
+         return true;
+      }
+      
+   	/*
+   	 * Number of times the Syscall with given service number has been invoked,
+   	 * and total nanoseconds spent in it, since loading or the last reset.
+   	 * Both are 0 if no associated object found.
+   	 */
+       long getInvocationCount(int number) {
+         Service service = findService(number);
+         return (service == null) ? 0 : service.count.get();
+      }
+      
+       long getInvocationTime(int number) {
+         Service service = findService(number);
+         return (service == null) ? 0 : service.nanos.get();
+      }
+      
+   	/*
+   	 * Service numbers of all loaded Syscalls, in ascending order.
+   	 */
+       int[] getServiceNumbers() {
+         int[] numbers = new int[syscallList.size()];
+         for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = ((Syscall) syscallList.get(i)).getNumber();
+         }
+         Arrays.sort(numbers);
+         return numbers;
+      }
+      
+       void resetStatistics() {
+         for (int i = 0; i < syscallTable.length; i++) {
+            if (syscallTable[i] != null) {
+               syscallTable[i].reset();
+            }
+         }
+         Iterator sparse = sparseSyscalls.values().iterator();
+         while (sparse.hasNext()) {
+            ((Service) sparse.next()).reset();
+         }
+      }
+      
+       private Service findService(int number) {
+         if (number >= 0 && number < syscallTable.length) {
+            return syscallTable[number];
+         }
+         return (Service) sparseSyscalls.get(Integer.valueOf(number));
+      }
+      
+       // Linear search of a list of Syscalls, used while loading.
+       private static Syscall findInList(ArrayList list, int number) {
+         for (int index=0; index < list.size(); index++) {
+            Syscall service = (Syscall) list.get(index);
             if (service.getNumber() == number) {
-               match = service;
+               return service;
             }
          }
-         return match;
+         return null;
+      }
+      
+       // A loaded Syscall with its invocation count and cumulative time.  Counters are
+       // atomic because machines run by BatchRunner share the instruction set.
+       private static final class Service {
+         final Syscall syscall;
+         final AtomicLong count = new AtomicLong();
+         final AtomicLong nanos = new AtomicLong();
+      
+          Service(Syscall syscall) {
+            this.syscall = syscall;
+         }
+      
+          void reset() {
+            count.set(0);
+            nanos.set(0);
+         }
       }
    }
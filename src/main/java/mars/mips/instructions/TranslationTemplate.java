@@ -0,0 +1,415 @@
+   package mars.mips.instructions;
+   import mars.*;
+   import mars.util.*;
+   import mars.assembler.*;
+   import mars.mips.hardware.*;
+   import java.util.*;
+
+	/*
+Copyright (c) 2003-2009,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * One basic instruction template from an extended instruction's translation, compiled
+ * into a list of token slots.  Each slot is either a literal token of the template or
+ * a reference to operand tokens of the source statement (see the template markers
+ * described in <tt>ExtendedInstruction.makeTemplateSubstitutions</tt>).  Expanding
+ * the template builds the token list of the basic statement directly, without
+ * substituting into the template string and tokenizing the result.
+ * <p>
+ * A template that uses a construct the compiler does not handle is left uncompiled,
+ * and <tt>expand</tt> always returns null for it.  So does a source statement whose
+ * operands would not tokenize as they appear.  In both cases the caller falls back
+ * to <tt>makeTemplateSubstitutions</tt> and the tokenizer.
+ *
+ * @version October 2026
+ */
+    public class TranslationTemplate {
+
+      // Kinds of token slot.  The value of HIGH, HIGH_ADJUSTED, LOW and LOW_UNSIGNED
+      // slots is computed from an operand value, an optional second (addend) operand
+      // value and a constant.
+      private static final int LITERAL = 0;
+      private static final int OPERAND = 1;        // RGn, OPn
+      private static final int NEXT_REGISTER = 2;  // NRn
+      private static final int HIGH = 3;           // VHLn, VHLnPm, LHL, LHPN
+      private static final int HIGH_ADJUSTED = 4;  // LHn, LHnPm, VHn, VHnPm, LHPA, LHPAPm
+      private static final int LOW = 5;            // LLn, LLnPm, VLn, VLnPm, LLP, LLPPm
+      private static final int LOW_UNSIGNED = 6;   // LLnU, VLnU, VLnPmU, LLPU
+      private static final int BRANCH_OFFSET = 7;  // BROFFnm
+      private static final int SHIFT_32 = 8;       // S32
+      private static final int LABEL = 9;          // LAB
+      // operand number of the slots that refer to the last token of the source statement
+      private static final int LAST_OPERAND = -1;
+
+      private String template;
+      private boolean delayedBranchNop;
+      private ArrayList instructionMatches;
+      private int[] kinds, operands, addendOperands, constants, gaps;
+      private String[] literals;
+      private TokenTypes[] literalTypes;
+
+    /**
+     * Compiles a basic instruction template.  This requires the instruction set's
+     * operators to be recognizable, so is done after all instructions are added.
+     *
+     * @param template the template, as given in the extended instruction's translation
+     **/
+       public TranslationTemplate(String template) {
+         this.template = template;
+         // DBNOP generates a "nop" if delayed branching is enabled, else nothing.
+         this.delayedBranchNop = template.indexOf("DBNOP") >= 0;
+         this.compile(this.delayedBranchNop ? "nop" : template);
+      }
+
+    /**
+     * Get the template as given in the extended instruction's translation.
+     *
+     * @return the template String
+     **/
+       public String getTemplate() {
+         return template;
+      }
+
+    /**
+     * Determine whether this template is DBNOP, which generates a "nop" instruction only
+     * if delayed branching is enabled and otherwise generates nothing.
+     *
+     * @return true if this is a DBNOP template
+     **/
+       public boolean isDelayedBranchNop() {
+         return delayedBranchNop;
+      }
+
+    /**
+     * Get the instructions whose mnemonic matches the operator of this template, as
+     * returned by <tt>InstructionSet.matchOperator</tt>.
+     *
+     * @return ArrayList of Instruction objects, or null if the template is not compiled.
+     **/
+       public ArrayList getInstructionMatches() {
+         return instructionMatches;
+      }
+
+    /**
+     * Build the token list of the basic statement generated by this template.  The
+     * tokens are those the tokenizer gives for the result of
+     * <tt>ExtendedInstruction.makeTemplateSubstitutions</tt>.
+     *
+     * @param program MIPSprogram containing the extended instruction statement
+     * @param theTokenList tokens of the extended instruction statement, in basic assembly form
+     * @param sourceLine source line number of the extended instruction statement
+     * @return TokenList of the basic statement, or null if it must be generated by
+     * substituting into the template string instead.
+     **/
+       public TokenList expand(MIPSprogram program, TokenList theTokenList, int sourceLine) {
+         if (instructionMatches == null) {
+            return null;
+         }
+         TokenList result = new TokenList();
+         TokenTypes previousType = null;
+         int position = 0;
+         for (int i = 0; i < kinds.length; i++) {
+            String value;
+            TokenTypes type;
+            switch (kinds[i]) {
+               case LITERAL :
+                  value = literals[i];
+                  type = literalTypes[i];
+                  break;
+               case OPERAND :
+                  if (operands[i] >= theTokenList.size()) {
+                     return null;
+                  }
+                  Token token = theTokenList.get(operands[i]);
+                  value = token.getValue();
+                  if (!isSingleToken(value) || containsMarker(value)) {
+                     return null;
+                  }
+                  type = token.getType();
+                  break;
+               case NEXT_REGISTER :
+                  if (operands[i] >= theTokenList.size()) {
+                     return null;
+                  }
+                  value = nextRegister(theTokenList.get(operands[i]).getValue());
+                  if (value == null) {
+                     return null;
+                  }
+                  type = TokenTypes.matchTokenType(value);
+                  break;
+               case BRANCH_OFFSET :
+                  int offset = Globals.getSettings().getDelayedBranchingEnabled() ? constants[i] : operands[i];
+                  value = Integer.toString(offset);
+                  type = TokenTypes.matchIntegerType(offset);
+                  break;
+               case LABEL :
+                  // label has to be last token.  It has already been translated to address
+                  // by symtab lookup, so get the text label back.
+                  String address = theTokenList.get(theTokenList.size() - 1).getValue();
+                  Symbol sym = program.getLocalSymbolTable().getSymbolGivenAddressLocalOrGlobal(address);
+                  if (sym == null || !isSingleToken(sym.getName())) {
+                     return null;
+                  }
+                  value = sym.getName();
+                  type = TokenTypes.matchTokenType(value);
+                  break;
+               default :
+                  int operand = (operands[i] == LAST_OPERAND) ? theTokenList.size() - 1 : operands[i];
+                  if (operand >= theTokenList.size() || addendOperands[i] >= theTokenList.size()) {
+                     return null;
+                  }
+                  int val = 0;
+                  try {
+                     val = Binary.stringToInt(theTokenList.get(operand).getValue()) + constants[i];
+                     if (addendOperands[i] > 0) {
+                        val += Binary.stringToInt(theTokenList.get(addendOperands[i]).getValue());
+                     }
+                  }
+                      catch (NumberFormatException e) {
+                        val = 0; // as in makeTemplateSubstitutions
+                     }
+                  val = computeValue(kinds[i], val);
+                  value = Integer.toString(val);
+                  type = TokenTypes.matchIntegerType(val);
+                  break;
+            }
+            if (type == TokenTypes.ERROR) {
+               return null;
+            }
+            // The tokenizer takes a sign after an identifier as a separate token.
+            if (previousType == TokenTypes.IDENTIFIER && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+               return null;
+            }
+            int start = position + gaps[i];
+            result.add(new Token(type, value, null, sourceLine, start + 1));
+            position = start + value.length();
+            previousType = type;
+         }
+         return result;
+      }
+
+      // The value substituted for a HIGH, HIGH_ADJUSTED, LOW or LOW_UNSIGNED slot.
+       private static int computeValue(int kind, int val) {
+         switch (kind) {
+            case HIGH :
+               return val >> 16;
+            case HIGH_ADJUSTED :
+               // If bit 15 is 1, that means lower 16 bits will become a negative offset!  To
+               // compensate if that is the case, we need to add 1 to the high 16 bits.
+               return (val >> 16) + Binary.bitValue(val, 15);
+            case LOW :
+               return val << 16 >> 16;
+            case LOW_UNSIGNED :
+               return val & 0xffff;
+            case SHIFT_32 :
+               return 32 - val;
+            default :
+               return val;
+         }
+      }
+
+      // The next higher register than the one named by token, for NRn, or null if
+      // token does not name a register.
+       private static String nextRegister(String token) {
+         Register reg = RegisterFile.getUserRegister(token);
+         if (reg != null) {
+            return "$" + (reg.getNumber() + 1);
+         }
+         int regNumber = Coprocessor1.getRegisterNumber(token);
+         return (regNumber >= 0) ? "$f" + (regNumber + 1) : null;
+      }
+
+      // Whether the tokenizer would take value, substituted into a statement, as one token.
+       private static boolean isSingleToken(String value) {
+         if (value.length() == 0 || "\"'#".indexOf(value.charAt(0)) >= 0) {
+            return false;
+         }
+         for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (" \t,:()#\"'".indexOf(c) >= 0
+                || (c == '+' || c == '-') && (i > 0 || value.length() == 1 || !Character.isDigit(value.charAt(1)))) {
+               return false;
+            }
+         }
+         return true;
+      }
+
+      // Split the template into tokens the way the tokenizer does, and classify each one.
+      // Leaves instructionMatches null if the template cannot be compiled.
+       private void compile(String text) {
+         ArrayList slots = new ArrayList();
+         ArrayList slotGaps = new ArrayList();
+         int position = 0;
+         int start = -1;
+         for (int i = 0; i <= text.length(); i++) {
+            char c = (i < text.length()) ? text.charAt(i) : ' ';
+            boolean delimiter = c == ' ' || c == '\t' || c == ',';
+            boolean parenthesis = c == '(' || c == ')';
+            if (start >= 0 && (delimiter || parenthesis)) {
+               slots.add(text.substring(start, i));
+               slotGaps.add(Integer.valueOf(start - position));
+               position = i;
+               start = -1;
+            }
+            if (parenthesis) {
+               slots.add(String.valueOf(c));
+               slotGaps.add(Integer.valueOf(i - position));
+               position = i + 1;
+            }
+            else if (!delimiter && start < 0) {
+               start = i;
+            }
+         }
+         int size = slots.size();
+         if (size == 0) {
+            return;
+         }
+         kinds = new int[size];
+         operands = new int[size];
+         addendOperands = new int[size];
+         constants = new int[size];
+         gaps = new int[size];
+         literals = new String[size];
+         literalTypes = new TokenTypes[size];
+         int labels = 0;
+         for (int i = 0; i < size; i++) {
+            String slot = (String) slots.get(i);
+            gaps[i] = ((Integer) slotGaps.get(i)).intValue();
+            if (!compileMarker(slot, i)) {
+               boolean parenthesis = slot.equals("(") || slot.equals(")");
+               if (!parenthesis && (!isSingleToken(slot) || containsMarker(slot))) {
+                  return;
+               }
+               kinds[i] = LITERAL;
+               literals[i] = slot;
+               literalTypes[i] = TokenTypes.matchTokenType(slot);
+               if (literalTypes[i] == TokenTypes.ERROR) {
+                  return;
+               }
+            }
+            if (kinds[i] == LABEL) {
+               labels++;
+            }
+         }
+         // Only the first LAB is substituted, so leave any other to makeTemplateSubstitutions.
+         if (labels > 1 || literalTypes[0] != TokenTypes.OPERATOR) {
+            return;
+         }
+         instructionMatches = Globals.instructionSet.matchOperator(literals[0]);
+      }
+
+      // Set slot i from the template marker that makes up the whole of token, if it is one.
+       private boolean compileMarker(String token, int i) {
+         addendOperands[i] = 0;
+         if (token.equals("LAB")) {
+            return setSlot(i, LABEL, LAST_OPERAND, 0);
+         }
+         if (token.equals("S32")) {
+            return setSlot(i, SHIFT_32, LAST_OPERAND, 0);
+         }
+         if (token.equals("LHL")) {
+            return setSlot(i, HIGH, 2, 0);
+         }
+         if (token.startsWith("BROFF")) {
+            // first digit is the offset if delayed branching is disabled, second if enabled
+            return token.length() == 7 && Character.isDigit(token.charAt(5)) && Character.isDigit(token.charAt(6))
+                  && setSlot(i, BRANCH_OFFSET, token.charAt(5) - '0', token.charAt(6) - '0');
+         }
+         // label plus immediate, e.g. here+44($s0): tokens 2 and 4 of the source statement
+         addendOperands[i] = 4;
+         if (token.equals("LHPN")) {
+            return setSlot(i, HIGH, 2, 0);
+         }
+         if (token.equals("LHPA")) {
+            return setSlot(i, HIGH_ADJUSTED, 2, 0);
+         }
+         if (token.equals("LLP")) {
+            return setSlot(i, LOW, 2, 0);
+         }
+         if (token.equals("LLPU")) {
+            return setSlot(i, LOW_UNSIGNED, 2, 0);
+         }
+         if (token.startsWith("LHPAP")) {
+            return compileAddend(token, 4, false) && setSlot(i, HIGH_ADJUSTED, 2, token.charAt(5) - '0');
+         }
+         if (token.startsWith("LLPP")) {
+            return compileAddend(token, 3, false) && setSlot(i, LOW, 2, token.charAt(4) - '0');
+         }
+         addendOperands[i] = 0;
+         // markers for the n'th source token, optionally followed by Pm and/or U
+         String[] prefixes = { "RG", "OP", "NR", "VHL", "VH", "VL", "LH", "LL" };
+         int[] kindsIfSigned = { OPERAND, OPERAND, NEXT_REGISTER, HIGH, HIGH_ADJUSTED, LOW, HIGH_ADJUSTED, LOW };
+         for (int p = 0; p < prefixes.length; p++) {
+            String prefix = prefixes[p];
+            int length = prefix.length();
+            if (!token.startsWith(prefix) || token.length() <= length || !Character.isDigit(token.charAt(length))) {
+               continue;
+            }
+            int operand = token.charAt(length) - '0';
+            if (token.length() == length + 1) {
+               return setSlot(i, kindsIfSigned[p], operand, 0);
+            }
+            boolean plus = token.charAt(length + 1) == 'P';
+            boolean unsigned = token.endsWith("U") && (prefix.equals("VL") || prefix.equals("LL") && !plus);
+            if (kindsIfSigned[p] == OPERAND || kindsIfSigned[p] == NEXT_REGISTER || !plus && !unsigned
+                || plus && !compileAddend(token, length + 1, unsigned)) {
+               return false;
+            }
+            if (!plus && token.length() != length + 2) {
+               return false;
+            }
+            return setSlot(i, unsigned ? LOW_UNSIGNED : kindsIfSigned[p], operand,
+                           plus ? token.charAt(length + 2) - '0' : 0);
+         }
+         return false;
+      }
+
+      // Whether token has "P" and a digit at index, followed only by "U" if unsigned.
+       private static boolean compileAddend(String token, int index, boolean unsigned) {
+         return token.length() == index + (unsigned ? 3 : 2) && token.charAt(index) == 'P'
+               && Character.isDigit(token.charAt(index + 1));
+      }
+
+       private boolean setSlot(int i, int kind, int operand, int constant) {
+         kinds[i] = kind;
+         operands[i] = operand;
+         constants[i] = constant;
+         return true;
+      }
+
+      // Whether a literal token contains text that makeTemplateSubstitutions would replace.
+       private static boolean containsMarker(String token) {
+         String[] markers = { "RG", "OP", "NR", "LH", "LL", "VH", "VL", "LAB", "S32", "BROFF", "DBNOP" };
+         for (int m = 0; m < markers.length; m++) {
+            if (token.indexOf(markers[m]) >= 0) {
+               return true;
+            }
+         }
+         return false;
+      }
+   }
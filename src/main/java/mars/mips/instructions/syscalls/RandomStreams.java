@@ -1,5 +1,6 @@
    package mars.mips.instructions.syscalls;
 	import java.util.HashMap;
+	import mars.mips.hardware.Machine;
 
 /*
 Copyright (c) 2003-2008,  Pete Sanderson and Kenneth Vollmar
@@ -31,13 +32,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 
 
 /** 
- * This small class serves only to hold a static HashMap for storing
- * random number generators for use by all the random number generator
- * syscalls.
+ * This small class serves only to give the random number generator syscalls
+ * the HashMap of random number generators belonging to the current Machine.
  */
  
     public class RandomStreams {
       /** Collection of pseudorandom number streams available for use in Rand-type syscalls.
        * The streams are by default not seeded. */
-		 static final HashMap randomStreams = new HashMap();
+		 static HashMap randomStreams() {
+		    return Machine.getCurrent().getRandomStreams();
+		 }
    }
\ No newline at end of file
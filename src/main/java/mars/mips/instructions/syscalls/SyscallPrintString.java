@@ -50,21 +50,26 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    */
        public void simulate(ProgramStatement statement) throws ProcessingException {
          int byteAddress = RegisterFile.getValue(4);
-         char ch = 0;
+         Memory memory = Memory.getInstance();
+         String string;
          try
          {
-            ch = (char) Globals.memory.getByte(byteAddress);
-                              // won't stop until NULL byte reached!
-            while (ch != 0)
-            {
-               SystemIO.printString(new Character(ch).toString());
-               byteAddress++;
-               ch = (char) Globals.memory.getByte(byteAddress);
-            }
+            // won't stop until NULL byte reached!  The whole string is printed at once.
+            string = memory.getString(byteAddress, memory.getStringLength(byteAddress) + 1);
          } 
              catch (AddressErrorException e)
             {
+               // print the characters up to the bad address before reporting it
+               try
+               {
+                  SystemIO.printString(memory.getString(byteAddress, e.getAddress() - byteAddress));
+               } 
+                   catch (AddressErrorException unreadable)
+                  {
+                     // cannot happen, getStringLength() got past these bytes
+                  }
                throw new ProcessingException(statement, e);
             }
+         SystemIO.printString(string.substring(0, string.length() - 1));
       }
    }
\ No newline at end of file
@@ -56,9 +56,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
           // Result: No values are returned. Sets the seed of the underlying Java pseudorandom number generator.
 
           Integer index = new Integer(RegisterFile.getValue(4));
-			 Random stream = (Random) RandomStreams.randomStreams.get(index);
+			 Random stream = (Random) RandomStreams.randomStreams().get(index);
           if (stream == null) {
-			    RandomStreams.randomStreams.put(index, new Random(RegisterFile.getValue(5)));
+			    RandomStreams.randomStreams().put(index, new Random(RegisterFile.getValue(5)));
 			 } else {
 			    stream.setSeed(RegisterFile.getValue(5));
 			 }
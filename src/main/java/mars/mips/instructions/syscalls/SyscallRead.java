@@ -55,8 +55,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    */
        public void simulate(ProgramStatement statement) throws ProcessingException {
          int byteAddress = RegisterFile.getValue(5); // destination of characters read from file
-         byte b = 0;
-         int index = 0;
          byte myBuffer[] = new byte[RegisterFile.getValue(6)]; // specified length
          // Call to SystemIO.xxxx.read(xxx,xxx,xxx)  returns actual length
          int retLength = SystemIO.readFromFile(
@@ -80,11 +78,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          // copy bytes from returned buffer into MARS memory
          try
          {
-            while (index < retLength)
-            {
-               Globals.memory.setByte(byteAddress++,
-                                        myBuffer[index++]);
-            }
+            Memory.getInstance().setBytes(byteAddress, myBuffer, 0, retLength);
          } 
              catch (AddressErrorException e)
             {
@@ -58,24 +58,51 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// memory/register value via GUI after assembling program but before running it.
       private static final int NOT_PC_VALUE = -1;
    	
+      // Flag bits recorded with each step.
+      private static final byte IN_DELAY_SLOT = 1;
+      // Initial size of the history arrays; they double as needed up to the capacity.
+      private static final int INITIAL_SIZE = 1024;
+   	
       private boolean engaged;
-      private BackstepStack backSteps;
    	
-   	// One can argue using java.util.Stack, given its clumsy implementation.
-   	// A homegrown linked implementation will be more streamlined, but
-   	// I anticipate that backstepping will only be used during timed
-   	// (currently max 30 instructions/second) or stepped execution, where
-   	// performance is not an issue.  Its Vector implementation may result
-   	// in quicker garbage collection than a pure linked list implementation.
+   	// The history is a circular stack held in parallel primitive arrays, one element per
+   	// step.  When full, a newly-pushed step overwrites the oldest one.  Recording a step
+   	// allocates nothing (except while the arrays are still growing toward capacity) and
+   	// takes no lock: steps are only recorded and undone by one thread at a time, the
+   	// simulation thread while running and the GUI thread while stopped or paused, and the
+   	// hand-off between them is already synchronized by the simulator.  This keeps the cost
+   	// of leaving backstepping on during long runs low, and lets the capacity run into the
+   	// millions.  Steps belong to the same instruction if they were recorded at the same pc.
+      private final int capacity;
+      private int size;
+      private int top;
+      private byte[] actions;   // what to do: MEMORY_RESTORE_WORD, etc
+      private int[] pcs;        // program counter value when original step occurred
+      private int[] params1;    // first parameter required by that action
+      private int[] params2;    // optional second parameter required by that action
+      private byte[] flags;     // IN_DELAY_SLOT if instruction executed in delay slot
    
        /**
    	  * Create a fresh BackStepper.  It is enabled, which means all
    	  * subsequent instruction executions will have their "undo" action
-   	  * recorded here.
+   	  * recorded here.  Up to Globals.maximumBacksteps steps (the BackstepLimit
+   	  * entry of Config.properties) are kept.
    	  */
        public BackStepper() {
+         this(Globals.maximumBacksteps);
+      }
+   
+       /**
+   	  * Create a fresh, enabled BackStepper that keeps up to the given number of steps.
+   	  * Space for them is allocated as they are recorded.
+   	  * @param capacity maximum number of steps kept; older ones are discarded.
+   	  */
+       public BackStepper(int capacity) {
          engaged = true;
-         backSteps = new BackstepStack(Globals.maximumBacksteps);
+         this.capacity = Math.max(1, capacity);
+         allocate(Math.min(this.capacity, INITIAL_SIZE));
+         size = 0;
+         top = -1;
       }
    
        /**
@@ -99,7 +126,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 * @return true if there are no steps to be undone, false otherwise.
    	 */
        public boolean empty() {
-         return backSteps.empty();
+         return size==0;
+      }
+   
+      /**
+   	 * Maximum number of steps this BackStepper keeps.
+   	 * @return the capacity
+   	 */
+       public int getCapacity() {
+         return capacity;
       }
    	
    	/**
@@ -110,7 +145,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
    	// Added 25 June 2007
        public boolean inDelaySlot() {
-         return !empty() && backSteps.peek().inDelaySlot;
+         return !empty() && (flags[top] & IN_DELAY_SLOT) != 0;
       }
    	
       /**
@@ -123,67 +158,106 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 // all store their result in register pairs which results in two store operations.  
    	 // Both must be undone transparently, so we need to detect that multiple steps happen
    	 // together and carry out all of them here.  
-   	 // Use a do-while loop based on the backstep's program statement reference.
+   	 // Use a do-while loop based on the step's program counter.
    	 
        public void backStep() {
-         if (engaged && !backSteps.empty()) {
-            ProgramStatement statement = ((BackStep)backSteps.peek()).ps;
+         if (engaged && !empty()) {
+            int statementPC = pcs[top];
             engaged = false; // GOTTA DO THIS SO METHOD CALL IN SWITCH WILL NOT RESULT IN NEW ACTION ON STACK!
             do {
-               BackStep step = (BackStep) backSteps.pop();
-            /*
-            	System.out.println("backstep POP: action "+step.action+" pc "+mars.util.Binary.intToHexString(step.pc)+
-            	                   " source "+((step.ps==null)? "none":step.ps.getSource())+
-            							 " parm1 "+step.param1+" parm2 "+step.param2);
-            */
-               if (step.pc != NOT_PC_VALUE) {
-                  RegisterFile.setProgramCounter(step.pc);
-               }
-               try {
-                  switch (step.action) {
-                     case MEMORY_RESTORE_RAW_WORD : 
-                        Globals.memory.setRawWord(step.param1, step.param2);
-                        break;
-                     case MEMORY_RESTORE_WORD : 
-                        Globals.memory.setWord(step.param1, step.param2);
-                        break;
-                     case MEMORY_RESTORE_HALF :
-                        Globals.memory.setHalf(step.param1, step.param2);
-                        break;
-                     case MEMORY_RESTORE_BYTE :
-                        Globals.memory.setByte(step.param1, step.param2);
-                        break;
-                     case REGISTER_RESTORE :
-                        RegisterFile.updateRegister(step.param1, step.param2);
-                        break;
-                     case PC_RESTORE : 
-                        RegisterFile.setProgramCounter(step.param1);
-                        break;
-                     case COPROC0_REGISTER_RESTORE :
-                        Coprocessor0.updateRegister(step.param1, step.param2);
-                        break;
-                     case COPROC1_REGISTER_RESTORE :
-                        Coprocessor1.updateRegister(step.param1, step.param2);
-                        break;
-                     case COPROC1_CONDITION_CLEAR :
-                        Coprocessor1.clearConditionFlag(step.param1);
-                        break;
-                     case COPROC1_CONDITION_SET :
-                        Coprocessor1.setConditionFlag(step.param1);
-                        break;
-                     case DO_NOTHING :
-                        break;
-                  }
-               } 
-                   catch (Exception e) { 
-                  // if the original action did not cause an exception this will not either.
-                     System.out.println("Internal MARS error: address exception while back-stepping.");
-                     System.exit(0);
-                  }
-            } while (!backSteps.empty() && statement == ((BackStep)backSteps.peek()).ps);
+               undo(top);
+               pop();
+            } while (!empty() && pcs[top] == statementPC);
             engaged = true;  // RESET IT (was disabled at top of loop -- see comment)
          }
       }
+   
+      /**
+   	 *  Undo the given number of instruction executions, or as many as there are.
+   	 *  Equivalent to calling backStep() that many times.
+   	 *  @param instructions number of instructions to undo.
+   	 *  @return number of instructions actually undone.
+   	 */
+       public int backStep(int instructions) {
+         int undone = 0;
+         while (undone < instructions && engaged && !empty()) {
+            backStep();
+            undone++;
+         }
+         return undone;
+      }
+   
+      /**
+   	 *  Undo instruction executions until the program counter is the given address,
+   	 *  that is, rewind to the most recent point at which the instruction there was
+   	 *  about to execute.  At least one instruction is undone.  If the address is not
+   	 *  reached, all recorded steps are undone.
+   	 *  @param address the program counter value to rewind to.
+   	 *  @return true if the program counter was reached, false if the history ran out first.
+   	 */
+       public boolean backStepTo(int address) {
+         while (engaged && !empty()) {
+            backStep();
+            if (RegisterFile.getProgramCounter() == address) {
+               return true;
+            }
+         }
+         return false;
+      }
+   
+      // Carry out the undo action of the step at the given index.
+       private void undo(int i) {
+         int param1 = params1[i];
+         int param2 = params2[i];
+      /*
+         System.out.println("backstep POP: action "+actions[i]+" pc "+mars.util.Binary.intToHexString(pcs[i])+
+                            " parm1 "+param1+" parm2 "+param2);
+      */
+         if (pcs[i] != NOT_PC_VALUE) {
+            RegisterFile.setProgramCounter(pcs[i]);
+         }
+         try {
+            switch (actions[i]) {
+               case MEMORY_RESTORE_RAW_WORD : 
+                  Memory.getInstance().setRawWord(param1, param2);
+                  break;
+               case MEMORY_RESTORE_WORD : 
+                  Memory.getInstance().setWord(param1, param2);
+                  break;
+               case MEMORY_RESTORE_HALF :
+                  Memory.getInstance().setHalf(param1, param2);
+                  break;
+               case MEMORY_RESTORE_BYTE :
+                  Memory.getInstance().setByte(param1, param2);
+                  break;
+               case REGISTER_RESTORE :
+                  RegisterFile.updateRegister(param1, param2);
+                  break;
+               case PC_RESTORE : 
+                  RegisterFile.setProgramCounter(param1);
+                  break;
+               case COPROC0_REGISTER_RESTORE :
+                  Coprocessor0.updateRegister(param1, param2);
+                  break;
+               case COPROC1_REGISTER_RESTORE :
+                  Coprocessor1.updateRegister(param1, param2);
+                  break;
+               case COPROC1_CONDITION_CLEAR :
+                  Coprocessor1.clearConditionFlag(param1);
+                  break;
+               case COPROC1_CONDITION_SET :
+                  Coprocessor1.setConditionFlag(param1);
+                  break;
+               case DO_NOTHING :
+                  break;
+            }
+         } 
+             catch (Exception e) { 
+            // if the original action did not cause an exception this will not either.
+               System.out.println("Internal MARS error: address exception while back-stepping.");
+               System.exit(0);
+            }
+      }
   
      
       /* Convenience method called below to get program counter value.  If it needs to be
@@ -203,7 +277,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * @return the argument value
    	  */
        public int addMemoryRestoreRawWord(int address, int value) {
-         backSteps.push(MEMORY_RESTORE_RAW_WORD, pc(), address, value);
+         push(MEMORY_RESTORE_RAW_WORD, pc(), address, value);
          return value;
       }   
    	
@@ -215,7 +289,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * @return the argument value
    	  */
        public int addMemoryRestoreWord(int address, int value) {
-         backSteps.push(MEMORY_RESTORE_WORD, pc(), address, value);
+         push(MEMORY_RESTORE_WORD, pc(), address, value);
          return value;
       }   
    
@@ -227,7 +301,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * @return the argument value
    	  */
        public int addMemoryRestoreHalf(int address, int value) {
-         backSteps.push(MEMORY_RESTORE_HALF, pc(), address, value);
+         push(MEMORY_RESTORE_HALF, pc(), address, value);
          return value;
       }
    
@@ -239,7 +313,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * @return the argument value
    	  */
        public int addMemoryRestoreByte(int address, int value) {
-         backSteps.push(MEMORY_RESTORE_BYTE, pc(), address, value);
+         push(MEMORY_RESTORE_BYTE, pc(), address, value);
          return value;
       }   
    
@@ -251,7 +325,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * @return the argument value
    	  */
        public int addRegisterFileRestore(int register, int value) {
-         backSteps.push(REGISTER_RESTORE, pc(), register, value);
+         push(REGISTER_RESTORE, pc(), register, value);
          return value;
       } 
    
@@ -266,7 +340,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          value -= Instruction.INSTRUCTION_LENGTH; 
          // Use "value" insead of "pc()" for second arg because RegisterFile.getProgramCounter() 
          // returns branch target address at this point.
-         backSteps.push(PC_RESTORE, value, value); 
+         push(PC_RESTORE, value, value, 0); 
          return value;
       }		
    
@@ -278,7 +352,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * @return the argument value
    	  */
        public int addCoprocessor0Restore(int register, int value) {
-         backSteps.push(COPROC0_REGISTER_RESTORE, pc(), register, value);
+         push(COPROC0_REGISTER_RESTORE, pc(), register, value);
          return value;
       }		
    
@@ -290,7 +364,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * @return the argument value
    	  */
        public int addCoprocessor1Restore(int register, int value) {
-         backSteps.push(COPROC1_REGISTER_RESTORE, pc(), register, value);
+         push(COPROC1_REGISTER_RESTORE, pc(), register, value);
          return value;
       }		
    
@@ -301,7 +375,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * @return the argument value
    	  */
        public int addConditionFlagSet(int flag) {
-         backSteps.push(COPROC1_CONDITION_SET, pc(), flag);
+         push(COPROC1_CONDITION_SET, pc(), flag, 0);
          return flag;
       }	
    
@@ -312,7 +386,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * @return the argument value
    	  */
        public int addConditionFlagClear(int flag) {
-         backSteps.push(COPROC1_CONDITION_CLEAR, pc(), flag);
+         push(COPROC1_CONDITION_CLEAR, pc(), flag, 0);
          return flag;
       }	
    		
@@ -324,137 +398,82 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  * @return 0
    	  */
        public int addDoNothing(int pc) {
-         if (backSteps.empty() || backSteps.peek().pc != pc) { 
-            backSteps.push(DO_NOTHING, pc);
+         if (empty() || pcs[top] != pc) { 
+            push(DO_NOTHING, pc, 0, 0);
          }
          return 0;
       }
    	
-   		   	 	
-   	// Represents a "back step" (undo action) on the stack.
-       private class BackStep {
-         private int action;  // what do do MEMORY_RESTORE_WORD, etc
-         private int pc;      // program counter value when original step occurred
-         private ProgramStatement ps;   // statement whose action is being "undone" here
-         private int param1;  // first parameter required by that action
-         private int param2;  // optional second parameter required by that action
-         private boolean inDelaySlot; // true if instruction executed in "delay slot" (delayed branching enabled)
-      
-         // it is critical that BackStep object get its values by calling this method
-      	// rather than assigning to individual members, because of the technique used
-      	// to set its ps member (and possibly pc).
-          private void assign(int act, int programCounter, int parm1, int parm2) {
-            action = act;
-            pc     = programCounter;
-            try {
-            // Client does not have direct access to program statement, and rather than making all
-            // of them go through the methods below to obtain it, we will do it here.  
-            // Want the program statement but do not want observers notified.
-               ps = Globals.memory.getStatementNoNotify(programCounter);
-            } 
-                catch (Exception e) {
-                // The only situation causing this so far: user modifies memory or register
-                // contents through direct manipulation on the GUI, after assembling the program but
-                // before starting to run it (or after backstepping all the way to the start).
-                // The action will not be associated with any instruction, but will be carried out
-                // when popped.
-                  ps = null;
-                  pc = NOT_PC_VALUE; // Backstep method above will see this as flag to not set PC
-               } 
-            param1 = parm1;
-            param2 = parm2;
-            inDelaySlot = Simulator.inDelaySlot(); // ADDED 25 June 2007
-         /*				
-            System.out.println("backstep PUSH: action "+action+" pc "+mars.util.Binary.intToHexString(pc)+
-         		                   " source "+((ps==null)? "none":ps.getSource())+
-         								 " parm1 "+param1+" parm2 "+param2);
-         */
+   	// Push a step.  The program counter is recorded as NOT_PC_VALUE if it does not
+   	// address an instruction, which happens when the user modifies memory or register
+   	// contents through the GUI after assembling the program but before starting to run
+   	// it (or after backstepping all the way to the start).  Such an action is not
+   	// associated with any instruction, but is carried out when popped.
+       private void push(int action, int programCounter, int param1, int param2) {
+         if (!isStatementAddress(programCounter)) {
+            programCounter = NOT_PC_VALUE;
          }
-      }
-   	
-   	// *****************************************************************************
-   	// special purpose stack class for backstepping.  You've heard of circular queues
-   	// implemented with an array, right?  This is a circular stack!  When full, the
-   	// newly-pushed item overwrites the oldest item, with circular top!  All operations 
-   	// are constant time.  It's synchronized too, to be safe (is used by both the 
-   	// simulation thread and the GUI thread for the back-step button).
-   	// Upon construction, it is filled with newly-created empty BackStep objects which
-   	// will exist for the life of the stack.  Push does not create a BackStep object 
-   	// but instead overwrites the contents of the existing one.  Thus during MIPS
-   	// program (simulated) execution, BackStep objects are never created or junked
-   	// regardless of how many steps are executed.  This will speed things up a bit
-   	// and make life easier for the garbage collector.
-   	
-       private class BackstepStack {
-         private int capacity;
-         private int size;
-         private int top;
-         private BackStep[] stack;
-      
-          // Stack is created upon successful assembly or reset.  The one-time overhead of
-      	 // creating all the BackStep objects will not be noticed by the user, and enhances
-      	 // runtime performance by not having to create or recycle them during MIPS
-      	 // program execution.
-          private BackstepStack(int capacity) {
-            this.capacity = capacity;
-            this.size = 0;
-            this.top = -1;
-            this.stack = new BackStep[capacity];
-            for (int i=0; i<capacity; i++) {
-               this.stack[i] = new BackStep();
+         if (size < capacity) {
+            if (size == actions.length) {
+               allocate(Math.min(capacity, 2 * actions.length));
             }
+            size++;
          }
-      	
-          private synchronized boolean empty() {
-            return size==0;
-         }
-         
-          private synchronized void push(int act, int programCounter, int parm1, int parm2) {
-            if (size==0) {
-               top=0;
-               size++;
-            } 
-            else if (size < capacity) {
-               top = (top + 1) % capacity;
-               size++;
-            } 
-            else { // size == capacity.  The top moves up one, replacing oldest entry (goodbye!)
-               top = (top + 1) % capacity;
-            }
-         	// We'll re-use existing objects rather than create/discard each time.
-         	// Must use assign() method rather than series of assignment statements!
-            stack[top].assign(act, programCounter, parm1, parm2);
-         }
-      	
-          private synchronized void push(int act, int programCounter, int parm1) {
-            push(act, programCounter, parm1, 0);
-         }
-      	
-          private synchronized void push(int act, int programCounter) {
-            push(act, programCounter, 0, 0);
+         top = (top + 1 == capacity) ? 0 : top + 1; // when full, overwrites the oldest entry (goodbye!)
+         actions[top] = (byte) action;
+         pcs[top] = programCounter;
+         params1[top] = param1;
+         params2[top] = param2;
+         flags[top] = Simulator.inDelaySlot() ? IN_DELAY_SLOT : 0; // ADDED 25 June 2007
+      /*				
+         System.out.println("backstep PUSH: action "+action+" pc "+mars.util.Binary.intToHexString(programCounter)+
+         	                   " parm1 "+param1+" parm2 "+param2);
+      */
+      }
+   
+      // Remove the top step.  NO PROTECTION: never called on an empty stack.
+       private void pop() {
+         top = (top == 0) ? capacity - 1 : top - 1;
+         size--;
+         if (size == 0) {
+            top = -1;
          }
-         
-      	// NO PROTECTION.  This class is used only within this file so there is no excuse
-      	// for trying to pop from empty stack.
-          private synchronized BackStep pop() {
-            BackStep bs;
-            bs = stack[top];
-            if (size==1) {
-               top = -1;
-            } 
-            else {
-               top = (top + capacity - 1) % capacity;
-            }
-            size--;
-            return bs;
+      }
+   
+   	// True if Memory.getStatementNoNotify() can fetch a statement from the address: text
+   	// segments always, and with self-modifying code any other memory that can be read.
+       private static boolean isStatementAddress(int address) {
+         if (!Memory.wordAligned(address)) {
+            return false;
          }
-      
-      	// NO PROTECTION.  This class is used only within this file so there is no excuse
-      	// for trying to peek from empty stack.         
-          private synchronized BackStep peek() {
-            return stack[top];
+         if (Memory.inTextSegment(address) || Memory.inKernelTextSegment(address)) {
+            return true;
          }
-      			
+         return Globals.getSettings().getBooleanSetting(Settings.SELF_MODIFYING_CODE_ENABLED)
+            && (Memory.inDataSegment(address) || Memory.inKernelDataSegment(address)
+               || (address > Memory.stackLimitAddress && address <= Memory.stackBaseAddress)
+               || (address >= Memory.memoryMapBaseAddress && address < Memory.memoryMapLimitAddress));
       }
    
+   	// Grow (or create) the history arrays to the given length.  Until the stack has
+   	// reached capacity it has not wrapped, so its entries occupy indexes 0 to top.
+       private void allocate(int length) {
+         byte[] newActions = new byte[length];
+         int[] newPcs = new int[length];
+         int[] newParams1 = new int[length];
+         int[] newParams2 = new int[length];
+         byte[] newFlags = new byte[length];
+         if (actions != null) {
+            System.arraycopy(actions, 0, newActions, 0, size);
+            System.arraycopy(pcs, 0, newPcs, 0, size);
+            System.arraycopy(params1, 0, newParams1, 0, size);
+            System.arraycopy(params2, 0, newParams2, 0, size);
+            System.arraycopy(flags, 0, newFlags, 0, size);
+         }
+         actions = newActions;
+         pcs = newPcs;
+         params1 = newParams1;
+         params2 = newParams2;
+         flags = newFlags;
+      }
    }
\ No newline at end of file
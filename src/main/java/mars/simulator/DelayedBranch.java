@@ -1,4 +1,5 @@
 package mars.simulator;
+import mars.mips.hardware.Machine;
 
 /*
 Copyright (c) 2003-2007,  Pete Sanderson and Kenneth Vollmar
@@ -52,8 +53,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  * would hope) but in the meantime the first statement following the sequence
  * of successful branches will constitute the delay slot and will be executed!
  *
- * Since only one pending delayed branch can be taken at a time, everything
- * here is done with statics.  The class itself represents the potential branch.
+ * Since only one pending delayed branch can be taken at a time, each Machine has
+ * one DelayedBranch object holding its potential branch.  The static methods act
+ * on that of the machine current to the calling thread.
  * 
  * @author Pete Sanderson
  * @version June 2007
@@ -67,8 +69,19 @@ public class DelayedBranch {
 
    // Initially nothing is happening.
 	
-	private static int state = CLEARED;
-	private static int branchTargetAddress = 0;
+	private int state = CLEARED;
+	private int branchTargetAddress = 0;
+	
+	/**
+	 *  Create the delayed branch state of a new Machine.
+	 */
+	public DelayedBranch() {
+	}
+	
+	// The delayed branch all static methods operate on.
+	private static DelayedBranch current() {
+	   return Machine.getCurrent().getDelayedBranch();
+	}
 	
 	/**
     *  Register the fact that a successful branch is to occur.  This is called in
@@ -82,11 +95,12 @@ public class DelayedBranch {
 	 *  @param targetAddress The address to branch to after executing the next instruction
 	 */
 	public static void register(int targetAddress) {
+	  DelayedBranch db = current();
 	  // About as clean as a switch statement can be!
-	  switch (state) {
-	    case CLEARED    :  branchTargetAddress = targetAddress;
+	  switch (db.state) {
+	    case CLEARED    :  db.branchTargetAddress = targetAddress;
 		 case REGISTERED :
-		 case TRIGGERED  :  state = REGISTERED;
+		 case TRIGGERED  :  db.state = REGISTERED;
 	  }          
 	}
 
@@ -103,10 +117,11 @@ public class DelayedBranch {
 	 *
 	 */
 	 static void trigger() {
+	  DelayedBranch db = current();
 	  // About as clean as a switch statement can be!
-	  switch (state) {
+	  switch (db.state) {
 		 case REGISTERED :
-		 case TRIGGERED  :  state = TRIGGERED;
+		 case TRIGGERED  :  db.state = TRIGGERED;
 		 case CLEARED    :
 	  }          
 	}
@@ -116,8 +131,9 @@ public class DelayedBranch {
 	 *  program counter to the target address.  This method has package visibility.
 	 */
 	 static void clear() {
-	  state = CLEARED;
-	  branchTargetAddress = 0; 
+	  DelayedBranch db = current();
+	  db.state = CLEARED;
+	  db.branchTargetAddress = 0; 
 	}
 
    /**
@@ -129,7 +145,7 @@ public class DelayedBranch {
 	 */
 
     static boolean isRegistered() {
-	   return state == REGISTERED;
+	   return current().state == REGISTERED;
 	}
 	
    /**
@@ -140,7 +156,7 @@ public class DelayedBranch {
 	 */
 
    static boolean isTriggered() {
-	   return state == TRIGGERED;
+	   return current().state == TRIGGERED;
 	}	
 
 
@@ -153,7 +169,7 @@ public class DelayedBranch {
 	*  @return Target address of the delayed branch.
 	*/
 	 static int getBranchTargetAddress() {
-	    return branchTargetAddress;
+	    return current().branchTargetAddress;
 	}
 	
 }  // DelayedBranch
\ No newline at end of file
@@ -0,0 +1,415 @@
+   package mars.simulator;
+   import mars.*;
+   import mars.mips.hardware.*;
+   import java.util.*;
+   import java.util.concurrent.locks.LockSupport;
+
+/*
+Copyright (c) 2003-2009,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+/**
+ * Stream of records describing the instructions a simulator retires, for tools that
+ * analyze execution (profilers, branch predictors, cache models) without observing
+ * memory and registers one notice at a time.
+ * <p>
+ * The simulation thread writes one record per instruction into a bounded ring buffer:
+ * its address, its ProgramStatement, every data memory access it made, up to
+ * MAX_REGISTER_CHANGES general, hi or lo registers whose value it changed, and its
+ * branch or jump target if it transferred control.  A separate thread hands the records to the
+ * listeners in batches.  When the ring is full the simulation thread waits for the
+ * listeners to catch up, so no record is lost, and whenever simulation stops the
+ * stream is drained before the simulator's observers hear of it.
+ * <p>
+ * Obtain one through Simulator.addRetiredInstructionListener().
+ *
+ * @version October 2026
+ */
+
+    public class RetiredInstructionStream implements Memory.AccessListener {
+
+   /**
+    * Implemented by tools that consume the retired instruction stream.
+    */
+       public interface Listener {
+      /**
+       * Called on the stream's delivery thread, never on the simulation thread, with
+       * the next records in retirement order.  The batch is valid only until the
+       * method returns.
+       *
+       * @param batch the records retired since the previous batch
+       */
+          void instructionsRetired(Batch batch);
+      }
+
+      /** Number of records the ring buffer holds. Must be a power of 2. */
+      public static final int CAPACITY = 8192;
+      /** Largest number of records handed to the listeners at once. */
+      public static final int MAXIMUM_BATCH = 1024;
+      /** Most register changes recorded for one instruction (mult and div change two). */
+      public static final int MAX_REGISTER_CHANGES = 2;
+      /** Data memory accesses kept in the ring for one instruction; any more (made by
+   	 *  syscalls) go to an overflow array belonging to the record's slot. */
+      public static final int MAX_MEMORY_ACCESSES = 2;
+
+      private static final int MASK = CAPACITY - 1;
+      private static final int REGISTER_VALUES = 35; // 32 general registers, pc, hi and lo
+      private static final int PROGRAM_COUNTER = 32;
+      private static final long WAIT_NANOS = 100000L;
+      private static final int OVERFLOW_FIELDS = 3;
+      private static final int OVERFLOW_KEPT = 256 * OVERFLOW_FIELDS; // larger arrays are not reused
+
+      // The ring, one element per record.
+      private final int[] addresses = new int[CAPACITY];
+      private final ProgramStatement[] statements = new ProgramStatement[CAPACITY];
+      private final int[] nextAddresses = new int[CAPACITY];
+      private final int[] memoryCounts = new int[CAPACITY];
+      private final byte[] memoryTypes = new byte[CAPACITY * MAX_MEMORY_ACCESSES];
+      private final int[] memoryAddresses = new int[CAPACITY * MAX_MEMORY_ACCESSES];
+      private final byte[] memoryLengths = new byte[CAPACITY * MAX_MEMORY_ACCESSES];
+      // Type, address and length of each access beyond MAX_MEMORY_ACCESSES, by slot.
+   	// Allocated the first time a slot needs one and reused after that.
+      private final int[][] overflowAccesses = new int[CAPACITY][];
+      private final byte[] registerCounts = new byte[CAPACITY];
+      private final byte[] registers = new byte[CAPACITY * MAX_REGISTER_CHANGES];
+      private final int[] registerValues = new int[CAPACITY * MAX_REGISTER_CHANGES];
+
+      // Records [tail, head) are waiting to be delivered.  head is written only by the
+   	// simulation thread and tail only by the delivery thread.
+      private volatile long head = 0;
+      private volatile long tail = 0;
+
+      // State of the record being filled in, touched only by the simulation thread
+   	// (and by memoryAccessed() when called from it).
+      private volatile Thread producer;
+      private boolean recording = false;
+      private int slot;
+      private final int[] registersBefore = new int[REGISTER_VALUES];
+      private final int[] registersAfter = new int[REGISTER_VALUES];
+
+      private final Memory memory;
+      private volatile Listener[] listeners = new Listener[0];
+      private volatile boolean closed = false;
+      private final Thread deliveryThread;
+      private final Batch batch = new Batch();
+      // Listeners whose failure has been reported, touched only by the delivery thread.
+      private final ArrayList<Listener> failedListeners = new ArrayList<Listener>();
+
+   /**
+    * Create a stream fed by the given memory and start its delivery thread.
+    *
+    * @param memory the memory whose data accesses are to be recorded
+    */
+       RetiredInstructionStream(Memory memory) {
+         this.memory = memory;
+         memory.addAccessListener(this);
+         deliveryThread = new Thread(
+                new Runnable() {
+                   public void run() {
+                     deliver();
+                  }
+               }, "MARS retired instruction stream");
+         deliveryThread.setDaemon(true);
+         deliveryThread.start();
+      }
+
+       synchronized void addListener(Listener listener) {
+         Listener[] more = new Listener[listeners.length + 1];
+         System.arraycopy(listeners, 0, more, 0, listeners.length);
+         more[listeners.length] = listener;
+         listeners = more;
+      }
+
+      // Returns the number of listeners left.
+       synchronized int removeListener(Listener listener) {
+         ArrayList<Listener> remaining = new ArrayList<Listener>(Arrays.asList(listeners));
+         remaining.remove(listener);
+         listeners = remaining.toArray(new Listener[remaining.size()]);
+         return listeners.length;
+      }
+
+      // Stop delivering and stop recording memory accesses.  Records not yet delivered
+   	// are dropped.
+       void close() {
+         closed = true;
+         memory.removeAccessListener(this);
+         LockSupport.unpark(deliveryThread);
+      }
+
+   /////////////////////////////////////////////////////////////////////////////
+   //  Simulation thread side.
+
+      // Start the record for the instruction at the given address, waiting for room if
+   	// the ring is full.
+       void begin(int address, ProgramStatement statement) {
+         while (head - tail >= CAPACITY && !closed) {
+            LockSupport.parkNanos(WAIT_NANOS);
+         }
+         producer = Thread.currentThread();
+         slot = (int) head & MASK;
+         addresses[slot] = address;
+         statements[slot] = statement;
+         memoryCounts[slot] = 0;
+         if (overflowAccesses[slot] != null && overflowAccesses[slot].length > OVERFLOW_KEPT) {
+            overflowAccesses[slot] = null;
+         }
+         RegisterFile.copyValues(registersBefore);
+         recording = true;
+      }
+
+   /**
+    * Records a data memory access made by the instruction being executed.  Accesses
+    * made on other threads, such as the GUI, are ignored.
+    */
+       public void memoryAccessed(int type, int address, int length) {
+         if (!recording || Thread.currentThread() != producer) {
+            return;
+         }
+         int count = memoryCounts[slot];
+         if (count < MAX_MEMORY_ACCESSES) {
+            int access = slot * MAX_MEMORY_ACCESSES + count;
+            memoryTypes[access] = (byte) type;
+            memoryAddresses[access] = address;
+            memoryLengths[access] = (byte) length;
+         } 
+         else {
+            int[] overflow = overflowAccesses[slot];
+            int field = (count - MAX_MEMORY_ACCESSES) * OVERFLOW_FIELDS;
+            if (overflow == null || field == overflow.length) {
+               int[] larger = new int[(overflow == null) ? 4 * OVERFLOW_FIELDS : 2 * overflow.length];
+               if (overflow != null) {
+                  System.arraycopy(overflow, 0, larger, 0, overflow.length);
+               }
+               overflow = larger;
+               overflowAccesses[slot] = overflow;
+            }
+            overflow[field] = type;
+            overflow[field + 1] = address;
+            overflow[field + 2] = length;
+         }
+         memoryCounts[slot] = count + 1;
+      }
+
+      // Complete the record of the instruction begun last and publish it.
+       void retire() {
+         if (!recording) {
+            return;
+         }
+         recording = false;
+         RegisterFile.copyValues(registersAfter);
+         int count = 0;
+         for (int i = 1; i < REGISTER_VALUES && count < MAX_REGISTER_CHANGES; i++) {
+            if (i != PROGRAM_COUNTER && registersAfter[i] != registersBefore[i]) {
+               registers[slot * MAX_REGISTER_CHANGES + count] = (byte) i;
+               registerValues[slot * MAX_REGISTER_CHANGES + count] = registersAfter[i];
+               count++;
+            }
+         }
+         registerCounts[slot] = (byte) count;
+         nextAddresses[slot] = DelayedBranch.isRegistered()
+            ? DelayedBranch.getBranchTargetAddress()
+            : registersAfter[PROGRAM_COUNTER];
+         head = head + 1;
+      }
+
+      // Drop the record begun last; the instruction did not complete.
+       void abandon() {
+         recording = false;
+      }
+
+      // Wait until every published record has been delivered.
+       void flush() {
+         while (tail < head && !closed && deliveryThread.isAlive()) {
+            LockSupport.parkNanos(WAIT_NANOS);
+         }
+      }
+
+   /////////////////////////////////////////////////////////////////////////////
+   //  Delivery thread side.
+
+       private void deliver() {
+         while (!closed) {
+            long start = tail;
+            long available = head - start;
+            if (available == 0) {
+               LockSupport.parkNanos(WAIT_NANOS);
+               continue;
+            }
+            batch.start = start;
+            batch.size = (int) Math.min(available, MAXIMUM_BATCH);
+            Listener[] current = listeners;
+            for (int i = 0; i < current.length; i++) {
+               try {
+                  current[i].instructionsRetired(batch);
+               }
+                   catch (RuntimeException e) {
+                     // a failing tool must not stall the simulation
+                     reportFailure(current[i], e);
+                  }
+            }
+            tail = start + batch.size;
+         }
+      }
+
+      // Report the first exception thrown by a listener.  Later ones are not reported,
+   	// since a broken tool would otherwise fail once per batch.
+       private void reportFailure(Listener listener, RuntimeException e) {
+         if (!failedListeners.contains(listener)) {
+            failedListeners.add(listener);
+            System.err.println("Error in retired instruction listener "
+               + listener.getClass().getName() + ": " + e);
+         }
+      }
+
+   /**
+    * A run of consecutive records, indexed from 0 to size()-1 in retirement order.
+    */
+       public class Batch {
+         private long start;
+         private int size;
+
+          private Batch() {
+         }
+
+         private int ringIndex(int index) {
+            if (index < 0 || index >= size) {
+               throw new IndexOutOfBoundsException("record " + index + " of " + size);
+            }
+            return (int) (start + index) & MASK;
+         }
+
+      /**
+       * @return number of records in this batch
+       */
+          public int size() {
+            return size;
+         }
+
+      /**
+       * @param index record number within this batch
+       * @return address of the instruction
+       */
+          public int getAddress(int index) {
+            return addresses[ringIndex(index)];
+         }
+
+      /**
+       * @param index record number within this batch
+       * @return the ProgramStatement executed
+       */
+          public ProgramStatement getStatement(int index) {
+            return statements[ringIndex(index)];
+         }
+
+      /**
+       * @param index record number within this batch
+       * @return the branch or jump target if this instruction is a taken branch or
+       *  jump, else the following address.  With delayed branching the delay slot
+       *  instruction, not the target, is executed next.
+       */
+          public int getNextAddress(int index) {
+            return nextAddresses[ringIndex(index)];
+         }
+
+      /**
+       * @param index record number within this batch
+       * @return number of data memory accesses the instruction made, in the order made
+       */
+          public int getMemoryAccessCount(int index) {
+            return memoryCounts[ringIndex(index)];
+         }
+
+      /**
+       * @param index record number within this batch
+       * @param access which access, from 0 to getMemoryAccessCount()-1
+       * @return AccessNotice.READ or AccessNotice.WRITE
+       */
+          public int getMemoryAccessType(int index, int access) {
+            return memoryAccessField(index, access, 0);
+         }
+
+      /**
+       * @param index record number within this batch
+       * @param access which access, from 0 to getMemoryAccessCount()-1
+       * @return address of the access
+       */
+          public int getMemoryAddress(int index, int access) {
+            return memoryAccessField(index, access, 1);
+         }
+
+      /**
+       * @param index record number within this batch
+       * @param access which access, from 0 to getMemoryAccessCount()-1
+       * @return number of bytes accessed
+       */
+          public int getMemoryLength(int index, int access) {
+            return memoryAccessField(index, access, 2);
+         }
+
+         // Field 0, 1 or 2 (type, address, length) of the given access.
+          private int memoryAccessField(int index, int access, int field) {
+            int ring = ringIndex(index);
+            if (access < 0 || access >= memoryCounts[ring]) {
+               throw new IndexOutOfBoundsException("access " + access + " of " + memoryCounts[ring]);
+            }
+            if (access >= MAX_MEMORY_ACCESSES) {
+               return overflowAccesses[ring][(access - MAX_MEMORY_ACCESSES) * OVERFLOW_FIELDS + field];
+            }
+            int inline = ring * MAX_MEMORY_ACCESSES + access;
+            return (field == 0) ? memoryTypes[inline]
+                 : (field == 1) ? memoryAddresses[inline]
+                 : memoryLengths[inline];
+         }
+
+      /**
+       * @param index record number within this batch
+       * @return number of registers whose value the instruction changed, at most
+       *  MAX_REGISTER_CHANGES
+       */
+          public int getRegisterChangeCount(int index) {
+            return registerCounts[ringIndex(index)];
+         }
+
+      /**
+       * @param index record number within this batch
+       * @param change which change, from 0 to getRegisterChangeCount()-1
+       * @return number of the changed register; 33 and 34 are hi and lo
+       */
+          public int getChangedRegister(int index, int change) {
+            return registers[ringIndex(index) * MAX_REGISTER_CHANGES + change];
+         }
+
+      /**
+       * @param index record number within this batch
+       * @param change which change, from 0 to getRegisterChangeCount()-1
+       * @return new value of the changed register
+       */
+          public int getChangedRegisterValue(int index, int change) {
+            return registerValues[ringIndex(index) * MAX_REGISTER_CHANGES + change];
+         }
+      }
+   }
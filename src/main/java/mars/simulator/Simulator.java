@@ -44,7 +44,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
 
     public class Simulator extends Observable {
       private SimThread simulatorThread;
-      private static Simulator simulator = null;  // Singleton object
+      private long instructionCount;  // instructions executed by most recent command-line run
       private static Runnable interactiveGUIUpdater = null;
       // Others can set this true to indicate external interrupt.  Initially used
    	// to simulate keyboard and display interrupts.  The device is identified
@@ -61,22 +61,22 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       public static final int PAUSE_OR_STOP = 6;
    
       /**
-   	 * Returns the Simulator object
+   	 * Returns the Simulator object of the machine current to the calling thread.
    	 *
    	 * @return the Simulator object in use
    	 */
        public static Simulator getInstance() {
-         // Do NOT change this to create the Simulator at load time (in declaration above)!
-      	// Its constructor looks for the GUI, which at load time is not created yet,
-      	// and incorrectly leaves interactiveGUIUpdater null!  This causes runtime
-      	// exceptions while running in timed mode.
-         if (simulator==null) {
-            simulator = new Simulator();
-         }
-         return simulator;
+         // Do NOT change this to create the Simulator at load time!  Machine creates it
+      	// on first use because its constructor looks for the GUI, which at load time is
+      	// not created yet, and would incorrectly leave interactiveGUIUpdater null!  This
+      	// causes runtime exceptions while running in timed mode.
+         return Machine.getCurrent().getSimulator();
       }
    
-       private Simulator() {
+      /**
+   	 * Create the simulator of a new Machine.  Use getInstance() to get the one in use.
+   	 */
+       public Simulator() {
          simulatorThread = null;
          if (Globals.getGui() != null) {
             interactiveGUIUpdater = new UpdateGUI();
@@ -121,6 +121,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             Object dun = simulatorThread.get(); // this should emulate join()
             ProcessingException pe = simulatorThread.pe;
             boolean done = simulatorThread.done;
+            instructionCount = simulatorThread.executed;
             if (done) SystemIO.resetFiles(); // close any files opened in MIPS progra
             this.simulatorThread = null;
             if (pe != null) {
@@ -130,6 +131,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
          return true;
       }
+   
+   /**
+    * Number of MIPS instructions executed by the most recent simulation run from
+    * the command line (that is, a call to simulate() with a null actor).  Instructions
+    * that terminated the program, such as exit syscalls or faults, are included.
+    *
+    * @return count of instructions executed
+    **/
+       public long getInstructionCount() {
+         return instructionCount;
+      }
    		
    
        /**
@@ -167,6 +179,83 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          stopListeners.remove(l);
       }
    
+      /**
+       * Implemented by tools that follow the executed instruction stream, such as
+       * the instruction counter, instead of inferring execution from text segment
+       * memory READ notices.  
+       */
+       public interface InstructionListener {
+         /**
+          * Called on the simulation thread for each instruction as it is executed,
+          * just before it takes effect.  Keep it short; it runs once per MIPS step.
+          *
+          * @param statement the ProgramStatement being executed
+          */
+          void instructionExecuted(ProgramStatement statement);
+      }
+   
+      // Copied on write so the simulation thread can walk it without locking.
+      private volatile InstructionListener[] instructionListeners = new InstructionListener[0];
+   
+      /**
+       * Register a listener to be told of every instruction executed by this simulator.
+       * While any are registered, simulation does not use its fast run mode.
+       *
+       * @param l the listener to add
+       */
+       public synchronized void addInstructionListener(InstructionListener l) {
+         InstructionListener[] listeners = new InstructionListener[instructionListeners.length + 1];
+         System.arraycopy(instructionListeners, 0, listeners, 0, instructionListeners.length);
+         listeners[instructionListeners.length] = l;
+         instructionListeners = listeners;
+      }
+   
+      /**
+       * Remove a listener added with addInstructionListener().  Does nothing if it is
+       * not registered.
+       *
+       * @param l the listener to remove
+       */
+       public synchronized void removeInstructionListener(InstructionListener l) {
+         ArrayList<InstructionListener> listeners = new ArrayList<InstructionListener>(Arrays.asList(instructionListeners));
+         if (listeners.remove(l)) {
+            instructionListeners = listeners.toArray(new InstructionListener[listeners.size()]);
+         }
+      }
+   
+      // Exists only while it has listeners.
+      private volatile RetiredInstructionStream retiredInstructionStream = null;
+   
+      /**
+       * Register a listener to receive batches of retired instruction records, delivered
+       * on a thread of their own.  Unlike an InstructionListener it does not run on the
+       * simulation thread, which only has to fill in a record per instruction.  While
+       * any are registered, simulation does not use its fast run mode.  Must be called 
+       * on a thread to which this simulator's machine is current.
+       *
+       * @param l the listener to add
+       * @see RetiredInstructionStream
+       */
+       public synchronized void addRetiredInstructionListener(RetiredInstructionStream.Listener l) {
+         if (retiredInstructionStream == null) {
+            retiredInstructionStream = new RetiredInstructionStream(Memory.getInstance());
+         }
+         retiredInstructionStream.addListener(l);
+      }
+   
+      /**
+       * Remove a listener added with addRetiredInstructionListener().  Does nothing if it
+       * is not registered.
+       *
+       * @param l the listener to remove
+       */
+       public synchronized void removeRetiredInstructionListener(RetiredInstructionStream.Listener l) {
+         if (retiredInstructionStream != null && retiredInstructionStream.removeListener(l) == 0) {
+            retiredInstructionStream.close();
+            retiredInstructionStream = null;
+         }
+      }
+   
    	 // The Simthread object will call this method when it enters and returns from
    	 // its construct() method.  These signal start and stop, respectively, of
    	 // simulation execution.  The observer can then adjust its own state depending
@@ -181,6 +270,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       }
    
        private void notifyObserversOfExecutionStop(int maxSteps, int programCounter) {
+         SystemIO.flushFiles(); // files left open while paused show what was written so far
+         RetiredInstructionStream retired = retiredInstructionStream;
+         if (retired != null) {
+            retired.flush(); // listeners have seen every instruction before the stop notice
+         }
          this.setChanged();
          this.notifyObservers(new SimulatorNotice(SimulatorNotice.SIMULATOR_STOP,
             maxSteps, RunSpeedPanel.getInstance().getRunSpeed(), programCounter) );
@@ -207,6 +301,25 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          private volatile AbstractAction stopper;
          private AbstractAction starter;
          private int constructReturnReason;
+         private int steps;
+         private long executed;
+         private Memory memory;  // of the machine this thread simulates
+         private Object lock;
+      	
+      	// Fast run mode.  When nothing can observe the individual steps (no GUI, no run speed
+      	// panel, no memory observers or instruction listeners, no breakpoints) and neither
+      	// backstepping nor delayed branching is in effect, the user text segment is
+      	// pre-decoded into parallel arrays indexed by (pc - textBaseAddress)/4 and executed
+      	// without the per-step lock, settings lookups and statement fetch.  Anything the fast
+      	// loop does not handle itself (kernel text, undefined instructions, external
+      	// interrupts, self-modifying code) falls back to the regular loop below for at least
+      	// one step.
+         private boolean fastRun;
+         private ProgramStatement[] fastStatements;
+         private SimulationCode[] fastCode;
+         private int fastTextBase;
+         private int fastTextVersion;
+         private int lastExecutedPC;
       
       
          /**
@@ -259,6 +372,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             Thread.currentThread().setPriority(Thread.NORM_PRIORITY-1);
             Thread.yield();  // let the main thread run a bit to finish updating the GUI
          	
+            memory = Memory.getInstance();
+            lock = Machine.getCurrent().getLock();
+         	
             if (breakPoints == null || breakPoints.length == 0) {
                breakPoints = null;
             } 
@@ -271,7 +387,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             RegisterFile.initializeProgramCounter(pc);
             ProgramStatement statement = null;
             try {
-               statement = Globals.memory.getStatement(RegisterFile.getProgramCounter());
+               statement = memory.getStatement(RegisterFile.getProgramCounter());
             } 
                 catch (AddressErrorException e) {
                   ErrorList el = new ErrorList();
@@ -288,7 +404,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   Simulator.getInstance().notifyObserversOfExecutionStop(maxSteps, pc);
                   return new Boolean(done);
                }
-            int steps = 0;
+            steps = 0;
+            fastRun = fastRunPossible();
          	
          	// *******************  PS addition 26 July 2006  **********************
          	// A couple statements below were added for the purpose of assuring that when
@@ -324,12 +441,17 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          
             while (statement != null) {
                pc = RegisterFile.getProgramCounter(); // added: 7/26/06 (explanation above)
-               RegisterFile.incrementPC();           	
+               RetiredInstructionStream retired = retiredInstructionStream;
+               if (retired != null) {
+                  retired.begin(pc, statement); // may wait for the listeners, so not under the lock
+               }
+               RegisterFile.incrementPC();
+               executed++;           	
             	// Perform the MIPS instruction in synchronized block.  If external threads agree
             	// to access MIPS memory and registers only through synchronized blocks on same 
             	// lock variable, then full (albeit heavy-handed) protection of MIPS memory and 
             	// registers is assured.  Not as critical for reading from those resources.
-               synchronized (Globals.memoryAndRegistersLock) {
+               synchronized (lock) {
                   try {                      
                      if (Simulator.externalInterruptingDevice != NO_DEVICE) {
                         int deviceInterruptCode = externalInterruptingDevice;
@@ -342,15 +464,30 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                             "undefined instruction ("+Binary.intToHexString(statement.getBinaryStatement())+")",
                             Exceptions.RESERVED_INSTRUCTION_EXCEPTION);
                      }
+                     InstructionListener[] listeners = instructionListeners;
+                     for (int i = 0; i < listeners.length; i++) {
+                        listeners[i].instructionExecuted(statement);
+                     }
                      // THIS IS WHERE THE INSTRUCTION EXECUTION IS ACTUALLY SIMULATED!
                      instruction.getSimulationCode().simulate(statement);
+                     if (retired != null) {
+                        retired.retire();
+                     }
                   	
                   	// IF statement added 7/26/06 (explanation above)
                      if (Globals.getSettings().getBackSteppingEnabled()) {
-                        Globals.program.getBackStepper().addDoNothing(pc);
+                        Machine.getCurrent().getBackStepper().addDoNothing(pc);
                      }
                   } 
                       catch (ProcessingException pe) {
+                        if (retired != null) {
+                           if (pe.errors() == null) {
+                              retired.retire(); // exit syscall
+                           } 
+                           else {
+                              retired.abandon();
+                           }
+                        }
                         if (pe.errors() == null) {
                            this.constructReturnReason = NORMAL_TERMINATION;
                            this.done = true;
@@ -366,7 +503,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                         	// MIPS program with appropriate error message.
                            ProgramStatement exceptionHandler = null;
                            try {
-                              exceptionHandler = Globals.memory.getStatement(Memory.exceptionHandlerAddress);
+                              exceptionHandler = memory.getStatement(Memory.exceptionHandlerAddress);
                            } 
                                catch (AddressErrorException aee) { } // will not occur with this well-known addres
                            if (exceptionHandler != null) {
@@ -437,11 +574,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                   }
                }
                
+               // Let the fast loop take over for as long as it can.  It returns true if
+               // execution ended there, or false to hand the next step back to this loop.
+               if (fastRun) {
+                  lastExecutedPC = pc;
+                  if (runFast()) {
+                     return new Boolean(done);
+                  }
+                  pc = lastExecutedPC;
+               }
             
                // Get next instruction in preparation for next iteration.
             
                try {
-                  statement = Globals.memory.getStatement(RegisterFile.getProgramCounter());
+                  statement = memory.getStatement(RegisterFile.getProgramCounter());
                } 
                    catch (AddressErrorException e) {
                      ErrorList el = new ErrorList();
@@ -475,6 +621,118 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             Simulator.getInstance().notifyObserversOfExecutionStop(maxSteps, pc);
             return new Boolean(done); // true;  // execution completed
          }
+      	
+      	/*
+      	 * Decide once, before the first step, whether this run may use the fast loop.
+      	 * None of these conditions can change during a command-line run.  The run speed
+      	 * panel exists in every run, since the simulator asks it for the run speed, so
+      	 * only a speed limit set on it by a stand-alone tool rules the fast loop out.
+      	 */
+          private boolean fastRunPossible() {
+            return Globals.getGui() == null
+                && (!Globals.runSpeedPanelExists 
+                   || RunSpeedPanel.getInstance().getRunSpeed() >= RunSpeedPanel.UNLIMITED_SPEED)
+                && breakPoints == null 
+                && memory.countObservers() == 0
+                && !memory.hasFetchListeners()
+                && instructionListeners.length == 0
+                && retiredInstructionStream == null
+                && !Globals.getSettings().getBackSteppingEnabled()
+                && !Globals.getSettings().getDelayedBranchingEnabled();
+         }
+      	
+      	/*
+      	 * Build the pre-decoded copy of the user text segment.  A null entry in fastCode
+      	 * means the statement is missing or undefined and must go through the regular loop,
+      	 * which produces the proper error or cliff termination.
+      	 */
+          private void predecodeText() {
+            fastTextVersion = memory.getTextSegmentVersion();
+            fastTextBase = Memory.textBaseAddress;
+            fastStatements = memory.getTextSegmentStatements();
+            fastCode = new SimulationCode[fastStatements.length];
+            for (int i = 0; i < fastStatements.length; i++) {
+               if (fastStatements[i] != null && fastStatements[i].getInstruction() instanceof BasicInstruction) {
+                  fastCode[i] = ((BasicInstruction) fastStatements[i].getInstruction()).getSimulationCode();
+               }
+            }
+         }
+      	
+      	/*
+      	 * The fast loop.  Executes instructions from the pre-decoded arrays until either
+      	 * execution ends (returns true, with constructReturnReason, done and pe set and
+      	 * observers notified) or the next instruction needs the regular loop (returns false).
+      	 * Architectural results are identical to the regular loop under the conditions
+      	 * checked by fastRunPossible().
+      	 */
+          private boolean runFast() {
+            if (fastStatements == null || fastTextVersion != memory.getTextSegmentVersion()) {
+               predecodeText();
+            }
+            ProgramStatement[] statements = fastStatements;
+            SimulationCode[] code = fastCode;
+            int base = fastTextBase;
+            int version = fastTextVersion;
+            int pc = lastExecutedPC;
+            while (true) {
+               int next = RegisterFile.getProgramCounter();
+               int index = (next - base) >> 2;
+               if ((next & 3) != 0 || index < 0 || index >= code.length || code[index] == null
+                   || Simulator.externalInterruptingDevice != NO_DEVICE) {
+                  lastExecutedPC = pc;
+                  return false;
+               }
+               pc = next;
+               RegisterFile.incrementPC();
+               executed++;
+               try {
+                  code[index].simulate(statements[index]);
+               } 
+                   catch (ProcessingException pe) {
+                     if (pe.errors() == null) {
+                        this.constructReturnReason = NORMAL_TERMINATION;
+                        this.done = true;
+                        SystemIO.resetFiles(); // close any files opened in MIPS program
+                        Simulator.getInstance().notifyObserversOfExecutionStop(maxSteps, pc);
+                        return true;
+                     }
+                     ProgramStatement exceptionHandler = null;
+                     try {
+                        exceptionHandler = memory.getStatement(Memory.exceptionHandlerAddress);
+                     } 
+                         catch (AddressErrorException aee) { } // will not occur with this well-known addres
+                     if (exceptionHandler == null) {
+                        this.constructReturnReason = EXCEPTION;
+                        this.pe = pe;
+                        this.done = true;
+                        SystemIO.resetFiles(); // close any files opened in MIPS program
+                        Simulator.getInstance().notifyObserversOfExecutionStop(maxSteps, pc);
+                        return true;
+                     }
+                     // Handler lives in kernel text, which the regular loop will fetch.
+                     RegisterFile.setProgramCounter(Memory.exceptionHandlerAddress);
+                  }
+               if (stop == true) { 
+                  this.constructReturnReason = PAUSE_OR_STOP;
+                  this.done = false;
+                  Simulator.getInstance().notifyObserversOfExecutionStop(maxSteps, pc);
+                  return true;
+               }
+               if (maxSteps > 0) {
+                  steps++;
+                  if (steps >= maxSteps) {
+                     this.constructReturnReason = MAX_STEPS;
+                     this.done = false;
+                     Simulator.getInstance().notifyObserversOfExecutionStop(maxSteps, pc);
+                     return true;
+                  }
+               }
+               if (version != memory.getTextSegmentVersion()) {
+                  lastExecutedPC = pc;  // self-modifying code; re-decode on next entry
+                  return false;
+               }
+            }
+         }
          
       	
       	/**
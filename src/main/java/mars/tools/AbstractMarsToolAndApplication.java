@@ -10,6 +10,8 @@
    import mars.util.*;
    import mars.tools.*;
    import mars.mips.hardware.*;
+   import mars.simulator.RetiredInstructionStream;
+   import mars.simulator.Simulator;
 
 /*
 Copyright (c) 2003-2008,  Pete Sanderson and Kenneth Vollmar
@@ -78,6 +80,9 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// Several structures required for stand-alone use only (not MarsTool use)
       private File mostRecentlyOpenedFile = null; 
       private Runnable interactiveGUIUpdater = new GUIUpdater();
+      private javax.swing.Timer displayRefreshTimer;
+      /** Milliseconds between display refreshes while listening to executed or retired instructions */
+      public static final int DISPLAY_REFRESH_INTERVAL = 100;
       private MessageField operationStatusMessages;
       private JButton openFileButton, assembleRunButton, stopButton;
       private boolean multiFileAssemble = false;
@@ -564,6 +569,72 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             reg.deleteObserver(thisMarsApp);
          }
       }
+   
+      /**
+   	 *  Have the simulator report every instruction it executes to the given listener,
+   	 *  normally this app/tool.  This is far cheaper than observing text segment READs.
+   	 *  The listener is called on the MIPS thread, so it should just count or record;
+   	 *  updateDisplay() is then called on the GUI thread every DISPLAY_REFRESH_INTERVAL
+   	 *  milliseconds until deleteAsInstructionListener() is called.
+   	 *  @param listener the listener to add
+   	 */
+       protected void addAsInstructionListener(Simulator.InstructionListener listener) {
+         Machine.getDefault().getSimulator().addInstructionListener(listener);
+         startDisplayRefresh();
+      }
+   
+      /**
+   	 *  Stop reporting executed instructions to the given listener and stop the periodic
+   	 *  display refresh, after one final updateDisplay().
+   	 *  @param listener the listener to remove
+   	 */
+       protected void deleteAsInstructionListener(Simulator.InstructionListener listener) {
+         Machine.getDefault().getSimulator().removeInstructionListener(listener);
+         stopDisplayRefresh();
+      }
+   
+      /**
+   	 *  Have the simulator send records of the instructions it retires, in batches, to
+   	 *  the given listener, normally this app/tool.  Batches arrive on a thread of
+   	 *  their own, so the listener may do more work per instruction than an
+   	 *  InstructionListener without slowing the MIPS program much.  updateDisplay() is
+   	 *  called on the GUI thread every DISPLAY_REFRESH_INTERVAL milliseconds until
+   	 *  deleteAsRetiredInstructionListener() is called.
+   	 *  @param listener the listener to add
+   	 */
+       protected void addAsRetiredInstructionListener(RetiredInstructionStream.Listener listener) {
+         Machine.getDefault().getSimulator().addRetiredInstructionListener(listener);
+         startDisplayRefresh();
+      }
+   
+      /**
+   	 *  Stop sending retired instruction records to the given listener and stop the
+   	 *  periodic display refresh, after one final updateDisplay().
+   	 *  @param listener the listener to remove
+   	 */
+       protected void deleteAsRetiredInstructionListener(RetiredInstructionStream.Listener listener) {
+         Machine.getDefault().getSimulator().removeRetiredInstructionListener(listener);
+         stopDisplayRefresh();
+      }
+   
+       private void startDisplayRefresh() {
+         if (displayRefreshTimer == null) {
+            displayRefreshTimer = new javax.swing.Timer(DISPLAY_REFRESH_INTERVAL, 
+                   new ActionListener() {
+                      public void actionPerformed(ActionEvent e) {
+                        updateDisplay();
+                     }
+                  });
+         }
+         displayRefreshTimer.start();
+      }
+   
+       private void stopDisplayRefresh() {
+         if (displayRefreshTimer != null) {
+            displayRefreshTimer.stop();
+         }
+         SwingUtilities.invokeLater(interactiveGUIUpdater);
+      }
    	
    	/**
    	 * Query method to let you know if the tool/app is (or could be) currently 
@@ -29,16 +29,12 @@ package mars.tools;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Observable;
 
 import javax.swing.JComponent;
 
 import mars.ProgramStatement;
-import mars.mips.hardware.AccessNotice;
-import mars.mips.hardware.AddressErrorException;
-import mars.mips.hardware.Memory;
-import mars.mips.hardware.MemoryAccessNotice;
-import mars.mips.hardware.RegisterFile;
+import mars.mips.instructions.Instruction;
+import mars.simulator.RetiredInstructionStream;
 //import mars.tools.bhtsim.BHTSimGUI;
 //import mars.tools.bhtsim.BHTableModel;
 
@@ -46,7 +42,7 @@ import mars.mips.hardware.RegisterFile;
 /**
  * A MARS tool for simulating branch prediction with a Branch History Table (BHT)
  * <p>
- * The simulation is based on observing the access to the instruction memory area (text segment). 
+ * The simulation is based on the stream of instructions retired by the simulator. 
  * If a branch instruction is encountered, a prediction based on a BHT is performed. 
  * The outcome of the branch is compared with the prediction and the prediction is updated accordingly.
  * Statistics about the correct and incorrect number of predictions can be obtained for each BHT entry.  
@@ -59,7 +55,7 @@ import mars.mips.hardware.RegisterFile;
  * @author ingo.kofler@itec.uni-klu.ac.at
  */
 //@SuppressWarnings("serial")
-public class BHTSimulator extends AbstractMarsToolAndApplication implements ActionListener {
+public class BHTSimulator extends AbstractMarsToolAndApplication implements ActionListener, RetiredInstructionStream.Listener {
 	
 	
 	/** constant for the default size of the BHT */
@@ -86,11 +82,8 @@ public class BHTSimulator extends AbstractMarsToolAndApplication implements Acti
 	/** the model of the BHT */
 	private BHTableModel m_bhtModel;
 			
-	/** state variable that indicates that the last instruction was a branch instruction (if address != 0) or not (address == 0) */
-	private int m_pendingBranchInstAddress;
-	
-	/** state variable that signals if the last branch was taken */
-	private boolean m_lastBranchTaken;
+	/** state variable that signals that the GUI still shows the last branch instruction */
+	private boolean m_branchShown;
 	
 	
 	/**
@@ -102,11 +95,18 @@ public class BHTSimulator extends AbstractMarsToolAndApplication implements Acti
 	
 	
 	/**
-	 *  Adds BHTSimulator as observer of the text segment.
+	 *  Registers BHTSimulator to receive the retired instruction stream.
 	 */
 	protected void addAsObserver() { 
-		addAsObserver(Memory.textBaseAddress, Memory.textLimitAddress);
-		addAsObserver(RegisterFile.getProgramCounterRegister());
+		addAsRetiredInstructionListener(this);
+	}
+	
+	
+	/**
+	 *  Stops BHTSimulator from receiving the retired instruction stream.
+	 */
+	protected void deleteAsObserver() { 
+		deleteAsRetiredInstructionListener(this);
 	}
 	
 	
@@ -173,8 +173,7 @@ public class BHTSimulator extends AbstractMarsToolAndApplication implements Acti
 				((Integer)m_gui.getCbBHThistory().getSelectedItem()).intValue(), 
 				((String)m_gui.getCbBHTinitVal().getSelectedItem()).equals(BHTSimGUI.BHT_TAKE_BRANCH));		
 		
-		m_pendingBranchInstAddress = 0;
-		m_lastBranchTaken = false;
+		m_branchShown = false;
 	}
 	
 	
@@ -260,46 +259,6 @@ public class BHTSimulator extends AbstractMarsToolAndApplication implements Acti
 	}
 	
 	
-	/**
-	 * Checks if the branch instruction delivered as parameter will branch or not.
-	 * 
-	 * @param stmt the branch instruction to be investigated
-	 * @return true if the branch will be taken, otherwise false
-	 */	
-	protected static boolean willBranch(ProgramStatement stmt) {
-		int opCode = stmt.getBinaryStatement() >>> (32-6);
-		int funct = stmt.getBinaryStatement() & 0x1F;
-		int rs = stmt.getBinaryStatement() >>> (32-6-5) & 0x1F;
-		int rt = stmt.getBinaryStatement() >>> (32-6-5-5) & 0x1F;
-		
-		int valRS = RegisterFile.getRegisters()[rs].getValue();
-		int valRT = RegisterFile.getRegisters()[rt].getValue();
-					
-		
-		if (opCode == 0x01) {
-			switch (funct) {			
-			case 0x00: return valRS < 0; // bltz
-			case 0x01: return valRS >= 0; // bgez
-			case 0x02: return valRS < 0; // bltzl
-			case 0x03: return valRS >= 0; // bgezl			
-			}
-		}
-
-		switch (opCode) {
-		case 0x04: return valRS == valRT;
-		case 0x05: return valRS != valRT;
-		case 0x06: return valRS <= 0;
-		case 0x07: return valRS >= 0;
-		case 0x14: return valRS == valRT;
-		case 0x15: return valRS != valRT;
-		case 0x16: return valRS <= 0;
-		case 0x17: return valRS >= 0;
-		}
-		
-		return true;
-	}
-	
-	
 	/**
 	 * Extracts the target address of the branch.
 	 * 
@@ -316,72 +275,34 @@ public class BHTSimulator extends AbstractMarsToolAndApplication implements Acti
 	
 	
 	/**
-	 * Callback for text segment access by the MIPS simulator.
+	 * Callback for instructions retired by the MIPS simulator.
 	 * 
-	 * The method is called each time the text segment is accessed to fetch the next instruction.
-	 * If the next instruction to execute was a branch instruction, the branch prediction is performed and visualized.
-	 * In case the last instruction was a branch instruction, the outcome of the branch prediction is analyzed and visualized.
+	 * For each branch instruction the branch prediction is performed and visualized, and
+	 * the outcome of the branch, known from the target the record gives for a taken branch, is analyzed and visualized.
+	 * The display of a branch is cleared once a non-branch instruction follows it.
 	 *
-	 * @param resource the observed resource
-	 * @param notice signals the type of access (memory, register etc.)
+	 * @param batch the instructions retired since the last batch
 	 */
-	protected void processMIPSUpdate(Observable resource, AccessNotice notice) {
-				
-		if (!notice.accessIsFromMIPS()) return;
-			
+	public void instructionsRetired(RetiredInstructionStream.Batch batch) {
 		
-		if (notice.getAccessType() == AccessNotice.READ && notice instanceof MemoryAccessNotice) {			
+		for (int i = 0; i < batch.size(); i++) {
 			
-			// now it is safe to make a cast of the notice
-			MemoryAccessNotice memAccNotice = (MemoryAccessNotice) notice;
+			ProgramStatement stmt = batch.getStatement(i);
 			
-			try {				
-				// access the statement in the text segment without notifying other tools etc.
-				ProgramStatement stmt = Memory.getInstance().getStatementNoNotify(memAccNotice.getAddress());
-				
-				// necessary to handle possible null pointers at the end of the program 
-				// (e.g., if the simulator tries to execute the next instruction after the last instruction in the text segment) 
-				if (stmt != null) {								
-					
-					boolean clearTextFields = true;
-					
-					// first, check if there's a pending branch to handle
-					if (m_pendingBranchInstAddress != 0) {						
-						handleExecBranchInst(m_pendingBranchInstAddress, m_lastBranchTaken);
-						clearTextFields = false;
-						m_pendingBranchInstAddress = 0;
-					}
-					
-					
-					// if current instruction is branch instruction
-					if (BHTSimulator.isBranchInstruction(stmt)) {						
-						handlePreBranchInst(stmt);
-						m_lastBranchTaken = willBranch(stmt);
-						m_pendingBranchInstAddress = stmt.getAddress();
-						clearTextFields = false;
-					}
-
-					
-					// clear text fields and selection
-					if (clearTextFields) {
-						m_gui.getTfInstruction().setText("");
-						m_gui.getTfAddress().setText("");
-						m_gui.getTfIndex().setText("");
-						m_gui.getTabBHT().clearSelection();						
-					}
-				}					
-				else {
-					// check if there's a pending branch to handle
-					if (m_pendingBranchInstAddress != 0) {						
-						handleExecBranchInst(m_pendingBranchInstAddress, m_lastBranchTaken);						
-						m_pendingBranchInstAddress = 0;
-					}
-				}
-			} 
-			catch (AddressErrorException e) {			
-				// silently ignore these exceptions
-			}			
-					
+			if (BHTSimulator.isBranchInstruction(stmt)) {
+				handlePreBranchInst(stmt);
+				handleExecBranchInst(stmt.getAddress(), 
+						batch.getNextAddress(i) != stmt.getAddress() + Instruction.INSTRUCTION_LENGTH);
+				m_branchShown = true;
+			}
+			else if (m_branchShown) {
+				// clear text fields and selection
+				m_gui.getTfInstruction().setText("");
+				m_gui.getTfAddress().setText("");
+				m_gui.getTfIndex().setText("");
+				m_gui.getTabBHT().clearSelection();
+				m_branchShown = false;
+			}
 		}
 	}
 }
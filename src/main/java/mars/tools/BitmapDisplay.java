@@ -1,6 +1,7 @@
 package mars.tools;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.*;
 import java.util.*;
 import javax.swing.*;
 import javax.swing.border.*;
@@ -156,8 +157,7 @@ public class BitmapDisplay extends AbstractMarsToolAndApplication {
 
       if (MemAccess.getAddress() ==
           this.baseAddress - Memory.WORD_LENGTH_BYTES) {
-        this.canvas.repaint();
-        this.theWindow.repaint();
+        repaintDirtyArea();
       } else {
         updateColorForAddress(MemAccess);
       }
@@ -476,6 +476,21 @@ public class BitmapDisplay extends AbstractMarsToolAndApplication {
     return new Grid(rows, columns);
   }
 
+  // Repaint the part of the canvas covering grid elements written since the
+  // last repaint, and start a new dirty rectangle.
+  private void repaintDirtyArea() {
+    Grid grid = theGrid;
+    if (grid.isDirty()) {
+      canvas.repaint(grid.dirtyMinColumn * unitPixelWidth,
+                     grid.dirtyMinRow * unitPixelHeight,
+                     (grid.dirtyMaxColumn - grid.dirtyMinColumn + 1) *
+                         unitPixelWidth,
+                     (grid.dirtyMaxRow - grid.dirtyMinRow + 1) *
+                         unitPixelHeight);
+      grid.clearDirty();
+    }
+  }
+
   // Given memory address, update color for the corresponding grid element.
   private void updateColorForAddress(MemoryAccessNotice notice) {
     int address = notice.getAddress();
@@ -503,31 +518,28 @@ public class BitmapDisplay extends AbstractMarsToolAndApplication {
     // the panel is repainted.
     public void paint(Graphics g) { paintGrid(g, theGrid); }
 
-    // Paint the color codes.
+    // Paint the color codes: the grid image scaled to the unit size.  Only the
+    // clip area, which is the dirty rectangle for a frame, is drawn.
     private void paintGrid(Graphics g, Grid grid) {
-      int upperLeftX = 0, upperLeftY = 0;
-      for (int i = 0; i < grid.getRows(); i++) {
-        for (int j = 0; j < grid.getColumns(); j++) {
-          g.setColor(grid.getElementFast(i, j));
-          g.fillRect(upperLeftX, upperLeftY, unitPixelWidth, unitPixelHeight);
-          upperLeftX += unitPixelWidth; // faster than multiplying
-        }
-        // get ready for next row...
-        upperLeftX = 0;
-        upperLeftY += unitPixelHeight; // faster than multiplying
-      }
+      g.drawImage(grid.getImage(), 0, 0, grid.getColumns() * unitPixelWidth,
+                  grid.getRows() * unitPixelHeight, null);
     }
   }
 
   ////////////////////////////////////////////////////////////////////////
-  // Represents grid of colors
+  // Represents grid of colors, one pixel per element of an RGB image, and the
+  // rectangle of elements written since the last repaint.
   private class Grid {
 
-    Color[][] grid;
+    BufferedImage image;
+    int[] pixels;
     int rows, columns;
+    // Bounds of the dirty rectangle; empty when dirtyMinRow > dirtyMaxRow.
+    int dirtyMinRow, dirtyMinColumn, dirtyMaxRow, dirtyMaxColumn;
 
     private Grid(int rows, int columns) {
-      grid = new Color[rows][columns];
+      image = new BufferedImage(columns, rows, BufferedImage.TYPE_INT_RGB);
+      pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
       this.rows = rows;
       this.columns = columns;
       reset();
@@ -537,39 +549,55 @@ public class BitmapDisplay extends AbstractMarsToolAndApplication {
 
     private int getColumns() { return columns; }
 
+    private BufferedImage getImage() { return image; }
+
     // Returns value in given grid element; null if row or column is out of
     // range.
     private Color getElement(int row, int column) {
-      return (row >= 0 && row <= rows && column >= 0 && column <= columns)
-          ? grid[row][column]
+      return (row >= 0 && row < rows && column >= 0 && column < columns)
+          ? new Color(pixels[row * columns + column])
           : null;
     }
 
-    // Returns value in given grid element without doing any row/column index
-    // checking. Is faster than getElement but will throw array index out of
-    // bounds exception if parameter values are outside the bounds of the
-    // grid.
-    private Color getElementFast(int row, int column) {
-      return grid[row][column];
-    }
-
-    // Set the grid element.
+    // Set the grid element.  Throws array index out of bounds exception if
+    // row or column is outside the grid.
     private void setElement(int row, int column, int color) {
-      grid[row][column] = new Color(color);
+      if (column < 0 || column >= columns) {
+        throw new ArrayIndexOutOfBoundsException(column);
+      }
+      pixels[row * columns + column] = color;
+      if (row < dirtyMinRow) {
+        dirtyMinRow = row;
+      }
+      if (row > dirtyMaxRow) {
+        dirtyMaxRow = row;
+      }
+      if (column < dirtyMinColumn) {
+        dirtyMinColumn = column;
+      }
+      if (column > dirtyMaxColumn) {
+        dirtyMaxColumn = column;
+      }
     }
 
     // Set the grid element.
     private void setElement(int row, int column, Color color) {
-      grid[row][column] = color;
+      setElement(row, column, color.getRGB());
+    }
+
+    private boolean isDirty() { return dirtyMinRow <= dirtyMaxRow; }
+
+    private void clearDirty() {
+      dirtyMinRow = rows;
+      dirtyMinColumn = columns;
+      dirtyMaxRow = -1;
+      dirtyMaxColumn = -1;
     }
 
     // Just set all grid elements to black.
     private void reset() {
-      for (int i = 0; i < rows; i++) {
-        for (int j = 0; j < columns; j++) {
-          grid[i][j] = Color.BLACK;
-        }
-      }
+      Arrays.fill(pixels, 0);
+      clearDirty();
     }
   }
 }
\ No newline at end of file
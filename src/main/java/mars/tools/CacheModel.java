@@ -0,0 +1,298 @@
+   package mars.tools;
+   import java.util.*;
+   import mars.mips.hardware.*;
+
+/*
+Copyright (c) 2003-2011,  Pete Sanderson and Kenneth Vollmar
+
+Developed by Pete Sanderson (psanderson@otterbein.edu)
+and Kenneth Vollmar (kenvollmar@missouristate.edu)
+
+Permission is hereby granted, free of charge, to any person obtaining
+a copy of this software and associated documentation files (the
+"Software"), to deal in the Software without restriction, including
+without limitation the rights to use, copy, modify, merge, publish,
+distribute, sublicense, and/or sell copies of the Software, and to
+permit persons to whom the Software is furnished to do so, subject
+to the following conditions:
+
+The above copyright notice and this permission notice shall be
+included in all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR
+ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+
+(MIT license, http://www.opensource.org/licenses/mit-license.html)
+ */
+
+   /**
+	 * Model of one level of a data cache, with no user interface.  It is used by the
+	 * CacheSimulator tool and, through CacheSweep, from the command line.
+	 * <p>
+	 * Any of the well-known organizations can be modeled.  The address is partitioned
+	 * depending on organization:
+	 * <pre>
+	 *    Direct Mapping:    [ tag | block | word | byte ]
+	 *    Fully Associative: [ tag | word | byte ]
+	 *    Set Associative:   [ tag | set | word | byte ]
+	 * </pre>
+	 * Direct mapping is set associative with one block per set, and fully associative
+	 * is set associative with a single set.  A set is searched for the tag; if it is
+	 * found the access is a hit.  Otherwise it is a miss, and the tag occupies the
+	 * first empty block in the set, or if there is none, a block chosen by the
+	 * replacement policy.  Only tags are kept, since only performance is simulated.
+	 * <p>
+	 * A miss is passed on to the next level, if one has been set, so that chains of
+	 * models simulate multi-level hierarchies.
+	 *
+	 * @version October 2026
+	 */
+    public class CacheModel {
+      /** Replace the least recently used block of a full set. */
+      public static final int LRU = 0;
+      /** Replace a randomly chosen block of a full set. */
+      public static final int RANDOM = 1;
+
+      private final int numberOfBlocks, blockSizeInWords, setSizeInBlocks, numberOfSets;
+      private final int offsetBits, setMask, setBits;
+      private int replacementPolicy;
+      private CacheModel nextLevel;
+
+      // One element per block.  A block is empty while its access time is 0.
+      private final int[] tags;
+      private final long[] mostRecentAccessTimes;
+
+      private long accessCount, hitCount;
+      private int lastBlock;
+      private boolean lastReplaced;
+      private Random randu;
+
+   	/**
+   	 * Create an empty cache.  All sizes must be powers of 2.
+   	 *
+   	 * @param numberOfBlocks total number of blocks in the cache
+   	 * @param blockSizeInWords number of words in each block
+   	 * @param setSizeInBlocks number of blocks in each set: 1 for direct mapping,
+   	 *   numberOfBlocks for fully associative
+   	 * @param replacementPolicy LRU or RANDOM
+   	 * @throws IllegalArgumentException if a size is not a power of 2, or the set size
+   	 *   exceeds the number of blocks
+   	 */
+       public CacheModel(int numberOfBlocks, int blockSizeInWords, int setSizeInBlocks, int replacementPolicy) {
+         if (!isPowerOfTwo(numberOfBlocks) || !isPowerOfTwo(blockSizeInWords) || !isPowerOfTwo(setSizeInBlocks)) {
+            throw new IllegalArgumentException("cache sizes must be powers of 2");
+         }
+         if (setSizeInBlocks > numberOfBlocks) {
+            throw new IllegalArgumentException("set size exceeds number of blocks");
+         }
+         setReplacementPolicy(replacementPolicy);
+         this.numberOfBlocks = numberOfBlocks;
+         this.blockSizeInWords = blockSizeInWords;
+         this.setSizeInBlocks = setSizeInBlocks;
+         this.numberOfSets = numberOfBlocks / setSizeInBlocks;
+         this.offsetBits = Integer.numberOfTrailingZeros(blockSizeInWords * Memory.WORD_LENGTH_BYTES);
+         this.setBits = Integer.numberOfTrailingZeros(numberOfSets);
+         this.setMask = numberOfSets - 1;
+         this.tags = new int[numberOfBlocks];
+         this.mostRecentAccessTimes = new long[numberOfBlocks];
+         reset();
+      }
+
+       private static boolean isPowerOfTwo(int n) {
+         return n > 0 && (n & (n - 1)) == 0;
+      }
+
+   	/**
+   	 * Set the cache to which misses in this one are passed.
+   	 * @param nextLevel the next level, or null if this is the last
+   	 */
+       public void setNextLevel(CacheModel nextLevel) {
+         this.nextLevel = nextLevel;
+      }
+
+       public CacheModel getNextLevel() {
+         return nextLevel;
+      }
+
+   	/**
+   	 * @param replacementPolicy LRU or RANDOM, used from the next replacement on
+   	 */
+       public void setReplacementPolicy(int replacementPolicy) {
+         if (replacementPolicy != LRU && replacementPolicy != RANDOM) {
+            throw new IllegalArgumentException("unknown replacement policy "+replacementPolicy);
+         }
+         this.replacementPolicy = replacementPolicy;
+      }
+
+       public int getReplacementPolicy() {
+         return replacementPolicy;
+      }
+
+       public int getNumberOfBlocks() {
+         return numberOfBlocks;
+      }
+
+       public int getNumberOfSets() {
+         return numberOfSets;
+      }
+
+       public int getSetSizeInBlocks() {
+         return setSizeInBlocks;
+      }
+
+       public int getBlockSizeInWords() {
+         return blockSizeInWords;
+      }
+
+       public int getCacheSizeInBytes() {
+         return numberOfBlocks * blockSizeInWords * Memory.WORD_LENGTH_BYTES;
+      }
+
+   	/**
+   	 * Empty the cache, zero its counts and restart its random replacement sequence,
+   	 * and do the same for the levels after it.
+   	 */
+       public void reset() {
+         Arrays.fill(tags, 0);
+         Arrays.fill(mostRecentAccessTimes, 0);
+         accessCount = 0;
+         hitCount = 0;
+         lastBlock = 0;
+         lastReplaced = false;
+         randu = new Random(0);
+         if (nextLevel != null) {
+            nextLevel.reset();
+         }
+      }
+
+       public int getSetNumber(int address) {
+         return (address >>> offsetBits) & setMask;
+      }
+
+       public int getTag(int address) {
+         return address >>> offsetBits >>> setBits;
+      }
+
+   	/**
+   	 * @return number of the first block in the set the address maps to
+   	 */
+       public int getFirstBlockToSearch(int address) {
+         return getSetNumber(address) * setSizeInBlocks;
+      }
+
+   	/**
+   	 * @return number of the last block in the set the address maps to
+   	 */
+       public int getLastBlockToSearch(int address) {
+         return getFirstBlockToSearch(address) + setSizeInBlocks - 1;
+      }
+
+   	/**
+   	 * Look up an address, reading its block in on a miss.  A miss is then passed on
+   	 * to the next level.
+   	 *
+   	 * @param address the byte address accessed
+   	 * @return true if the access is a hit
+   	 */
+       public boolean access(int address) {
+         long time = ++accessCount;
+         int tag = getTag(address);
+         int first = getFirstBlockToSearch(address);
+         int last = first + setSizeInBlocks - 1;
+         lastReplaced = false;
+         // Blocks of a set fill in order and are never emptied, so the first empty
+      	// block ends the search.
+         for (int block = first; block <= last; block++) {
+            if (mostRecentAccessTimes[block] == 0) {
+               tags[block] = tag;
+               mostRecentAccessTimes[block] = time;
+               lastBlock = block;
+               return miss(address);
+            }
+            if (tags[block] == tag) {
+               mostRecentAccessTimes[block] = time;
+               lastBlock = block;
+               hitCount++;
+               return true;
+            }
+         }
+         int block = selectBlockToReplace(first, last);
+         tags[block] = tag;
+         mostRecentAccessTimes[block] = time;
+         lastBlock = block;
+         lastReplaced = true;
+         return miss(address);
+      }
+
+       private boolean miss(int address) {
+         if (nextLevel != null) {
+            nextLevel.access(address);
+         }
+         return false;
+      }
+
+   	// Called if all blocks in the set are full.  Picks one to replace based on
+   	// the replacement policy.
+       private int selectBlockToReplace(int first, int last) {
+         if (first == last) {
+            return first;
+         }
+         if (replacementPolicy == RANDOM) {
+            return first + randu.nextInt(last - first + 1);
+         }
+         int replaceBlock = first;
+         for (int block = first + 1; block <= last; block++) {
+            if (mostRecentAccessTimes[block] < mostRecentAccessTimes[replaceBlock]) {
+               replaceBlock = block;
+            }
+         }
+         return replaceBlock;
+      }
+
+   	/**
+   	 * @return the block in which the last access found or stored its address
+   	 */
+       public int getLastBlock() {
+         return lastBlock;
+      }
+
+   	/**
+   	 * @return true if the last access was a miss in a full set, so a block was replaced
+   	 */
+       public boolean wasLastAccessReplacement() {
+         return lastReplaced;
+      }
+
+       public long getAccessCount() {
+         return accessCount;
+      }
+
+       public long getHitCount() {
+         return hitCount;
+      }
+
+       public long getMissCount() {
+         return accessCount - hitCount;
+      }
+
+   	/**
+   	 * @return fraction of accesses that were hits, or 0 if there were none
+   	 */
+       public double getHitRate() {
+         return (accessCount == 0) ? 0.0 : hitCount / (double) accessCount;
+      }
+
+   	/**
+   	 * @return the organization of this level, e.g. "64x4x2:lru" for 64 blocks of 4
+   	 *   words in 2-block sets with LRU replacement
+   	 */
+       public String toString() {
+         return numberOfBlocks + "x" + blockSizeInWords + "x" + setSizeInBlocks
+            + ((replacementPolicy == RANDOM) ? ":random" : ":lru");
+      }
+   }
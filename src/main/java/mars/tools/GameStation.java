@@ -27,6 +27,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.util.Observable;
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
@@ -55,6 +56,9 @@ public class GameStation extends AbstractMarsToolAndApplication {
 
   private JTextArea logArea; // New log area
 
+  // Whole display buffer, read from memory in one bulk copy on each redraw
+  private int[] frame = new int[width * height];
+
   private int baseAddress = 0x10080000;
   private int keyPressAddress;
   private int keyReleaseAddress;
@@ -89,17 +93,12 @@ public class GameStation extends AbstractMarsToolAndApplication {
   }
 
   /**
-   * Set up our tool to observe memory
+   * Set up our tool to observe memory.  Only the key and redraw words are
+   * observed; the display buffer itself is read in bulk when a redraw is
+   * requested, so pixel writes cost nothing while the tool is connected.
    */
   protected void addAsObserver() {
-    int highAddress =
-        baseAddress + (3 + width * height) * Memory.WORD_LENGTH_BYTES;
-    // Special case: baseAddress<0 means we're in kernel memory (0x80000000 and
-    // up) and most likely in memory map address space (0xffff0000 and up).  In
-    // this case, we need to make sure the high address does not drop off the
-    // high end of 32 bit address space.  Highest allowable word address is
-    // 0xfffffffc, which is interpreted in Java int as -4.
-    addAsObserver(baseAddress, highAddress);
+    addAsObserver(baseAddress, displayRedrawAddress);
   }
 
   protected void processMIPSUpdate(Observable memory,
@@ -120,29 +119,40 @@ public class GameStation extends AbstractMarsToolAndApplication {
       MemoryAccessNotice mem = (MemoryAccessNotice)accessNotice;
 
       if (mem.getAddress() == displayRedrawAddress) {
-        System.out.println("Redraw");
-        canvas.display();
-      } else if (mem.getAddress() >= displayBufferAddress &&
-                 (mem.getAddress() - displayBufferAddress) <=
-                     height * width * Memory.WORD_LENGTH_BYTES) {
-        int address = mem.getAddress() - displayBufferAddress;
-        int adr = address / Memory.WORD_LENGTH_BYTES;
-        int x = (adr) % (width);
-        int y = Math.floorDiv(adr, width);
-        int p = mem.getValue();
-
-        System.out.println(
-            String.format("%x | x = %d, y = %d | %x", address, x, y, p));
-        setPixel(x, y, p);
+        redraw();
       }
     }
   }
 
+  /**
+   * Copies the whole display buffer out of memory and hands it to the canvas,
+   * which uploads it to the PBO on its next frame.
+   */
+  private void redraw() {
+    try {
+      Globals.memory.getRawWords(displayBufferAddress, frame, 0, frame.length);
+    } catch (AddressErrorException ex) {
+      log("Error reading display buffer: " + ex.getMessage());
+      return;
+    }
+    canvas.uploadFrame(frame);
+    log("Redraw");
+  }
+
+  /**
+   * Debug output, only produced when MARS debugging is on (command option d).
+   */
+  private static void log(String message) {
+    if (Globals.debug) {
+      System.out.println(message);
+    }
+  }
+
   /**
    * Builds the main interface for the tool
    */
   protected JComponent buildMainDisplayArea() {
-    System.out.println("Build");
+    log("Build");
     JPanel panel = new JPanel();
     panel.setLayout(
         new BoxLayout(panel, BoxLayout.Y_AXIS)); // Vertical BoxLayout
@@ -282,9 +292,6 @@ public class GameStation extends AbstractMarsToolAndApplication {
 
   public void setPixel(int x, int y, int color) {
     canvas.updatePixel(x, y, color);
-    System.out.println("Set pixel at (" + x + "," + y + ") -> RGB(" +
-                       ((color >> 16) & 0xFF) + "," + ((color >> 8) & 0xFF) +
-                       "," + (color & 0xFF) + ")");
   }
 
   protected class PixelBufferCanvas
@@ -296,6 +303,10 @@ public class GameStation extends AbstractMarsToolAndApplication {
     private int pboId = -1;
     private int textureId = -1;
     private ByteBuffer pixelBuffer;
+    // View of pixelBuffer holding one 0x00RRGGBB int per pixel, uploaded as
+    // GL_BGRA / GL_UNSIGNED_INT_8_8_8_8_REV so MIPS words need no conversion.
+    // Guarded by its own monitor since the MIPS thread fills it.
+    private IntBuffer pixels;
     private volatile boolean initialized = false;
     private volatile boolean contextLost = false;
     private long frameCount = 0;
@@ -325,18 +336,17 @@ public class GameStation extends AbstractMarsToolAndApplication {
       addComponentListener(new ComponentAdapter() {
         @Override
         public void componentShown(ComponentEvent e) {
-          System.out.println("Canvas shown");
+          log("Canvas shown");
         }
 
         @Override
         public void componentHidden(ComponentEvent e) {
-          System.out.println("Canvas hidden");
+          log("Canvas hidden");
         }
 
         @Override
         public void componentResized(ComponentEvent e) {
-          System.out.println("Canvas resized to: " + getWidth() + "x" +
-                             getHeight());
+          log("Canvas resized to: " + getWidth() + "x" + getHeight());
         }
       });
     }
@@ -349,7 +359,7 @@ public class GameStation extends AbstractMarsToolAndApplication {
 
     @Override
     public void init(GLAutoDrawable drawable) {
-      System.out.println("OpenGL Init called");
+      log("OpenGL Init called");
 
       GL2 gl = drawable.getGL().getGL2();
 
@@ -374,8 +384,8 @@ public class GameStation extends AbstractMarsToolAndApplication {
                            GL2.GL_CLAMP_TO_EDGE);
 
         // Initialize texture storage
-        gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, GL2.GL_RGB8, width, height, 0,
-                        GL2.GL_RGB, GL2.GL_UNSIGNED_BYTE, null);
+        gl.glTexImage2D(GL2.GL_TEXTURE_2D, 0, GL2.GL_RGBA8, width, height, 0,
+                        GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, null);
 
         // Create PBO
         gl.glGenBuffers(1, ids, 0);
@@ -383,20 +393,21 @@ public class GameStation extends AbstractMarsToolAndApplication {
 
         // Initialize PBO
         gl.glBindBuffer(GL2.GL_PIXEL_UNPACK_BUFFER, pboId);
-        gl.glBufferData(GL2.GL_PIXEL_UNPACK_BUFFER, width * height * 3, null,
+        gl.glBufferData(GL2.GL_PIXEL_UNPACK_BUFFER, width * height * 4, null,
                         GL2.GL_STREAM_DRAW);
         gl.glBindBuffer(GL2.GL_PIXEL_UNPACK_BUFFER, 0);
 
         // Create CPU-side buffer
-        pixelBuffer = ByteBuffer.allocateDirect(width * height * 3);
+        pixelBuffer = ByteBuffer.allocateDirect(width * height * 4);
         pixelBuffer.order(ByteOrder.nativeOrder());
+        pixels = pixelBuffer.asIntBuffer();
 
         // Clear to a bright color so we can see if rendering is working
         clearPixels(0xFF00FF); // Bright magenta
 
         initialized = true;
         contextLost = false;
-        System.out.println("OpenGL initialization successful");
+        log("OpenGL initialization successful");
 
       } catch (GLException e) {
         System.err.println("OpenGL initialization failed: " + e.getMessage());
@@ -409,12 +420,12 @@ public class GameStation extends AbstractMarsToolAndApplication {
     public void display(GLAutoDrawable drawable) {
       frameCount++;
       if (frameCount % 60 == 0) { // Log every 60 frames
-        System.out.println("Frame " + frameCount +
-                           " - Canvas size: " + getWidth() + "x" + getHeight());
+        log("Frame " + frameCount + " - Canvas size: " + getWidth() + "x" +
+            getHeight());
       }
 
       if (!initialized || contextLost) {
-        System.out.println("Skipping display - Context not ready");
+        log("Skipping display - Context not ready");
         return;
       }
 
@@ -428,12 +439,15 @@ public class GameStation extends AbstractMarsToolAndApplication {
 
         // Update texture from PBO
         gl.glBindBuffer(GL2.GL_PIXEL_UNPACK_BUFFER, pboId);
-        gl.glBufferSubData(GL2.GL_PIXEL_UNPACK_BUFFER, 0, width * height * 3,
-                           pixelBuffer);
+        synchronized (pixels) {
+          pixelBuffer.rewind();
+          gl.glBufferSubData(GL2.GL_PIXEL_UNPACK_BUFFER, 0, width * height * 4,
+                             pixelBuffer);
+        }
 
         gl.glBindTexture(GL2.GL_TEXTURE_2D, textureId);
         gl.glTexSubImage2D(GL2.GL_TEXTURE_2D, 0, 0, 0, width, height,
-                           GL2.GL_RGB, GL2.GL_UNSIGNED_BYTE, 0);
+                           GL2.GL_BGRA, GL2.GL_UNSIGNED_INT_8_8_8_8_REV, 0);
 
         // Draw texture
         gl.glEnable(GL2.GL_TEXTURE_2D);
@@ -469,14 +483,14 @@ public class GameStation extends AbstractMarsToolAndApplication {
     @Override
     public void reshape(GLAutoDrawable drawable, int x, int y, int width,
                         int height) {
-      System.out.println("Reshape called: " + width + "x" + height);
+      log("Reshape called: " + width + "x" + height);
       GL2 gl = drawable.getGL().getGL2();
       gl.glViewport(0, 0, width, height);
     }
 
     @Override
     public void dispose(GLAutoDrawable drawable) {
-      System.out.println("Dispose called");
+      log("Dispose called");
       if (!initialized)
         return;
 
@@ -490,25 +504,37 @@ public class GameStation extends AbstractMarsToolAndApplication {
       if (!initialized || x < 0 || x >= width || y < 0 || y >= height)
         return;
 
-      int index = (y * width + x) * 3;
-      pixelBuffer.put(index, (byte)((color >> 16) & 0xff));    // Red
-      pixelBuffer.put(index + 1, (byte)((color >> 8) & 0xff)); // Green
-      pixelBuffer.put(index + 2, (byte)(color & 0xff));        // Blue
+      synchronized (pixels) { pixels.put(y * width + x, color); }
     }
 
-    public void clearPixels(int color) {
+    /**
+     * Replaces the whole image with the given 0x00RRGGBB pixels, row by row,
+     * in one bulk copy.  Drawn by the animator on its next frame, or right
+     * away if the canvas has no animator.
+     */
+    public void uploadFrame(int[] argb) {
       if (!initialized)
         return;
 
-      byte r = (byte)((color >> 16) & 0xff);
-      byte g = (byte)((color >> 8) & 0xff);
-      byte b = (byte)(color & 0xff);
+      synchronized (pixels) {
+        pixels.clear();
+        pixels.put(argb, 0, Math.min(argb.length, width * height));
+      }
+      if (animator == null) {
+        display();
+      }
+    }
 
-      pixelBuffer.clear();
-      for (int i = 0; i < width * height; i++) {
-        pixelBuffer.put(r).put(g).put(b);
+    public void clearPixels(int color) {
+      if (!initialized)
+        return;
+
+      synchronized (pixels) {
+        pixels.clear();
+        for (int i = 0; i < width * height; i++) {
+          pixels.put(color);
+        }
       }
-      pixelBuffer.rewind();
     }
   }
 }
\ No newline at end of file
@@ -29,7 +29,6 @@ package mars.tools;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
-import java.util.Observable;
 
 import javax.swing.JComponent;
 import javax.swing.JLabel;
@@ -38,12 +37,10 @@ import javax.swing.JProgressBar;
 import javax.swing.JTextField;
 
 import mars.ProgramStatement;
-import mars.mips.hardware.AccessNotice;
-import mars.mips.hardware.AddressErrorException;
 import mars.mips.hardware.Memory;
-import mars.mips.hardware.MemoryAccessNotice;
 import mars.mips.instructions.BasicInstruction;
 import mars.mips.instructions.BasicInstructionFormat;
+import mars.simulator.Simulator;
 
 /**
  * 
@@ -56,7 +53,7 @@ import mars.mips.instructions.BasicInstructionFormat;
  *
  */
 //@SuppressWarnings("serial")
-public class InstructionCounter extends AbstractMarsToolAndApplication {
+public class InstructionCounter extends AbstractMarsToolAndApplication implements Simulator.InstructionListener {
     private static String name    = "Instruction Counter";
     private static String version = "Version 1.0 (Felipe Lessa)";
     private static String heading = "Counting the number of instructions executed";
@@ -87,14 +84,7 @@ public class InstructionCounter extends AbstractMarsToolAndApplication {
     protected int counterJ = 0;
 	private JTextField counterJField;
 	private JProgressBar progressbarJ;
-    
-    
-    /**
-     * The last address we saw. We ignore it because the only way for a
-     * program to execute twice the same instruction is to enter an infinite
-     * loop, which is not insteresting in the POV of counting instructions.
-     */
-    protected int lastAddress = -1;
+
     
    	/**
    	 * Simple constructor, likely used to run a stand-alone memory reference visualizer.
@@ -198,46 +188,43 @@ public class InstructionCounter extends AbstractMarsToolAndApplication {
 	
 //	@Override
 	protected void addAsObserver() {
-		addAsObserver(Memory.textBaseAddress, Memory.textLimitAddress);
+		addAsInstructionListener(this);
 	}
 
 //	@Override
-	protected void processMIPSUpdate(Observable resource, AccessNotice notice) {
-		if (!notice.accessIsFromMIPS()) return;
-		if (notice.getAccessType() != AccessNotice.READ) return;
-		MemoryAccessNotice m = (MemoryAccessNotice) notice;
-		int a = m.getAddress();
-		if (a == lastAddress) return;
-		lastAddress = a;
+	protected void deleteAsObserver() {
+		deleteAsInstructionListener(this);
+	}
+
+	/**
+	 * Counts an executed instruction.  Only the user text segment is counted,
+	 * so kernel text and the exception handler are left out.  Called on the
+	 * MIPS thread; the display catches up on its own refresh timer.
+	 */
+//	@Override
+	public void instructionExecuted(ProgramStatement stmt) {
+		int a = stmt.getAddress();
+		if (a < Memory.textBaseAddress || a > Memory.textLimitAddress) return;
 		counter++;
-		try {
-			ProgramStatement stmt = Memory.getInstance().getStatement(a);
-			BasicInstruction instr = (BasicInstruction) stmt.getInstruction();
-			BasicInstructionFormat format = instr.getInstructionFormat();
-			if (format == BasicInstructionFormat.R_FORMAT)
-				counterR++;
-			else if (format == BasicInstructionFormat.I_FORMAT
-					|| format == BasicInstructionFormat.I_BRANCH_FORMAT)
-				counterI++;
-			else if (format == BasicInstructionFormat.J_FORMAT)
-				counterJ++;
-		} catch (AddressErrorException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-		updateDisplay();
+		BasicInstruction instr = (BasicInstruction) stmt.getInstruction();
+		BasicInstructionFormat format = instr.getInstructionFormat();
+		if (format == BasicInstructionFormat.R_FORMAT)
+			counterR++;
+		else if (format == BasicInstructionFormat.I_FORMAT
+				|| format == BasicInstructionFormat.I_BRANCH_FORMAT)
+			counterI++;
+		else if (format == BasicInstructionFormat.J_FORMAT)
+			counterJ++;
 	}
 	
 //	@Override
 	protected void initializePreGUI() {
 		counter = counterR = counterI = counterJ = 0;
-		lastAddress = -1;
 	}
 	
 // @Override
 	protected void reset() {
 		counter = counterR = counterI = counterJ = 0;
-		lastAddress = -1;		
 		updateDisplay();
 	}
 	
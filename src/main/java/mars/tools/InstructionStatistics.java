@@ -30,7 +30,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    import java.awt.GridBagConstraints;
    import java.awt.GridBagLayout;
    import java.awt.Insets;
-   import java.util.Observable;
 
    import javax.swing.JComponent;
    import javax.swing.JLabel;
@@ -39,10 +38,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    import javax.swing.JTextField;
 
    import mars.ProgramStatement;
-   import mars.mips.hardware.AccessNotice;
-   import mars.mips.hardware.AddressErrorException;
    import mars.mips.hardware.Memory;
-   import mars.mips.hardware.MemoryAccessNotice;
+   import mars.simulator.RetiredInstructionStream;
 
 
 /**
@@ -55,7 +52,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  *
  */
    // @SuppressWarnings("serial")
-    public class InstructionStatistics extends AbstractMarsToolAndApplication {
+    public class InstructionStatistics extends AbstractMarsToolAndApplication implements RetiredInstructionStream.Listener {
     
    /** name of the tool */
       private static String NAME    = "Instruction Statistics";
@@ -107,16 +104,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     
     /** names of the instruction categories as array */
       private String m_categoryLabels[] = { "ALU", "Jump", "Branch", "Memory", "Other" };
-    
-   
-    // From Felipe Lessa's instruction counter.  Prevent double-counting of instructions 
-    // which happens because 2 read events are generated.   
-    /**
-     * The last address we saw. We ignore it because the only way for a
-     * program to execute twice the same instruction is to enter an infinite
-     * loop, which is not insteresting in the POV of counting instructions.
-     */
-      protected int lastAddress = -1;  
+
     
    	/**
    	 * Simple constructor, likely used to run a stand-alone enhanced instruction counter.
@@ -200,11 +188,20 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
    
    /**
-    * registers the tool as observer for the text segment of the MIPS program
+    * registers the tool with the simulator to receive the retired instruction stream
     * 
     */
        protected void addAsObserver() { 
-         addAsObserver(Memory.textBaseAddress, Memory.textLimitAddress);
+         addAsRetiredInstructionListener(this);
+      }
+   
+   
+   /**
+    * stops the simulator from sending the tool retired instructions
+    * 
+    */
+       protected void deleteAsObserver() { 
+         deleteAsRetiredInstructionListener(this);
       }
    
    
@@ -263,50 +260,22 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
    	
    /**
-    * method that is called each time the MIPS simulator accesses the text segment.
-    * Before an instruction is executed by the simulator, the instruction is fetched from the program memory. 
-    * This memory access is observed and the corresponding instruction is decoded and categorized by the tool.
-    * According to the category the counter values are increased and the display gets updated. 
+    * method that is called with each batch of instructions retired by the simulator.
+    * Each instruction in the user text segment is categorized and the counter values are
+    * increased; kernel text and the exception handler are not counted.  This runs on
+    * the stream's delivery thread; the display is refreshed separately by a timer.
     * 
-    * @param resource the observed resource
-    * @param notice signals the type of access (memory, register etc.)
+    * @param batch the instructions retired since the last batch
     */
-       protected void processMIPSUpdate(Observable resource, AccessNotice notice) {
-      		
-         if (!notice.accessIsFromMIPS()) 
-            return;			
-      
-      // check for a read access in the text segment 
-         if (notice.getAccessType() == AccessNotice.READ && notice instanceof MemoryAccessNotice) {
-         
-         // now it is safe to make a cast of the notice
-            MemoryAccessNotice memAccNotice = (MemoryAccessNotice) notice;		
-         
-         // The next three statments are from Felipe Lessa's instruction counter.  Prevents double-counting.			
-            int a = memAccNotice.getAddress();
-            if (a == lastAddress) 
-               return;
-            lastAddress = a;
-         
-            try {
-            
-            // access the statement in the text segment without notifying other tools etc.
-               ProgramStatement stmt = Memory.getInstance().getStatementNoNotify(memAccNotice.getAddress());
-            
-            // necessary to handle possible null pointers at the end of the program 
-            // (e.g., if the simulator tries to execute the next instruction after the last instruction in the text segment) 
-               if (stmt != null) {				
-                  int category = getInstructionCategory(stmt);
-               			
-                  m_totalCounter ++;
-                  m_counters[category] ++;
-                  updateDisplay();					
-               }								
-            } 
-                catch (AddressErrorException e) {			
-               // silently ignore these exceptions
-               }			
-         }			
+       public void instructionsRetired(RetiredInstructionStream.Batch batch) {
+         for (int i = 0; i < batch.size(); i++) {
+            ProgramStatement stmt = batch.getStatement(i);
+            int address = stmt.getAddress();
+            if (address < Memory.textBaseAddress || address > Memory.textLimitAddress)
+               continue;
+            m_counters[getInstructionCategory(stmt)] ++;
+            m_totalCounter++;
+         }
       }
    
    
@@ -316,7 +285,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     */
        protected void initializePreGUI() {
          m_totalCounter = 0; 
-			lastAddress = -1; // from Felipe Lessa's instruction counter tool
          for (int i=0; i < InstructionStatistics.MAX_CATEGORY; i++) 
             m_counters[i] = 0;		
       }
@@ -328,7 +296,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     */
        protected void reset() {
          m_totalCounter = 0; 
-			lastAddress = -1; // from Felipe Lessa's instruction counter tool
          for (int i=0; i < InstructionStatistics.MAX_CATEGORY; i++) 
             m_counters[i] = 0;		
          updateDisplay();
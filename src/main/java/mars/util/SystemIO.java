@@ -1,6 +1,10 @@
    package mars.util;
    import mars.*;
+   import mars.mips.hardware.Machine;
    import java.io.*;
+   import java.nio.ByteBuffer;
+   import java.nio.channels.FileChannel;
+   import java.nio.file.*;
    import javax.swing.*;
    import java.util.*;
 	
@@ -48,8 +52,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       public static final int SYSCALL_BUFSIZE = 128;
     /** Maximum number of files that can be open */
       public static final int SYSCALL_MAXFILES = 32;
-    /** String used for description of file error */
-      public static String fileErrorString = new String("File operation OK");
+    /** Size of the buffer that gathers small writes to a file opened by a MIPS program */
+      public static final int FILE_WRITE_BUFFER_SIZE = 8192;
    
       private static final int O_RDONLY = 0x00000000;
       private static final int O_WRONLY = 0x00000001;
@@ -64,9 +68,38 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private static final int STDOUT = 1;
       private static final int STDERR = 2;
    
+      // Everything below is the I/O state of one Machine.  The static methods act
+   	// on that of the machine current to the calling thread.
+   	
+    /** String used for description of file error */
+      private String fileErrorString = new String("File operation OK");
+   
       // Will use one buffered reader for all keyboard/redirected/piped input.
    	// Added by DPS 28 Feb 2008.  See getInputReader() below.
-      private static BufferedReader inputReader = null;
+      private BufferedReader inputReader = null;
+   
+      // Streams behind console I/O when running from the command line.  These are the
+   	// process standard streams unless replaced, e.g. by the batch runner which gives
+   	// each program its own input and captures its output.
+      private InputStream standardInput = System.in;
+      private PrintStream standardOutput = System.out;
+      private PrintStream standardError = System.err;
+   
+      private final FileIOData files = new FileIOData();
+   
+    /**
+     * Create the syscall I/O state of a new Machine: no files open, console I/O
+     * on the process standard streams.
+     */
+       public SystemIO()
+      {
+      }
+   
+      // The I/O state all static methods operate on.
+       private static SystemIO current()
+      {
+         return Machine.getCurrent().getSystemIO();
+      }
    
     /**
      * Implements syscall to read an integer value.  
@@ -82,7 +115,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          {
             try
             {  
-               input = getInputReader().readLine();
+               input = current().readInputLine();
             } 
                 catch (IOException e)
                {}
@@ -117,7 +150,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          {
             try
             {
-               input = getInputReader().readLine();
+               input = current().readInputLine();
             } 
                 catch (IOException e)
                {}
@@ -151,7 +184,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          {
             try
             {
-               input = getInputReader().readLine();
+               input = current().readInputLine();
             } 
                 catch (IOException e)
                {}
@@ -178,7 +211,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       {
          if (Globals.getGui() == null)
          {
-            System.out.print(string);
+            current().standardOutput.print(string);
          } 
          else
          {
@@ -201,7 +234,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          {
             try
             {
-               input = getInputReader().readLine();
+               input = current().readInputLine();
             } 
                 catch (IOException e)
                {}
@@ -244,7 +277,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          {
             try
             {
-               input = getInputReader().readLine();
+               input = current().readInputLine();
             } 
                 catch (IOException e)
                {}
@@ -286,6 +319,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    
        public static int writeToFile(int fd, byte[] myBuffer, int lengthRequested)
       {
+         SystemIO io = current();
        /////////////// DPS 8-Jan-2013  ////////////////////////////////////////////////////
        /// Write to STDOUT or STDERR file descriptor while using IDE - write to Messages pane. 
          if ((fd==STDOUT || fd==STDERR) && Globals.getGui() != null) {
@@ -296,43 +330,40 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        ///////////////////////////////////////////////////////////////////////////////////
        //// When running in command mode, code below works for either regular file or STDOUT/STDERR
       
-         if (!FileIOData.fdInUse(fd, 1)) // Check the existence of the "write" fd
+         if (!io.files.fdInUse(fd, 1)) // Check the existence of the "write" fd
          {
-            fileErrorString = new String(
+            io.fileErrorString = new String(
                     "File descriptor " + fd + " is not open for writing");
             return -1;
          }
-         // retrieve FileOutputStream from storage
-         OutputStream outputStream = (OutputStream) FileIOData.getStreamInUse(fd);
+         // retrieve stream or channel from storage
+         Object stream = io.files.getStreamInUse(fd);
          try
          {
-            // Oct. 9 2005 Ken Vollmar
-            // Observation: made a call to outputStream.write(myBuffer, 0, lengthRequested)
-            //     with myBuffer containing 6(ten) 32-bit-words <---> 24(ten) bytes, where the
-            //     words are MIPS integers with values such that many of the bytes are ZEROES.
-            //     The effect is apparently that the write stops after encountering a zero-valued
-            //     byte. (The method write does not return a value and so this can't be verified
-            //     by the return value.)
-            // Writes up to lengthRequested bytes of data to this output stream from an array of bytes.
-            // outputStream.write(myBuffer, 0, lengthRequested); // write is a void method -- no verification value returned
-            
             // Oct. 9 2005 Ken Vollmar  Force the write statement to write exactly
             // the number of bytes requested, even though those bytes include many ZERO values.
-            for (int ii = 0; ii < lengthRequested; ii++)
+            // The whole range is handed over at once; zero bytes do not end a bulk write.
+            if (stream instanceof FileChannel)
+            {
+               io.files.write(fd, (FileChannel) stream, myBuffer, lengthRequested);
+            }
+            else
             {
-               outputStream.write(myBuffer[ii]); 
+               // STDOUT or STDERR in command mode
+               OutputStream outputStream = (OutputStream) stream;
+               outputStream.write(myBuffer, 0, lengthRequested);
+               outputStream.flush();// DPS 7-Jan-2013
             }
-            outputStream.flush();// DPS 7-Jan-2013
          } 
              catch (IOException e)
             {
-               fileErrorString = new String(
+               io.fileErrorString = new String(
                     "IO Exception on write of file with fd " + fd);
                return -1;
             } 
              catch (IndexOutOfBoundsException e)
             {
-               fileErrorString = new String(
+               io.fileErrorString = new String(
                     "IndexOutOfBoundsException on write of file with fd" + fd);
                return -1;
             }
@@ -351,6 +382,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      */
        public static int readFromFile(int fd, byte[] myBuffer, int lengthRequested)
       {
+         SystemIO io = current();
          int retValue = -1;  
        /////////////// DPS 8-Jan-2013  //////////////////////////////////////////////////
        /// Read from STDIN file descriptor while using IDE - get input from Messages pane. 
@@ -365,18 +397,25 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        ////////////////////////////////////////////////////////////////////////////////////
        //// When running in command mode, code below works for either regular file or STDIN
        
-         if (!FileIOData.fdInUse(fd, 0)) // Check the existence of the "read" fd
+         if (!io.files.fdInUse(fd, 0)) // Check the existence of the "read" fd
          {
-            fileErrorString = new String(
+            io.fileErrorString = new String(
                     "File descriptor " + fd + " is not open for reading");
             return -1;
          }
-        // retrieve FileInputStream from storage
-         InputStream InputStream = (InputStream) FileIOData.getStreamInUse(fd);
+        // retrieve stream or channel from storage
+         Object stream = io.files.getStreamInUse(fd);
          try
          {
-            // Reads up to lengthRequested bytes of data from this Input stream into an array of bytes.
-            retValue = InputStream.read(myBuffer, 0, lengthRequested);
+            // Reads up to lengthRequested bytes of data from this file or Input stream into an array of bytes.
+            if (stream instanceof FileChannel)
+            {
+               retValue = ((FileChannel) stream).read(ByteBuffer.wrap(myBuffer, 0, lengthRequested));
+            }
+            else
+            {
+               retValue = ((InputStream) stream).read(myBuffer, 0, lengthRequested);
+            }
          	// This method will return -1 upon EOF, but our spec says that negative
          	// value represents an error, so we return 0 for EOF.  DPS 10-July-2008.
             if (retValue == -1) {
@@ -385,13 +424,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          } 
              catch (IOException e)
             {
-               fileErrorString = new String(
+               io.fileErrorString = new String(
                     "IO Exception on read of file with fd " + fd);
                return -1;
             } 
              catch (IndexOutOfBoundsException e)
             {
-               fileErrorString = new String(
+               io.fileErrorString = new String(
                     "IndexOutOfBoundsException on read of file with fd" + fd);
                return -1;
             }
@@ -411,18 +450,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
     */
        public static int openFile(String filename, int flags)
       {
+         SystemIO io = current();
         // Internally, a "file descriptor" is an index into a table
-        // of the filename, flag, and the File???putStream associated with
+        // of the filename, flag, and the FileChannel associated with
         // that file descriptor.
       
          int retValue = -1;
-         char ch[] = { ' '}; // Need an array to convert to String
-         FileInputStream inputStream;
-         FileOutputStream outputStream;
          int fdToUse;
       
         // Check internal plausibility of opening this file
-         fdToUse = FileIOData.nowOpening(filename, flags);
+         fdToUse = io.files.nowOpening(filename, flags);
          retValue = fdToUse; // return value is the fd
          if (fdToUse < 0)
          { 
@@ -434,13 +471,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          {
             try
             {
-                // Set up input stream from disk file
-               inputStream = new FileInputStream(filename);
-               FileIOData.setStreamInUse(fdToUse, inputStream); // Save stream for later use
+                // Set up channel from disk file
+               FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+               io.files.setStreamInUse(fdToUse, channel); // Save channel for later use
             } 
-                catch (FileNotFoundException e)
+                catch (IOException | InvalidPathException e)
                {
-                  fileErrorString = new String(
+                  io.fileErrorString = new String(
                         "File " + filename + " not found, open for input.");
                   retValue = -1;
                }
@@ -450,12 +487,14 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             // Set up output stream to disk file
             try
             { 
-               outputStream = new FileOutputStream(filename, ((flags & O_APPEND) != 0) );
-               FileIOData.setStreamInUse(fdToUse, outputStream); // Save stream for later use
+               FileChannel channel = FileChannel.open(Paths.get(filename), 
+                     StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     ((flags & O_APPEND) != 0) ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+               io.files.setStreamInUse(fdToUse, channel); // Save channel for later use
             } 
-                catch (FileNotFoundException e)
+                catch (IOException | InvalidPathException e)
                {
-                  fileErrorString = new String(
+                  io.fileErrorString = new String(
                         "File " + filename + " not found, open for output.");
                   retValue = -1;
                }
@@ -470,7 +509,16 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      */
        public static void closeFile(int fd)
       {
-         FileIOData.close(fd);
+         current().files.close(fd);
+      }
+   
+    /** 
+     * Write out any output that open files are holding in their write buffers, so
+     * it can be seen from outside MARS while the MIPS program is paused.
+     */
+       public static void flushFiles()
+      {
+         current().files.flushAll();
       }
    
     /** 
@@ -478,7 +526,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
      */
        public static void resetFiles()
       {
-         FileIOData.resetFiles();
+         current().files.resetFiles();
       }
    
      /**
@@ -488,7 +536,26 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	*/
        public static String getFileErrorMessage()
       {
-         return fileErrorString;
+         return current().fileErrorString;
+      }
+   
+    /**
+     * Replace the streams used for console input and output when running without
+     * the GUI.  Takes effect immediately, including for file descriptors 0, 1 and 2.
+     * Any input already buffered from the previous input stream is discarded.
+     *
+     * @param in stream to read syscall input from
+     * @param out stream to write syscall output to
+     * @param err stream to write to for file descriptor 2
+     */
+       public static void setStandardStreams(InputStream in, PrintStream out, PrintStream err)
+      {
+         SystemIO io = current();
+         io.standardInput = in;
+         io.standardOutput = out;
+         io.standardError = err;
+         io.inputReader = null;
+         io.files.setupStdio();
       }
    
       ///////////////////////////////////////////////////////////////////////
@@ -497,26 +564,35 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// These are all equivalent in the eyes of the program because they are 
    	// transparent to it.  Lazy instantiation.  DPS.  28 Feb 2008
    	
-       private static BufferedReader getInputReader() {
+       private BufferedReader getInputReader() {
          if (inputReader == null) {
-            inputReader = new BufferedReader(new InputStreamReader(System.in));  
+            inputReader = new BufferedReader(new InputStreamReader(standardInput));  
          }
          return inputReader;
       }
+   
+      // Next line of command-line input, or an empty string at end of input so that
+   	// callers report invalid input rather than failing on null.
+       private String readInputLine() throws IOException {
+         String line = getInputReader().readLine();
+         return (line == null) ? "" : line;
+      }
    	
    	
     // //////////////////////////////////////////////////////////////////////////////
     // Maintain information on files in use. The index to the arrays is the "file descriptor."
     // Ken Vollmar, August 2005
     
-       private static class FileIOData
+       private class FileIOData
       {
-         private static String[] fileNames = new String[ SYSCALL_MAXFILES ]; // The filenames in use. Null if file descriptor i is not in use.
-         private static int[] fileFlags = new int[ SYSCALL_MAXFILES ]; // The flags of this file, 0=READ, 1=WRITE. Invalid if this file descriptor is not in use.
-         private static Object[] streams = new Object[SYSCALL_MAXFILES]; // The streams in use, associated with the filenames
+         private String[] fileNames = new String[ SYSCALL_MAXFILES ]; // The filenames in use. Null if file descriptor i is not in use.
+         private int[] fileFlags = new int[ SYSCALL_MAXFILES ]; // The flags of this file, 0=READ, 1=WRITE. Invalid if this file descriptor is not in use.
+         private Object[] streams = new Object[SYSCALL_MAXFILES]; // The streams in use, associated with the filenames
+         private ByteBuffer[] writeBuffers = new ByteBuffer[SYSCALL_MAXFILES]; // Output not yet written to a FileChannel, or null
+         private IOException[] writeErrors = new IOException[SYSCALL_MAXFILES]; // Failure of a flush not yet reported to the MIPS program, or null
       
         // Reset all file information. Closes any open files and resets the arrays
-          private static void resetFiles()
+          private void resetFiles()
          {
             for (int i = 0; i < SYSCALL_MAXFILES; i++)
             {
@@ -525,36 +601,109 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             setupStdio();
          }
       	// DPS 8-Jan-2013
-          private static void setupStdio() {
+          private void setupStdio() {
             fileNames[STDIN]  = "STDIN";
             fileNames[STDOUT] = "STDOUT";
             fileNames[STDERR] = "STDERR";
             fileFlags[STDIN]  = SystemIO.O_RDONLY;
             fileFlags[STDOUT] = SystemIO.O_WRONLY;
             fileFlags[STDERR] = SystemIO.O_WRONLY;
-            streams[STDIN]  = System.in;
-            streams[STDOUT] = System.out;
-            streams[STDERR] = System.err;
-            System.out.flush();
-            System.err.flush();
+            streams[STDIN]  = standardInput;
+            streams[STDOUT] = standardOutput;
+            streams[STDERR] = standardError;
+            standardOutput.flush();
+            standardError.flush();
          }
       
         // Preserve a stream that is in use
-          private static void setStreamInUse(int fd, Object s)
+          private void setStreamInUse(int fd, Object s)
          {
             streams[fd] = s;
          
          }
       
         // Retrieve a stream for use
-          private static Object getStreamInUse(int fd)
+          private Object getStreamInUse(int fd)
          {
             return streams[fd];
          
          }
       
+        // Write to a file channel.  Short writes are gathered in the descriptor's buffer
+        // and written together once it fills; a write too large for the buffer empties
+        // it and then goes to the channel directly.
+          private void write(int fd, FileChannel channel, byte[] data, int length) throws IOException
+         {
+            IOException pending = writeErrors[fd];
+            if (pending != null)
+            {
+               // output accepted earlier was lost; this write fails in its place
+               writeErrors[fd] = null;
+               throw pending;
+            }
+            ByteBuffer buffer = writeBuffers[fd];
+            if (buffer == null)
+            {
+               buffer = writeBuffers[fd] = ByteBuffer.allocate(FILE_WRITE_BUFFER_SIZE);
+            }
+            if (length > buffer.remaining())
+            {
+               flush(fd);
+               if (length >= FILE_WRITE_BUFFER_SIZE)
+               {
+                  ByteBuffer source = ByteBuffer.wrap(data, 0, length);
+                  while (source.hasRemaining())
+                  {
+                     channel.write(source);
+                  }
+                  return;
+               }
+            }
+            buffer.put(data, 0, length);
+         }
+      
+        // Write out the buffered output of a file channel, if any.
+          private void flush(int fd) throws IOException
+         {
+            ByteBuffer buffer = writeBuffers[fd];
+            if (buffer == null || buffer.position() == 0)
+            {
+               return;
+            }
+            buffer.flip();
+            try
+            {
+               while (buffer.hasRemaining())
+               {
+                  ((FileChannel) streams[fd]).write(buffer);
+               }
+            }
+            finally
+            {
+               buffer.clear();
+            }
+         }
+      
+        // Write out the buffered output of all file channels.  A failure is reported
+        // by the next write to that file descriptor.
+          private void flushAll()
+         {
+            for (int i = STDERR + 1; i < SYSCALL_MAXFILES; i++)
+            {
+               try
+               {
+                  flush(i);
+               } 
+                   catch (IOException ioe) {
+                     writeErrors[i] = ioe;
+                     fileErrorString = new String(
+                          "IO Exception on write of file with fd " + i);
+                  }
+            }
+         }
+      
         // Determine whether a given filename is already in use.
-          private static boolean filenameInUse(String requestedFilename)
+          private boolean filenameInUse(String requestedFilename)
          {
             for (int i = 0; i < SYSCALL_MAXFILES; i++)
             {
@@ -572,7 +721,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
       
         // Determine whether a given fd is already in use with the given flag.
-          private static boolean fdInUse(int fd, int flag)
+          private boolean fdInUse(int fd, int flag)
          {
             if (fd < 0 || fd >= SYSCALL_MAXFILES)
             {
@@ -592,7 +741,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       
         // Close the file with file descriptor fd. No errors are recoverable -- if the user's
         // made an error in the call, it will come back to him.
-          private static void close(int fd)
+          private void close(int fd)
          {
             // Can't close STDIN, STDOUT, STDERR, or invalid fd
             if (fd <= STDERR || fd >= SYSCALL_MAXFILES) 
@@ -602,15 +751,24 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          	// All this code will be executed only if the descriptor is open.
             if (streams[fd] != null)
             {
-               int keepFlag = fileFlags[fd];
-               Object keepStream = streams[fd];
+               FileChannel keepChannel = (FileChannel) streams[fd];
+               try {
+                  flush(fd);
+               } 
+                   catch (IOException ioe) {
+                     fileErrorString = new String(
+                          "IO Exception on write of file with fd " + fd);
+                  }
+               if (writeErrors[fd] != null) {
+                  fileErrorString = new String(
+                       "IO Exception on write of file with fd " + fd);
+               }
                fileFlags[fd] = -1;
                streams[fd] = null;
+               writeBuffers[fd] = null;
+               writeErrors[fd] = null;
                try {
-                  if (keepFlag == O_RDONLY)
-                     ((FileInputStream)keepStream).close();
-                  else
-                     ((FileOutputStream)keepStream).close();
+                  keepChannel.close();
                } 
                    catch (IOException ioe) {
                   // not concerned with this exception
@@ -624,7 +782,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
         // Attempt to open a new file with the given flag, using the lowest available file descriptor.
         // Check that filename is not in use, flag is reasonable, and there is an available file descriptor.
         // Return: file descriptor in 0...(SYSCALL_MAXFILES-1), or -1 if error
-          private static int nowOpening(String filename, int flag)
+          private int nowOpening(String filename, int flag)
          {
             int i = 0;
             if (filenameInUse(filename))
@@ -55,6 +55,15 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	// must obviously be smaller than the former.
       public static final int MAXIMUM_SCROLLED_CHARACTERS = Globals.maximumMessageCharacters;
       public static final int NUMBER_OF_CHARACTERS_TO_CUT = Globals.maximumMessageCharacters/10 ; // 10%
+   	// Run output posted by the execution thread is gathered in runOutput and
+   	// appended to the run text area in one piece at most once every
+   	// RUN_OUTPUT_FLUSH_INTERVAL milliseconds, rather than one event per syscall.
+   	// Only the last MAXIMUM_SCROLLED_CHARACTERS of it are kept, since anything
+   	// older would be cut from the text area anyway.
+      public static final int RUN_OUTPUT_FLUSH_INTERVAL = 33; // about 30 per second
+      private final StringBuffer runOutput = new StringBuffer();
+      private boolean runOutputFlushScheduled = false; // guarded by runOutput
+      private final javax.swing.Timer runOutputTimer;
    
    /**
      *  Constructor for the class, sets up two fresh tabbed text areas for program feedback.
@@ -67,6 +76,13 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          run= new JTextArea();
          assemble.setEditable(false); 
          run.setEditable(false);
+         runOutputTimer = new javax.swing.Timer(RUN_OUTPUT_FLUSH_INTERVAL, 
+                new ActionListener() {
+                   public void actionPerformed(ActionEvent e) {
+                     flushRunOutput();
+                  }
+               });
+         runOutputTimer.setRepeats(false);
       	// Set both text areas to mono font.  For assemble
       	// pane, will make messages more readable.  For run
       	// pane, will allow properly aligned "text graphics"
@@ -292,32 +308,59 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *
    	 *  @param message String to append to runtime display text
    	 */
-   	// The work of this method is done by "invokeLater" because
-   	// its JTextArea is maintained by the main event thread
+   	// The work of this method is done under the event-processing thread
+   	// because its JTextArea is maintained by the main event thread
    	// but also used, via this method, by the execution thread for 
-   	// "print" syscalls. "invokeLater" schedules the code to be
-   	// run under the event-processing thread no matter what.
+   	// "print" syscalls.  The message is only added to the pending run
+   	// output here; a timer appends everything pending since the last
+   	// flush, so a program printing in a tight loop posts a few dozen
+   	// events per second instead of one per syscall.
    	// DPS, 23 Aug 2005.
        public void postRunMessage(String message) {
-         final String mess = message;
-         SwingUtilities.invokeLater(
-                new Runnable() { 
-                   public void run() { 
-                     setSelectedComponent(runTab);
-                     run.append(mess);
-                  // can do some crude cutting here.  If the document gets "very large", 
-                  // let's cut off the oldest text. This will limit scrolling but the limit 
-                  // can be set reasonably high.
-                     if (run.getDocument().getLength() > MAXIMUM_SCROLLED_CHARACTERS) {
-                        try {
-                           run.getDocument().remove(0, NUMBER_OF_CHARACTERS_TO_CUT);
-                        } 
-                            catch (BadLocationException ble) { 
-                           // only if NUMBER_OF_CHARACTERS_TO_CUT > MAXIMUM_SCROLLED_CHARACTERS
-                           }
-                     }
-                  } 
-               });
+         synchronized (runOutput) {
+            runOutput.append(message);
+            int excess = runOutput.length() - MAXIMUM_SCROLLED_CHARACTERS;
+            if (excess > 0) {
+               runOutput.delete(0, excess);
+            }
+            if (runOutputFlushScheduled) {
+               return;
+            }
+            runOutputFlushScheduled = true;
+         }
+         runOutputTimer.start();
+      }
+   
+   	/**
+   	 *  Append all pending run output to the runtime display.  Must be called
+   	 *  from the GUI thread.  The output is otherwise appended within
+   	 *  RUN_OUTPUT_FLUSH_INTERVAL milliseconds of being posted.
+   	 */
+       public void flushRunOutput() {
+         String pending;
+         synchronized (runOutput) {
+            runOutputFlushScheduled = false;
+            if (runOutput.length() == 0) {
+               return;
+            }
+            pending = runOutput.toString();
+            runOutput.setLength(0);
+         }
+         setSelectedComponent(runTab);
+         run.append(pending);
+      // can do some crude cutting here.  If the document gets "very large", 
+      // let's cut off the oldest text. This will limit scrolling but the limit 
+      // can be set reasonably high.  A large flush may overshoot by more than
+      // NUMBER_OF_CHARACTERS_TO_CUT, so cut whatever it takes.
+         int length = run.getDocument().getLength();
+         if (length > MAXIMUM_SCROLLED_CHARACTERS) {
+            try {
+               run.getDocument().remove(0, Math.min(length, length - MAXIMUM_SCROLLED_CHARACTERS + NUMBER_OF_CHARACTERS_TO_CUT));
+            } 
+                catch (BadLocationException ble) { 
+               // only if NUMBER_OF_CHARACTERS_TO_CUT > MAXIMUM_SCROLLED_CHARACTERS
+               }
+         }
       }
    	
    	/**
@@ -452,6 +495,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                }
             };
           public void run() { // must be invoked from the GUI thread
+            flushRunOutput(); // prompt and earlier output go before the input position
             setSelectedComponent(runTab);
             run.setEditable(true);
             run.requestFocusInWindow();
@@ -50,16 +50,25 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private static final int PROGRAM_ARGUMENT_TEXTFIELD_COLUMNS = 40;
       private  JTable table;
       private  JScrollPane tableScroller;
-      private  Object[][] data;
-   	/* Maintain an int array of code addresses in parallel with ADDRESS_COLUMN,
-   	 * to speed model-row -> text-address mapping.  Maintain a Hashtable of
-   	 * (text-address, model-row) pairs to speed text-address -> model-row mapping.
-   	 * The former is used for breakpoints and changing display base (e.g. base 10 
-   	 * to 16); the latter is used for highlighting.  Both structures will remain
-   	 * consistent once set up, since address column is not editable.
+   	/* Rows are not formatted up front, since a large program has hundreds of thousands
+   	 * of them.  The table model formats a row from its ProgramStatement when the table
+   	 * first asks for it, and keeps the most recently used rows in rowCache.  Cells set
+   	 * through the model (only self-modifying code does so) are kept in changedCells.
+   	 * Maintain an int array of code addresses, to speed model-row -> text-address
+   	 * mapping, and a sorted array of (text-address, model-row) pairs searched by
+   	 * findRowForAddress() for text-address -> model-row mapping.  The former is used
+   	 * for breakpoints and address display; the latter is used for highlighting.  Both
+   	 * structures will remain consistent once set up, since address column is not editable.
    	 */
+      private  ArrayList statements;    // index is table model row, value is ProgramStatement
+      private  boolean[] breakpoints;   // index is table model row
+      private  int breakpointCount;
       private  int[] intAddresses;      // index is table model row, value is text address
-      private  Hashtable addressRows;   // key is text address, value is table model row
+      private  long[] addressRows;      // text address in high 32 bits, model row in low 32, sorted
+      private  RowCache rowCache;
+      private  Hashtable<Integer, Object[]> changedCells; // key is table model row, value is cells set, by column
+      private  int addressBase;         // display base of the address column
+      private  int sourceLineDigits;    // width of source line numbers, so they align
       private  Hashtable<Integer, ModifiedCode> executeMods;   // key is table model row, value is original code, basic, source.
       private  Container contentPane;
       private  TextTableModel tableModel;
@@ -80,6 +89,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
       private static final Font monospacedPlain12Point = new Font("Monospaced",Font.PLAIN,12);
    	// The following is displayed in the Basic and Source columns if existing code is overwritten using self-modifying code feature 
       private static final String modifiedCodeMarker = " ------ ";
+   	// Number of formatted rows kept; a few screenfuls.
+      private static final int ROW_CACHE_SIZE = 1024;
    	     
    	/**
    	  *  Constructor, sets up a new JInternalFrame.
@@ -105,50 +116,34 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	  *  Should convert the lines of code over to the table rows and columns.
    	  **/
        public  void setupTable(){
-         int addressBase = Globals.getGui().getMainPane().getExecutePane().getAddressDisplayBase();
+         addressBase = Globals.getGui().getMainPane().getExecutePane().getAddressDisplayBase();
          codeHighlighting = true;
          breakpointsEnabled = true;
-         ArrayList sourceStatementList = Globals.program.getMachineList();
-         data = new Object[sourceStatementList.size()][columnNames.length];
-         intAddresses = new int[data.length];
-         addressRows = new Hashtable(data.length);
-         executeMods = new Hashtable<Integer,ModifiedCode>(data.length);
+         statements = Globals.program.getMachineList();
+         int rows = statements.size();
+         breakpoints = new boolean[rows];
+         breakpointCount = 0;
+         intAddresses = new int[rows];
+         addressRows = new long[rows];
+         rowCache = new RowCache();
+         changedCells = new Hashtable<Integer, Object[]>();
+         executeMods = new Hashtable<Integer,ModifiedCode>();
       	// Get highest source line number to determine #leading spaces so line numbers will vertically align
-      	// In multi-file situation, this will not necessarily be the last line b/c sourceStatementList contains
+      	// In multi-file situation, this will not necessarily be the last line b/c the machine list contains
       	// source lines from all files.  DPS 3-Oct-10
          int maxSourceLineNumber = 0;
-         for (int i=sourceStatementList.size()-1; i>=0; i--) {
-            ProgramStatement statement = (ProgramStatement) sourceStatementList.get(i);
+         for (int i = 0; i < rows; i++) {
+            ProgramStatement statement = (ProgramStatement) statements.get(i);
             if (statement.getSourceLine() > maxSourceLineNumber) {
                maxSourceLineNumber = statement.getSourceLine();
             }
-         }
-         int sourceLineDigits = (""+maxSourceLineNumber).length();
-         int leadingSpaces = 0;
-         int lastLine = -1;
-         for (int i = 0; i < sourceStatementList.size(); i++) {
-            ProgramStatement statement = (ProgramStatement) sourceStatementList.get(i);
             intAddresses[i] = statement.getAddress();
-            addressRows.put(new Integer(intAddresses[i]), new Integer(i));
-            data[i][BREAK_COLUMN] = Boolean.FALSE;
-            data[i][ADDRESS_COLUMN] = NumberDisplayBaseChooser.formatUnsignedInteger(statement.getAddress(), addressBase);
-            data[i][CODE_COLUMN] = NumberDisplayBaseChooser.formatNumber(statement.getBinaryStatement(), 16);
-            data[i][BASIC_COLUMN] = statement.getPrintableBasicAssemblyStatement();
-            String sourceString = "";
-            if (!statement.getSource().equals("")) {
-               leadingSpaces = sourceLineDigits - ("" + statement.getSourceLine()).length();
-               String lineNumber = "          ".substring(0, leadingSpaces)
-                  + statement.getSourceLine()+ ": ";
-               if (statement.getSourceLine()==lastLine)
-                  lineNumber="          ".substring(0, sourceLineDigits)+"  ";
-               sourceString = lineNumber 
-                  + mars.util.EditorFont.substituteSpacesForTabs(statement.getSource());		
-            }
-            data[i][SOURCE_COLUMN] = sourceString;
-            lastLine=statement.getSourceLine();
+            addressRows[i] = ((long) intAddresses[i] << 32) | i;
          }
+         Arrays.sort(addressRows);
+         sourceLineDigits = (""+maxSourceLineNumber).length();
          contentPane.removeAll();
-         tableModel = new TextTableModel(data);
+         tableModel = new TextTableModel();
          if (tableModelListener!=null) {
             tableModel.addTableModelListener(tableModelListener);
             tableModel.fireTableDataChanged();// initialize listener
@@ -249,13 +244,11 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public void updateCodeAddresses() {
          if (contentPane.getComponentCount() == 0) 
             return; // ignore if no content to change
-         int addressBase = Globals.getGui().getMainPane().getExecutePane().getAddressDisplayBase();
-         int address;
-         String formattedAddress;
-         for (int i=0; i<intAddresses.length; i++) {
-            formattedAddress = NumberDisplayBaseChooser.formatUnsignedInteger(intAddresses[i], addressBase);
-            table.getModel().setValueAt(formattedAddress, i, ADDRESS_COLUMN);
+         addressBase = Globals.getGui().getMainPane().getExecutePane().getAddressDisplayBase();
+         synchronized (rowCache) {
+            rowCache.clear();
          }
+         fireColumnChanged(ADDRESS_COLUMN);
       }
    
     	/**
@@ -265,30 +258,64 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public void updateBasicStatements() {
          if (contentPane.getComponentCount() == 0) 
             return; // ignore if no content to change
-         ArrayList sourceStatementList = Globals.program.getMachineList();
-         for(int i=0; i < sourceStatementList.size(); i++) {
-            // Loop has been extended to cover self-modifying code.  If code at this memory location has been
-         	// modified at runtime, construct a ProgramStatement from the current address and binary code
-         	// then display its basic code.  DPS 11-July-2013
-            if (executeMods.get(i) == null) { // not modified, so use original logic.
-               ProgramStatement statement = (ProgramStatement) sourceStatementList.get(i); 
-               table.getModel().setValueAt(statement.getPrintableBasicAssemblyStatement(), i, BASIC_COLUMN);
-            }
-            else { 
-               try {
-                  ProgramStatement statement = new ProgramStatement(
-                     mars.util.Binary.stringToInt((String)table.getModel().getValueAt(i,CODE_COLUMN)),
-                     mars.util.Binary.stringToInt((String)table.getModel().getValueAt(i,ADDRESS_COLUMN))
-                     ); 
-                  table.getModel().setValueAt(statement.getPrintableBasicAssemblyStatement(), i, BASIC_COLUMN);					
-               } 
-                   catch (NumberFormatException e) { // should never happen but just in case...
-                     table.getModel().setValueAt("", i, BASIC_COLUMN);
-                  }
-            }
+         synchronized (rowCache) {
+            rowCache.clear();
+         }
+      	// Rows whose code has been modified at runtime display the basic code of a ProgramStatement
+      	// constructed from the current address and binary code.  DPS 11-July-2013
+         for (Enumeration<Integer> rows = executeMods.keys(); rows.hasMoreElements();) {
+            int row = rows.nextElement().intValue();
+            try {
+               ProgramStatement statement = new ProgramStatement(
+                  mars.util.Binary.stringToInt((String)tableModel.getValueAt(row,CODE_COLUMN)),
+                  intAddresses[row]); 
+               setChangedCell(row, BASIC_COLUMN, statement.getPrintableBasicAssemblyStatement());
+            } 
+                catch (NumberFormatException e) { // should never happen but just in case...
+                  setChangedCell(row, BASIC_COLUMN, "");
+               }
          }
+         fireColumnChanged(BASIC_COLUMN);
       }
    
+      // Tell the table every row of the given column has changed.
+       private void fireColumnChanged(int column) {
+         if (tableModel.getRowCount() > 0) {
+            tableModel.fireTableChanged(new TableModelEvent(tableModel, 0, tableModel.getRowCount()-1, column));
+         }
+      }
+   
+      // Record a cell value set through the table model.
+       private void setChangedCell(int row, int column, Object value) {
+         Object[] cells = changedCells.get(row);
+         if (cells == null) {
+            cells = new Object[columnNames.length];
+            changedCells.put(row, cells);
+         }
+         cells[column] = value;
+      }
+   
+      // Format the address, code, basic and source cells of a row.
+       private String[] formatRow(int row) {
+         ProgramStatement statement = (ProgramStatement) statements.get(row);
+         String[] cells = new String[columnNames.length];
+         cells[ADDRESS_COLUMN] = NumberDisplayBaseChooser.formatUnsignedInteger(statement.getAddress(), addressBase);
+         cells[CODE_COLUMN] = NumberDisplayBaseChooser.formatNumber(statement.getBinaryStatement(), 16);
+         cells[BASIC_COLUMN] = statement.getPrintableBasicAssemblyStatement();
+         String sourceString = "";
+         if (!statement.getSource().equals("")) {
+            int lastLine = (row == 0) ? -1 : ((ProgramStatement) statements.get(row-1)).getSourceLine();
+            int leadingSpaces = sourceLineDigits - ("" + statement.getSourceLine()).length();
+            String lineNumber = "          ".substring(0, leadingSpaces)
+               + statement.getSourceLine()+ ": ";
+            if (statement.getSourceLine()==lastLine)
+               lineNumber="          ".substring(0, sourceLineDigits)+"  ";
+            sourceString = lineNumber 
+               + mars.util.EditorFont.substituteSpacesForTabs(statement.getSource());		
+         }
+         cells[SOURCE_COLUMN] = sourceString;
+         return cells;
+      }   
    
    
      	/** Required by Observer interface.  Called when notified by an Observable that we are registered with.
@@ -377,7 +404,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             	// called.  (2) it updates the memory cell which in turn notifies us which invokes
             	// the update() method - the method we're in right now.  All we need to do here is
             	// update the table model then notify the controller/view to update its display.
-               data[row][CODE_COLUMN] = strValue;
+               setChangedCell(row, CODE_COLUMN, strValue);
                tableModel.fireTableCellUpdated(row, CODE_COLUMN);
             	// The other columns do not present a problem since they are not editable by user.
                tableModel.setValueAt(strBasic,  row, BASIC_COLUMN);
@@ -407,6 +434,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                tableModel.setValueAt(mc.getCode(), mc.getRow(), CODE_COLUMN);
                tableModel.setValueAt(mc.getBasic(), mc.getRow(), BASIC_COLUMN);
                tableModel.setValueAt(mc.getSource(), mc.getRow(), SOURCE_COLUMN);
+               changedCells.remove(mc.getRow());
             }
             executeMods.clear();
          }
@@ -426,12 +454,6 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
    	 
        public int getBreakpointCount() {
-         int breakpointCount = 0;
-         for(int i=0; i < data.length; i++){
-            if (((Boolean)data[i][BREAK_COLUMN]).booleanValue()) {
-               breakpointCount++;
-            }
-         }		 
          return breakpointCount;
       }
    	
@@ -447,8 +469,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
          int[] breakpoints = new int[breakpointCount];
          breakpointCount = 0;
-         for(int i=0; i < data.length; i++){
-            if (((Boolean)data[i][BREAK_COLUMN]).booleanValue()) {
+         for(int i=0; i < this.breakpoints.length; i++){
+            if (this.breakpoints[i]) {
                breakpoints[breakpointCount++] = intAddresses[i];
             }
          }
@@ -462,7 +484,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 */
        public void clearAllBreakpoints() {
          for(int i=0; i < tableModel.getRowCount(); i++){
-            if (((Boolean)data[i][BREAK_COLUMN]).booleanValue())  {
+            if (breakpoints[i])  {
             // must use this method to assure display updated and listener notified
                tableModel.setValueAt(Boolean.FALSE, i, BREAK_COLUMN);
             }         
@@ -565,8 +587,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
        public void unhighlightAllSteps() {
          boolean saved = this.getCodeHighlighting();
          this.setCodeHighlighting(false);
-         table.tableChanged(new TableModelEvent(tableModel,0,data.length-1, BASIC_COLUMN));
-         table.tableChanged(new TableModelEvent(tableModel,0,data.length-1, SOURCE_COLUMN));
+         table.tableChanged(new TableModelEvent(tableModel,0,tableModel.getRowCount()-1, BASIC_COLUMN));
+         table.tableChanged(new TableModelEvent(tableModel,0,tableModel.getRowCount()-1, SOURCE_COLUMN));
          this.setCodeHighlighting(saved);
       }
      
@@ -666,15 +688,21 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    	 *  corresponding to this address.
    	 */
        private int findRowForAddress(int address) throws IllegalArgumentException {
-         int addressRow = 0;
-         try {
-            addressRow = ((Integer)addressRows.get(new Integer(address))).intValue();
-         } 
-             catch (NullPointerException e) {
-               throw new IllegalArgumentException(); // address not found in map
-               //return addressRow;// if address not in map, do nothing.
+         int low = 0, high = addressRows.length - 1;
+         while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midAddress = (int) (addressRows[mid] >> 32);
+            if (midAddress < address) {
+               low = mid + 1;
+            } 
+            else if (midAddress > address) {
+               high = mid - 1;
+            } 
+            else {
+               return (int) addressRows[mid];
             }
-         return addressRow;
+         }
+         throw new IllegalArgumentException(); // address not found
       }  
      
    
@@ -682,10 +710,8 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
    /** Inner class to implement the Table model for this JTable.
     */
        class TextTableModel extends AbstractTableModel {
-         Object[][] data;
          
-          public TextTableModel(Object[][] d){
-            data=d;
+          public TextTableModel(){
          }
       
           public int getColumnCount() {
@@ -693,7 +719,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
         
           public int getRowCount() {
-            return data.length;
+            return statements.size();
          }
       
           public String getColumnName(int col) {
@@ -701,7 +727,24 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
       
           public Object getValueAt(int row, int col) {
-            return data[row][col];
+            if (col == BREAK_COLUMN) {
+               return Boolean.valueOf(breakpoints[row]);
+            }
+            if (!changedCells.isEmpty()) {
+               Object[] cells = changedCells.get(row);
+               if (cells != null && cells[col] != null) {
+                  return cells[col];
+               }
+            }
+            // The simulation thread also reads cells, when code is modified at runtime.
+            synchronized (rowCache) {
+               String[] cells = rowCache.get(row);
+               if (cells == null) {
+                  cells = formatRow(row);
+                  rowCache.put(row, cells);
+               }
+               return cells[col];
+            }
          }
       
         /*
@@ -711,7 +754,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          * rather than a check box.
          */
           public Class getColumnClass(int c) {
-            return getValueAt(0, c).getClass();
+            return (c == BREAK_COLUMN) ? Boolean.class : String.class;
          }
       
         /*
@@ -735,32 +778,34 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          */
           @Override
           public void setValueAt(Object value, int row, int col) {
+            if (col == BREAK_COLUMN) {
+               boolean set = ((Boolean) value).booleanValue();
+               if (set != breakpoints[row]) {
+                  breakpoints[row] = set;
+                  breakpointCount += set ? 1 : -1;
+               }
+               fireTableCellUpdated(row, col);
+               return;
+            }
             if (col != CODE_COLUMN) {
-               data[row][col] = value;
+               setChangedCell(row, col, value);
                fireTableCellUpdated(row, col);
                return;
             }	
          	// Handle changes in the Code column.		 
             int val=0;
             int address=0; 
-            if (value.equals(data[row][col])) 
+            if (value.equals(getValueAt(row, col))) 
                return;
             try {
                val = mars.util.Binary.stringToInt((String) value);
             }
                 catch (NumberFormatException nfe) {
-                  data[row][col] = "INVALID";
+                  setChangedCell(row, col, "INVALID");
                   fireTableCellUpdated(row, col);
                   return;
                }   
-            // calculate address from row and column
-            try {
-               address = mars.util.Binary.stringToInt((String)data[row][ADDRESS_COLUMN]);
-            }
-                catch (NumberFormatException nfe) {
-                  // can't really happen since memory addresses are completely under
-                  // the control of my software.
-               }				
+            address = intAddresses[row];
          	//  Assures that if changed during MIPS program execution, the update will
          	//  occur only between MIPS instructions.
             synchronized (Globals.memoryAndRegistersLock) {
@@ -785,7 +830,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
             for (int i=0; i < numRows; i++) {
                System.out.print("    row " + i + ":");
                for (int j=0; j < numCols; j++) {
-                  System.out.print("  " + data[i][j]);
+                  System.out.print("  " + getValueAt(i, j));
                }
                System.out.println();
             }
@@ -793,6 +838,18 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
          }
       }  
    
+      /*
+   	 *  The most recently used formatted rows, keyed by table model row.
+   	 */
+       private static class RowCache extends LinkedHashMap<Integer, String[]> {
+          RowCache() {
+            super(ROW_CACHE_SIZE * 2, 0.75f, true);
+         }
+          protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > ROW_CACHE_SIZE;
+         }
+      }
+   
        private class ModifiedCode {
          private Integer row;
          private Object code, basic, source;
@@ -1058,7 +1115,7 @@ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
                      JCheckBox check = ((JCheckBox)((DefaultCellEditor)table.getCellEditor(0,index)).getComponent());
                      breakpointsEnabled = !breakpointsEnabled;
                      check.setEnabled(breakpointsEnabled);
-                     table.tableChanged(new TableModelEvent(tableModel,0,data.length-1, BREAK_COLUMN));
+                     table.tableChanged(new TableModelEvent(tableModel,0,tableModel.getRowCount()-1, BREAK_COLUMN));
                   }
                }
                 public void mouseEntered(MouseEvent e) {}